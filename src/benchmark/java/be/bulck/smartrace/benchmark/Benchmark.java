@@ -0,0 +1,161 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.benchmark;
+
+import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RacerTeam;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+
+/**
+ * A class representing a benchmark, run through the benchmark runner.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public abstract class Benchmark {
+
+    /** The key of the benchmark. */
+    private String key;
+
+    /** The name of the benchmark. */
+    private String name;
+
+    /** The description of the benchmark. */
+    private String description;
+
+
+    /**
+     * Gets the key of the benchmark.
+     *
+     * @return the key of the benchmark
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Sets the key of the benchmark.
+     *
+     * @param key the new key of the benchmark
+     */
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Gets the name of the benchmark.
+     *
+     * @return the name of the benchmark
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the name of the benchmark.
+     *
+     * @param name the new name of the benchmark
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the description of the benchmark.
+     *
+     * @return the description of the benchmark
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Sets the description of the benchmark.
+     *
+     * @param description the new description of the benchmark
+     */
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Runs the benchmark and prints its results.
+     *
+     * @throws Exception an exception thrown if the benchmark fails
+     */
+    public abstract void run() throws Exception;
+
+    /**
+     * Formats a summary (average, percentiles and maximum) of latencies measured in nanoseconds.
+     *
+     * @param latencies the latencies measured (nanoseconds), sorted by this method
+     *
+     * @return the summary of the latencies, in milliseconds
+     */
+    protected static String summarize(long[] latencies) {
+        Arrays.sort(latencies);
+        long total = 0;
+
+        for (long latency : latencies)
+            total += latency;
+
+        return String.format("avg %8.3f ms | p50 %8.3f ms | p99 %8.3f ms | max %8.3f ms",
+                total / (double) latencies.length / 1e6,
+                latencies[latencies.length / 2] / 1e6,
+                latencies[(int) Math.min(latencies.length - 1, Math.ceil(latencies.length * 0.99) - 1)] / 1e6,
+                latencies[latencies.length - 1] / 1e6);
+    }
+
+    /**
+     * Deletes a race file and its WAL files.
+     *
+     * @param file the race file to delete
+     */
+    protected static void deleteRaceFile(File file) {
+        file.delete();
+        new File(file.getPath() + "-wal").delete();
+        new File(file.getPath() + "-shm").delete();
+    }
+
+    /**
+     * Creates a racer team directly in the race file, the racer teams having no data provider yet.
+     *
+     * @param name the name of the racer team
+     *
+     * @return the racer team created
+     *
+     * @throws Exception an exception thrown if the creation fails
+     */
+    protected static RacerTeam createRacerTeam(String name) throws Exception {
+        RacerTeam racerTeam = new RacerTeam(name);
+
+        SQLiteDatabaseFactory.getDatabase().write(connection -> {
+            try (PreparedStatement statement = connection.createPreparedStatement("INSERT INTO racer_team (racer_team_uuid, name) VALUES (?, ?)")) {
+                SQLiteUUIDCodec.setUUID(statement, 1, racerTeam.getUuid());
+                statement.setString(2, racerTeam.getName());
+                return statement.executeUpdate();
+            }
+        });
+
+        return racerTeam;
+    }
+}
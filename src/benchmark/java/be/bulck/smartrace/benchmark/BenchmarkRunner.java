@@ -0,0 +1,100 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.util.List;
+
+/**
+ * A class representing the runner of the benchmarks of the application. The benchmarks are kept out of the application:
+ * they are built with their own source set and run with the benchmark task of the build
+ * ({@code gradlew benchmark -Dexec.args=<key>}).
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class BenchmarkRunner {
+
+    /** The benchmarks available. */
+    private List<Benchmark> benchmarks;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(BenchmarkRunner.class);
+
+
+    /**
+     * Runs the benchmarks, all of them or the one whose key is provided as first argument.
+     *
+     * @param args the arguments provided at the launch of the benchmarks
+     */
+    public static void main(String[] args) {
+        try (ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext("/spring/benchmark-configuration.xml")) {
+            BenchmarkRunner runner = (BenchmarkRunner) context.getBean("benchmarkRunner");
+            runner.run(args.length > 0 ? args[0] : null);
+        }
+    }
+
+    /**
+     * Gets the benchmarks available.
+     *
+     * @return the array of benchmarks available
+     */
+    public Benchmark[] getBenchmarks() {
+        return benchmarks.toArray(new Benchmark[benchmarks.size()]);
+    }
+
+    /**
+     * Sets the benchmarks available.
+     *
+     * @param benchmarks the new list of benchmarks available
+     */
+    public void setBenchmarks(List<Benchmark> benchmarks) {
+        this.benchmarks = benchmarks;
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param benchmarkKey the key of the benchmark to run, or null to run all of them
+     */
+    public void run(String benchmarkKey) {
+        boolean found = false;
+
+        for (Benchmark benchmark : benchmarks) {
+            if (benchmarkKey == null || benchmark.getKey().equals(benchmarkKey)) {
+                found = true;
+                System.out.println("*** " + benchmark.getName() + " ***");
+                System.out.println(benchmark.getDescription() + "\n");
+
+                try {
+                    benchmark.run();
+                } catch (Exception ex) {
+                    log.error(ex.getMessage(), ex);
+                }
+
+                System.out.println();
+            }
+        }
+
+        if (!found)
+            log.warn("Benchmark not found for key '" + benchmarkKey + "'");
+    }
+}
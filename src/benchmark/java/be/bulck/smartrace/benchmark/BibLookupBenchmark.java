@@ -0,0 +1,201 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.benchmark;
+
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordIndex;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A benchmark of the resolution of a number (bib) to a race record on the capture path: random numbers, some of them
+ * unknown like a mistyped bib, are resolved with the race record index and with a HashMap of boxed numbers. Each
+ * round is measured separately, the first rounds warming up the JIT compiler.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class BibLookupBenchmark extends Benchmark {
+
+    /** The number of race records. */
+    private int racers = 5000;
+
+    /** The number of lookups of a round. */
+    private int lookups = 2000000;
+
+    /** The number of rounds, the first half warming up the JIT compiler. */
+    private int rounds = 10;
+
+
+    /**
+     * Gets the number of race records.
+     *
+     * @return the number of race records
+     */
+    public int getRacers() {
+        return racers;
+    }
+
+    /**
+     * Sets the number of race records.
+     *
+     * @param racers the new number of race records
+     */
+    public void setRacers(int racers) {
+        this.racers = racers;
+    }
+
+    /**
+     * Gets the number of lookups of a round.
+     *
+     * @return the number of lookups of a round
+     */
+    public int getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Sets the number of lookups of a round.
+     *
+     * @param lookups the new number of lookups of a round
+     */
+    public void setLookups(int lookups) {
+        this.lookups = lookups;
+    }
+
+    /**
+     * Gets the number of rounds.
+     *
+     * @return the number of rounds
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Sets the number of rounds.
+     *
+     * @param rounds the new number of rounds
+     */
+    public void setRounds(int rounds) {
+        this.rounds = rounds;
+    }
+
+    @Override
+    public void run() throws Exception {
+        Random random = new Random(42);
+        RaceRecordIndex index = new RaceRecordIndex();
+        Map<Integer, RaceRecord> hashMap = new HashMap<>();
+
+        for (int number = 1; number <= racers; number++) {
+            RaceRecord raceRecord = new RaceRecord();
+            raceRecord.setNumber(number);
+            index.put(number, raceRecord);
+            hashMap.put(number, raceRecord);
+        }
+
+        // One number out of ten is unknown, beyond the numbers of the race records
+        int[] numbers = new int[lookups];
+
+        for (int lookup = 0; lookup < lookups; lookup++)
+            numbers[lookup] = 1 + random.nextInt(racers + racers / 10);
+
+        long[] indexTimes = new long[rounds];
+        long[] hashMapTimes = new long[rounds];
+        long indexChecksum = 0;
+        long hashMapChecksum = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            indexChecksum += lookUp(index, numbers);
+            indexTimes[round] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            hashMapChecksum += lookUp(hashMap, numbers);
+            hashMapTimes[round] = System.nanoTime() - start;
+        }
+
+        print("INDEX", indexTimes, indexChecksum);
+        print("HASHMAP", hashMapTimes, hashMapChecksum);
+    }
+
+    /**
+     * Resolves numbers with the race record index.
+     *
+     * @param index the race record index
+     * @param numbers the numbers to resolve
+     *
+     * @return the sum of the numbers of the race records found, so the lookups can't be optimized away
+     */
+    private static long lookUp(RaceRecordIndex index, int[] numbers) {
+        long checksum = 0;
+
+        for (int number : numbers) {
+            RaceRecord raceRecord = index.get(number);
+
+            if (raceRecord != null)
+                checksum += raceRecord.getNumber();
+        }
+
+        return checksum;
+    }
+
+    /**
+     * Resolves numbers with a HashMap of boxed numbers.
+     *
+     * @param hashMap the HashMap
+     * @param numbers the numbers to resolve
+     *
+     * @return the sum of the numbers of the race records found, so the lookups can't be optimized away
+     */
+    private static long lookUp(Map<Integer, RaceRecord> hashMap, int[] numbers) {
+        long checksum = 0;
+
+        for (int number : numbers) {
+            RaceRecord raceRecord = hashMap.get(number);
+
+            if (raceRecord != null)
+                checksum += raceRecord.getNumber();
+        }
+
+        return checksum;
+    }
+
+    /**
+     * Prints the time of a lookup, measured on the rounds after the warm up.
+     *
+     * @param label the label of the lookup measured
+     * @param times the times of the rounds (nanoseconds)
+     * @param checksum the checksum of the lookups
+     */
+    private void print(String label, long[] times, long checksum) {
+        long total = 0;
+        long best = Long.MAX_VALUE;
+
+        for (int round = rounds / 2; round < rounds; round++) {
+            total += times[round];
+            best = Math.min(best, times[round]);
+        }
+
+        int measured = rounds - rounds / 2;
+
+        System.out.println(String.format("%-8s %d lookups x %d rounds | avg %6.2f ns | best %6.2f ns (checksum %d)",
+                label, lookups, measured, total / (double) measured / lookups, best / (double) lookups, checksum));
+    }
+}
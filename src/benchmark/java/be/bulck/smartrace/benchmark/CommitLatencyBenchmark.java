@@ -0,0 +1,120 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.benchmark;
+
+import be.bulck.smartrace.SmartRace;
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.dao.handler.sqlite.SQLiteDataHandler;
+import be.bulck.smartrace.dao.provider.sqlite.RaceCategorySQLiteProvider;
+import be.bulck.smartrace.dao.provider.sqlite.RaceSQLiteProvider;
+import be.bulck.smartrace.model.Race;
+import be.bulck.smartrace.model.RaceCategory;
+import be.bulck.smartrace.model.RaceState;
+
+import java.io.File;
+
+/**
+ * A benchmark measuring the latency of a save (commit) of a race file for each durability profile, and with the group
+ * commit.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class CommitLatencyBenchmark extends Benchmark {
+
+    /** The number of saves measured for each durability profile. */
+    private int iterations = 200;
+
+
+    /**
+     * Gets the number of saves measured for each durability profile.
+     *
+     * @return the number of saves measured for each durability profile
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Sets the number of saves measured for each durability profile.
+     *
+     * @param iterations the new number of saves measured for each durability profile
+     */
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public void run() throws Exception {
+        for (DurabilityProfile durabilityProfile : DurabilityProfile.values())
+            measure(durabilityProfile, false);
+
+        measure(DurabilityProfile.TIMING, true);
+    }
+
+    /**
+     * Measures the latency of the saves of a race file. With the group commit, the latency of a save is the time to
+     * enqueue it, and the latency of the flushes is reported separately.
+     *
+     * @param durabilityProfile the durability profile of the race file
+     * @param groupCommit whether the saves are committed by groups
+     *
+     * @throws Exception an exception thrown if the measurement fails
+     */
+    private void measure(DurabilityProfile durabilityProfile, boolean groupCommit) throws Exception {
+        File file = File.createTempFile("smart-race-benchmark", ".race");
+        file.delete();
+
+        SQLiteDataHandler dataHandler = new SQLiteDataHandler();
+        dataHandler.setGroupCommitEnabled(groupCommit);
+        RaceCategorySQLiteProvider raceCategoryProvider = new RaceCategorySQLiteProvider();
+        long[] latencies = new long[iterations];
+        String groupCommitMetrics = null;
+
+        try {
+            dataHandler.create(file.getPath(), durabilityProfile);
+            Race race = new Race("Benchmark", "Benchmark");
+            race.setState(RaceState.SETTING_UP);
+            race.setDescription(getDescription());
+            race.setVersion(SmartRace.VERSION);
+            new RaceSQLiteProvider().create(race);
+            dataHandler.saveAsync().get();
+
+            for (int i = 0; i < iterations; i++) {
+                raceCategoryProvider.create(new RaceCategory("Category " + i));
+
+                long start = System.nanoTime();
+                dataHandler.save();
+                latencies[i] = System.nanoTime() - start;
+            }
+
+            if (groupCommit) {
+                dataHandler.saveAsync().get();
+                groupCommitMetrics = dataHandler.getGroupCommitMetrics().toString();
+            }
+        } finally {
+            dataHandler.close();
+            deleteRaceFile(file);
+        }
+
+        System.out.println(String.format("%-12s %s", durabilityProfile + (groupCommit ? "+GROUP" : ""), summarize(latencies)));
+
+        if (groupCommitMetrics != null)
+            System.out.println(String.format("%-12s %s", "", groupCommitMetrics));
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.benchmark;
+
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.dao.handler.sqlite.SQLiteDataHandler;
+import be.bulck.smartrace.dao.provider.sqlite.RaceRecordSQLiteProvider;
+import be.bulck.smartrace.dao.provider.sqlite.RaceTrackSQLiteProvider;
+import be.bulck.smartrace.io.ingest.DeduplicationPolicy;
+import be.bulck.smartrace.io.ingest.FinishEvent;
+import be.bulck.smartrace.io.ingest.FinishEventDeduplicator;
+import be.bulck.smartrace.io.ingest.IngestMetrics;
+import be.bulck.smartrace.io.ingest.IngestServer;
+import be.bulck.smartrace.io.ingest.RaceRecordFinishEventSink;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordState;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.model.RacerTeam;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A benchmark of the deduplication of the finish events: RFID mats read each chip many times while its racer crosses
+ * the finish line, some reads being reordered by the network. The deduplicator alone is measured with both policies,
+ * then the reads are sent to the ingestion server at a sustained rate, and each race record must be finished once, at
+ * the time of its first read.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class DeduplicationBenchmark extends Benchmark {
+
+    /** The window of a crossing (in milliseconds). */
+    private static final long WINDOW = 3000;
+
+    /** The duration of a crossing, during which the chip is read (in milliseconds). */
+    private static final int CROSSING_DURATION = 1000;
+
+    /** The delay between the crossings of two racers (in milliseconds). */
+    private static final int CROSSING_INTERVAL = 5;
+
+    /** The number of events of a batch of the deduplicator alone. */
+    private static final int BATCH_SIZE = 500;
+
+    /** The number of rounds of the deduplicator alone, the first half warming up the JIT compiler. */
+    private static final int ROUNDS = 10;
+
+    /** The number of events sent at once to the ingestion server. */
+    private static final int EVENTS_PER_SEND = 100;
+
+    /** The maximum time to wait for the events to be persisted, once sent (in milliseconds). */
+    private static final long DRAIN_TIMEOUT = 60000;
+
+    /** The number of race records. */
+    private int racers = 2000;
+
+    /** The number of reads of a crossing. */
+    private int readsPerCrossing = 30;
+
+    /** The rate of the reads sent to the ingestion server (reads per second). */
+    private int rate = 10000;
+
+
+    /**
+     * Gets the number of race records.
+     *
+     * @return the number of race records
+     */
+    public int getRacers() {
+        return racers;
+    }
+
+    /**
+     * Sets the number of race records.
+     *
+     * @param racers the new number of race records
+     */
+    public void setRacers(int racers) {
+        this.racers = racers;
+    }
+
+    /**
+     * Gets the number of reads of a crossing.
+     *
+     * @return the number of reads of a crossing
+     */
+    public int getReadsPerCrossing() {
+        return readsPerCrossing;
+    }
+
+    /**
+     * Sets the number of reads of a crossing.
+     *
+     * @param readsPerCrossing the new number of reads of a crossing
+     */
+    public void setReadsPerCrossing(int readsPerCrossing) {
+        this.readsPerCrossing = readsPerCrossing;
+    }
+
+    /**
+     * Gets the rate of the reads sent to the ingestion server.
+     *
+     * @return the rate of the reads (reads per second)
+     */
+    public int getRate() {
+        return rate;
+    }
+
+    /**
+     * Sets the rate of the reads sent to the ingestion server.
+     *
+     * @param rate the new rate of the reads (reads per second)
+     */
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public void run() throws Exception {
+        List<FinishEvent> reads = createReads(System.currentTimeMillis());
+        long[] firstTimes = new long[racers + 1];
+        long[] bestTimes = new long[racers + 1];
+
+        for (int index = reads.size() - 1; index >= 0; index--) {
+            FinishEvent read = reads.get(index);
+            long time = read.getTime().toEpochMilli();
+            firstTimes[read.getNumber()] = time;
+            bestTimes[read.getNumber()] = bestTimes[read.getNumber()] == 0 ? time : Math.min(bestTimes[read.getNumber()], time);
+        }
+
+        measureDeduplicator(reads, DeduplicationPolicy.FIRST_READ, firstTimes);
+        measureDeduplicator(reads, DeduplicationPolicy.BEST_READ, bestTimes);
+        measureServer(reads, firstTimes);
+    }
+
+    /**
+     * Creates the reads of the crossings of the race records, numbered from 1, in the order they are received.
+     *
+     * @param start the time of the first crossing (milliseconds since the epoch)
+     *
+     * @return the reads
+     */
+    private List<FinishEvent> createReads(long start) {
+        Random random = new Random(42);
+        List<FinishEvent> reads = new ArrayList<>(racers * readsPerCrossing);
+
+        for (int number = 1; number <= racers; number++) {
+            long crossing = start + (long) number * CROSSING_INTERVAL;
+
+            for (int read = 0; read < readsPerCrossing; read++) {
+                long time = crossing + (long) read * CROSSING_DURATION / readsPerCrossing + random.nextInt(20);
+                reads.add(new FinishEvent(number, Instant.ofEpochMilli(time)));
+            }
+        }
+
+        reads.sort(Comparator.comparing(FinishEvent::getTime));
+
+        // One read out of ten is received after the next one
+        for (int index = 1; index < reads.size(); index++) {
+            if (random.nextInt(10) == 0)
+                Collections.swap(reads, index - 1, index);
+        }
+
+        return reads;
+    }
+
+    /**
+     * Measures the deduplicator alone, by batch, and checks the times kept.
+     *
+     * @param reads the reads, in the order they are received
+     * @param policy the policy of the deduplicator
+     * @param expectedTimes the times expected to be kept, by number
+     */
+    private void measureDeduplicator(List<FinishEvent> reads, DeduplicationPolicy policy, long[] expectedTimes) {
+        List<FinishEvent> batch = new ArrayList<>(BATCH_SIZE);
+        long[] keptTimes = new long[racers + 1];
+        long best = Long.MAX_VALUE;
+        int kept = 0;
+        int mismatches = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            FinishEventDeduplicator deduplicator = new FinishEventDeduplicator();
+            deduplicator.setWindow(WINDOW);
+            deduplicator.setPolicy(policy);
+            deduplicator.setCapacity(racers + 1);
+            kept = 0;
+
+            long start = System.nanoTime();
+
+            for (int offset = 0; offset < reads.size(); offset += BATCH_SIZE) {
+                batch.addAll(reads.subList(offset, Math.min(offset + BATCH_SIZE, reads.size())));
+                deduplicator.deduplicate(batch);
+                kept += batch.size();
+
+                for (FinishEvent event : batch)
+                    keptTimes[event.getNumber()] = event.getTime().toEpochMilli();
+
+                batch.clear();
+            }
+
+            if (round >= ROUNDS / 2)
+                best = Math.min(best, System.nanoTime() - start);
+        }
+
+        for (int number = 1; number <= racers; number++) {
+            if (keptTimes[number] != expectedTimes[number])
+                mismatches++;
+        }
+
+        System.out.println(String.format("%-10s %d reads -> %d kept | %.1f ns/read, %.1f M reads/s | %d time(s) mismatched",
+                policy, reads.size(), kept, best / (double) reads.size(), reads.size() / (best / 1e3), mismatches));
+    }
+
+    /**
+     * Sends the reads to the ingestion server at the rate set, and checks the end times of the race records.
+     *
+     * @param reads the reads, in the order they are received
+     * @param firstTimes the times of the first reads, by number
+     *
+     * @throws Exception an exception thrown if the benchmark fails
+     */
+    private void measureServer(List<FinishEvent> reads, long[] firstTimes) throws Exception {
+        File file = File.createTempFile("smart-race-benchmark", ".race");
+        file.delete();
+
+        SQLiteDataHandler dataHandler = new SQLiteDataHandler();
+        RaceRecordSQLiteProvider raceRecordProvider = new RaceRecordSQLiteProvider();
+        RaceRecordFinishEventSink sink = new RaceRecordFinishEventSink(dataHandler, raceRecordProvider);
+        sink.init();
+
+        FinishEventDeduplicator deduplicator = new FinishEventDeduplicator();
+        deduplicator.setWindow(WINDOW);
+        deduplicator.setCapacity(racers + 1);
+
+        IngestServer server = new IngestServer();
+        server.setTcpPort(0);
+        server.setUdpPort(-1);
+        server.setBindAddress(InetAddress.getLoopbackAddress().getHostAddress());
+        server.setSink(sink);
+        server.setDeduplicator(deduplicator);
+
+        try {
+            dataHandler.create(file.getPath(), DurabilityProfile.TIMING);
+            createRaceRecords(raceRecordProvider);
+            dataHandler.save();
+            server.start();
+
+            int maxQueueSize = 0;
+            long start = System.nanoTime();
+
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalTcpPort());
+                 OutputStream output = socket.getOutputStream()) {
+                StringBuilder lines = new StringBuilder();
+
+                for (int offset = 0; offset < reads.size(); offset += EVENTS_PER_SEND) {
+                    for (FinishEvent read : reads.subList(offset, Math.min(offset + EVENTS_PER_SEND, reads.size())))
+                        lines.append(read.getNumber()).append(' ').append(read.getTime().toEpochMilli()).append('\n');
+
+                    output.write(lines.toString().getBytes(StandardCharsets.US_ASCII));
+                    output.flush();
+                    lines.setLength(0);
+
+                    // The sends are paced on the rate, from the start
+                    long due = start + (offset + EVENTS_PER_SEND) * 1000000000L / rate;
+                    long wait = due - System.nanoTime();
+
+                    if (wait > 0)
+                        Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+
+                    maxQueueSize = Math.max(maxQueueSize, server.getQueueSize());
+                }
+            }
+
+            IngestMetrics metrics = server.getMetrics();
+            long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT;
+
+            while (metrics.getPersistedCount() + metrics.getSuppressedCount() + metrics.getFailedCount() < reads.size()
+                    && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+
+            long duration = System.nanoTime() - start;
+            server.stop();
+
+            int mismatches = 0;
+
+            for (int number = 1; number <= racers; number++) {
+                RaceRecord raceRecord = raceRecordProvider.findByNumber(number);
+
+                if (raceRecord.getState() != RaceRecordState.FINISHED
+                        || raceRecord.getEndTime().toEpochMilli() != firstTimes[number])
+                    mismatches++;
+            }
+
+            System.out.println(String.format("SERVER     %d reads at %d reads/s, handled in %.0f ms: %.0f reads/s, max %d waiting",
+                    reads.size(), rate, duration / 1e6, reads.size() / (duration / 1e9), maxQueueSize));
+            System.out.println(metrics);
+            System.out.println(String.format("%d race records, %d not finished at the time of their first read: %s",
+                    racers, mismatches, mismatches == 0 ? "OK" : "WRONG END TIMES"));
+        } finally {
+            server.stop();
+            dataHandler.close();
+            deleteRaceFile(file);
+        }
+    }
+
+    /**
+     * Creates the race records of the race file, numbered from 1.
+     *
+     * @param raceRecordProvider the race record provider
+     *
+     * @throws Exception an exception thrown if the creation fails
+     */
+    private void createRaceRecords(RaceRecordSQLiteProvider raceRecordProvider) throws Exception {
+        RaceTrack raceTrack = new RaceTrack("Track", 10);
+        new RaceTrackSQLiteProvider().create(raceTrack);
+        RacerTeam racerTeam = createRacerTeam("Team");
+        List<RaceRecord> raceRecords = new ArrayList<>(racers);
+
+        for (int number = 1; number <= racers; number++) {
+            RaceRecord raceRecord = new RaceRecord();
+            raceRecord.setNumber(number);
+            raceRecord.setTeam(racerTeam);
+            raceRecord.setTrack(raceTrack);
+            raceRecord.setState(RaceRecordState.RUNNING);
+            raceRecords.add(raceRecord);
+        }
+
+        raceRecordProvider.createAll(raceRecords);
+    }
+}
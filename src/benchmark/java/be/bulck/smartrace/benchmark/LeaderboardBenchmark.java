@@ -0,0 +1,287 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.benchmark;
+
+import be.bulck.smartrace.model.RaceCategory;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordState;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.ranking.Leaderboard;
+import be.bulck.smartrace.ranking.RankingEntry;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A benchmark of the live leaderboard: the race records finish one after the other, in a random order, and each finish
+ * is followed by the rank of the race record and the podium of its race track. The leaderboard updated in place is
+ * compared to the rankings sorted again at each finish.
+ *
+ * Then the standings (top ranks) of all the race categories are published after each finish: refreshed from the
+ * changes notified by the leaderboard, for the race categories of the race record only, compared to the standings of
+ * all the race categories computed again.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class LeaderboardBenchmark extends Benchmark {
+
+    /** The number of ranks of the standings published. */
+    private static final int STANDINGS_SIZE = 10;
+
+    /** The number of race records. */
+    private int racers = 10000;
+
+    /** The number of race tracks. */
+    private int tracks = 4;
+
+    /** The number of race categories, each race record belonging to two of them. */
+    private int categories = 40;
+
+
+    /**
+     * Gets the number of race records.
+     *
+     * @return the number of race records
+     */
+    public int getRacers() {
+        return racers;
+    }
+
+    /**
+     * Sets the number of race records.
+     *
+     * @param racers the new number of race records
+     */
+    public void setRacers(int racers) {
+        this.racers = racers;
+    }
+
+    /**
+     * Gets the number of race tracks.
+     *
+     * @return the number of race tracks
+     */
+    public int getTracks() {
+        return tracks;
+    }
+
+    /**
+     * Sets the number of race tracks.
+     *
+     * @param tracks the new number of race tracks
+     */
+    public void setTracks(int tracks) {
+        this.tracks = tracks;
+    }
+
+    /**
+     * Gets the number of race categories.
+     *
+     * @return the number of race categories
+     */
+    public int getCategories() {
+        return categories;
+    }
+
+    /**
+     * Sets the number of race categories.
+     *
+     * @param categories the new number of race categories
+     */
+    public void setCategories(int categories) {
+        this.categories = categories;
+    }
+
+    @Override
+    public void run() throws Exception {
+        List<RaceRecord> raceRecords = createRaceRecords();
+
+        long[] latencies = new long[raceRecords.size()];
+        Leaderboard leaderboard = new Leaderboard();
+        long checksum = 0;
+
+        for (int index = 0; index < raceRecords.size(); index++) {
+            RaceRecord raceRecord = raceRecords.get(index);
+            long start = System.nanoTime();
+
+            leaderboard.update(raceRecord);
+            checksum += leaderboard.rankOf(raceRecord.getTrack(), raceRecord.getNumber());
+            checksum += leaderboard.top(raceRecord.getTrack(), 3)[0].getNumber();
+
+            latencies[index] = System.nanoTime() - start;
+        }
+
+        System.out.println(String.format("%-9s %d finishes | %s (checksum %d)", "IN PLACE", latencies.length,
+                summarize(latencies), checksum));
+
+        latencies = new long[raceRecords.size()];
+        List<List<RaceRecord>> trackRankings = new ArrayList<>();
+        Comparator<RaceRecord> comparator = Comparator.comparing(RaceRecord::getEndTime).thenComparingInt(RaceRecord::getNumber);
+        checksum = 0;
+
+        for (int track = 0; track < tracks; track++)
+            trackRankings.add(new ArrayList<>());
+
+        for (int index = 0; index < raceRecords.size(); index++) {
+            RaceRecord raceRecord = raceRecords.get(index);
+            long start = System.nanoTime();
+
+            List<RaceRecord> ranking = trackRankings.get(raceRecord.getNumber() % tracks);
+            ranking.add(raceRecord);
+            Collections.sort(ranking, comparator);
+            checksum += ranking.indexOf(raceRecord) + 1;
+            checksum += ranking.get(0).getNumber();
+
+            latencies[index] = System.nanoTime() - start;
+        }
+
+        System.out.println(String.format("%-9s %d finishes | %s (checksum %d)", "RE-SORT", latencies.length,
+                summarize(latencies), checksum));
+
+        RankingEntry[] podium = leaderboard.top(raceRecords.get(0).getTrack(), 3);
+        System.out.println(String.format("Podium of %s: %s %s %s", raceRecords.get(0).getTrack().getName(), podium[0],
+                podium[1], podium[2]));
+
+        measureStandings(raceRecords);
+    }
+
+    /**
+     * Measures the publication of the standings of all the race categories after each finish.
+     *
+     * @param raceRecords the race records finished, in the order they finish
+     */
+    private void measureStandings(List<RaceRecord> raceRecords) {
+        Map<UUID, RaceCategory> raceCategories = new LinkedHashMap<>();
+
+        for (RaceRecord raceRecord : raceRecords) {
+            for (RaceCategory raceCategory : raceRecord.getCategories())
+                raceCategories.put(raceCategory.getUuid(), raceCategory);
+        }
+
+        Leaderboard leaderboard = new Leaderboard();
+        Map<UUID, RankingEntry[]> published = new HashMap<>();
+        long[] refreshes = new long[1];
+
+        leaderboard.addListener((raceCategoryUuid, firstRank, revision) -> {
+            if (firstRank <= STANDINGS_SIZE) {
+                published.put(raceCategoryUuid, leaderboard.top(raceCategories.get(raceCategoryUuid), STANDINGS_SIZE));
+                refreshes[0]++;
+            }
+        });
+
+        long[] latencies = new long[raceRecords.size()];
+
+        for (int index = 0; index < raceRecords.size(); index++) {
+            long start = System.nanoTime();
+            leaderboard.update(raceRecords.get(index));
+            latencies[index] = System.nanoTime() - start;
+        }
+
+        System.out.println(String.format("%-9s %d categories | %s (%d standings refreshed)", "PUBLISH",
+                raceCategories.size(), summarize(latencies), refreshes[0]));
+
+        Map<UUID, List<RaceRecord>> categoryRankings = new HashMap<>();
+        Map<UUID, int[]> recomputed = new HashMap<>();
+        Comparator<RaceRecord> comparator = Comparator.comparing(RaceRecord::getEndTime).thenComparingInt(RaceRecord::getNumber);
+        latencies = new long[raceRecords.size()];
+
+        for (UUID raceCategoryUuid : raceCategories.keySet())
+            categoryRankings.put(raceCategoryUuid, new ArrayList<>());
+
+        for (int index = 0; index < raceRecords.size(); index++) {
+            RaceRecord raceRecord = raceRecords.get(index);
+            long start = System.nanoTime();
+
+            for (RaceCategory raceCategory : raceRecord.getCategories())
+                categoryRankings.get(raceCategory.getUuid()).add(raceRecord);
+
+            for (Map.Entry<UUID, List<RaceRecord>> categoryRanking : categoryRankings.entrySet()) {
+                List<RaceRecord> ranking = categoryRanking.getValue();
+                Collections.sort(ranking, comparator);
+
+                int[] standings = new int[Math.min(STANDINGS_SIZE, ranking.size())];
+
+                for (int rank = 0; rank < standings.length; rank++)
+                    standings[rank] = ranking.get(rank).getNumber();
+
+                recomputed.put(categoryRanking.getKey(), standings);
+            }
+
+            latencies[index] = System.nanoTime() - start;
+        }
+
+        int mismatches = 0;
+
+        for (UUID raceCategoryUuid : raceCategories.keySet()) {
+            RankingEntry[] standings = published.get(raceCategoryUuid);
+            int[] numbers = recomputed.get(raceCategoryUuid);
+
+            for (int rank = 0; rank < numbers.length; rank++) {
+                if (standings == null || standings.length != numbers.length || standings[rank].getNumber() != numbers[rank])
+                    mismatches++;
+            }
+        }
+
+        System.out.println(String.format("%-9s %d categories | %s (%d standings mismatched)", "RECOMPUTE",
+                raceCategories.size(), summarize(latencies), mismatches));
+    }
+
+    /**
+     * Creates the race records finished, in the order they finish. The end times are random, so each race record
+     * finishing may take any rank.
+     *
+     * @return the race records finished
+     */
+    private List<RaceRecord> createRaceRecords() {
+        Random random = new Random(42);
+        Instant startTime = Instant.now();
+        List<RaceTrack> raceTracks = new ArrayList<>();
+        List<RaceCategory> raceCategories = new ArrayList<>();
+        List<RaceRecord> raceRecords = new ArrayList<>();
+
+        for (int track = 0; track < tracks; track++) {
+            RaceTrack raceTrack = new RaceTrack("Track " + (track + 1), 10);
+            raceTrack.setStartTime(startTime);
+            raceTracks.add(raceTrack);
+        }
+
+        for (int category = 0; category < categories; category++)
+            raceCategories.add(new RaceCategory("Category " + (category + 1)));
+
+        for (int number = 1; number <= racers; number++) {
+            RaceRecord raceRecord = new RaceRecord();
+            raceRecord.setNumber(number);
+            raceRecord.setTrack(raceTracks.get(number % tracks));
+            raceRecord.addCategory(raceCategories.get(random.nextInt(categories)));
+            raceRecord.addCategory(raceCategories.get(random.nextInt(categories)));
+            raceRecord.setState(RaceRecordState.FINISHED);
+            raceRecord.setEndTime(startTime.plusMillis(3600000 + random.nextInt(7200000)));
+            raceRecords.add(raceRecord);
+        }
+
+        return raceRecords;
+    }
+}
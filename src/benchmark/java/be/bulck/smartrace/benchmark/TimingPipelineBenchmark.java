@@ -0,0 +1,274 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.benchmark;
+
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.dao.handler.sqlite.SQLiteDataHandler;
+import be.bulck.smartrace.dao.provider.RaceRecordListener;
+import be.bulck.smartrace.dao.provider.sqlite.RaceRecordSQLiteProvider;
+import be.bulck.smartrace.dao.provider.sqlite.RaceTrackSQLiteProvider;
+import be.bulck.smartrace.io.ingest.FinishEventDeduplicator;
+import be.bulck.smartrace.io.ingest.RaceRecordFinishEventSink;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordState;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.model.RacerTeam;
+import be.bulck.smartrace.ranking.Leaderboard;
+import be.bulck.smartrace.timing.DeduplicationHandler;
+import be.bulck.smartrace.timing.PersistenceHandler;
+import be.bulck.smartrace.timing.SimulatedChipReader;
+import be.bulck.smartrace.timing.TimingConsumer;
+import be.bulck.smartrace.timing.TimingPipeline;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A benchmark of the capture path: a simulated chip reader publishes the burst reads of the crossings in a timing
+ * pipeline as fast as it accepts them. The ring buffer is first measured with the deduplication and two consumers only
+ * counting the finishes, then with the persistence in a new race file and the leaderboard. At the end, each race record
+ * must be finished and ranked at the time of its first read.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class TimingPipelineBenchmark extends Benchmark {
+
+    /** The window of a crossing (in milliseconds). */
+    private static final long WINDOW = 3000;
+
+    /** The number of race records. */
+    private int racers = 10000;
+
+    /** The number of reads of a crossing. */
+    private int readsPerCrossing = 30;
+
+    /** The number of slots of the ring buffer. */
+    private int bufferSize = 4096;
+
+
+    /**
+     * Gets the number of race records.
+     *
+     * @return the number of race records
+     */
+    public int getRacers() {
+        return racers;
+    }
+
+    /**
+     * Sets the number of race records.
+     *
+     * @param racers the new number of race records
+     */
+    public void setRacers(int racers) {
+        this.racers = racers;
+    }
+
+    /**
+     * Gets the number of reads of a crossing.
+     *
+     * @return the number of reads of a crossing
+     */
+    public int getReadsPerCrossing() {
+        return readsPerCrossing;
+    }
+
+    /**
+     * Sets the number of reads of a crossing.
+     *
+     * @param readsPerCrossing the new number of reads of a crossing
+     */
+    public void setReadsPerCrossing(int readsPerCrossing) {
+        this.readsPerCrossing = readsPerCrossing;
+    }
+
+    /**
+     * Gets the number of slots of the ring buffer.
+     *
+     * @return the number of slots of the ring buffer
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the number of slots of the ring buffer.
+     *
+     * @param bufferSize the new number of slots of the ring buffer (a power of two)
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void run() throws Exception {
+        measureRingBuffer();
+        measureCapture();
+    }
+
+    /**
+     * Measures the ring buffer, with the deduplication and two consumers counting the finishes.
+     */
+    private void measureRingBuffer() {
+        TimingPipeline pipeline = new TimingPipeline(bufferSize);
+        long[] finishes = new long[2];
+
+        TimingConsumer deduplication = pipeline.addConsumer("deduplication", new DeduplicationHandler(createDeduplicator()));
+        pipeline.addConsumer("counter-1", (event, sequence, endOfBatch) -> finishes[0] += event.isDuplicate() ? 0 : 1, deduplication);
+        pipeline.addConsumer("counter-2", (event, sequence, endOfBatch) -> finishes[1] += event.isDuplicate() ? 0 : 1, deduplication);
+
+        SimulatedChipReader chipReader = new SimulatedChipReader(pipeline);
+        chipReader.setRacers(racers);
+        chipReader.setReadsPerCrossing(readsPerCrossing);
+
+        long duration = capture(pipeline, chipReader);
+
+        System.out.println(String.format("%-8s %d reads in %.0f ms: %.0f reads/s | %d and %d finishes counted", "RING",
+                chipReader.getPublishedCount(), duration / 1e6, chipReader.getPublishedCount() / (duration / 1e9),
+                finishes[0], finishes[1]));
+        System.out.println(pipeline);
+    }
+
+    /**
+     * Measures the capture path, with the persistence in a new race file and the leaderboard following it.
+     *
+     * @throws Exception an exception thrown if the benchmark fails
+     */
+    private void measureCapture() throws Exception {
+        File file = File.createTempFile("smart-race-benchmark", ".race");
+        file.delete();
+
+        SQLiteDataHandler dataHandler = new SQLiteDataHandler();
+        RaceRecordSQLiteProvider raceRecordProvider = new RaceRecordSQLiteProvider();
+        RaceRecordFinishEventSink sink = new RaceRecordFinishEventSink(dataHandler, raceRecordProvider);
+        sink.init();
+
+        try {
+            dataHandler.create(file.getPath(), DurabilityProfile.TIMING);
+            RaceTrack raceTrack = createRaceRecords(raceRecordProvider);
+            dataHandler.save();
+
+            // The leaderboard follows the race records finished, as the leaderboard service does
+            Leaderboard leaderboard = new Leaderboard();
+            raceRecordProvider.addListener(new RaceRecordListener() {
+                @Override
+                public void raceRecordChanged(RaceRecord raceRecord) {
+                    leaderboard.update(raceRecord);
+                }
+
+                @Override
+                public void raceRecordDeleted(RaceRecord raceRecord) {
+                    leaderboard.remove(raceRecord);
+                }
+            });
+
+            TimingPipeline pipeline = new TimingPipeline(bufferSize);
+            PersistenceHandler persistence = new PersistenceHandler(sink, pipeline.getRingBuffer().getBatchLimit());
+
+            TimingConsumer deduplication = pipeline.addConsumer("deduplication", new DeduplicationHandler(createDeduplicator()));
+            pipeline.addConsumer("persistence", persistence, deduplication);
+
+            SimulatedChipReader chipReader = new SimulatedChipReader(pipeline);
+            chipReader.setRacers(racers);
+            chipReader.setReadsPerCrossing(readsPerCrossing);
+
+            long duration = capture(pipeline, chipReader);
+            int mismatches = 0;
+
+            for (int number = 1; number <= racers; number++) {
+                RaceRecord raceRecord = raceRecordProvider.findByNumber(number);
+
+                if (raceRecord.getState() != RaceRecordState.FINISHED
+                        || raceRecord.getEndTime().toEpochMilli() != chipReader.getFirstReadTime(number))
+                    mismatches++;
+            }
+
+            System.out.println(String.format("%-8s %d reads in %.0f ms: %.0f reads/s | %d finishes persisted, %d ranked",
+                    "CAPTURE", chipReader.getPublishedCount(), duration / 1e6, chipReader.getPublishedCount() / (duration / 1e9),
+                    persistence.getPersistedCount(), leaderboard.size(raceTrack)));
+            System.out.println(pipeline);
+            System.out.println(String.format("%d race records, %d not finished at the time of their first read, winner %s: %s",
+                    racers, mismatches, leaderboard.top(raceTrack, 1)[0],
+                    mismatches == 0 && leaderboard.size(raceTrack) == racers ? "OK" : "FINISHES LOST"));
+        } finally {
+            dataHandler.close();
+            deleteRaceFile(file);
+        }
+    }
+
+    /**
+     * Runs the simulated chip reader, then stops the pipeline once all its reads are handled.
+     *
+     * @param pipeline the timing pipeline
+     * @param chipReader the simulated chip reader
+     *
+     * @return the time to publish and handle all the reads (in nanoseconds)
+     */
+    private static long capture(TimingPipeline pipeline, SimulatedChipReader chipReader) {
+        pipeline.start();
+
+        long start = System.nanoTime();
+        chipReader.run();
+        pipeline.stop();
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Creates the deduplicator of the crossings.
+     *
+     * @return the deduplicator
+     */
+    private FinishEventDeduplicator createDeduplicator() {
+        FinishEventDeduplicator deduplicator = new FinishEventDeduplicator();
+        deduplicator.setWindow(WINDOW);
+        deduplicator.setCapacity(racers + 1);
+
+        return deduplicator;
+    }
+
+    /**
+     * Creates the race records of the race file, numbered from 1, on a single race track.
+     *
+     * @param raceRecordProvider the race record provider
+     *
+     * @return the race track
+     *
+     * @throws Exception an exception thrown if the creation fails
+     */
+    private RaceTrack createRaceRecords(RaceRecordSQLiteProvider raceRecordProvider) throws Exception {
+        RaceTrack raceTrack = new RaceTrack("Track", 10);
+        new RaceTrackSQLiteProvider().create(raceTrack);
+        RacerTeam racerTeam = createRacerTeam("Team");
+        List<RaceRecord> raceRecords = new ArrayList<>(racers);
+
+        for (int number = 1; number <= racers; number++) {
+            RaceRecord raceRecord = new RaceRecord();
+            raceRecord.setNumber(number);
+            raceRecord.setTeam(racerTeam);
+            raceRecord.setTrack(raceTrack);
+            raceRecord.setState(RaceRecordState.RUNNING);
+            raceRecords.add(raceRecord);
+        }
+
+        raceRecordProvider.createAll(raceRecords);
+
+        return raceTrack;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.benchmark;
+
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.dao.handler.sqlite.SQLiteDataHandler;
+import be.bulck.smartrace.dao.provider.sqlite.RaceRecordSQLiteProvider;
+import be.bulck.smartrace.dao.provider.sqlite.RaceTrackSQLiteProvider;
+import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordState;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.model.RacerTeam;
+import be.bulck.smartrace.util.uuid.RandomUUIDGenerator;
+import be.bulck.smartrace.util.uuid.TimeOrderedUUIDGenerator;
+import be.bulck.smartrace.util.uuid.UUIDGenerator;
+
+import java.io.File;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A benchmark measuring the generation of the identifiers (UUID) and the insertion throughput of the race records,
+ * with random and with time-ordered identifiers.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class UUIDInsertBenchmark extends Benchmark {
+
+    /** The number of race records inserted for each generator. */
+    private int records = 50000;
+
+    /** The number of race records inserted by batch. */
+    private int batchSize = 500;
+
+    /** The number of identifiers generated to measure each generator. */
+    private int generations = 1000000;
+
+
+    /**
+     * Gets the number of race records inserted for each generator.
+     *
+     * @return the number of race records inserted for each generator
+     */
+    public int getRecords() {
+        return records;
+    }
+
+    /**
+     * Sets the number of race records inserted for each generator.
+     *
+     * @param records the new number of race records inserted for each generator
+     */
+    public void setRecords(int records) {
+        this.records = records;
+    }
+
+    /**
+     * Gets the number of race records inserted by batch.
+     *
+     * @return the number of race records inserted by batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of race records inserted by batch.
+     *
+     * @param batchSize the new number of race records inserted by batch
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Gets the number of identifiers generated to measure each generator.
+     *
+     * @return the number of identifiers generated to measure each generator
+     */
+    public int getGenerations() {
+        return generations;
+    }
+
+    /**
+     * Sets the number of identifiers generated to measure each generator.
+     *
+     * @param generations the new number of identifiers generated to measure each generator
+     */
+    public void setGenerations(int generations) {
+        this.generations = generations;
+    }
+
+    @Override
+    public void run() throws Exception {
+        UUIDGenerator[] generators = { new RandomUUIDGenerator(), new TimeOrderedUUIDGenerator() };
+
+        for (UUIDGenerator generator : generators)
+            measureGeneration(generator);
+
+        for (UUIDGenerator generator : generators)
+            measureInsertion(generator);
+    }
+
+    /**
+     * Measures the generation of identifiers.
+     *
+     * @param generator the generator of the identifiers
+     */
+    private void measureGeneration(UUIDGenerator generator) {
+        long checksum = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < generations; i++)
+            checksum += generator.generate().getLeastSignificantBits();
+
+        long duration = System.nanoTime() - start;
+
+        System.out.println(String.format("%-12s generation %8.1f ns/UUID (checksum %d)",
+                getLabel(generator), duration / (double) generations, checksum & 0xFF));
+    }
+
+    /**
+     * Measures the insertion of race records in a new race file, by batch, each batch being saved.
+     *
+     * @param generator the generator of the identifiers of the race records
+     *
+     * @throws Exception an exception thrown if the measurement fails
+     */
+    private void measureInsertion(UUIDGenerator generator) throws Exception {
+        File file = File.createTempFile("smart-race-benchmark", ".race");
+        file.delete();
+
+        SQLiteDataHandler dataHandler = new SQLiteDataHandler();
+        long[] latencies = new long[(records + batchSize - 1) / batchSize];
+        long duration = 0;
+        long pageCount;
+
+        try {
+            dataHandler.create(file.getPath(), DurabilityProfile.TIMING);
+
+            RaceTrack raceTrack = new RaceTrack("Track", 10);
+            new RaceTrackSQLiteProvider().create(raceTrack);
+            RacerTeam racerTeam = createRacerTeam("Team");
+            dataHandler.save();
+
+            RaceRecordSQLiteProvider raceRecordProvider = new RaceRecordSQLiteProvider();
+
+            for (int batch = 0; batch < latencies.length; batch++) {
+                List<RaceRecord> raceRecords = new ArrayList<>(batchSize);
+
+                for (int number = batch * batchSize + 1; number <= Math.min(records, (batch + 1) * batchSize); number++) {
+                    RaceRecord raceRecord = new RaceRecord(generator.generate());
+                    raceRecord.setNumber(number);
+                    raceRecord.setTeam(racerTeam);
+                    raceRecord.setTrack(raceTrack);
+                    raceRecord.setState(RaceRecordState.READY);
+                    raceRecords.add(raceRecord);
+                }
+
+                long start = System.nanoTime();
+                raceRecordProvider.createAll(raceRecords);
+                dataHandler.save();
+                latencies[batch] = System.nanoTime() - start;
+                duration += latencies[batch];
+            }
+
+            pageCount = SQLiteDatabaseFactory.getDatabase().read(connection -> {
+                try (Statement statement = connection.createStatement(); ResultSet row = statement.executeQuery("PRAGMA page_count")) {
+                    return row.next() ? row.getLong(1) : 0;
+                }
+            });
+        } finally {
+            dataHandler.close();
+            deleteRaceFile(file);
+        }
+
+        System.out.println(String.format("%-12s insertion  %8.0f records/s | %d pages | batch of %d: %s",
+                getLabel(generator), records / (duration / 1e9), pageCount, batchSize, summarize(latencies)));
+    }
+
+    /**
+     * Gets the label of a generator in the results.
+     *
+     * @param generator the generator
+     *
+     * @return the label of the generator
+     */
+    private static String getLabel(UUIDGenerator generator) {
+        return generator instanceof TimeOrderedUUIDGenerator ? "ORDERED" : "RANDOM";
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+import java.util.Random;
+
+/**
+ * A class representing a simulated chip reader, replaying the crossings of the finish line by racers numbered from 1.
+ * The crossings start one after the other and overlap, and the chip of each racer is read several times during its
+ * crossing, with some jitter: the reads of the racers crossing at once are interleaved, as a mat would report them.
+ * The reads are published as fast as the timing pipeline accepts them, with their simulated times.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SimulatedChipReader implements Runnable {
+
+    /** The maximum jitter of a read (in milliseconds), the first read of a crossing having none. */
+    private static final int JITTER = 20;
+
+    /** The seed of the jitter, the same for each run. */
+    private static final long SEED = 42;
+
+    /** The timing pipeline. */
+    private final TimingPipeline pipeline;
+
+    /** The number of racers. */
+    private int racers = 1000;
+
+    /** The number of reads of a crossing. */
+    private int readsPerCrossing = 30;
+
+    /** The delay between the starts of two crossings (in milliseconds). */
+    private int crossingInterval = 5;
+
+    /** The duration of a crossing (in milliseconds). */
+    private int crossingDuration = 1000;
+
+    /** The time of the first crossing (milliseconds since the epoch). */
+    private long startTime = System.currentTimeMillis();
+
+    /** The number of reads published. */
+    private volatile long publishedCount;
+
+
+    /**
+     * Constructs an instance of simulated chip reader.
+     *
+     * @param pipeline the timing pipeline
+     */
+    public SimulatedChipReader(TimingPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Gets the number of racers.
+     *
+     * @return the number of racers
+     */
+    public int getRacers() {
+        return racers;
+    }
+
+    /**
+     * Sets the number of racers.
+     *
+     * @param racers the new number of racers
+     */
+    public void setRacers(int racers) {
+        this.racers = racers;
+    }
+
+    /**
+     * Gets the number of reads of a crossing.
+     *
+     * @return the number of reads of a crossing
+     */
+    public int getReadsPerCrossing() {
+        return readsPerCrossing;
+    }
+
+    /**
+     * Sets the number of reads of a crossing.
+     *
+     * @param readsPerCrossing the new number of reads of a crossing
+     */
+    public void setReadsPerCrossing(int readsPerCrossing) {
+        this.readsPerCrossing = readsPerCrossing;
+    }
+
+    /**
+     * Gets the delay between the starts of two crossings.
+     *
+     * @return the delay between two crossings (in milliseconds)
+     */
+    public int getCrossingInterval() {
+        return crossingInterval;
+    }
+
+    /**
+     * Sets the delay between the starts of two crossings.
+     *
+     * @param crossingInterval the new delay between two crossings (in milliseconds)
+     */
+    public void setCrossingInterval(int crossingInterval) {
+        this.crossingInterval = crossingInterval;
+    }
+
+    /**
+     * Gets the duration of a crossing.
+     *
+     * @return the duration of a crossing (in milliseconds)
+     */
+    public int getCrossingDuration() {
+        return crossingDuration;
+    }
+
+    /**
+     * Sets the duration of a crossing.
+     *
+     * @param crossingDuration the new duration of a crossing (in milliseconds)
+     */
+    public void setCrossingDuration(int crossingDuration) {
+        this.crossingDuration = crossingDuration;
+    }
+
+    /**
+     * Gets the time of the first crossing.
+     *
+     * @return the time of the first crossing (milliseconds since the epoch)
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Sets the time of the first crossing.
+     *
+     * @param startTime the new time of the first crossing (milliseconds since the epoch)
+     */
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * Gets the number of reads published.
+     *
+     * @return the number of reads published
+     */
+    public long getPublishedCount() {
+        return publishedCount;
+    }
+
+    /**
+     * Gets the time of the first read of a racer, the earliest one of its crossing.
+     *
+     * @param number the number of the racer
+     *
+     * @return the time of the first read (milliseconds since the epoch)
+     */
+    public long getFirstReadTime(int number) {
+        return startTime + (long) number * crossingInterval;
+    }
+
+    @Override
+    public void run() {
+        Random random = new Random(SEED);
+        int group = Math.max(1, crossingDuration / Math.max(1, crossingInterval));
+        long period = crossingDuration / readsPerCrossing;
+
+        // The racers crossing at once form a group, whose reads are interleaved
+        for (int first = 1; first <= racers; first += group) {
+            int last = Math.min(racers, first + group - 1);
+
+            for (int read = 0; read < readsPerCrossing; read++) {
+                for (int number = first; number <= last; number++) {
+                    long jitter = read == 0 ? 0 : random.nextInt(JITTER);
+                    pipeline.publish(TimingSource.CHIP_READER, number, getFirstReadTime(number) + read * period + jitter);
+                    publishedCount++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.boot.command;
+
+import be.bulck.smartrace.io.ingest.IngestServer;
+import be.bulck.smartrace.timing.TimingPipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * A class representing a command to start the ingestion server of the finish events, before the launch of the
+ * application. The ports of the configuration may be overridden by the arguments: ingest [tcpPort [udpPort]], a
+ * negative port disabling its endpoint.
+ *
+ * The events received go through the timing pipeline of the finish line, started before the server.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class IngestCommand extends Command {
+
+    /** The timing pipeline the events received go through, or null if they are persisted by the server directly. */
+    private TimingPipeline timingPipeline;
+
+    /** The ingestion server. */
+    private IngestServer ingestServer;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(IngestCommand.class);
+
+
+    /**
+     * Gets the timing pipeline the events received go through.
+     *
+     * @return the timing pipeline, or null if the events are persisted by the server directly
+     */
+    public TimingPipeline getTimingPipeline() {
+        return timingPipeline;
+    }
+
+    /**
+     * Sets the timing pipeline the events received go through.
+     *
+     * @param timingPipeline the new timing pipeline, or null if the events are persisted by the server directly
+     */
+    public void setTimingPipeline(TimingPipeline timingPipeline) {
+        this.timingPipeline = timingPipeline;
+    }
+
+    /**
+     * Gets the ingestion server.
+     *
+     * @return the ingestion server
+     */
+    public IngestServer getIngestServer() {
+        return ingestServer;
+    }
+
+    /**
+     * Sets the ingestion server.
+     *
+     * @param ingestServer the new ingestion server
+     */
+    public void setIngestServer(IngestServer ingestServer) {
+        this.ingestServer = ingestServer;
+    }
+
+    @Override
+    public void process(String[] arguments) {
+        try {
+            if (arguments.length > 1)
+                ingestServer.setTcpPort(Integer.parseInt(arguments[1]));
+
+            if (arguments.length > 2)
+                ingestServer.setUdpPort(Integer.parseInt(arguments[2]));
+
+            if (timingPipeline != null)
+                timingPipeline.start();
+
+            ingestServer.start();
+
+            System.out.println("Ingestion server listening (TCP port " + ingestServer.getLocalTcpPort() + ", UDP port "
+                    + ingestServer.getLocalUdpPort() + ")");
+            System.out.println("The finish events are recorded in the race file opened in the application.\n");
+        } catch (NumberFormatException ex) {
+            log.error("Invalid port: " + ex.getMessage());
+        } catch (IOException ex) {
+            log.error(ex.getMessage(), ex);
+        }
+    }
+}
@@ -22,6 +22,8 @@ import be.bulck.smartrace.dao.exception.DataHandlerException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.dao.provider.RaceProvider;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * An interface representing a data handler.
  *
@@ -45,6 +47,16 @@ public interface DataHandler {
      */
     void create(String filePath) throws DataHandlerException;
 
+    /**
+     * Creates the file which will contain the data, with the durability profile provided.
+     *
+     * @param filePath the path of the file which will contain the data
+     * @param durabilityProfile the durability profile of the file
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     */
+    void create(String filePath, DurabilityProfile durabilityProfile) throws DataHandlerException;
+
     /**
      * Loads a file which contains the data.
      *
@@ -54,6 +66,16 @@ public interface DataHandler {
      */
     void load(String filePath) throws DataHandlerException;
 
+    /**
+     * Loads a file which contains the data, replacing its durability profile by the one provided.
+     *
+     * @param filePath the path of file which contains the data
+     * @param durabilityProfile the new durability profile of the file
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     */
+    void load(String filePath, DurabilityProfile durabilityProfile) throws DataHandlerException;
+
     /**
      * Saves the current data in the file.
      *
@@ -61,6 +83,16 @@ public interface DataHandler {
      */
     void save() throws DataHandlerException;
 
+    /**
+     * Saves the current data in the file without waiting for the changes to be durable, if the data handler supports
+     * it. Otherwise, the data is saved as with {@link #save()}.
+     *
+     * @return a future completed once the changes are durable
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     */
+    CompletableFuture<Void> saveAsync() throws DataHandlerException;
+
     /**
      * Closes the file which contains the data.
      *
@@ -68,6 +100,46 @@ public interface DataHandler {
      */
     void close() throws DataHandlerException;
 
+    /**
+     * Gets the durability profile of the file which contains the data.
+     *
+     * @return the durability profile of the file
+     */
+    DurabilityProfile getDurabilityProfile();
+
+    /**
+     * Sets the durability profile of the file which contains the data. The profile is recorded in the file.
+     *
+     * @param durabilityProfile the new durability profile of the file
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     */
+    void setDurabilityProfile(DurabilityProfile durabilityProfile) throws DataHandlerException;
+
+    /**
+     * Gets the version of the data, as changed by the stations working on the file which contains the data: the version
+     * changes each time changes are committed to the file, by another station or by the saves of this one.
+     *
+     * @return the version of the data
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    long getDataVersion() throws DataProviderException;
+
+    /**
+     * Adds a listener of the changes of the file which contains the data.
+     *
+     * @param listener the listener to add
+     */
+    void addListener(DataHandlerListener listener);
+
+    /**
+     * Removes a listener of the changes of the file which contains the data.
+     *
+     * @param listener the listener to remove
+     */
+    void removeListener(DataHandlerListener listener);
+
     /**
      * Gets the race provider.
      */
@@ -0,0 +1,36 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.dao.handler;
+
+/**
+ * An interface representing a listener of the changes of the file handled by a data handler.
+ *
+ * @author Fabien Vanden Bulck
+ */
+@FunctionalInterface
+public interface DataHandlerListener {
+
+    /**
+     * Notifies that the file which contains the data changed: a file was created or loaded, or the file was closed.
+     * The data read from the previous file must not be used anymore.
+     *
+     * @param filePath the path of the new file, or null if the file was closed
+     */
+    void fileChanged(String filePath);
+}
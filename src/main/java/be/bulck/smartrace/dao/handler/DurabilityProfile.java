@@ -0,0 +1,53 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.dao.handler;
+
+/**
+ * An enum representing the durability profile of the file which contains the data, trading the cost of a save against
+ * the risk of losing the last changes on a power loss.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public enum DurabilityProfile {
+    /** Fast saves, for the timing of a race. The last changes may be lost on a power loss, never the file. */
+    TIMING(0),
+    /** Every save is flushed to the disk, for archiving a race. */
+    ARCHIVING(1),
+    /** No flush at all, for a bulk import. The file may be corrupted on a power loss. */
+    BULK_IMPORT(2);
+
+    private int value;
+
+    DurabilityProfile(int value) {
+        this.value = value;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    public static DurabilityProfile parse(int value) {
+        for (DurabilityProfile profile : DurabilityProfile.values()) {
+            if (profile.getValue() == value)
+                return profile;
+        }
+
+        return TIMING;
+    }
+}
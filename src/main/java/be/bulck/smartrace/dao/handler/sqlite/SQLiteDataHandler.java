@@ -18,21 +18,34 @@
 
 package be.bulck.smartrace.dao.handler.sqlite;
 
-import be.bulck.smartrace.SmartRace;
 import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.dao.exception.DataHandlerException;
 import be.bulck.smartrace.dao.handler.DataHandler;
+import be.bulck.smartrace.dao.handler.DataHandlerListener;
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
 import be.bulck.smartrace.dao.provider.RaceProvider;
 import be.bulck.smartrace.dao.provider.sqlite.RaceSQLiteProvider;
+import be.bulck.smartrace.io.sqlite.SQLiteBusyPolicy;
+import be.bulck.smartrace.io.sqlite.SQLiteConnection;
 import be.bulck.smartrace.io.sqlite.SQLiteDatabase;
 import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLiteGroupCommitMetrics;
+import be.bulck.smartrace.io.sqlite.SQLiteGroupCommitter;
+import be.bulck.smartrace.io.sqlite.SQLiteMigrationRunner;
 import be.bulck.smartrace.io.sqlite.SQLiteScriptLoader;
-import be.bulck.smartrace.model.Race;
+import be.bulck.smartrace.io.sqlite.SQLiteScriptMigration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A data handler for SQLite databases.
@@ -41,6 +54,56 @@ import java.time.LocalDateTime;
  */
 public class SQLiteDataHandler implements DataHandler {
 
+    /** The name of the setting holding the durability profile in the race file. */
+    private static final String DURABILITY_PROFILE_SETTING = "durability_profile";
+
+    /** The durability profile of the current race file. */
+    private DurabilityProfile durabilityProfile = DurabilityProfile.TIMING;
+
+    /** The migrations of the schema of the race files (the initialization script is the version 0). */
+    private static final SQLiteMigrationRunner MIGRATION_RUNNER = new SQLiteMigrationRunner(
+            new SQLiteScriptMigration(1, "/sqlite/migration/001-fix-race-record-track-key.sql"),
+            new SQLiteScriptMigration(2, "/sqlite/migration/002-add-foreign-key-indexes.sql"),
+            new UUIDBlobMigration(3, "/sqlite/migration/003-store-uuids-as-blobs.sql"),
+            new SQLiteScriptMigration(4, "/sqlite/migration/004-add-row-versions.sql"),
+            new SQLiteScriptMigration(5, "/sqlite/migration/005-add-splits.sql"));
+
+    /** The minimum interval between two writes of the last update date of the race (in seconds). */
+    private static final long LAST_UPDATE_DATE_INTERVAL = 10;
+
+    /** The last update date of the race, kept in memory until it is written in the race file. */
+    private volatile LocalDateTime lastUpdateDate;
+
+    /** The last update date of the race last written in the race file (only accessed on the writer thread). */
+    private LocalDateTime writtenLastUpdateDate;
+
+    /** Whether the saves are committed by groups (write-behind) instead of one by one. */
+    private boolean groupCommitEnabled = false;
+
+    /** The flush interval of the group commit (in milliseconds). */
+    private long groupCommitInterval = SQLiteGroupCommitter.DEFAULT_FLUSH_INTERVAL;
+
+    /** The maximum number of saves pending before a flush of the group commit. */
+    private int groupCommitMaxOperations = SQLiteGroupCommitter.DEFAULT_MAX_OPERATIONS;
+
+    /** The time a connection waits for the lock of another station before failing (in milliseconds). */
+    private int busyTimeout = SQLiteBusyPolicy.DEFAULT_BUSY_TIMEOUT;
+
+    /** The maximum number of retries of a write failing because another station locks the race file. */
+    private int busyMaxRetries = SQLiteBusyPolicy.DEFAULT_MAX_RETRIES;
+
+    /** The backoff before the first retry of a write (in milliseconds). */
+    private long busyInitialBackoff = SQLiteBusyPolicy.DEFAULT_INITIAL_BACKOFF;
+
+    /** The maximum backoff between two retries of a write (in milliseconds). */
+    private long busyMaxBackoff = SQLiteBusyPolicy.DEFAULT_MAX_BACKOFF;
+
+    /** The group committer of the current race file (null if the group commit is disabled). */
+    private SQLiteGroupCommitter groupCommitter;
+
+    /** The listeners of the changes of the file. */
+    private final List<DataHandlerListener> listeners = new CopyOnWriteArrayList<>();
+
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(SQLiteDataHandler.class);
 
@@ -51,94 +114,530 @@ public class SQLiteDataHandler implements DataHandler {
 
     @Override
     public void create(String filePath) throws DataHandlerException {
+        create(filePath, DurabilityProfile.TIMING);
+    }
+
+    @Override
+    public void create(String filePath, DurabilityProfile durabilityProfile) throws DataHandlerException {
         log.debug("SQLite database initialization...");
-        SQLiteDatabaseFactory.loadNewDatabase(filePath);
+        stopGroupCommit();
+        SQLiteDatabaseFactory.loadNewDatabase(filePath, getBusyPolicy());
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+        notifyFileChanged(filePath);
+        resetLastUpdateDate(null);
 
         // Initializes the database
         try {
-            SQLiteScriptLoader.executeSQLFromFile(database, SmartRace.class.getResource("/sqlite/init-database.sql").getPath());
+            SQLiteScriptLoader.executeSQLFromResource(database, "/sqlite/init-database.sql");
+            MIGRATION_RUNNER.migrate(database);
+            recordDurabilityProfile(database, durabilityProfile);
             database.commit();
+            applyDurabilityProfile(database, durabilityProfile);
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
             throw new DataHandlerException("The SQLite database can't be initialized");
         }
 
-        log.info("SQLite database initialized");
+        startGroupCommit(database);
+
+        log.info("SQLite database initialized (" + durabilityProfile + " durability profile)");
     }
 
     @Override
     public void load(String filePath) throws DataHandlerException {
-        SQLiteDatabaseFactory.loadNewDatabase(filePath);
+        load(filePath, null);
+    }
+
+    @Override
+    public void load(String filePath, DurabilityProfile durabilityProfile) throws DataHandlerException {
+        stopGroupCommit();
+        SQLiteDatabaseFactory.loadNewDatabase(filePath, getBusyPolicy());
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+        notifyFileChanged(filePath);
 
-        if (SQLiteDatabaseFactory.getDatabase() == null)
+        if (database == null || !database.isOpened())
             throw new DataHandlerException("Loading file failed");
 
-        notifyOpening();
-        save();
+        try {
+            createSettingTableIfMissing(database);
+            MIGRATION_RUNNER.migrate(database);
+
+            if (durabilityProfile != null)
+                recordDurabilityProfile(database, durabilityProfile);
+            else
+                durabilityProfile = findDurabilityProfile(database);
+
+            // The opening is recorded in the same transaction as the settings, so the loading costs a single commit
+            recordOpening(database);
+            database.commit();
+            applyDurabilityProfile(database, durabilityProfile);
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataHandlerException("Loading file failed");
+        }
+
+        startGroupCommit(database);
     }
 
     @Override
     public void save() throws DataHandlerException {
+        lastUpdateDate = LocalDateTime.now();
+
+        if (groupCommitter != null) {
+            groupCommitter.enqueue();
+            return;
+        }
+
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
         try {
-            notifyUpdate();
-            database.commit();
+            database.write(connection -> {
+                writeLastUpdateDate(connection, false);
+                connection.commit();
+                return null;
+            });
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
             throw new DataHandlerException("Saving file failed");
         }
     }
 
+    @Override
+    public CompletableFuture<Void> saveAsync() throws DataHandlerException {
+        if (groupCommitter != null) {
+            lastUpdateDate = LocalDateTime.now();
+            return groupCommitter.enqueue();
+        }
+
+        save();
+        return CompletableFuture.completedFuture(null);
+    }
+
     @Override
     public void close() throws DataHandlerException {
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+        stopGroupCommit();
 
         try {
+            // The last update date left behind by the interval is written before closing
+            if (database.isOpened()) {
+                database.write(connection -> {
+                    if (writeLastUpdateDate(connection, true))
+                        connection.commit();
+
+                    return null;
+                });
+            }
+
             database.close();
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
             throw new DataHandlerException("Closing file failed");
+        } finally {
+            notifyFileChanged(null);
         }
     }
 
+    @Override
+    public DurabilityProfile getDurabilityProfile() {
+        return durabilityProfile;
+    }
+
+    @Override
+    public void setDurabilityProfile(DurabilityProfile durabilityProfile) throws DataHandlerException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            recordDurabilityProfile(database, durabilityProfile);
+            database.commit();
+            applyDurabilityProfile(database, durabilityProfile);
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataHandlerException("Changing the durability profile failed");
+        }
+    }
+
+    /**
+     * Checks if the saves are committed by groups.
+     *
+     * @return true if the saves are committed by groups, false if each save is committed
+     */
+    public boolean isGroupCommitEnabled() {
+        return groupCommitEnabled;
+    }
+
+    /**
+     * Sets whether the saves are committed by groups. With the group commit, a save only enqueues the changes and
+     * returns: they are committed with the other pending ones at the next flush, which happens every flush interval or
+     * as soon as the maximum number of pending saves is reached. Use {@link #saveAsync()} to wait for the durability.
+     *
+     * The setting takes effect at the next creation or loading of a race file.
+     *
+     * @param groupCommitEnabled true to commit the saves by groups, false to commit each save
+     */
+    public void setGroupCommitEnabled(boolean groupCommitEnabled) {
+        this.groupCommitEnabled = groupCommitEnabled;
+    }
+
+    /**
+     * Gets the flush interval of the group commit.
+     *
+     * @return the flush interval of the group commit (in milliseconds)
+     */
+    public long getGroupCommitInterval() {
+        return groupCommitInterval;
+    }
+
+    /**
+     * Sets the flush interval of the group commit.
+     *
+     * @param groupCommitInterval the new flush interval of the group commit (in milliseconds)
+     */
+    public void setGroupCommitInterval(long groupCommitInterval) {
+        this.groupCommitInterval = groupCommitInterval;
+    }
+
+    /**
+     * Gets the maximum number of saves pending before a flush of the group commit.
+     *
+     * @return the maximum number of saves pending before a flush
+     */
+    public int getGroupCommitMaxOperations() {
+        return groupCommitMaxOperations;
+    }
+
+    /**
+     * Sets the maximum number of saves pending before a flush of the group commit.
+     *
+     * @param groupCommitMaxOperations the new maximum number of saves pending before a flush
+     */
+    public void setGroupCommitMaxOperations(int groupCommitMaxOperations) {
+        this.groupCommitMaxOperations = groupCommitMaxOperations;
+    }
+
+    /**
+     * Gets the time a connection waits for the lock of another station (working on the same race file) before failing.
+     *
+     * @return the busy timeout (in milliseconds)
+     */
+    public int getBusyTimeout() {
+        return busyTimeout;
+    }
+
+    /**
+     * Sets the time a connection waits for the lock of another station (working on the same race file) before failing.
+     *
+     * The setting takes effect at the next creation or loading of a race file.
+     *
+     * @param busyTimeout the new busy timeout (in milliseconds)
+     */
+    public void setBusyTimeout(int busyTimeout) {
+        this.busyTimeout = busyTimeout;
+    }
+
+    /**
+     * Gets the maximum number of retries of a write failing because another station locks the race file.
+     *
+     * @return the maximum number of retries of a write
+     */
+    public int getBusyMaxRetries() {
+        return busyMaxRetries;
+    }
+
+    /**
+     * Sets the maximum number of retries of a write failing because another station locks the race file.
+     *
+     * The setting takes effect at the next creation or loading of a race file.
+     *
+     * @param busyMaxRetries the new maximum number of retries of a write (0 to never retry)
+     */
+    public void setBusyMaxRetries(int busyMaxRetries) {
+        this.busyMaxRetries = busyMaxRetries;
+    }
+
+    /**
+     * Gets the backoff before the first retry of a write, doubled for each following retry.
+     *
+     * @return the initial backoff (in milliseconds)
+     */
+    public long getBusyInitialBackoff() {
+        return busyInitialBackoff;
+    }
+
+    /**
+     * Sets the backoff before the first retry of a write, doubled for each following retry.
+     *
+     * The setting takes effect at the next creation or loading of a race file.
+     *
+     * @param busyInitialBackoff the new initial backoff (in milliseconds)
+     */
+    public void setBusyInitialBackoff(long busyInitialBackoff) {
+        this.busyInitialBackoff = busyInitialBackoff;
+    }
+
+    /**
+     * Gets the maximum backoff between two retries of a write.
+     *
+     * @return the maximum backoff (in milliseconds)
+     */
+    public long getBusyMaxBackoff() {
+        return busyMaxBackoff;
+    }
+
+    /**
+     * Sets the maximum backoff between two retries of a write.
+     *
+     * The setting takes effect at the next creation or loading of a race file.
+     *
+     * @param busyMaxBackoff the new maximum backoff (in milliseconds)
+     */
+    public void setBusyMaxBackoff(long busyMaxBackoff) {
+        this.busyMaxBackoff = busyMaxBackoff;
+    }
+
+    /**
+     * Gets the policy when another station locks the race file, built from the busy settings.
+     *
+     * @return the busy policy
+     */
+    public SQLiteBusyPolicy getBusyPolicy() {
+        return new SQLiteBusyPolicy(busyTimeout, busyMaxRetries, busyInitialBackoff, busyMaxBackoff);
+    }
+
+    /**
+     * Gets the metrics (flush latency and batch size) of the group commit of the current race file.
+     *
+     * @return the metrics of the group commit, or null if the group commit is disabled
+     */
+    public SQLiteGroupCommitMetrics getGroupCommitMetrics() {
+        return groupCommitter != null ? groupCommitter.getMetrics() : null;
+    }
+
+    @Override
+    public long getDataVersion() throws DataProviderException {
+        try {
+            return SQLiteDatabaseFactory.getDatabase().getDataVersion();
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException("Checking the version of the data failed");
+        }
+    }
+
+    @Override
+    public void addListener(DataHandlerListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(DataHandlerListener listener) {
+        listeners.remove(listener);
+    }
+
     @Override
     public RaceProvider getRaceProvider() throws DataProviderException {
         return new RaceSQLiteProvider();
     }
 
     /**
-     * Notifies a database update.
+     * Creates the settings table in the race files created before it was introduced.
+     *
+     * @param database the SQLite database
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void createSettingTableIfMissing(SQLiteDatabase database) throws SQLException {
+        final String createQuery = "CREATE TABLE IF NOT EXISTS race_file_setting (name TEXT NOT NULL PRIMARY KEY, value TEXT)";
+
+        database.write(connection -> {
+            try (Statement createStatement = connection.createStatement()) {
+                return createStatement.executeUpdate(createQuery);
+            }
+        });
+    }
+
+    /**
+     * Finds the durability profile recorded in the race file.
+     *
+     * @param database the SQLite database
+     *
+     * @return the durability profile recorded, or the default one if none is recorded
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private DurabilityProfile findDurabilityProfile(SQLiteDatabase database) throws SQLException {
+        final String findQuery = "SELECT value FROM race_file_setting WHERE name = ?";
+
+        // Read on the writer connection, as the settings table may not be committed yet
+        return database.write(connection -> {
+            try (PreparedStatement findStatement = connection.createPreparedStatement(findQuery)) {
+                findStatement.setString(1, DURABILITY_PROFILE_SETTING);
+
+                try (ResultSet row = findStatement.executeQuery()) {
+                    if (row.next())
+                        return DurabilityProfile.parse(row.getInt("value"));
+                }
+            }
+
+            return DurabilityProfile.TIMING;
+        });
+    }
+
+    /**
+     * Records the durability profile in the race file. The change must be committed.
+     *
+     * @param database the SQLite database
+     * @param durabilityProfile the durability profile to record
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void recordDurabilityProfile(SQLiteDatabase database, DurabilityProfile durabilityProfile) throws SQLException {
+        final String recordQuery = "INSERT OR REPLACE INTO race_file_setting (name, value) VALUES (?, ?)";
+
+        database.write(connection -> {
+            try (PreparedStatement recordStatement = connection.createPreparedStatement(recordQuery)) {
+                recordStatement.setString(1, DURABILITY_PROFILE_SETTING);
+                recordStatement.setInt(2, durabilityProfile.getValue());
+
+                return recordStatement.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Applies the durability profile to the writer connection. The database stays in WAL journal mode whatever the
+     * profile, only the synchronous mode changes.
+     *
+     * @param database the SQLite database
+     * @param durabilityProfile the durability profile to apply
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void applyDurabilityProfile(SQLiteDatabase database, DurabilityProfile durabilityProfile) throws SQLException {
+        final String synchronousMode;
+
+        switch (durabilityProfile) {
+            case ARCHIVING: synchronousMode = "FULL"; break;
+            case BULK_IMPORT: synchronousMode = "OFF"; break;
+            default: synchronousMode = "NORMAL";
+        }
+
+        database.write(connection -> {
+            connection.executePragma("synchronous = " + synchronousMode);
+            return null;
+        });
+
+        this.durabilityProfile = durabilityProfile;
+        log.debug("Durability profile " + durabilityProfile + " applied (synchronous = " + synchronousMode + ")");
+    }
+
+    /**
+     * Notifies the listeners that the file changed.
+     *
+     * @param filePath the path of the new file, or null if the file was closed
+     */
+    private void notifyFileChanged(String filePath) {
+        for (DataHandlerListener listener : listeners)
+            listener.fileChanged(filePath);
+    }
+
+    /**
+     * Starts the group commit of the race file if it is enabled. The last update date of the race is written with the
+     * flushes, right before the commit, instead of once per save.
+     *
+     * @param database the SQLite database
      */
-    private void notifyUpdate() {
-        RaceSQLiteProvider raceSQLiteProvider = new RaceSQLiteProvider();
+    private void startGroupCommit(SQLiteDatabase database) {
+        if (!groupCommitEnabled)
+            return;
+
+        groupCommitter = new SQLiteGroupCommitter(database, groupCommitInterval, groupCommitMaxOperations,
+                connection -> writeLastUpdateDate(connection, false));
+
+        log.debug("Group commit started (every " + groupCommitInterval + " ms or " + groupCommitMaxOperations + " saves)");
+    }
+
+    /**
+     * Stops the group commit of the current race file, if any. The pending saves are committed.
+     */
+    private void stopGroupCommit() {
+        if (groupCommitter == null)
+            return;
 
         try {
-            SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
-            Race race = raceSQLiteProvider.find();
-            race.setLastUpdateDate(LocalDateTime.now());
-            raceSQLiteProvider.update(race);
-            database.commit();
-        } catch (DataProviderException | SQLException ex) {
+            groupCommitter.close();
+        } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
+        } finally {
+            groupCommitter = null;
         }
     }
 
     /**
-     * Notifies a database opening.
+     * Records the opening of the race file: the last opening and update dates of the race are updated. The change must
+     * be committed.
+     *
+     * @param database the SQLite database
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
      */
-    private void notifyOpening() {
-        RaceSQLiteProvider raceSQLiteProvider = new RaceSQLiteProvider();
+    private void recordOpening(SQLiteDatabase database) throws SQLException {
+        final String updateQuery = "UPDATE race SET last_opening_date = ?, last_update_date = ?";
+        LocalDateTime now = LocalDateTime.now();
+
+        database.write(connection -> {
+            try (PreparedStatement updateStatement = connection.createPreparedStatement(updateQuery)) {
+                updateStatement.setLong(1, Timestamp.valueOf(now).getTime());
+                updateStatement.setLong(2, Timestamp.valueOf(now).getTime());
+                updateStatement.executeUpdate();
+            }
+
+            resetLastUpdateDate(now);
+            return null;
+        });
+    }
+
+    /**
+     * Resets the last update date of the race kept in memory, when a race file is created or loaded.
+     *
+     * @param lastUpdateDate the last update date of the race written in the race file (null if unknown)
+     */
+    private void resetLastUpdateDate(LocalDateTime lastUpdateDate) {
+        this.lastUpdateDate = lastUpdateDate;
+        writtenLastUpdateDate = lastUpdateDate;
+    }
+
+    /**
+     * Writes the last update date of the race kept in memory, in the current transaction. To avoid an extra UPDATE on
+     * every save, the date is only written if the previous write is older than the interval, unless forced. Must be
+     * called on the writer thread.
+     *
+     * @param connection the writer connection
+     * @param force true to write the date whatever the interval
+     *
+     * @return true if the date was written, false otherwise
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private boolean writeLastUpdateDate(SQLiteConnection connection, boolean force) throws SQLException {
+        final String updateQuery = "UPDATE race SET last_update_date = ?";
+        LocalDateTime lastUpdateDate = this.lastUpdateDate;
+
+        if (lastUpdateDate == null || lastUpdateDate.equals(writtenLastUpdateDate))
+            return false;
+
+        if (!force && writtenLastUpdateDate != null && lastUpdateDate.isBefore(writtenLastUpdateDate.plusSeconds(LAST_UPDATE_DATE_INTERVAL)))
+            return false;
+
+        PreparedStatement updateStatement = connection.borrowStatement(updateQuery);
 
         try {
-            SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
-            Race race = raceSQLiteProvider.find();
-            race.setLastOpeningDate(LocalDateTime.now());
-            raceSQLiteProvider.update(race);
-            database.commit();
-        } catch (DataProviderException | SQLException ex) {
-            log.error(ex.getMessage(), ex);
+            updateStatement.setLong(1, Timestamp.valueOf(lastUpdateDate).getTime());
+            updateStatement.executeUpdate();
+        } finally {
+            connection.returnStatement(updateQuery, updateStatement);
         }
+
+        writtenLastUpdateDate = lastUpdateDate;
+        return true;
     }
 }
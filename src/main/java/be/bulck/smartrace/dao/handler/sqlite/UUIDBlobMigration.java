@@ -0,0 +1,56 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.handler.sqlite;
+
+import be.bulck.smartrace.io.sqlite.SQLiteConnection;
+import be.bulck.smartrace.io.sqlite.SQLiteScriptMigration;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+
+import java.sql.SQLException;
+
+/**
+ * A class representing the migration of the race files storing the UUIDs as 16-byte BLOBs instead of strings. The SQL
+ * function converting the existing keys is registered on the writer connection for the duration of the script only.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see SQLiteUUIDCodec
+ */
+class UUIDBlobMigration extends SQLiteScriptMigration {
+
+    /**
+     * Constructs an instance of UUID BLOB migration.
+     *
+     * @param version the version of the schema after the migration
+     * @param scriptPath the path of the SQL script of the migration, in the classpath
+     */
+    UUIDBlobMigration(int version, String scriptPath) {
+        super(version, scriptPath);
+    }
+
+    @Override
+    public void migrate(SQLiteConnection connection) throws SQLException {
+        SQLiteUUIDCodec.registerBlobFunction(connection.getConnection());
+
+        try {
+            super.migrate(connection);
+        } finally {
+            SQLiteUUIDCodec.unregisterBlobFunction(connection.getConnection());
+        }
+    }
+}
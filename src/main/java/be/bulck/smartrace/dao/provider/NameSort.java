@@ -0,0 +1,41 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider;
+
+/**
+ * An enum representing the sort of the pages of entities by their name, which is unique and indexed. A page is found
+ * from the last entity of the previous page without skipping the rows before it.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public enum NameSort {
+    /** By alphabetical order of the name. */
+    NAME_ASCENDING(false),
+    /** By reverse alphabetical order of the name. */
+    NAME_DESCENDING(true);
+
+    private boolean descending;
+
+    NameSort(boolean descending) {
+        this.descending = descending;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+}
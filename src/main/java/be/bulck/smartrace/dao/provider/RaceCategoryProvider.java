@@ -18,10 +18,13 @@
 
 package be.bulck.smartrace.dao.provider;
 
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.model.RaceCategory;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * An interface representing a data provider of race category.
@@ -39,6 +42,30 @@ public interface RaceCategoryProvider {
      */
     RaceCategory[] find() throws DataProviderException;
 
+    /**
+     * Iterates over the race categories, one at a time, without holding all of them in memory. The action is executed
+     * while the rows are read, on a read-only connection held until the iteration ends.
+     *
+     * @param action the action executed for each race category
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void forEach(Consumer<? super RaceCategory> action) throws DataProviderException;
+
+    /**
+     * Finds a page of race categories, sorted by name. The page starts right after the name provided, by seeking the
+     * index of the names instead of skipping the race categories before it.
+     *
+     * @param afterName the name of the last race category of the previous page, or null for the first page
+     * @param limit the maximum number of race categories in the page
+     * @param sort the sort of the race categories
+     *
+     * @return the race categories of the page, fewer than the limit for the last page
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceCategory[] findPage(String afterName, int limit, NameSort sort) throws DataProviderException;
+
     /**
      * Finds a race category by his identifier.
      *
@@ -71,14 +98,38 @@ public interface RaceCategoryProvider {
     void create(RaceCategory raceCategory) throws DataProviderException;
 
     /**
-     * Updates a race category.
+     * Creates several race categories at once, in a single batch.
+     *
+     * @param raceCategories the race categories to create
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void createAll(List<? extends RaceCategory> raceCategories) throws DataProviderException;
+
+    /**
+     * Updates the fields of a race category changed since it was loaded or saved. Nothing is written for a race
+     * category unchanged.
      *
      * @param raceCategory the race category to update
      *
+     * @throws DataProviderConflictException an exception thrown if the race category was changed or deleted by another
+     * station since it was read
      * @throws DataProviderException an exception thrown if a data provider problem occurs
      */
     void update(RaceCategory raceCategory) throws DataProviderException;
 
+    /**
+     * Updates the fields changed of several race categories at once, in a single batch. The race categories unchanged
+     * are skipped.
+     *
+     * @param raceCategories the race categories to update
+     *
+     * @throws DataProviderConflictException an exception thrown if one of the race categories was changed or deleted by
+     * another station since it was read, in which case none of them is updated
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void updateAll(List<? extends RaceCategory> raceCategories) throws DataProviderException;
+
     /**
      * Deletes a race category.
      *
@@ -87,4 +138,13 @@ public interface RaceCategoryProvider {
      * @throws DataProviderException an exception thrown if a data provider problem occurs
      */
     void delete(RaceCategory raceCategory) throws DataProviderException;
+
+    /**
+     * Deletes several race categories at once, in a single batch.
+     *
+     * @param raceCategories the race categories to delete
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void deleteAll(List<? extends RaceCategory> raceCategories) throws DataProviderException;
 }
@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.dao.provider;
 
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.model.Race;
 
@@ -48,6 +49,10 @@ public interface RaceProvider {
      * Updates a race.
      *
      * @param race the race to update
+     *
+     * @throws DataProviderConflictException an exception thrown if the race was changed by another station since it was
+     * read
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
      */
     void update(Race race) throws DataProviderException;
 }
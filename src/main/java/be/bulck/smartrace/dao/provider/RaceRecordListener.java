@@ -0,0 +1,43 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider;
+
+import be.bulck.smartrace.model.RaceRecord;
+
+/**
+ * An interface representing a listener of the race records written through a race record provider. The listeners are
+ * notified on the thread which wrote the race record, once written (before the save of the race file).
+ *
+ * @author Fabien Vanden Bulck
+ */
+public interface RaceRecordListener {
+
+    /**
+     * Notifies that a race record was created or changed (updated, finished).
+     *
+     * @param raceRecord the race record created or changed
+     */
+    void raceRecordChanged(RaceRecord raceRecord);
+
+    /**
+     * Notifies that a race record was deleted.
+     *
+     * @param raceRecord the race record deleted
+     */
+    void raceRecordDeleted(RaceRecord raceRecord);
+}
@@ -0,0 +1,160 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.dao.provider;
+
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.model.RaceRecord;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * An interface representing a data provider of race record.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public interface RaceRecordProvider {
+
+    /**
+     * Finds the race records, with their racer team, race track and race categories.
+     *
+     * @return the race records
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceRecord[] find() throws DataProviderException;
+
+    /**
+     * Iterates over the race records, with their racer team, race track and race categories, one at a time, without
+     * holding all of them in memory. Unlike {@link #find()}, the racer teams aren't shared between the race records.
+     * The action is executed while the rows are read, on a read-only connection held until the iteration ends.
+     *
+     * @param action the action executed for each race record
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void forEach(Consumer<? super RaceRecord> action) throws DataProviderException;
+
+    /**
+     * Finds a page of race records, with their racer team, race track and race categories. The page starts right after
+     * the race record provided, by seeking the index of the sort key instead of skipping the race records before it.
+     *
+     * @param after the last race record of the previous page, or null for the first page
+     * @param limit the maximum number of race records in the page
+     * @param sort the sort of the race records
+     *
+     * @return the race records of the page, fewer than the limit for the last page
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceRecord[] findPage(RaceRecord after, int limit, RaceRecordSort sort) throws DataProviderException;
+
+    /**
+     * Finds a race record by his identifier.
+     *
+     * @param uuid the identifier of the race record to find
+     *
+     * @return the race record found with the identifier provided
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceRecord find(UUID uuid) throws DataProviderException;
+
+    /**
+     * Finds a race record by his number (bib).
+     *
+     * @param number the number of the race record to find
+     *
+     * @return the race record found with the number provided, or null if none is found
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceRecord findByNumber(int number) throws DataProviderException;
+
+    /**
+     * Creates a race record, with his race category assignments.
+     *
+     * @param raceRecord the race record to create
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void create(RaceRecord raceRecord) throws DataProviderException;
+
+    /**
+     * Creates several race records at once, in a single batch. If one of them fails, none of them is created.
+     *
+     * @param raceRecords the race records to create
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void createAll(List<? extends RaceRecord> raceRecords) throws DataProviderException;
+
+    /**
+     * Updates a race record, with his race category assignments.
+     *
+     * @param raceRecord the race record to update
+     *
+     * @throws DataProviderConflictException an exception thrown if the race record was changed or deleted by another
+     * station since it was read
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void update(RaceRecord raceRecord) throws DataProviderException;
+
+    /**
+     * Deletes a race record, with his race category assignments.
+     *
+     * @param raceRecord the race record to delete
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void delete(RaceRecord raceRecord) throws DataProviderException;
+
+    /**
+     * Marks a race record as finished, if it is ready or running. The end time of a race record already finished is
+     * kept, a chip read again after the crossing doesn't change it, and a cancelled race record stays cancelled. A
+     * correction only replaces a later end time.
+     *
+     * @param number the number of the race record
+     * @param endTime the end time of the race record
+     * @param correction true to replace the end time of a race record already finished later, false to keep it
+     *
+     * @return true if the race record was marked as finished (or its end time corrected), false if no race record has
+     * the number provided or if it is already finished or cancelled
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    boolean markFinished(int number, Instant endTime, boolean correction) throws DataProviderException;
+
+    /**
+     * Adds a listener of the race records written.
+     *
+     * @param listener the listener to add
+     */
+    void addListener(RaceRecordListener listener);
+
+    /**
+     * Removes a listener of the race records written.
+     *
+     * @param listener the listener to remove
+     */
+    void removeListener(RaceRecordListener listener);
+}
@@ -0,0 +1,45 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider;
+
+/**
+ * An enum representing the sort of the pages of race records. Each sort follows an indexed key, so a page is found from
+ * the last race record of the previous page without skipping the rows before it.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public enum RaceRecordSort {
+    /** By increasing number (bib). */
+    NUMBER_ASCENDING(false),
+    /** By decreasing number (bib). */
+    NUMBER_DESCENDING(true),
+    /** By increasing identifier, the creation order of the race records (the identifiers are time-ordered). */
+    CREATION_ASCENDING(false),
+    /** By decreasing identifier, the last race records created first. */
+    CREATION_DESCENDING(true);
+
+    private boolean descending;
+
+    RaceRecordSort(boolean descending) {
+        this.descending = descending;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+}
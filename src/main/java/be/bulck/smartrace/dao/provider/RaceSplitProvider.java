@@ -0,0 +1,63 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider;
+
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceSplits;
+
+/**
+ * An interface representing a data provider of the splits of the race records.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public interface RaceSplitProvider {
+
+    /**
+     * Finds the splits of a race record, which are set to the race record as well.
+     *
+     * @param raceRecord the race record
+     *
+     * @return the splits of the race record, sorted by time
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceSplits find(RaceRecord raceRecord) throws DataProviderException;
+
+    /**
+     * Adds a split to a race record. The splits of the race record are completed as well, if loaded.
+     *
+     * @param raceRecord the race record
+     * @param position the position of the timing point crossed
+     * @param time the time of the crossing (in nanoseconds since the epoch)
+     *
+     * @return true if the split was added, false if the race record already has a split at this time (sent twice)
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    boolean add(RaceRecord raceRecord, int position, long time) throws DataProviderException;
+
+    /**
+     * Deletes all the splits of a race record.
+     *
+     * @param raceRecord the race record
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void deleteAll(RaceRecord raceRecord) throws DataProviderException;
+}
@@ -0,0 +1,68 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider;
+
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.model.RaceTimingPoint;
+import be.bulck.smartrace.model.RaceTrack;
+
+/**
+ * An interface representing a data provider of timing point.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public interface RaceTimingPointProvider {
+
+    /**
+     * Finds the timing points of a race track.
+     *
+     * @param raceTrack the race track
+     *
+     * @return the timing points of the race track, sorted by position
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceTimingPoint[] find(RaceTrack raceTrack) throws DataProviderException;
+
+    /**
+     * Creates a timing point.
+     *
+     * @param raceTimingPoint the timing point to create
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void create(RaceTimingPoint raceTimingPoint) throws DataProviderException;
+
+    /**
+     * Updates a timing point.
+     *
+     * @param raceTimingPoint the timing point to update
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void update(RaceTimingPoint raceTimingPoint) throws DataProviderException;
+
+    /**
+     * Deletes a timing point.
+     *
+     * @param raceTimingPoint the timing point to delete
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void delete(RaceTimingPoint raceTimingPoint) throws DataProviderException;
+}
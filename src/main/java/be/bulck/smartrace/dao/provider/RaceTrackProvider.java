@@ -18,10 +18,13 @@
 
 package be.bulck.smartrace.dao.provider;
 
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.model.RaceTrack;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * An interface representing a data provider of race track.
@@ -39,6 +42,30 @@ public interface RaceTrackProvider {
      */
     RaceTrack[] find() throws DataProviderException;
 
+    /**
+     * Iterates over the race tracks, one at a time, without holding all of them in memory. The action is executed
+     * while the rows are read, on a read-only connection held until the iteration ends.
+     *
+     * @param action the action executed for each race track
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void forEach(Consumer<? super RaceTrack> action) throws DataProviderException;
+
+    /**
+     * Finds a page of race tracks, sorted by name. The page starts right after the name provided, by seeking the
+     * index of the names instead of skipping the race tracks before it.
+     *
+     * @param afterName the name of the last race track of the previous page, or null for the first page
+     * @param limit the maximum number of race tracks in the page
+     * @param sort the sort of the race tracks
+     *
+     * @return the race tracks of the page, fewer than the limit for the last page
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceTrack[] findPage(String afterName, int limit, NameSort sort) throws DataProviderException;
+
     /**
      * Finds a race track by his identifier.
      *
@@ -71,14 +98,38 @@ public interface RaceTrackProvider {
     void create(RaceTrack raceTrack) throws DataProviderException;
 
     /**
-     * Updates a race track.
+     * Creates several race tracks at once, in a single batch.
+     *
+     * @param raceTracks the race tracks to create
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void createAll(List<? extends RaceTrack> raceTracks) throws DataProviderException;
+
+    /**
+     * Updates the fields of a race track changed since it was loaded or saved. Nothing is written for a race track
+     * unchanged.
      *
      * @param raceTrack the race track to update
      *
+     * @throws DataProviderConflictException an exception thrown if the race track was changed or deleted by another
+     * station since it was read
      * @throws DataProviderException an exception thrown if a data provider problem occurs
      */
     void update(RaceTrack raceTrack) throws DataProviderException;
 
+    /**
+     * Updates the fields changed of several race tracks at once, in a single batch. The race tracks unchanged are
+     * skipped.
+     *
+     * @param raceTracks the race tracks to update
+     *
+     * @throws DataProviderConflictException an exception thrown if one of the race tracks was changed or deleted by
+     * another station since it was read, in which case none of them is updated
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void updateAll(List<? extends RaceTrack> raceTracks) throws DataProviderException;
+
     /**
      * Deletes a race track.
      *
@@ -87,4 +138,13 @@ public interface RaceTrackProvider {
      * @throws DataProviderException an exception thrown if a data provider problem occurs
      */
     void delete(RaceTrack raceTrack) throws DataProviderException;
+
+    /**
+     * Deletes several race tracks at once, in a single batch.
+     *
+     * @param raceTracks the race tracks to delete
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void deleteAll(List<? extends RaceTrack> raceTracks) throws DataProviderException;
 }
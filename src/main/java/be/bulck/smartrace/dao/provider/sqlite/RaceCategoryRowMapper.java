@@ -0,0 +1,73 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider.sqlite;
+
+import be.bulck.smartrace.io.sqlite.SQLiteRowMapper;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RaceCategory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A class representing the row mapper of the race categories. Also used by the race record provider, to hydrate the
+ * race categories of the race records.
+ *
+ * @author Fabien Vanden Bulck
+ */
+class RaceCategoryRowMapper implements SQLiteRowMapper<RaceCategory> {
+
+    /** The index of the identifier column. */
+    private final int uuidColumn;
+
+    /** The index of the name column. */
+    private final int nameColumn;
+
+    /** The index of the description column. */
+    private final int descriptionColumn;
+
+    /** The index of the row version column. */
+    private final int rowVersionColumn;
+
+
+    /**
+     * Constructs an instance of race category row mapper, for the columns of a result set.
+     *
+     * @param resultSet the result set
+     *
+     * @throws SQLException an exception thrown if a column is missing
+     */
+    RaceCategoryRowMapper(ResultSet resultSet) throws SQLException {
+        uuidColumn = resultSet.findColumn("race_category_uuid");
+        nameColumn = resultSet.findColumn("name");
+        descriptionColumn = resultSet.findColumn("description");
+        rowVersionColumn = resultSet.findColumn("row_version");
+    }
+
+    @Override
+    public RaceCategory map(ResultSet resultSet) throws SQLException {
+        RaceCategory raceCategory = new RaceCategory(SQLiteUUIDCodec.getUUID(resultSet, uuidColumn));
+        raceCategory.setName(resultSet.getString(nameColumn));
+        raceCategory.setDescription(resultSet.getString(descriptionColumn));
+
+        raceCategory.setRowVersion(resultSet.getLong(rowVersionColumn));
+        raceCategory.getChangeTracker().clear();
+
+        return raceCategory;
+    }
+}
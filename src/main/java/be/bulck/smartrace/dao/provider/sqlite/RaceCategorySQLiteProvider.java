@@ -18,21 +18,34 @@
 
 package be.bulck.smartrace.dao.provider.sqlite;
 
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.provider.NameSort;
 import be.bulck.smartrace.dao.provider.RaceCategoryProvider;
+import be.bulck.smartrace.io.sqlite.SQLiteConflictException;
 import be.bulck.smartrace.io.sqlite.SQLiteDatabase;
 import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLitePageQuery;
+import be.bulck.smartrace.io.sqlite.SQLiteParameterBinder;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.io.sqlite.SQLiteUpdateQuery;
 import be.bulck.smartrace.model.RaceCategory;
+import be.bulck.smartrace.model.RaceCategoryField;
+import be.bulck.smartrace.model.change.ChangeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * A class representing the SQLite race category provider.
@@ -41,47 +54,126 @@ import java.util.UUID;
  */
 public class RaceCategorySQLiteProvider implements RaceCategoryProvider {
 
+    /** The query to find the race categories. */
+    private static final String FIND_QUERY = "SELECT * FROM race_category";
+
+    /** The query to insert a race category. */
+    private static final String INSERT_QUERY = "INSERT INTO race_category (race_category_uuid, name, description) VALUES (?, ?, ?)";
+
+    /** The columns of the fields of a race category, set by the partial updates. */
+    private static final Map<RaceCategoryField, String> COLUMNS = new EnumMap<>(RaceCategoryField.class);
+
+    /** The query to delete a race category. */
+    private static final String DELETE_QUERY = "DELETE FROM race_category WHERE race_category_uuid = ?";
+
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(RaceCategorySQLiteProvider.class);
 
+    static {
+        COLUMNS.put(RaceCategoryField.NAME, "name");
+        COLUMNS.put(RaceCategoryField.DESCRIPTION, "description");
+    }
 
     @Override
     public RaceCategory[] find() throws DataProviderException {
         List<RaceCategory> categories = new ArrayList<>();
-        final String findQuery = "SELECT * FROM race_category";
+        forEach(categories::add);
+
+        return categories.toArray(new RaceCategory[categories.size()]);
+    }
+
+    @Override
+    public void forEach(Consumer<? super RaceCategory> action) throws DataProviderException {
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
-        try (Statement findStatement = database.createStatement()) {
-            try (ResultSet rows = findStatement.executeQuery(findQuery)) {
-                while (rows.next())
-                    categories.add(createObjectFromResultSet(rows));
-            }
+        try {
+            database.read(connection -> {
+                PreparedStatement findStatement = connection.borrowStatement(FIND_QUERY);
+
+                try (ResultSet rows = findStatement.executeQuery()) {
+                    if (rows.isClosed())
+                        return null;
+
+                    RaceCategoryRowMapper rowMapper = new RaceCategoryRowMapper(rows);
+
+                    while (rows.next())
+                        action.accept(rowMapper.map(rows));
+                } finally {
+                    connection.returnStatement(FIND_QUERY, findStatement);
+                }
+
+                return null;
+            });
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
             throw new DataProviderException(ex.getMessage());
         }
+    }
 
-        return categories.toArray(new RaceCategory[categories.size()]);
-     }
+    @Override
+    public RaceCategory[] findPage(String afterName, int limit, NameSort sort) throws DataProviderException {
+        final String findQuery = SQLitePageQuery.build(FIND_QUERY, "name", afterName != null, sort.isDescending());
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            return database.read(connection -> {
+                List<RaceCategory> categories = new ArrayList<>();
+                PreparedStatement findStatement = connection.borrowStatement(findQuery);
+
+                try {
+                    int index = 1;
+
+                    if (afterName != null)
+                        findStatement.setString(index++, afterName);
+
+                    findStatement.setInt(index, limit);
+
+                    try (ResultSet rows = findStatement.executeQuery()) {
+                        if (!rows.isClosed()) {
+                            RaceCategoryRowMapper rowMapper = new RaceCategoryRowMapper(rows);
+
+                            while (rows.next())
+                                categories.add(rowMapper.map(rows));
+                        }
+                    }
+                } finally {
+                    connection.returnStatement(findQuery, findStatement);
+                }
+
+                return categories.toArray(new RaceCategory[categories.size()]);
+            });
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
 
     @Override
     public RaceCategory find(UUID uuid) throws DataProviderException {
         final String findQuery = "SELECT * FROM race_category WHERE race_category_uuid = ?";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
-        try (PreparedStatement findStatement = database.createPreparedStatement(findQuery)) {
-            findStatement.setString(1, uuid.toString());
+        try {
+            return database.read(connection -> {
+                PreparedStatement findStatement = connection.borrowStatement(findQuery);
 
-            try (ResultSet row = findStatement.executeQuery()) {
-                if (row.next())
-                    return createObjectFromResultSet(row);
-            }
+                try {
+                    SQLiteUUIDCodec.setUUID(findStatement, 1, uuid);
+
+                    try (ResultSet row = findStatement.executeQuery()) {
+                        if (row.next())
+                            return new RaceCategoryRowMapper(row).map(row);
+                    }
+                } finally {
+                    connection.returnStatement(findQuery, findStatement);
+                }
+
+                return null;
+            });
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
             throw new DataProviderException(ex.getMessage());
         }
-
-        return null;
     }
 
     @Override
@@ -89,33 +181,50 @@ public class RaceCategorySQLiteProvider implements RaceCategoryProvider {
         final String findQuery = "SELECT * FROM race_category WHERE name = ?";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
-        try (PreparedStatement findStatement = database.createPreparedStatement(findQuery)) {
-            findStatement.setString(1, name);
+        try {
+            return database.read(connection -> {
+                PreparedStatement findStatement = connection.borrowStatement(findQuery);
 
-            try (ResultSet row = findStatement.executeQuery()) {
-                if (row.next())
-                    return createObjectFromResultSet(row);
-            }
+                try {
+                    findStatement.setString(1, name);
+
+                    try (ResultSet row = findStatement.executeQuery()) {
+                        if (row.next())
+                            return new RaceCategoryRowMapper(row).map(row);
+                    }
+                } finally {
+                    connection.returnStatement(findQuery, findStatement);
+                }
+
+                return null;
+            });
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
             throw new DataProviderException(ex.getMessage());
         }
-
-        return null;
     }
 
     @Override
     public void create(RaceCategory raceCategory) throws DataProviderException {
-        final String insertQuery = "INSERT INTO race_category (race_category_uuid, name, description) VALUES (?, ?, ?)";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
         if (raceCategory != null) {
-            try (PreparedStatement insertStatement = database.createPreparedStatement(insertQuery)) {
-                insertStatement.setString(1, raceCategory.getUuid().toString());
-                insertStatement.setString(2, raceCategory.getName());
-                insertStatement.setString(3, raceCategory.getDescription());
+            ChangeSet<RaceCategoryField> changes = raceCategory.getChangeTracker().getChanges();
+
+            try {
+                database.write(connection -> {
+                    PreparedStatement insertStatement = connection.borrowStatement(INSERT_QUERY);
 
-                insertStatement.executeUpdate();
+                    try {
+                        bindInsertParameters(insertStatement, raceCategory);
+
+                        return insertStatement.executeUpdate();
+                    } finally {
+                        connection.returnStatement(INSERT_QUERY, insertStatement);
+                    }
+                });
+
+                raceCategory.getChangeTracker().markSaved(changes);
             } catch (SQLException ex) {
                 log.error(ex.getMessage(), ex);
                 throw new DataProviderException(ex.getMessage());
@@ -126,18 +235,52 @@ public class RaceCategorySQLiteProvider implements RaceCategoryProvider {
             throw new IllegalArgumentException("The race category instance is null");
     }
 
+    @Override
+    public void createAll(List<? extends RaceCategory> raceCategories) throws DataProviderException {
+        if (raceCategories == null || raceCategories.contains(null))
+            throw new IllegalArgumentException("The race categories list is null or contains a null instance");
+
+        List<ChangeSet<RaceCategoryField>> changes = new ArrayList<>(raceCategories.size());
+        raceCategories.forEach(raceCategory -> changes.add(raceCategory.getChangeTracker().getChanges()));
+
+        executeBatch(INSERT_QUERY, raceCategories, this::bindInsertParameters);
+
+        for (int index = 0; index < raceCategories.size(); index++)
+            raceCategories.get(index).getChangeTracker().markSaved(changes.get(index));
+    }
+
     @Override
     public void update(RaceCategory raceCategory) throws DataProviderException {
-        final String updateQuery = "UPDATE race_category SET name = ?, description = ? WHERE race_category_uuid = ?";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
         if (raceCategory != null) {
-            try (PreparedStatement updateStatement = database.createPreparedStatement(updateQuery)) {
-                updateStatement.setString(1, raceCategory.getName());
-                updateStatement.setString(2, raceCategory.getDescription());
-                updateStatement.setString(3, raceCategory.getUuid().toString());
+            ChangeSet<RaceCategoryField> changes = raceCategory.getChangeTracker().getChanges();
 
-                updateStatement.executeUpdate();
+            // Nothing to write for a race category unchanged
+            if (changes.isEmpty())
+                return;
+
+            final String updateQuery = buildUpdateQuery(changes.getFields());
+
+            try {
+                database.write(connection -> {
+                    PreparedStatement updateStatement = connection.borrowStatement(updateQuery);
+
+                    try {
+                        bindUpdateParameters(updateStatement, raceCategory, changes.getFields());
+                        SQLiteConflictException.check(conflictMessage(raceCategory), updateStatement.executeUpdate());
+
+                        return null;
+                    } finally {
+                        connection.returnStatement(updateQuery, updateStatement);
+                    }
+                });
+
+                raceCategory.setRowVersion(raceCategory.getRowVersion() + 1);
+                raceCategory.getChangeTracker().markSaved(changes);
+            } catch (SQLiteConflictException ex) {
+                log.warn(ex.getMessage());
+                throw new DataProviderConflictException(ex.getMessage());
             } catch (SQLException ex) {
                 log.error(ex.getMessage(), ex);
                 throw new DataProviderException(ex.getMessage());
@@ -148,16 +291,85 @@ public class RaceCategorySQLiteProvider implements RaceCategoryProvider {
             throw new IllegalArgumentException("The race category instance is null");
     }
 
+    @Override
+    public void updateAll(List<? extends RaceCategory> raceCategories) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        if (raceCategories == null || raceCategories.contains(null))
+            throw new IllegalArgumentException("The race categories list is null or contains a null instance");
+
+        // The race categories changed are grouped by fields changed, each group being a batch of the same partial update
+        List<ChangeSet<RaceCategoryField>> changes = new ArrayList<>(raceCategories.size());
+        Map<Set<RaceCategoryField>, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (int index = 0; index < raceCategories.size(); index++) {
+            ChangeSet<RaceCategoryField> raceCategoryChanges = raceCategories.get(index).getChangeTracker().getChanges();
+            changes.add(raceCategoryChanges);
+
+            if (!raceCategoryChanges.isEmpty())
+                groups.computeIfAbsent(raceCategoryChanges.getFields(), fields -> new ArrayList<>()).add(index);
+        }
+
+        if (groups.isEmpty())
+            return;
+
+        try {
+            database.write(connection -> connection.executeAtomically(atomicConnection -> {
+                for (Map.Entry<Set<RaceCategoryField>, List<Integer>> group : groups.entrySet()) {
+                    String updateQuery = buildUpdateQuery(group.getKey());
+                    PreparedStatement batchStatement = atomicConnection.borrowStatement(updateQuery);
+
+                    try {
+                        for (int index : group.getValue()) {
+                            bindUpdateParameters(batchStatement, raceCategories.get(index), group.getKey());
+                            batchStatement.addBatch();
+                        }
+
+                        // A single race category changed by another station rolls back the whole update
+                        SQLiteConflictException.check("A race category was changed or deleted by another station",
+                                batchStatement.executeBatch());
+                    } finally {
+                        batchStatement.clearBatch();
+                        atomicConnection.returnStatement(updateQuery, batchStatement);
+                    }
+                }
+
+                return null;
+            }));
+        } catch (SQLiteConflictException ex) {
+            log.warn(ex.getMessage());
+            throw new DataProviderConflictException(ex.getMessage());
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+
+        for (List<Integer> group : groups.values()) {
+            for (int index : group)
+                raceCategories.get(index).setRowVersion(raceCategories.get(index).getRowVersion() + 1);
+        }
+
+        for (int index = 0; index < raceCategories.size(); index++)
+            raceCategories.get(index).getChangeTracker().markSaved(changes.get(index));
+    }
+
     @Override
     public void delete(RaceCategory raceCategory) throws DataProviderException {
-        final String deleteQuery = "DELETE FROM race_category WHERE race_category_uuid = ?";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
         if (raceCategory != null) {
-            try (PreparedStatement deleteStatement = database.createPreparedStatement(deleteQuery)) {
-                deleteStatement.setString(1, raceCategory.getUuid().toString());
+            try {
+                database.write(connection -> {
+                    PreparedStatement deleteStatement = connection.borrowStatement(DELETE_QUERY);
+
+                    try {
+                        bindDeleteParameters(deleteStatement, raceCategory);
 
-                deleteStatement.executeUpdate();
+                        return deleteStatement.executeUpdate();
+                    } finally {
+                        connection.returnStatement(DELETE_QUERY, deleteStatement);
+                    }
+                });
             } catch (SQLException ex) {
                 log.error(ex.getMessage(), ex);
                 throw new DataProviderException(ex.getMessage());
@@ -165,20 +377,130 @@ public class RaceCategorySQLiteProvider implements RaceCategoryProvider {
         }
     }
 
+    @Override
+    public void deleteAll(List<? extends RaceCategory> raceCategories) throws DataProviderException {
+        executeBatch(DELETE_QUERY, raceCategories, this::bindDeleteParameters);
+    }
+
+    /**
+     * Executes a query as a JDBC batch for several race categories. The batch is atomic: if one race category fails,
+     * none of them is changed.
+     *
+     * @param query the query to execute
+     * @param raceCategories the race categories
+     * @param binder the binder of the parameters of a race category
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    private void executeBatch(String query, List<? extends RaceCategory> raceCategories, SQLiteParameterBinder<RaceCategory> binder) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        if (raceCategories == null || raceCategories.contains(null))
+            throw new IllegalArgumentException("The race categories list is null or contains a null instance");
+
+        if (raceCategories.isEmpty())
+            return;
+
+        try {
+            database.write(connection -> connection.executeAtomically(atomicConnection -> {
+                PreparedStatement batchStatement = atomicConnection.borrowStatement(query);
+
+                try {
+                    for (RaceCategory raceCategory : raceCategories) {
+                        binder.bind(batchStatement, raceCategory);
+                        batchStatement.addBatch();
+                    }
+
+                    return batchStatement.executeBatch();
+                } finally {
+                    batchStatement.clearBatch();
+                    atomicConnection.returnStatement(query, batchStatement);
+                }
+            }));
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
+
     /**
-     * Creates and hydrates an object from a result set.
+     * Binds the parameters of the insert query for a race category.
      *
-     * @param resultSet the result set
+     * @param statement the insert statement
+     * @param raceCategory the race category to insert
      *
-     * @return the object hydrated
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void bindInsertParameters(PreparedStatement statement, RaceCategory raceCategory) throws SQLException {
+        SQLiteUUIDCodec.setUUID(statement, 1, raceCategory.getUuid());
+        statement.setString(2, raceCategory.getName());
+        statement.setString(3, raceCategory.getDescription());
+    }
+
+    /**
+     * Builds the partial update query of the fields of a race category.
+     *
+     * @param fields the fields to update
+     *
+     * @return the update query
+     */
+    private String buildUpdateQuery(Set<RaceCategoryField> fields) {
+        List<String> columns = new ArrayList<>(fields.size());
+        fields.forEach(field -> columns.add(COLUMNS.get(field)));
+
+        return SQLiteUpdateQuery.build("race_category", columns, "race_category_uuid", "row_version");
+    }
+
+    /**
+     * Binds the parameters of the partial update query for a race category, checking the version of its row.
+     *
+     * @param statement the update statement
+     * @param raceCategory the race category to update
+     * @param fields the fields to update, in the order of the query
      *
      * @throws SQLException an exception thrown if a SQL problem occurs
      */
-    private RaceCategory createObjectFromResultSet(ResultSet resultSet) throws SQLException {
-        RaceCategory raceCategory = new RaceCategory(UUID.fromString(resultSet.getString("race_category_uuid")));
-        raceCategory.setName(resultSet.getString("name"));
-        raceCategory.setDescription(resultSet.getString("description"));
+    private void bindUpdateParameters(PreparedStatement statement, RaceCategory raceCategory, Set<RaceCategoryField> fields) throws SQLException {
+        int index = 1;
+
+        for (RaceCategoryField field : fields) {
+            switch (field) {
+                case NAME:
+                    statement.setString(index, raceCategory.getName());
+                    break;
+
+                case DESCRIPTION:
+                    statement.setString(index, raceCategory.getDescription());
+                    break;
+            }
 
-        return raceCategory;
+            index++;
+        }
+
+        SQLiteUUIDCodec.setUUID(statement, index, raceCategory.getUuid());
+        statement.setLong(index + 1, raceCategory.getRowVersion());
+    }
+
+    /**
+     * Builds the message of a conflict on the update of a race category.
+     *
+     * @param raceCategory the race category updated
+     *
+     * @return the message of the conflict
+     */
+    private String conflictMessage(RaceCategory raceCategory) {
+        return "The race category '" + raceCategory.getName() + "' was changed or deleted by another station";
+    }
+
+    /**
+     * Binds the parameters of the delete query for a race category.
+     *
+     * @param statement the delete statement
+     * @param raceCategory the race category to delete
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void bindDeleteParameters(PreparedStatement statement, RaceCategory raceCategory) throws SQLException {
+        SQLiteUUIDCodec.setUUID(statement, 1, raceCategory.getUuid());
     }
 }
@@ -0,0 +1,133 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider.sqlite;
+
+import be.bulck.smartrace.io.sqlite.SQLiteRowMapper;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordState;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.model.RacerTeam;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A class representing the row mapper of the race records, joined to the name of their racer team. The race tracks are
+ * shared between the race records mapped, and the racer teams too if they are kept.
+ *
+ * @author Fabien Vanden Bulck
+ */
+class RaceRecordRowMapper implements SQLiteRowMapper<RaceRecord> {
+
+    /** The race tracks, by identifier. */
+    private final Map<UUID, RaceTrack> raceTracks;
+
+    /** The racer teams already hydrated, by identifier (null if they aren't kept). */
+    private final Map<UUID, RacerTeam> racerTeams;
+
+    /** The index of the identifier column. */
+    private final int uuidColumn;
+
+    /** The index of the number column. */
+    private final int numberColumn;
+
+    /** The index of the state column. */
+    private final int stateColumn;
+
+    /** The index of the end date column. */
+    private final int endDateColumn;
+
+    /** The index of the racer team identifier column. */
+    private final int teamUuidColumn;
+
+    /** The index of the racer team name column. */
+    private final int teamNameColumn;
+
+    /** The index of the race track identifier column. */
+    private final int trackUuidColumn;
+
+    /** The index of the row version column. */
+    private final int rowVersionColumn;
+
+
+    /**
+     * Constructs an instance of race record row mapper, for the columns of a result set.
+     *
+     * @param resultSet the result set
+     * @param raceTracks the race tracks, by identifier
+     * @param racerTeams the racer teams already hydrated, by identifier, or null to hydrate a racer team for each race
+     *                   record
+     *
+     * @throws SQLException an exception thrown if a column is missing
+     */
+    RaceRecordRowMapper(ResultSet resultSet, Map<UUID, RaceTrack> raceTracks, Map<UUID, RacerTeam> racerTeams) throws SQLException {
+        this.raceTracks = raceTracks;
+        this.racerTeams = racerTeams;
+
+        uuidColumn = resultSet.findColumn("race_record_uuid");
+        numberColumn = resultSet.findColumn("number");
+        stateColumn = resultSet.findColumn("state");
+        endDateColumn = resultSet.findColumn("end_date");
+        teamUuidColumn = resultSet.findColumn("racer_team_uuid");
+        teamNameColumn = resultSet.findColumn("racer_team_name");
+        trackUuidColumn = resultSet.findColumn("racer_track_uuid");
+        rowVersionColumn = resultSet.findColumn("row_version");
+    }
+
+    @Override
+    public RaceRecord map(ResultSet resultSet) throws SQLException {
+        RaceRecord raceRecord = new RaceRecord(SQLiteUUIDCodec.getUUID(resultSet, uuidColumn));
+        raceRecord.setNumber(resultSet.getInt(numberColumn));
+        raceRecord.setState(RaceRecordState.parse(resultSet.getInt(stateColumn)));
+
+        long endDate = resultSet.getLong(endDateColumn);
+
+        if (!resultSet.wasNull())
+            raceRecord.setEndTime(Instant.ofEpochMilli(endDate));
+
+        UUID teamUuid = SQLiteUUIDCodec.getUUID(resultSet, teamUuidColumn);
+        RacerTeam racerTeam = racerTeams != null ? racerTeams.get(teamUuid) : null;
+
+        if (racerTeam == null) {
+            racerTeam = new RacerTeam(teamUuid);
+            racerTeam.setName(resultSet.getString(teamNameColumn));
+
+            if (racerTeams != null)
+                racerTeams.put(teamUuid, racerTeam);
+        }
+
+        UUID trackUuid = SQLiteUUIDCodec.getUUID(resultSet, trackUuidColumn);
+        RaceTrack raceTrack = raceTracks.get(trackUuid);
+
+        if (raceTrack == null) {
+            raceTrack = new RaceTrack(trackUuid);
+            raceTracks.put(trackUuid, raceTrack);
+        }
+
+        raceRecord.setTeam(racerTeam);
+        raceRecord.setTrack(raceTrack);
+
+        raceRecord.setRowVersion(resultSet.getLong(rowVersionColumn));
+
+        return raceRecord;
+    }
+}
@@ -0,0 +1,745 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.dao.provider.sqlite;
+
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.provider.RaceRecordListener;
+import be.bulck.smartrace.dao.provider.RaceRecordProvider;
+import be.bulck.smartrace.dao.provider.RaceRecordSort;
+import be.bulck.smartrace.io.sqlite.SQLiteConnection;
+import be.bulck.smartrace.io.sqlite.SQLiteConflictException;
+import be.bulck.smartrace.io.sqlite.SQLiteDatabase;
+import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLitePageQuery;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RaceCategory;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordIndex;
+import be.bulck.smartrace.model.RaceRecordState;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.model.RacerTeam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A class representing the SQLite race record provider.
+ *
+ * The race records are loaded with their racer team, race track and race categories in a fixed number of queries,
+ * whatever the number of race records. An index of the race records by number (bib) is kept in memory for the race file
+ * opened, so a race record crossing the finish line is found without querying the race file. The index is built from
+ * the writer connection and updated after each write of this provider.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RaceRecordSQLiteProvider implements RaceRecordProvider {
+
+    /** The query to find the race records, with the name of their racer team. */
+    private static final String FIND_QUERY = "SELECT race_record.*, racer_team.name AS racer_team_name FROM race_record LEFT JOIN racer_team ON racer_team.racer_team_uuid = race_record.racer_team_uuid";
+
+    /** The query to find the race category assignments, with their race category. */
+    private static final String FIND_ASSIGNMENTS_QUERY = "SELECT race_category_assignment.race_record_uuid, race_category.* FROM race_category_assignment INNER JOIN race_category ON race_category.race_category_uuid = race_category_assignment.race_category_uuid";
+
+    /** The query to iterate over the race records and the name of their racer team, one row per category assignment. */
+    private static final String FOR_EACH_QUERY = "SELECT race_record.*, racer_team.name AS racer_team_name, race_category_assignment.race_category_uuid AS assigned_category_uuid FROM race_record LEFT JOIN racer_team ON racer_team.racer_team_uuid = race_record.racer_team_uuid LEFT JOIN race_category_assignment ON race_category_assignment.race_record_uuid = race_record.race_record_uuid ORDER BY race_record.race_record_uuid";
+
+    /** The query to find the keys of the race records, for the pages. */
+    private static final String FIND_PAGE_KEYS_QUERY = "SELECT race_record.race_record_uuid FROM race_record";
+
+    /** The query to find the race tracks. */
+    private static final String FIND_TRACKS_QUERY = "SELECT * FROM race_track";
+
+    /** The query to find the race categories. */
+    private static final String FIND_CATEGORIES_QUERY = "SELECT * FROM race_category";
+
+    /** The query to insert a race record. */
+    private static final String INSERT_QUERY = "INSERT INTO race_record (race_record_uuid, number, racer_team_uuid, racer_track_uuid, state, end_date) VALUES (?, ?, ?, ?, ?, ?)";
+
+    /** The query to update a race record, if his row wasn't changed by another station since it was read. */
+    private static final String UPDATE_QUERY = "UPDATE race_record SET number = ?, racer_team_uuid = ?, racer_track_uuid = ?, state = ?, end_date = ?, row_version = row_version + 1 WHERE race_record_uuid = ? AND row_version = ?";
+
+    /** The query to delete a race record. */
+    private static final String DELETE_QUERY = "DELETE FROM race_record WHERE race_record_uuid = ?";
+
+    /** The query to mark a race record as finished, if it is still ready or running (a cancelled one stays cancelled). */
+    private static final String FINISH_QUERY = "UPDATE race_record SET state = ?, end_date = ?, row_version = row_version + 1 WHERE number = ? AND state IN (?, ?)";
+
+    /** The query to mark a race record as finished, if it is still ready or running, or if it is finished later. */
+    private static final String CORRECT_FINISH_QUERY = "UPDATE race_record SET state = ?, end_date = ?, row_version = row_version + 1 WHERE number = ? AND (state IN (?, ?) OR (state = ? AND (end_date IS NULL OR end_date > ?)))";
+
+    /** The query to insert a race category assignment. */
+    private static final String INSERT_ASSIGNMENT_QUERY = "INSERT INTO race_category_assignment (race_category_uuid, race_record_uuid) VALUES (?, ?)";
+
+    /** The query to delete the race category assignments of a race record. */
+    private static final String DELETE_ASSIGNMENTS_QUERY = "DELETE FROM race_category_assignment WHERE race_record_uuid = ?";
+
+    /** The lock guarding the index of the race records. */
+    private final Object indexLock = new Object();
+
+    /** The index of the race records by number, resolving a number without boxing it. */
+    private final RaceRecordIndex numberIndex = new RaceRecordIndex();
+
+    /** The numbers of the race records indexed, by identifier. */
+    private final Map<UUID, Integer> indexedNumbers = new HashMap<>();
+
+    /** The SQLite database of the race records indexed. */
+    private SQLiteDatabase indexedDatabase;
+
+    /** The listeners of the race records written. */
+    private final List<RaceRecordListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(RaceRecordSQLiteProvider.class);
+
+
+    @Override
+    public RaceRecord[] find() throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            Collection<RaceRecord> raceRecords = database.read(connection -> loadRaceRecords(connection, FIND_QUERY, FIND_ASSIGNMENTS_QUERY));
+
+            return raceRecords.toArray(new RaceRecord[raceRecords.size()]);
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super RaceRecord> action) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            database.read(connection -> {
+                Map<UUID, RaceTrack> raceTracks = loadRaceTracks(connection);
+                Map<UUID, RaceCategory> raceCategories = loadRaceCategories(connection);
+                PreparedStatement forEachStatement = connection.borrowStatement(FOR_EACH_QUERY);
+
+                // The rows are sorted by race record, so a race record is complete once the next one starts
+                try (ResultSet rows = forEachStatement.executeQuery()) {
+                    if (rows.isClosed())
+                        return null;
+
+                    RaceRecordRowMapper rowMapper = new RaceRecordRowMapper(rows, raceTracks, null);
+                    int uuidColumn = rows.findColumn("race_record_uuid");
+                    int categoryUuidColumn = rows.findColumn("assigned_category_uuid");
+                    RaceRecord raceRecord = null;
+
+                    while (rows.next()) {
+                        if (raceRecord == null || !raceRecord.getUuid().equals(SQLiteUUIDCodec.getUUID(rows, uuidColumn))) {
+                            if (raceRecord != null)
+                                action.accept(raceRecord);
+
+                            raceRecord = rowMapper.map(rows);
+                        }
+
+                        RaceCategory raceCategory = raceCategories.get(SQLiteUUIDCodec.getUUID(rows, categoryUuidColumn));
+
+                        if (raceCategory != null)
+                            raceRecord.addCategory(raceCategory);
+                    }
+
+                    if (raceRecord != null)
+                        action.accept(raceRecord);
+                } finally {
+                    connection.returnStatement(FOR_EACH_QUERY, forEachStatement);
+                }
+
+                return null;
+            });
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public RaceRecord[] findPage(RaceRecord after, int limit, RaceRecordSort sort) throws DataProviderException {
+        final boolean byNumber = sort == RaceRecordSort.NUMBER_ASCENDING || sort == RaceRecordSort.NUMBER_DESCENDING;
+        final String keyColumn = byNumber ? "race_record.number" : "race_record.race_record_uuid";
+        final String pageQuery = SQLitePageQuery.build(FIND_PAGE_KEYS_QUERY, keyColumn, after != null, sort.isDescending());
+        Object[] parameters = after == null ? new Object[] { limit } : new Object[] { byNumber ? (Object) after.getNumber() : SQLiteUUIDCodec.encode(after.getUuid()), limit };
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        // The page is found by its keys, the race records and their assignments are then joined to them
+        try {
+            Collection<RaceRecord> raceRecords = database.read(connection -> loadRaceRecords(connection,
+                    SQLitePageQuery.build(FIND_QUERY, keyColumn, after != null, sort.isDescending()),
+                    FIND_ASSIGNMENTS_QUERY + " WHERE race_category_assignment.race_record_uuid IN (" + pageQuery + ")",
+                    parameters));
+
+            return raceRecords.toArray(new RaceRecord[raceRecords.size()]);
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public RaceRecord find(UUID uuid) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            Collection<RaceRecord> raceRecords = database.read(connection -> loadRaceRecords(connection,
+                    FIND_QUERY + " WHERE race_record.race_record_uuid = ?",
+                    FIND_ASSIGNMENTS_QUERY + " WHERE race_category_assignment.race_record_uuid = ?",
+                    (Object) SQLiteUUIDCodec.encode(uuid)));
+
+            return raceRecords.isEmpty() ? null : raceRecords.iterator().next();
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public RaceRecord findByNumber(int number) throws DataProviderException {
+        synchronized (indexLock) {
+            buildIndexIfNeeded();
+
+            return numberIndex.get(number);
+        }
+    }
+
+    @Override
+    public void create(RaceRecord raceRecord) throws DataProviderException {
+        if (raceRecord == null)
+            throw new IllegalArgumentException("The race record instance is null");
+
+        List<RaceRecord> raceRecords = new ArrayList<>();
+        raceRecords.add(raceRecord);
+
+        createAll(raceRecords);
+    }
+
+    @Override
+    public void createAll(List<? extends RaceRecord> raceRecords) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        if (raceRecords == null || raceRecords.contains(null))
+            throw new IllegalArgumentException("The race records list is null or contains a null instance");
+
+        if (raceRecords.isEmpty())
+            return;
+
+        try {
+            database.write(connection -> connection.executeAtomically(atomicConnection -> {
+                PreparedStatement insertStatement = atomicConnection.borrowStatement(INSERT_QUERY);
+
+                try {
+                    for (RaceRecord raceRecord : raceRecords) {
+                        bindInsertParameters(insertStatement, raceRecord);
+                        insertStatement.addBatch();
+                    }
+
+                    insertStatement.executeBatch();
+                } finally {
+                    insertStatement.clearBatch();
+                    atomicConnection.returnStatement(INSERT_QUERY, insertStatement);
+                }
+
+                return insertAssignments(atomicConnection, raceRecords);
+            }));
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+
+        for (RaceRecord raceRecord : raceRecords) {
+            index(raceRecord);
+            notifyChanged(raceRecord);
+        }
+    }
+
+    @Override
+    public void update(RaceRecord raceRecord) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        if (raceRecord != null) {
+            try {
+                database.write(connection -> connection.executeAtomically(atomicConnection -> {
+                    PreparedStatement updateStatement = atomicConnection.borrowStatement(UPDATE_QUERY);
+
+                    try {
+                        bindUpdateParameters(updateStatement, raceRecord);
+                        SQLiteConflictException.check("The race record " + raceRecord.getNumber()
+                                + " was changed or deleted by another station", updateStatement.executeUpdate());
+                    } finally {
+                        atomicConnection.returnStatement(UPDATE_QUERY, updateStatement);
+                    }
+
+                    deleteAssignments(atomicConnection, raceRecord);
+
+                    List<RaceRecord> raceRecords = new ArrayList<>();
+                    raceRecords.add(raceRecord);
+
+                    return insertAssignments(atomicConnection, raceRecords);
+                }));
+            } catch (SQLiteConflictException ex) {
+                log.warn(ex.getMessage());
+                throw new DataProviderConflictException(ex.getMessage());
+            } catch (SQLException ex) {
+                log.error(ex.getMessage(), ex);
+                throw new DataProviderException(ex.getMessage());
+            }
+
+            raceRecord.setRowVersion(raceRecord.getRowVersion() + 1);
+            index(raceRecord);
+            notifyChanged(raceRecord);
+        }
+
+        else
+            throw new IllegalArgumentException("The race record instance is null");
+    }
+
+    @Override
+    public void delete(RaceRecord raceRecord) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        if (raceRecord != null) {
+            try {
+                database.write(connection -> connection.executeAtomically(atomicConnection -> {
+                    deleteAssignments(atomicConnection, raceRecord);
+
+                    PreparedStatement deleteStatement = atomicConnection.borrowStatement(DELETE_QUERY);
+
+                    try {
+                        SQLiteUUIDCodec.setUUID(deleteStatement, 1, raceRecord.getUuid());
+
+                        return deleteStatement.executeUpdate();
+                    } finally {
+                        atomicConnection.returnStatement(DELETE_QUERY, deleteStatement);
+                    }
+                }));
+            } catch (SQLException ex) {
+                log.error(ex.getMessage(), ex);
+                throw new DataProviderException(ex.getMessage());
+            }
+
+            unindex(raceRecord);
+
+            for (RaceRecordListener listener : listeners)
+                listener.raceRecordDeleted(raceRecord);
+        }
+    }
+
+    @Override
+    public boolean markFinished(int number, Instant endTime, boolean correction) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        if (endTime == null)
+            throw new IllegalArgumentException("The end time is null");
+
+        // The unknown numbers are rejected by the index, without querying the race file
+        RaceRecord raceRecord = findByNumber(number);
+
+        if (raceRecord == null)
+            return false;
+
+        try {
+            String query = correction ? CORRECT_FINISH_QUERY : FINISH_QUERY;
+
+            int updated = database.write(connection -> {
+                PreparedStatement finishStatement = connection.borrowStatement(query);
+
+                try {
+                    finishStatement.setInt(1, RaceRecordState.FINISHED.getValue());
+                    finishStatement.setLong(2, endTime.toEpochMilli());
+                    finishStatement.setInt(3, number);
+                    finishStatement.setInt(4, RaceRecordState.READY.getValue());
+                    finishStatement.setInt(5, RaceRecordState.RUNNING.getValue());
+
+                    if (correction) {
+                        finishStatement.setInt(6, RaceRecordState.FINISHED.getValue());
+                        finishStatement.setLong(7, endTime.toEpochMilli());
+                    }
+
+                    return finishStatement.executeUpdate();
+                } finally {
+                    connection.returnStatement(query, finishStatement);
+                }
+            });
+
+            if (updated == 0)
+                return false;
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+
+        raceRecord.setState(RaceRecordState.FINISHED);
+        raceRecord.setEndTime(endTime);
+        raceRecord.setRowVersion(raceRecord.getRowVersion() + 1);
+        notifyChanged(raceRecord);
+
+        return true;
+    }
+
+    @Override
+    public void addListener(RaceRecordListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(RaceRecordListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notifies the listeners that a race record was created or changed.
+     *
+     * @param raceRecord the race record created or changed
+     */
+    private void notifyChanged(RaceRecord raceRecord) {
+        for (RaceRecordListener listener : listeners)
+            listener.raceRecordChanged(raceRecord);
+    }
+
+    /**
+     * Builds the index of the race records by number, if the race file opened is not indexed yet. Must be called with
+     * the index lock held.
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    private void buildIndexIfNeeded() throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        if (database == indexedDatabase)
+            return;
+
+        try {
+            // Loaded from the writer connection, to index the race records not committed yet
+            Collection<RaceRecord> raceRecords = database.write(connection -> loadRaceRecords(connection, FIND_QUERY, FIND_ASSIGNMENTS_QUERY));
+
+            numberIndex.clear();
+            indexedNumbers.clear();
+
+            for (RaceRecord raceRecord : raceRecords) {
+                numberIndex.put(raceRecord.getNumber(), raceRecord);
+                indexedNumbers.put(raceRecord.getUuid(), raceRecord.getNumber());
+            }
+
+            indexedDatabase = database;
+            log.debug(raceRecords.size() + " race records indexed by number");
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Indexes a race record written, if the race file opened is indexed. Otherwise, it will be indexed with the others
+     * when the index is built.
+     *
+     * @param raceRecord the race record to index
+     */
+    private void index(RaceRecord raceRecord) {
+        synchronized (indexLock) {
+            if (indexedDatabase != SQLiteDatabaseFactory.getDatabase())
+                return;
+
+            Integer previousNumber = indexedNumbers.put(raceRecord.getUuid(), raceRecord.getNumber());
+
+            if (previousNumber != null)
+                numberIndex.remove(previousNumber);
+
+            numberIndex.put(raceRecord.getNumber(), raceRecord);
+        }
+    }
+
+    /**
+     * Removes a race record deleted from the index, if the race file opened is indexed.
+     *
+     * @param raceRecord the race record to remove from the index
+     */
+    private void unindex(RaceRecord raceRecord) {
+        synchronized (indexLock) {
+            if (indexedDatabase != SQLiteDatabaseFactory.getDatabase())
+                return;
+
+            Integer number = indexedNumbers.remove(raceRecord.getUuid());
+
+            if (number != null)
+                numberIndex.remove(number);
+        }
+    }
+
+    /**
+     * Loads the race tracks, few enough to be held in memory.
+     *
+     * @param connection the connection
+     *
+     * @return the race tracks, by identifier
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private Map<UUID, RaceTrack> loadRaceTracks(SQLiteConnection connection) throws SQLException {
+        Map<UUID, RaceTrack> raceTracks = new HashMap<>();
+        PreparedStatement findTracksStatement = connection.borrowStatement(FIND_TRACKS_QUERY);
+
+        try (ResultSet rows = findTracksStatement.executeQuery()) {
+            if (rows.isClosed())
+                return raceTracks;
+
+            RaceTrackRowMapper rowMapper = new RaceTrackRowMapper(rows);
+
+            while (rows.next()) {
+                RaceTrack raceTrack = rowMapper.map(rows);
+                raceTracks.put(raceTrack.getUuid(), raceTrack);
+            }
+        } finally {
+            connection.returnStatement(FIND_TRACKS_QUERY, findTracksStatement);
+        }
+
+        return raceTracks;
+    }
+
+    /**
+     * Loads the race categories, few enough to be held in memory.
+     *
+     * @param connection the connection
+     *
+     * @return the race categories, by identifier
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private Map<UUID, RaceCategory> loadRaceCategories(SQLiteConnection connection) throws SQLException {
+        Map<UUID, RaceCategory> raceCategories = new HashMap<>();
+        PreparedStatement findCategoriesStatement = connection.borrowStatement(FIND_CATEGORIES_QUERY);
+
+        try (ResultSet rows = findCategoriesStatement.executeQuery()) {
+            if (rows.isClosed())
+                return raceCategories;
+
+            RaceCategoryRowMapper rowMapper = new RaceCategoryRowMapper(rows);
+
+            while (rows.next()) {
+                RaceCategory raceCategory = rowMapper.map(rows);
+                raceCategories.put(raceCategory.getUuid(), raceCategory);
+            }
+        } finally {
+            connection.returnStatement(FIND_CATEGORIES_QUERY, findCategoriesStatement);
+        }
+
+        return raceCategories;
+    }
+
+    /**
+     * Loads race records with their racer team, race track and race categories, in three queries.
+     *
+     * @param connection the connection
+     * @param findQuery the query to find the race records, with the name of their racer team
+     * @param findAssignmentsQuery the query to find the race category assignments of the same race records
+     * @param parameters the parameters of both queries
+     *
+     * @return the race records loaded, in the order of the query
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private Collection<RaceRecord> loadRaceRecords(SQLiteConnection connection, String findQuery, String findAssignmentsQuery, Object... parameters) throws SQLException {
+        Map<UUID, RaceTrack> raceTracks = loadRaceTracks(connection);
+        Map<UUID, RacerTeam> racerTeams = new HashMap<>();
+        Map<UUID, RaceCategory> raceCategories = new HashMap<>();
+        Map<UUID, RaceRecord> raceRecords = new LinkedHashMap<>();
+
+        PreparedStatement findStatement = connection.borrowStatement(findQuery);
+
+        try {
+            bindParameters(findStatement, parameters);
+
+            try (ResultSet rows = findStatement.executeQuery()) {
+                if (rows.isClosed())
+                    return raceRecords.values();
+
+                RaceRecordRowMapper rowMapper = new RaceRecordRowMapper(rows, raceTracks, racerTeams);
+
+                while (rows.next()) {
+                    RaceRecord raceRecord = rowMapper.map(rows);
+                    raceRecords.put(raceRecord.getUuid(), raceRecord);
+                }
+            }
+        } finally {
+            connection.returnStatement(findQuery, findStatement);
+        }
+
+        PreparedStatement findAssignmentsStatement = connection.borrowStatement(findAssignmentsQuery);
+
+        try {
+            bindParameters(findAssignmentsStatement, parameters);
+
+            try (ResultSet rows = findAssignmentsStatement.executeQuery()) {
+                if (rows.isClosed())
+                    return raceRecords.values();
+
+                RaceCategoryRowMapper rowMapper = new RaceCategoryRowMapper(rows);
+                int recordUuidColumn = rows.findColumn("race_record_uuid");
+                int categoryUuidColumn = rows.findColumn("race_category_uuid");
+
+                while (rows.next()) {
+                    RaceRecord raceRecord = raceRecords.get(SQLiteUUIDCodec.getUUID(rows, recordUuidColumn));
+                    UUID categoryUuid = SQLiteUUIDCodec.getUUID(rows, categoryUuidColumn);
+                    RaceCategory raceCategory = raceCategories.get(categoryUuid);
+
+                    if (raceCategory == null) {
+                        raceCategory = rowMapper.map(rows);
+                        raceCategories.put(categoryUuid, raceCategory);
+                    }
+
+                    if (raceRecord != null)
+                        raceRecord.addCategory(raceCategory);
+                }
+            }
+        } finally {
+            connection.returnStatement(findAssignmentsQuery, findAssignmentsStatement);
+        }
+
+        return raceRecords.values();
+    }
+
+    /**
+     * Binds the parameters of a query, in order.
+     *
+     * @param statement the prepared statement
+     * @param parameters the parameters
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void bindParameters(PreparedStatement statement, Object... parameters) throws SQLException {
+        for (int index = 0; index < parameters.length; index++)
+            statement.setObject(index + 1, parameters[index]);
+    }
+
+    /**
+     * Inserts the race category assignments of race records, in a single batch.
+     *
+     * @param connection the connection
+     * @param raceRecords the race records
+     *
+     * @return the update counts of the batch
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private int[] insertAssignments(SQLiteConnection connection, List<? extends RaceRecord> raceRecords) throws SQLException {
+        PreparedStatement insertStatement = connection.borrowStatement(INSERT_ASSIGNMENT_QUERY);
+
+        try {
+            for (RaceRecord raceRecord : raceRecords) {
+                for (RaceCategory raceCategory : raceRecord.getCategories()) {
+                    SQLiteUUIDCodec.setUUID(insertStatement, 1, raceCategory.getUuid());
+                    SQLiteUUIDCodec.setUUID(insertStatement, 2, raceRecord.getUuid());
+                    insertStatement.addBatch();
+                }
+            }
+
+            return insertStatement.executeBatch();
+        } finally {
+            insertStatement.clearBatch();
+            connection.returnStatement(INSERT_ASSIGNMENT_QUERY, insertStatement);
+        }
+    }
+
+    /**
+     * Deletes the race category assignments of a race record.
+     *
+     * @param connection the connection
+     * @param raceRecord the race record
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void deleteAssignments(SQLiteConnection connection, RaceRecord raceRecord) throws SQLException {
+        PreparedStatement deleteStatement = connection.borrowStatement(DELETE_ASSIGNMENTS_QUERY);
+
+        try {
+            SQLiteUUIDCodec.setUUID(deleteStatement, 1, raceRecord.getUuid());
+            deleteStatement.executeUpdate();
+        } finally {
+            connection.returnStatement(DELETE_ASSIGNMENTS_QUERY, deleteStatement);
+        }
+    }
+
+    /**
+     * Binds the parameters of the insert query for a race record.
+     *
+     * @param statement the insert statement
+     * @param raceRecord the race record to insert
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void bindInsertParameters(PreparedStatement statement, RaceRecord raceRecord) throws SQLException {
+        SQLiteUUIDCodec.setUUID(statement, 1, raceRecord.getUuid());
+        bindRecordParameters(statement, 2, raceRecord);
+    }
+
+    /**
+     * Binds the parameters of the update query for a race record.
+     *
+     * @param statement the update statement
+     * @param raceRecord the race record to update
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void bindUpdateParameters(PreparedStatement statement, RaceRecord raceRecord) throws SQLException {
+        bindRecordParameters(statement, 1, raceRecord);
+        SQLiteUUIDCodec.setUUID(statement, 6, raceRecord.getUuid());
+        statement.setLong(7, raceRecord.getRowVersion());
+    }
+
+    /**
+     * Binds the number, racer team, race track, state and end time of a race record, from a parameter index.
+     *
+     * @param statement the statement
+     * @param index the index of the first parameter
+     * @param raceRecord the race record
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void bindRecordParameters(PreparedStatement statement, int index, RaceRecord raceRecord) throws SQLException {
+        if (raceRecord.getTeam() == null || raceRecord.getTrack() == null)
+            throw new IllegalArgumentException("The race record " + raceRecord.getNumber() + " has no racer team or race track");
+
+        RaceRecordState state = raceRecord.getState() != null ? raceRecord.getState() : RaceRecordState.READY;
+
+        statement.setInt(index, raceRecord.getNumber());
+        SQLiteUUIDCodec.setUUID(statement, index + 1, raceRecord.getTeam().getUuid());
+        SQLiteUUIDCodec.setUUID(statement, index + 2, raceRecord.getTrack().getUuid());
+        statement.setInt(index + 3, state.getValue());
+
+        if (raceRecord.getEndTime() != null)
+            statement.setLong(index + 4, raceRecord.getEndTime().toEpochMilli());
+
+        else
+            statement.setNull(index + 4, Types.INTEGER);
+    }
+}
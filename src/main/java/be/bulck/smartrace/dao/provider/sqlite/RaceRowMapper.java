@@ -0,0 +1,129 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider.sqlite;
+
+import be.bulck.smartrace.io.sqlite.SQLiteRowMapper;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.Race;
+import be.bulck.smartrace.model.RaceDistanceUnit;
+import be.bulck.smartrace.model.RaceElevationUnit;
+import be.bulck.smartrace.model.RaceState;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * A class representing the row mapper of the races. The dates are stored as epoch milliseconds and read in the time
+ * zone of the system.
+ *
+ * @author Fabien Vanden Bulck
+ */
+class RaceRowMapper implements SQLiteRowMapper<Race> {
+
+    /** The index of the identifier column. */
+    private final int uuidColumn;
+
+    /** The index of the name column. */
+    private final int nameColumn;
+
+    /** The index of the location column. */
+    private final int locationColumn;
+
+    /** The index of the description column. */
+    private final int descriptionColumn;
+
+    /** The index of the state column. */
+    private final int stateColumn;
+
+    /** The index of the distance unit column. */
+    private final int distanceUnitColumn;
+
+    /** The index of the elevation unit column. */
+    private final int elevationUnitColumn;
+
+    /** The index of the creation date column. */
+    private final int creationDateColumn;
+
+    /** The index of the last opening date column. */
+    private final int lastOpeningDateColumn;
+
+    /** The index of the last update date column. */
+    private final int lastUpdateDateColumn;
+
+    /** The index of the version column. */
+    private final int versionColumn;
+
+    /** The index of the row version column. */
+    private final int rowVersionColumn;
+
+
+    /**
+     * Constructs an instance of race row mapper, for the columns of a result set.
+     *
+     * @param resultSet the result set
+     *
+     * @throws SQLException an exception thrown if a column is missing
+     */
+    RaceRowMapper(ResultSet resultSet) throws SQLException {
+        uuidColumn = resultSet.findColumn("race_uuid");
+        nameColumn = resultSet.findColumn("name");
+        locationColumn = resultSet.findColumn("location");
+        descriptionColumn = resultSet.findColumn("description");
+        stateColumn = resultSet.findColumn("state");
+        distanceUnitColumn = resultSet.findColumn("distance_unit");
+        elevationUnitColumn = resultSet.findColumn("elevation_unit");
+        creationDateColumn = resultSet.findColumn("creation_date");
+        lastOpeningDateColumn = resultSet.findColumn("last_opening_date");
+        lastUpdateDateColumn = resultSet.findColumn("last_update_date");
+        versionColumn = resultSet.findColumn("version");
+        rowVersionColumn = resultSet.findColumn("row_version");
+    }
+
+    @Override
+    public Race map(ResultSet resultSet) throws SQLException {
+        Race race = new Race(SQLiteUUIDCodec.getUUID(resultSet, uuidColumn));
+        race.setName(resultSet.getString(nameColumn));
+        race.setLocation(resultSet.getString(locationColumn));
+        race.setDescription(resultSet.getString(descriptionColumn));
+        race.setState(RaceState.parse(resultSet.getInt(stateColumn)));
+        race.setDistanceUnit(RaceDistanceUnit.parse(resultSet.getInt(distanceUnitColumn)));
+        race.setElevationUnit(RaceElevationUnit.parse(resultSet.getInt(elevationUnitColumn)));
+        race.setCreationDate(toLocalDateTime(resultSet.getLong(creationDateColumn)));
+        race.setLastOpeningDate(toLocalDateTime(resultSet.getLong(lastOpeningDateColumn)));
+        race.setLastUpdateDate(toLocalDateTime(resultSet.getLong(lastUpdateDateColumn)));
+        race.setVersion(resultSet.getString(versionColumn));
+
+        race.setRowVersion(resultSet.getLong(rowVersionColumn));
+
+        return race;
+    }
+
+    /**
+     * Converts epoch milliseconds into a date in the time zone of the system.
+     *
+     * @param epochMilli the epoch milliseconds
+     *
+     * @return the date
+     */
+    private static LocalDateTime toLocalDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+    }
+}
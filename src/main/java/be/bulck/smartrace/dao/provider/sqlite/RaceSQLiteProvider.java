@@ -18,20 +18,19 @@
 
 package be.bulck.smartrace.dao.provider.sqlite;
 
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.dao.provider.RaceProvider;
+import be.bulck.smartrace.io.sqlite.SQLiteConflictException;
 import be.bulck.smartrace.io.sqlite.SQLiteDatabase;
 import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
 import be.bulck.smartrace.model.Race;
-import be.bulck.smartrace.model.RaceDistanceUnit;
-import be.bulck.smartrace.model.RaceElevationUnit;
-import be.bulck.smartrace.model.RaceState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 /**
  * A class representing the SQLite race data provider.
@@ -49,30 +48,24 @@ public class RaceSQLiteProvider implements RaceProvider {
         final String findQuery = "SELECT * FROM race";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
-        try (Statement findStatement = database.createStatement()) {
-            try (ResultSet races = findStatement.executeQuery(findQuery)) {
-                if (races.next()) {
-                    Race race = new Race(UUID.fromString(races.getString("race_uuid")));
-                    race.setName(races.getString("name"));
-                    race.setLocation(races.getString("location"));
-                    race.setDescription(races.getString("description"));
-                    race.setState(RaceState.parse(races.getInt("state")));
-                    race.setDistanceUnit(RaceDistanceUnit.parse(races.getInt("distance_unit")));
-                    race.setElevationUnit(RaceElevationUnit.parse(races.getInt("elevation_unit")));
-                    race.setCreationDate(new Timestamp(races.getLong("creation_date")).toLocalDateTime());
-                    race.setLastOpeningDate(new Timestamp(races.getLong("last_opening_date")).toLocalDateTime());
-                    race.setLastUpdateDate(new Timestamp(races.getLong("last_update_date")).toLocalDateTime());
-                    race.setVersion(races.getString("version"));
-
-                    return race;
+        try {
+            return database.read(connection -> {
+                PreparedStatement findStatement = connection.borrowStatement(findQuery);
+
+                try (ResultSet races = findStatement.executeQuery()) {
+                    if (races.next()) {
+                        return new RaceRowMapper(races).map(races);
+                    }
+                } finally {
+                    connection.returnStatement(findQuery, findStatement);
                 }
-            }
+
+                return null;
+            });
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
             throw new DataProviderException(ex.getMessage());
         }
-
-        return null;
     }
 
     @Override
@@ -81,21 +74,29 @@ public class RaceSQLiteProvider implements RaceProvider {
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
         if (race != null) {
-            try (PreparedStatement insertStatement = database.createPreparedStatement(insertQuery)) {
-                LocalDateTime now = LocalDateTime.now();
-                insertStatement.setString(1, race.getUuid().toString());
-                insertStatement.setString(2, race.getName());
-                insertStatement.setString(3, race.getLocation());
-                insertStatement.setString(4, race.getDescription());
-                insertStatement.setInt(5, race.getState().getValue());
-                insertStatement.setInt(6, race.getDistanceUnit().getValue());
-                insertStatement.setInt(7, race.getElevationUnit().getValue());
-                insertStatement.setLong(8, Timestamp.valueOf(now).getTime());
-                insertStatement.setLong(9, Timestamp.valueOf(now).getTime());
-                insertStatement.setLong(10, Timestamp.valueOf(now).getTime());
-                insertStatement.setString(11, race.getVersion());
-
-                insertStatement.executeUpdate();
+            try {
+                database.write(connection -> {
+                    PreparedStatement insertStatement = connection.borrowStatement(insertQuery);
+
+                    try {
+                        LocalDateTime now = LocalDateTime.now();
+                        SQLiteUUIDCodec.setUUID(insertStatement, 1, race.getUuid());
+                        insertStatement.setString(2, race.getName());
+                        insertStatement.setString(3, race.getLocation());
+                        insertStatement.setString(4, race.getDescription());
+                        insertStatement.setInt(5, race.getState().getValue());
+                        insertStatement.setInt(6, race.getDistanceUnit().getValue());
+                        insertStatement.setInt(7, race.getElevationUnit().getValue());
+                        insertStatement.setLong(8, Timestamp.valueOf(now).getTime());
+                        insertStatement.setLong(9, Timestamp.valueOf(now).getTime());
+                        insertStatement.setLong(10, Timestamp.valueOf(now).getTime());
+                        insertStatement.setString(11, race.getVersion());
+
+                        return insertStatement.executeUpdate();
+                    } finally {
+                        connection.returnStatement(insertQuery, insertStatement);
+                    }
+                });
             } catch (SQLException ex) {
                 log.error(ex.getMessage(), ex);
                 throw new DataProviderException(ex.getMessage());
@@ -108,20 +109,37 @@ public class RaceSQLiteProvider implements RaceProvider {
 
     @Override
     public void update(Race race) throws DataProviderException {
-        final String updateQuery = "UPDATE race SET name = ?, location = ?, description = ?, state = ?, distance_unit = ?, elevation_unit = ?, last_update_date = ?";
+        final String updateQuery = "UPDATE race SET name = ?, location = ?, description = ?, state = ?, distance_unit = ?, elevation_unit = ?, last_update_date = ?, row_version = row_version + 1 WHERE race_uuid = ? AND row_version = ?";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
         if (race != null) {
-            try (PreparedStatement updateStatement = database.createPreparedStatement(updateQuery)) {
-                updateStatement.setString(1, race.getName());
-                updateStatement.setString(2, race.getLocation());
-                updateStatement.setString(3, race.getDescription());
-                updateStatement.setInt(4, race.getState().getValue());
-                updateStatement.setInt(5, race.getDistanceUnit().getValue());
-                updateStatement.setInt(6, race.getElevationUnit().getValue());
-                updateStatement.setLong(7, Timestamp.valueOf(race.getLastUpdateDate()).getTime());
-
-                updateStatement.executeUpdate();
+            try {
+                database.write(connection -> {
+                    PreparedStatement updateStatement = connection.borrowStatement(updateQuery);
+
+                    try {
+                        updateStatement.setString(1, race.getName());
+                        updateStatement.setString(2, race.getLocation());
+                        updateStatement.setString(3, race.getDescription());
+                        updateStatement.setInt(4, race.getState().getValue());
+                        updateStatement.setInt(5, race.getDistanceUnit().getValue());
+                        updateStatement.setInt(6, race.getElevationUnit().getValue());
+                        updateStatement.setLong(7, Timestamp.valueOf(race.getLastUpdateDate()).getTime());
+                        SQLiteUUIDCodec.setUUID(updateStatement, 8, race.getUuid());
+                        updateStatement.setLong(9, race.getRowVersion());
+                        SQLiteConflictException.check("The race was changed by another station",
+                                updateStatement.executeUpdate());
+
+                        return null;
+                    } finally {
+                        connection.returnStatement(updateQuery, updateStatement);
+                    }
+                });
+
+                race.setRowVersion(race.getRowVersion() + 1);
+            } catch (SQLiteConflictException ex) {
+                log.warn(ex.getMessage());
+                throw new DataProviderConflictException(ex.getMessage());
             } catch (SQLException ex) {
                 log.error(ex.getMessage(), ex);
                 throw new DataProviderException(ex.getMessage());
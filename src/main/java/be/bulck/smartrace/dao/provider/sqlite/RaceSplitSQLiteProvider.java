@@ -0,0 +1,145 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider.sqlite;
+
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.provider.RaceSplitProvider;
+import be.bulck.smartrace.io.sqlite.SQLiteDatabase;
+import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceSplits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A class representing the SQLite provider of the splits of the race records. The splits of a race record are read in
+ * time order by a range scan of the table, clustered on the race record then the time, straight into the primitive
+ * columns of the race splits.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RaceSplitSQLiteProvider implements RaceSplitProvider {
+
+    /** The query to find the splits of a race record. */
+    private static final String FIND_QUERY = "SELECT time, position FROM race_split WHERE race_record_uuid = ? ORDER BY time";
+
+    /** The query to insert a split, ignored if the race record already has a split at this time. */
+    private static final String INSERT_QUERY = "INSERT OR IGNORE INTO race_split (race_record_uuid, time, position) VALUES (?, ?, ?)";
+
+    /** The query to delete the splits of a race record. */
+    private static final String DELETE_QUERY = "DELETE FROM race_split WHERE race_record_uuid = ?";
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(RaceSplitSQLiteProvider.class);
+
+
+    @Override
+    public RaceSplits find(RaceRecord raceRecord) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            RaceSplits raceSplits = database.read(connection -> {
+                RaceSplits splits = new RaceSplits();
+                PreparedStatement findStatement = connection.borrowStatement(FIND_QUERY);
+
+                try {
+                    SQLiteUUIDCodec.setUUID(findStatement, 1, raceRecord.getUuid());
+
+                    try (ResultSet rows = findStatement.executeQuery()) {
+                        if (!rows.isClosed()) {
+                            while (rows.next())
+                                splits.add(rows.getInt(2), rows.getLong(1));
+                        }
+                    }
+                } finally {
+                    connection.returnStatement(FIND_QUERY, findStatement);
+                }
+
+                return splits;
+            });
+
+            raceRecord.setSplits(raceSplits);
+            return raceSplits;
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public boolean add(RaceRecord raceRecord, int position, long time) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            int inserted = database.write(connection -> {
+                PreparedStatement insertStatement = connection.borrowStatement(INSERT_QUERY);
+
+                try {
+                    SQLiteUUIDCodec.setUUID(insertStatement, 1, raceRecord.getUuid());
+                    insertStatement.setLong(2, time);
+                    insertStatement.setInt(3, position);
+
+                    return insertStatement.executeUpdate();
+                } finally {
+                    connection.returnStatement(INSERT_QUERY, insertStatement);
+                }
+            });
+
+            if (inserted == 0)
+                return false;
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+
+        if (raceRecord.getSplits() != null)
+            raceRecord.getSplits().add(position, time);
+
+        return true;
+    }
+
+    @Override
+    public void deleteAll(RaceRecord raceRecord) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            database.write(connection -> {
+                PreparedStatement deleteStatement = connection.borrowStatement(DELETE_QUERY);
+
+                try {
+                    SQLiteUUIDCodec.setUUID(deleteStatement, 1, raceRecord.getUuid());
+
+                    return deleteStatement.executeUpdate();
+                } finally {
+                    connection.returnStatement(DELETE_QUERY, deleteStatement);
+                }
+            });
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+
+        if (raceRecord.getSplits() != null)
+            raceRecord.getSplits().clear();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider.sqlite;
+
+import be.bulck.smartrace.io.sqlite.SQLiteRowMapper;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RaceTimingPoint;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A class representing the row mapper of the timing points, without their race track.
+ *
+ * @author Fabien Vanden Bulck
+ */
+class RaceTimingPointRowMapper implements SQLiteRowMapper<RaceTimingPoint> {
+
+    /** The index of the identifier column. */
+    private final int uuidColumn;
+
+    /** The index of the name column. */
+    private final int nameColumn;
+
+    /** The index of the position column. */
+    private final int positionColumn;
+
+    /** The index of the distance column. */
+    private final int distanceColumn;
+
+    /** The index of the lap line column. */
+    private final int lapLineColumn;
+
+
+    /**
+     * Constructs an instance of timing point row mapper, for the columns of a result set.
+     *
+     * @param resultSet the result set
+     *
+     * @throws SQLException an exception thrown if a column is missing
+     */
+    RaceTimingPointRowMapper(ResultSet resultSet) throws SQLException {
+        uuidColumn = resultSet.findColumn("race_timing_point_uuid");
+        nameColumn = resultSet.findColumn("name");
+        positionColumn = resultSet.findColumn("position");
+        distanceColumn = resultSet.findColumn("distance");
+        lapLineColumn = resultSet.findColumn("lap_line");
+    }
+
+    @Override
+    public RaceTimingPoint map(ResultSet resultSet) throws SQLException {
+        RaceTimingPoint raceTimingPoint = new RaceTimingPoint(SQLiteUUIDCodec.getUUID(resultSet, uuidColumn));
+        raceTimingPoint.setName(resultSet.getString(nameColumn));
+        raceTimingPoint.setPosition(resultSet.getInt(positionColumn));
+        raceTimingPoint.setDistance(resultSet.getFloat(distanceColumn));
+        raceTimingPoint.setLapLine(resultSet.getInt(lapLineColumn) != 0);
+
+        return raceTimingPoint;
+    }
+}
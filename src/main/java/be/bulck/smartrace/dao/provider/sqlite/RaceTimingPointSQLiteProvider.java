@@ -0,0 +1,172 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider.sqlite;
+
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.provider.RaceTimingPointProvider;
+import be.bulck.smartrace.io.sqlite.SQLiteDatabase;
+import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLiteParameterBinder;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RaceTimingPoint;
+import be.bulck.smartrace.model.RaceTrack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class representing the SQLite timing point provider.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RaceTimingPointSQLiteProvider implements RaceTimingPointProvider {
+
+    /** The query to find the timing points of a race track. */
+    private static final String FIND_QUERY = "SELECT * FROM race_timing_point WHERE race_track_uuid = ? ORDER BY position";
+
+    /** The query to insert a timing point. */
+    private static final String INSERT_QUERY = "INSERT INTO race_timing_point (race_timing_point_uuid, race_track_uuid, name, position, distance, lap_line) VALUES (?, ?, ?, ?, ?, ?)";
+
+    /** The query to update a timing point. */
+    private static final String UPDATE_QUERY = "UPDATE race_timing_point SET race_track_uuid = ?, name = ?, position = ?, distance = ?, lap_line = ? WHERE race_timing_point_uuid = ?";
+
+    /** The query to delete a timing point. */
+    private static final String DELETE_QUERY = "DELETE FROM race_timing_point WHERE race_timing_point_uuid = ?";
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(RaceTimingPointSQLiteProvider.class);
+
+
+    @Override
+    public RaceTimingPoint[] find(RaceTrack raceTrack) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            return database.read(connection -> {
+                List<RaceTimingPoint> raceTimingPoints = new ArrayList<>();
+                PreparedStatement findStatement = connection.borrowStatement(FIND_QUERY);
+
+                try {
+                    SQLiteUUIDCodec.setUUID(findStatement, 1, raceTrack.getUuid());
+
+                    try (ResultSet rows = findStatement.executeQuery()) {
+                        if (!rows.isClosed()) {
+                            RaceTimingPointRowMapper rowMapper = new RaceTimingPointRowMapper(rows);
+
+                            while (rows.next()) {
+                                RaceTimingPoint raceTimingPoint = rowMapper.map(rows);
+                                raceTimingPoint.setTrack(raceTrack);
+                                raceTimingPoints.add(raceTimingPoint);
+                            }
+                        }
+                    }
+                } finally {
+                    connection.returnStatement(FIND_QUERY, findStatement);
+                }
+
+                return raceTimingPoints.toArray(new RaceTimingPoint[raceTimingPoints.size()]);
+            });
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public void create(RaceTimingPoint raceTimingPoint) throws DataProviderException {
+        if (raceTimingPoint == null)
+            throw new IllegalArgumentException("The timing point instance is null");
+
+        executeUpdate(INSERT_QUERY, raceTimingPoint, (statement, timingPoint) -> {
+            SQLiteUUIDCodec.setUUID(statement, 1, timingPoint.getUuid());
+            bindParameters(statement, 2, timingPoint);
+        });
+    }
+
+    @Override
+    public void update(RaceTimingPoint raceTimingPoint) throws DataProviderException {
+        if (raceTimingPoint == null)
+            throw new IllegalArgumentException("The timing point instance is null");
+
+        executeUpdate(UPDATE_QUERY, raceTimingPoint, (statement, timingPoint) -> {
+            bindParameters(statement, 1, timingPoint);
+            SQLiteUUIDCodec.setUUID(statement, 6, timingPoint.getUuid());
+        });
+    }
+
+    @Override
+    public void delete(RaceTimingPoint raceTimingPoint) throws DataProviderException {
+        if (raceTimingPoint != null)
+            executeUpdate(DELETE_QUERY, raceTimingPoint, (statement, timingPoint) -> SQLiteUUIDCodec.setUUID(statement, 1, timingPoint.getUuid()));
+    }
+
+    /**
+     * Executes a query writing a timing point.
+     *
+     * @param query the query to execute
+     * @param raceTimingPoint the timing point written
+     * @param binder the binder of the parameters of the timing point
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    private void executeUpdate(String query, RaceTimingPoint raceTimingPoint, SQLiteParameterBinder<RaceTimingPoint> binder) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            database.write(connection -> {
+                PreparedStatement statement = connection.borrowStatement(query);
+
+                try {
+                    binder.bind(statement, raceTimingPoint);
+
+                    return statement.executeUpdate();
+                } finally {
+                    connection.returnStatement(query, statement);
+                }
+            });
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Binds the race track, name, position, distance and lap line of a timing point, from a parameter index.
+     *
+     * @param statement the statement
+     * @param index the index of the first parameter
+     * @param raceTimingPoint the timing point
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private static void bindParameters(PreparedStatement statement, int index, RaceTimingPoint raceTimingPoint) throws SQLException {
+        if (raceTimingPoint.getTrack() == null)
+            throw new IllegalArgumentException("The timing point " + raceTimingPoint.getName() + " has no race track");
+
+        SQLiteUUIDCodec.setUUID(statement, index, raceTimingPoint.getTrack().getUuid());
+        statement.setString(index + 1, raceTimingPoint.getName());
+        statement.setInt(index + 2, raceTimingPoint.getPosition());
+        statement.setFloat(index + 3, raceTimingPoint.getDistance());
+        statement.setInt(index + 4, raceTimingPoint.isLapLine() ? 1 : 0);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider.sqlite;
+
+import be.bulck.smartrace.io.sqlite.SQLiteRowMapper;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.model.RaceTrackState;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+
+/**
+ * A class representing the row mapper of the race tracks. Also used by the race record provider, to hydrate the race
+ * tracks of the race records.
+ *
+ * @author Fabien Vanden Bulck
+ */
+class RaceTrackRowMapper implements SQLiteRowMapper<RaceTrack> {
+
+    /** The index of the identifier column. */
+    private final int uuidColumn;
+
+    /** The index of the name column. */
+    private final int nameColumn;
+
+    /** The index of the distance column. */
+    private final int distanceColumn;
+
+    /** The index of the elevation column. */
+    private final int elevationColumn;
+
+    /** The index of the description column. */
+    private final int descriptionColumn;
+
+    /** The index of the team size limit column. */
+    private final int teamSizeLimitColumn;
+
+    /** The index of the state column. */
+    private final int stateColumn;
+
+    /** The index of the start time column. */
+    private final int startTimeColumn;
+
+    /** The index of the end time column. */
+    private final int endTimeColumn;
+
+    /** The index of the row version column. */
+    private final int rowVersionColumn;
+
+
+    /**
+     * Constructs an instance of race track row mapper, for the columns of a result set.
+     *
+     * @param resultSet the result set
+     *
+     * @throws SQLException an exception thrown if a column is missing
+     */
+    RaceTrackRowMapper(ResultSet resultSet) throws SQLException {
+        uuidColumn = resultSet.findColumn("race_track_uuid");
+        nameColumn = resultSet.findColumn("name");
+        distanceColumn = resultSet.findColumn("distance");
+        elevationColumn = resultSet.findColumn("elevation");
+        descriptionColumn = resultSet.findColumn("description");
+        teamSizeLimitColumn = resultSet.findColumn("team_size_limit");
+        stateColumn = resultSet.findColumn("state");
+        startTimeColumn = resultSet.findColumn("start_time");
+        endTimeColumn = resultSet.findColumn("end_time");
+        rowVersionColumn = resultSet.findColumn("row_version");
+    }
+
+    @Override
+    public RaceTrack map(ResultSet resultSet) throws SQLException {
+        RaceTrack raceTrack = new RaceTrack(SQLiteUUIDCodec.getUUID(resultSet, uuidColumn));
+        raceTrack.setName(resultSet.getString(nameColumn));
+        raceTrack.setDistance(resultSet.getFloat(distanceColumn));
+        raceTrack.setElevation(resultSet.getFloat(elevationColumn));
+        raceTrack.setDescription(resultSet.getString(descriptionColumn));
+        raceTrack.setTeamSizeLimit(resultSet.getInt(teamSizeLimitColumn));
+        raceTrack.setState(RaceTrackState.parse(resultSet.getInt(stateColumn)));
+
+        // A time never set is read as the epoch, as before
+        raceTrack.setStartTime(Instant.ofEpochMilli(resultSet.getLong(startTimeColumn)));
+        raceTrack.setEndTime(Instant.ofEpochMilli(resultSet.getLong(endTimeColumn)));
+
+        raceTrack.setRowVersion(resultSet.getLong(rowVersionColumn));
+        raceTrack.getChangeTracker().clear();
+
+        return raceTrack;
+    }
+}
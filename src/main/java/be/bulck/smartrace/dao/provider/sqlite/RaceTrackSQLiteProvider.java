@@ -18,19 +18,33 @@
 
 package be.bulck.smartrace.dao.provider.sqlite;
 
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.provider.NameSort;
 import be.bulck.smartrace.dao.provider.RaceTrackProvider;
+import be.bulck.smartrace.io.sqlite.SQLiteConflictException;
 import be.bulck.smartrace.io.sqlite.SQLiteDatabase;
 import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLitePageQuery;
+import be.bulck.smartrace.io.sqlite.SQLiteParameterBinder;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.io.sqlite.SQLiteUpdateQuery;
 import be.bulck.smartrace.model.RaceTrack;
-import be.bulck.smartrace.model.RaceTrackState;
+import be.bulck.smartrace.model.RaceTrackField;
+import be.bulck.smartrace.model.change.ChangeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * A class representing the SQLite race track provider.
@@ -39,27 +53,104 @@ import java.util.UUID;
  */
 public class RaceTrackSQLiteProvider implements RaceTrackProvider {
 
+    /** The query to find the race tracks. */
+    private static final String FIND_QUERY = "SELECT * FROM race_track";
+
+    /** The query to insert a race track. */
+    private static final String INSERT_QUERY = "INSERT INTO race_track (race_track_uuid, name, distance, elevation, description, team_size_limit, state) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /** The columns of the fields of a race track, set by the partial updates. */
+    private static final Map<RaceTrackField, String> COLUMNS = new EnumMap<>(RaceTrackField.class);
+
+    /** The query to delete a race track. */
+    private static final String DELETE_QUERY = "DELETE FROM race_track WHERE race_track_uuid = ?";
+
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(RaceTrackSQLiteProvider.class);
 
+    static {
+        COLUMNS.put(RaceTrackField.NAME, "name");
+        COLUMNS.put(RaceTrackField.DISTANCE, "distance");
+        COLUMNS.put(RaceTrackField.ELEVATION, "elevation");
+        COLUMNS.put(RaceTrackField.DESCRIPTION, "description");
+        COLUMNS.put(RaceTrackField.TEAM_SIZE_LIMIT, "team_size_limit");
+        COLUMNS.put(RaceTrackField.STATE, "state");
+        COLUMNS.put(RaceTrackField.START_TIME, "start_time");
+        COLUMNS.put(RaceTrackField.END_TIME, "end_time");
+    }
 
     @Override
     public RaceTrack[] find() throws DataProviderException {
         List<RaceTrack> tracks = new ArrayList<>();
-        final String findQuery = "SELECT * FROM race_track";
+        forEach(tracks::add);
+
+        return tracks.toArray(new RaceTrack[tracks.size()]);
+    }
+
+    @Override
+    public void forEach(Consumer<? super RaceTrack> action) throws DataProviderException {
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
-        try (Statement findStatement = database.createStatement()) {
-            try (ResultSet rows = findStatement.executeQuery(findQuery)) {
-                while (rows.next())
-                    tracks.add(createObjectFromResultSet(rows));
-            }
+        try {
+            database.read(connection -> {
+                PreparedStatement findStatement = connection.borrowStatement(FIND_QUERY);
+
+                try (ResultSet rows = findStatement.executeQuery()) {
+                    if (rows.isClosed())
+                        return null;
+
+                    RaceTrackRowMapper rowMapper = new RaceTrackRowMapper(rows);
+
+                    while (rows.next())
+                        action.accept(rowMapper.map(rows));
+                } finally {
+                    connection.returnStatement(FIND_QUERY, findStatement);
+                }
+
+                return null;
+            });
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
             throw new DataProviderException(ex.getMessage());
         }
+    }
 
-        return tracks.toArray(new RaceTrack[tracks.size()]);
+    @Override
+    public RaceTrack[] findPage(String afterName, int limit, NameSort sort) throws DataProviderException {
+        final String findQuery = SQLitePageQuery.build(FIND_QUERY, "name", afterName != null, sort.isDescending());
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        try {
+            return database.read(connection -> {
+                List<RaceTrack> tracks = new ArrayList<>();
+                PreparedStatement findStatement = connection.borrowStatement(findQuery);
+
+                try {
+                    int index = 1;
+
+                    if (afterName != null)
+                        findStatement.setString(index++, afterName);
+
+                    findStatement.setInt(index, limit);
+
+                    try (ResultSet rows = findStatement.executeQuery()) {
+                        if (!rows.isClosed()) {
+                            RaceTrackRowMapper rowMapper = new RaceTrackRowMapper(rows);
+
+                            while (rows.next())
+                                tracks.add(rowMapper.map(rows));
+                        }
+                    }
+                } finally {
+                    connection.returnStatement(findQuery, findStatement);
+                }
+
+                return tracks.toArray(new RaceTrack[tracks.size()]);
+            });
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
     }
 
     @Override
@@ -67,20 +158,27 @@ public class RaceTrackSQLiteProvider implements RaceTrackProvider {
         final String findQuery = "SELECT * FROM race_track WHERE race_track_uuid = ?";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
-        try (PreparedStatement findStatement = database.createPreparedStatement(findQuery)) {
-            findStatement.setString(1, uuid.toString());
+        try {
+            return database.read(connection -> {
+                PreparedStatement findStatement = connection.borrowStatement(findQuery);
 
-            try (ResultSet row = findStatement.executeQuery()) {
-                if (row.next())
-                    return createObjectFromResultSet(row);
-            }
+                try {
+                    SQLiteUUIDCodec.setUUID(findStatement, 1, uuid);
+
+                    try (ResultSet row = findStatement.executeQuery()) {
+                        if (row.next())
+                            return new RaceTrackRowMapper(row).map(row);
+                    }
+                } finally {
+                    connection.returnStatement(findQuery, findStatement);
+                }
 
+                return null;
+            });
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
             throw new DataProviderException(ex.getMessage());
         }
-
-        return null;
     }
 
     @Override
@@ -88,37 +186,50 @@ public class RaceTrackSQLiteProvider implements RaceTrackProvider {
         final String findQuery = "SELECT * FROM race_track WHERE name = ?";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
-        try (PreparedStatement findStatement = database.createPreparedStatement(findQuery)) {
-            findStatement.setString(1, name);
+        try {
+            return database.read(connection -> {
+                PreparedStatement findStatement = connection.borrowStatement(findQuery);
 
-            try (ResultSet row = findStatement.executeQuery()) {
-                if (row.next())
-                    return createObjectFromResultSet(row);
-            }
+                try {
+                    findStatement.setString(1, name);
+
+                    try (ResultSet row = findStatement.executeQuery()) {
+                        if (row.next())
+                            return new RaceTrackRowMapper(row).map(row);
+                    }
+                } finally {
+                    connection.returnStatement(findQuery, findStatement);
+                }
+
+                return null;
+            });
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
             throw new DataProviderException(ex.getMessage());
         }
-
-        return null;
     }
 
     @Override
     public void create(RaceTrack raceTrack) throws DataProviderException {
-        final String insertQuery = "INSERT INTO race_track (race_track_uuid, name, distance, elevation, description, team_size_limit, state) VALUES (?, ?, ?, ?, ?, ?, ?)";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
         if (raceTrack != null) {
-            try (PreparedStatement insertStatement = database.createPreparedStatement(insertQuery)) {
-                insertStatement.setString(1, raceTrack.getUuid().toString());
-                insertStatement.setString(2, raceTrack.getName());
-                insertStatement.setFloat(3, raceTrack.getDistance());
-                insertStatement.setFloat(4, raceTrack.getElevation());
-                insertStatement.setString(5, raceTrack.getDescription());
-                insertStatement.setInt(6, raceTrack.getTeamSizeLimit());
-                insertStatement.setInt(7, raceTrack.getState().getValue());
-
-                insertStatement.executeUpdate();
+            ChangeSet<RaceTrackField> changes = raceTrack.getChangeTracker().getChanges();
+
+            try {
+                database.write(connection -> {
+                    PreparedStatement insertStatement = connection.borrowStatement(INSERT_QUERY);
+
+                    try {
+                        bindInsertParameters(insertStatement, raceTrack);
+
+                        return insertStatement.executeUpdate();
+                    } finally {
+                        connection.returnStatement(INSERT_QUERY, insertStatement);
+                    }
+                });
+
+                raceTrack.getChangeTracker().markSaved(changes);
             } catch (SQLException ex) {
                 log.error(ex.getMessage(), ex);
                 throw new DataProviderException(ex.getMessage());
@@ -129,28 +240,52 @@ public class RaceTrackSQLiteProvider implements RaceTrackProvider {
             throw new IllegalArgumentException("The race track instance is null");
     }
 
+    @Override
+    public void createAll(List<? extends RaceTrack> raceTracks) throws DataProviderException {
+        if (raceTracks == null || raceTracks.contains(null))
+            throw new IllegalArgumentException("The race tracks list is null or contains a null instance");
+
+        List<ChangeSet<RaceTrackField>> changes = new ArrayList<>(raceTracks.size());
+        raceTracks.forEach(raceTrack -> changes.add(raceTrack.getChangeTracker().getChanges()));
+
+        executeBatch(INSERT_QUERY, raceTracks, this::bindInsertParameters);
+
+        for (int index = 0; index < raceTracks.size(); index++)
+            raceTracks.get(index).getChangeTracker().markSaved(changes.get(index));
+    }
+
     @Override
     public void update(RaceTrack raceTrack) throws DataProviderException {
-        final String updateQuery = "UPDATE race_track SET name = ?, distance = ?, elevation = ?, description = ?, team_size_limit = ?, state = ?, start_time = ?, end_time = ? WHERE race_track_uuid = ?";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
         if (raceTrack != null) {
-            try (PreparedStatement updateStatement = database.createPreparedStatement(updateQuery)) {
-                updateStatement.setString(1, raceTrack.getName());
-                updateStatement.setFloat(2, raceTrack.getDistance() != 0.0F ? raceTrack.getDistance() : null);
-                updateStatement.setFloat(3, raceTrack.getElevation() != 0.0F ? raceTrack.getElevation() : null);
-                updateStatement.setString(4, raceTrack.getDescription());
-                updateStatement.setInt(5, raceTrack.getTeamSizeLimit());
-                updateStatement.setInt(6, raceTrack.getState().getValue());
-
-                if (raceTrack.getStartTime() != null)
-                    updateStatement.setLong(7, Timestamp.from(raceTrack.getStartTime()).getTime());
-                if (raceTrack.getEndTime() != null)
-                    updateStatement.setLong(8, Timestamp.from(raceTrack.getEndTime()).getTime());
-
-                updateStatement.setString(9, raceTrack.getUuid().toString());
-
-                updateStatement.executeUpdate();
+            ChangeSet<RaceTrackField> changes = raceTrack.getChangeTracker().getChanges();
+
+            // Nothing to write for a race track unchanged
+            if (changes.isEmpty())
+                return;
+
+            final String updateQuery = buildUpdateQuery(changes.getFields());
+
+            try {
+                database.write(connection -> {
+                    PreparedStatement updateStatement = connection.borrowStatement(updateQuery);
+
+                    try {
+                        bindUpdateParameters(updateStatement, raceTrack, changes.getFields());
+                        SQLiteConflictException.check(conflictMessage(raceTrack), updateStatement.executeUpdate());
+
+                        return null;
+                    } finally {
+                        connection.returnStatement(updateQuery, updateStatement);
+                    }
+                });
+
+                raceTrack.setRowVersion(raceTrack.getRowVersion() + 1);
+                raceTrack.getChangeTracker().markSaved(changes);
+            } catch (SQLiteConflictException ex) {
+                log.warn(ex.getMessage());
+                throw new DataProviderConflictException(ex.getMessage());
             } catch (SQLException ex) {
                 log.error(ex.getMessage(), ex);
                 throw new DataProviderException(ex.getMessage());
@@ -161,16 +296,85 @@ public class RaceTrackSQLiteProvider implements RaceTrackProvider {
             throw new IllegalArgumentException("The race track instance is null");
     }
 
+    @Override
+    public void updateAll(List<? extends RaceTrack> raceTracks) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        if (raceTracks == null || raceTracks.contains(null))
+            throw new IllegalArgumentException("The race tracks list is null or contains a null instance");
+
+        // The race tracks changed are grouped by fields changed, each group being a batch of the same partial update
+        List<ChangeSet<RaceTrackField>> changes = new ArrayList<>(raceTracks.size());
+        Map<Set<RaceTrackField>, List<Integer>> groups = new LinkedHashMap<>();
+
+        for (int index = 0; index < raceTracks.size(); index++) {
+            ChangeSet<RaceTrackField> raceTrackChanges = raceTracks.get(index).getChangeTracker().getChanges();
+            changes.add(raceTrackChanges);
+
+            if (!raceTrackChanges.isEmpty())
+                groups.computeIfAbsent(raceTrackChanges.getFields(), fields -> new ArrayList<>()).add(index);
+        }
+
+        if (groups.isEmpty())
+            return;
+
+        try {
+            database.write(connection -> connection.executeAtomically(atomicConnection -> {
+                for (Map.Entry<Set<RaceTrackField>, List<Integer>> group : groups.entrySet()) {
+                    String updateQuery = buildUpdateQuery(group.getKey());
+                    PreparedStatement batchStatement = atomicConnection.borrowStatement(updateQuery);
+
+                    try {
+                        for (int index : group.getValue()) {
+                            bindUpdateParameters(batchStatement, raceTracks.get(index), group.getKey());
+                            batchStatement.addBatch();
+                        }
+
+                        // A single race track changed by another station rolls back the whole update
+                        SQLiteConflictException.check("A race track was changed or deleted by another station",
+                                batchStatement.executeBatch());
+                    } finally {
+                        batchStatement.clearBatch();
+                        atomicConnection.returnStatement(updateQuery, batchStatement);
+                    }
+                }
+
+                return null;
+            }));
+        } catch (SQLiteConflictException ex) {
+            log.warn(ex.getMessage());
+            throw new DataProviderConflictException(ex.getMessage());
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+
+        for (List<Integer> group : groups.values()) {
+            for (int index : group)
+                raceTracks.get(index).setRowVersion(raceTracks.get(index).getRowVersion() + 1);
+        }
+
+        for (int index = 0; index < raceTracks.size(); index++)
+            raceTracks.get(index).getChangeTracker().markSaved(changes.get(index));
+    }
+
     @Override
     public void delete(RaceTrack raceTrack) throws DataProviderException {
-        final String deleteQuery = "DELETE FROM race_track WHERE race_track_uuid = ?";
         SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
 
         if (raceTrack != null) {
-            try (PreparedStatement deleteStatement = database.createPreparedStatement(deleteQuery)) {
-                deleteStatement.setString(1, raceTrack.getUuid().toString());
-
-                deleteStatement.executeUpdate();
+            try {
+                database.write(connection -> {
+                    PreparedStatement deleteStatement = connection.borrowStatement(DELETE_QUERY);
+
+                    try {
+                        bindDeleteParameters(deleteStatement, raceTrack);
+
+                        return deleteStatement.executeUpdate();
+                    } finally {
+                        connection.returnStatement(DELETE_QUERY, deleteStatement);
+                    }
+                });
             } catch (SQLException ex) {
                 log.error(ex.getMessage(), ex);
                 throw new DataProviderException(ex.getMessage());
@@ -181,26 +385,175 @@ public class RaceTrackSQLiteProvider implements RaceTrackProvider {
             throw new IllegalArgumentException("The race track instance is null");
     }
 
+    @Override
+    public void deleteAll(List<? extends RaceTrack> raceTracks) throws DataProviderException {
+        executeBatch(DELETE_QUERY, raceTracks, this::bindDeleteParameters);
+    }
+
+    /**
+     * Executes a query as a JDBC batch for several race tracks. The batch is atomic: if one race track fails, none of
+     * them is changed.
+     *
+     * @param query the query to execute
+     * @param raceTracks the race tracks
+     * @param binder the binder of the parameters of a race track
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    private void executeBatch(String query, List<? extends RaceTrack> raceTracks, SQLiteParameterBinder<RaceTrack> binder) throws DataProviderException {
+        SQLiteDatabase database = SQLiteDatabaseFactory.getDatabase();
+
+        if (raceTracks == null || raceTracks.contains(null))
+            throw new IllegalArgumentException("The race tracks list is null or contains a null instance");
+
+        if (raceTracks.isEmpty())
+            return;
+
+        try {
+            database.write(connection -> connection.executeAtomically(atomicConnection -> {
+                PreparedStatement batchStatement = atomicConnection.borrowStatement(query);
+
+                try {
+                    for (RaceTrack raceTrack : raceTracks) {
+                        binder.bind(batchStatement, raceTrack);
+                        batchStatement.addBatch();
+                    }
+
+                    return batchStatement.executeBatch();
+                } finally {
+                    batchStatement.clearBatch();
+                    atomicConnection.returnStatement(query, batchStatement);
+                }
+            }));
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            throw new DataProviderException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Binds the parameters of the insert query for a race track.
+     *
+     * @param statement the insert statement
+     * @param raceTrack the race track to insert
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void bindInsertParameters(PreparedStatement statement, RaceTrack raceTrack) throws SQLException {
+        SQLiteUUIDCodec.setUUID(statement, 1, raceTrack.getUuid());
+        statement.setString(2, raceTrack.getName());
+        statement.setFloat(3, raceTrack.getDistance());
+        statement.setFloat(4, raceTrack.getElevation());
+        statement.setString(5, raceTrack.getDescription());
+        statement.setInt(6, raceTrack.getTeamSizeLimit());
+        statement.setInt(7, raceTrack.getState().getValue());
+    }
+
+    /**
+     * Builds the partial update query of the fields of a race track.
+     *
+     * @param fields the fields to update
+     *
+     * @return the update query
+     */
+    private String buildUpdateQuery(Set<RaceTrackField> fields) {
+        List<String> columns = new ArrayList<>(fields.size());
+        fields.forEach(field -> columns.add(COLUMNS.get(field)));
+
+        return SQLiteUpdateQuery.build("race_track", columns, "race_track_uuid", "row_version");
+    }
+
+    /**
+     * Binds the parameters of the partial update query for a race track, checking the version of its row.
+     *
+     * @param statement the update statement
+     * @param raceTrack the race track to update
+     * @param fields the fields to update, in the order of the query
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void bindUpdateParameters(PreparedStatement statement, RaceTrack raceTrack, Set<RaceTrackField> fields) throws SQLException {
+        int index = 1;
+
+        for (RaceTrackField field : fields) {
+            switch (field) {
+                case NAME:
+                    statement.setString(index, raceTrack.getName());
+                    break;
+
+                case DISTANCE:
+                    statement.setFloat(index, raceTrack.getDistance());
+                    break;
+
+                case ELEVATION:
+                    statement.setFloat(index, raceTrack.getElevation());
+                    break;
+
+                case DESCRIPTION:
+                    statement.setString(index, raceTrack.getDescription());
+                    break;
+
+                case TEAM_SIZE_LIMIT:
+                    statement.setInt(index, raceTrack.getTeamSizeLimit());
+                    break;
+
+                case STATE:
+                    statement.setInt(index, raceTrack.getState().getValue());
+                    break;
+
+                case START_TIME:
+                    bindInstant(statement, index, raceTrack.getStartTime());
+                    break;
+
+                case END_TIME:
+                    bindInstant(statement, index, raceTrack.getEndTime());
+                    break;
+            }
+
+            index++;
+        }
+
+        SQLiteUUIDCodec.setUUID(statement, index, raceTrack.getUuid());
+        statement.setLong(index + 1, raceTrack.getRowVersion());
+    }
+
+    /**
+     * Builds the message of a conflict on the update of a race track.
+     *
+     * @param raceTrack the race track updated
+     *
+     * @return the message of the conflict
+     */
+    private String conflictMessage(RaceTrack raceTrack) {
+        return "The race track '" + raceTrack.getName() + "' was changed or deleted by another station";
+    }
+
     /**
-     * Creates and hydrates an object from a result set.
+     * Binds an instant parameter, as milliseconds since the epoch.
+     *
+     * @param statement the statement
+     * @param index the index of the parameter
+     * @param instant the instant (may be null)
      *
-     * @param resultSet the result set
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void bindInstant(PreparedStatement statement, int index, Instant instant) throws SQLException {
+        // Explicit nulls, as the parameters of the previous row of a batch are kept otherwise
+        if (instant != null)
+            statement.setLong(index, instant.toEpochMilli());
+        else
+            statement.setNull(index, Types.INTEGER);
+    }
+
+    /**
+     * Binds the parameters of the delete query for a race track.
      *
-     * @return the object hydrated
+     * @param statement the delete statement
+     * @param raceTrack the race track to delete
      *
      * @throws SQLException an exception thrown if a SQL problem occurs
      */
-    private RaceTrack createObjectFromResultSet(ResultSet resultSet) throws SQLException {
-        RaceTrack raceTrack = new RaceTrack(UUID.fromString(resultSet.getString("race_track_uuid")));
-        raceTrack.setName(resultSet.getString("name"));
-        raceTrack.setDistance(resultSet.getFloat("distance"));
-        raceTrack.setElevation(resultSet.getFloat("elevation"));
-        raceTrack.setDescription(resultSet.getString("description"));
-        raceTrack.setTeamSizeLimit(resultSet.getInt("team_size_limit"));
-        raceTrack.setState(RaceTrackState.parse(resultSet.getInt("state")));
-        raceTrack.setStartTime(new Timestamp(resultSet.getLong("start_time")).toInstant());
-        raceTrack.setEndTime(new Timestamp(resultSet.getLong("end_time")).toInstant());
-
-        return raceTrack;
+    private void bindDeleteParameters(PreparedStatement statement, RaceTrack raceTrack) throws SQLException {
+        SQLiteUUIDCodec.setUUID(statement, 1, raceTrack.getUuid());
     }
 }
@@ -0,0 +1,34 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.ingest;
+
+/**
+ * An enum representing the read kept by the deduplication of the finish events, among the reads of a single crossing of
+ * the finish line.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see FinishEventDeduplicator
+ */
+public enum DeduplicationPolicy {
+    /** The first read received is kept, the next reads of the crossing are dropped. */
+    FIRST_READ,
+    /** The earliest time read is kept: a read received later with an earlier time (reordered by the network or read
+     * by another mat) corrects the time kept. */
+    BEST_READ
+}
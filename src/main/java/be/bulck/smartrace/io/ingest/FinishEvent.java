@@ -0,0 +1,70 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.ingest;
+
+import java.time.Instant;
+
+/**
+ * A class representing a finish event received by the ingestion server: a racer, identified by the number (bib) of his
+ * race record, crossed the finish line at a given time.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class FinishEvent {
+
+    /** The number (bib) of the race record. */
+    private final int number;
+
+    /** The time at which the finish line was crossed. */
+    private final Instant time;
+
+
+    /**
+     * Constructs an instance of finish event.
+     *
+     * @param number the number (bib) of the race record
+     * @param time the time at which the finish line was crossed
+     */
+    public FinishEvent(int number, Instant time) {
+        this.number = number;
+        this.time = time;
+    }
+
+    /**
+     * Gets the number (bib) of the race record.
+     *
+     * @return the number of the race record
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Gets the time at which the finish line was crossed.
+     *
+     * @return the time at which the finish line was crossed
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return number + " " + time;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.ingest;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A class decoding the finish events of the line protocol of the ingestion server. Each line is an event:
+ *
+ * <pre>
+ * &lt;number&gt; [&lt;time&gt;]
+ * </pre>
+ *
+ * where the number is the bib of the race record and the time, either milliseconds since the epoch or an ISO-8601
+ * instant (2017-05-01T10:15:30.250Z), is when the finish line was crossed. Without time, the event gets the time it was
+ * received. The blank lines and the lines starting with '#' are ignored.
+ *
+ * A decoder instance decodes a stream by chunks, as they are read, keeping the incomplete line of a chunk for the next
+ * one. A datagram is decoded as a single chunk ended by {@link #finish(Instant, List)}.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class FinishEventDecoder {
+
+    /** The maximum length of a line, longer lines are malformed. */
+    public static final int MAX_LINE_LENGTH = 256;
+
+    /** The incomplete line of the previous chunk. */
+    private final StringBuilder line = new StringBuilder();
+
+    /** Whether the line being read is longer than the maximum length. */
+    private boolean overflow;
+
+
+    /**
+     * Decodes a chunk of a stream. The complete lines are decoded, the last line (without line feed) is kept for the next
+     * chunk.
+     *
+     * @param chars the characters of the chunk
+     * @param offset the index of the first character of the chunk
+     * @param length the number of characters of the chunk
+     * @param receptionTime the time the chunk was received, given to the events without time
+     * @param events the list to which the events decoded are added
+     *
+     * @return the number of malformed lines
+     */
+    public int decode(char[] chars, int offset, int length, Instant receptionTime, List<FinishEvent> events) {
+        int malformed = 0;
+
+        for (int index = offset; index < offset + length; index++) {
+            char current = chars[index];
+
+            if (current == '\n')
+                malformed += completeLine(receptionTime, events);
+
+            else if (line.length() < MAX_LINE_LENGTH)
+                line.append(current);
+
+            else
+                overflow = true;
+        }
+
+        return malformed;
+    }
+
+    /**
+     * Decodes a text (a datagram, for instance), its last line included.
+     *
+     * @param text the text
+     * @param receptionTime the time the text was received, given to the events without time
+     * @param events the list to which the events decoded are added
+     *
+     * @return the number of malformed lines
+     */
+    public int decode(String text, Instant receptionTime, List<FinishEvent> events) {
+        char[] chars = text.toCharArray();
+
+        return decode(chars, 0, chars.length, receptionTime, events) + finish(receptionTime, events);
+    }
+
+    /**
+     * Decodes the last line of a stream, which has no line feed.
+     *
+     * @param receptionTime the time the stream ended, given to the event without time
+     * @param events the list to which the event decoded is added
+     *
+     * @return the number of malformed lines (0 or 1)
+     */
+    public int finish(Instant receptionTime, List<FinishEvent> events) {
+        return completeLine(receptionTime, events);
+    }
+
+    /**
+     * Decodes the line read, and prepares the reading of the next one.
+     *
+     * @param receptionTime the time the line was received
+     * @param events the list to which the event decoded is added
+     *
+     * @return 1 if the line is malformed, 0 otherwise
+     */
+    private int completeLine(Instant receptionTime, List<FinishEvent> events) {
+        try {
+            if (overflow)
+                return 1;
+
+            FinishEvent event = decodeLine(line, receptionTime);
+
+            if (event != null)
+                events.add(event);
+
+            return 0;
+        } catch (IllegalArgumentException ex) {
+            return 1;
+        } finally {
+            line.setLength(0);
+            overflow = false;
+        }
+    }
+
+    /**
+     * Decodes a line.
+     *
+     * @param line the line, without line feed
+     * @param receptionTime the time the line was received, given to the event if the line has no time
+     *
+     * @return the event of the line, or null if the line is blank or a comment
+     *
+     * @throws IllegalArgumentException an exception thrown if the line is malformed
+     */
+    public static FinishEvent decodeLine(CharSequence line, Instant receptionTime) {
+        int end = line.length();
+        int start = skipSpaces(line, 0, end);
+
+        if (start == end || line.charAt(start) == '#')
+            return null;
+
+        int numberEnd = skipToken(line, start, end);
+        int number = parseNumber(line, start, numberEnd);
+        int timeStart = skipSpaces(line, numberEnd, end);
+
+        if (timeStart == end)
+            return new FinishEvent(number, receptionTime);
+
+        int timeEnd = skipToken(line, timeStart, end);
+
+        if (skipSpaces(line, timeEnd, end) != end)
+            throw new IllegalArgumentException("Unexpected characters after the time: " + line);
+
+        return new FinishEvent(number, parseTime(line, timeStart, timeEnd));
+    }
+
+    /**
+     * Parses the number (bib) of an event.
+     *
+     * @param line the line
+     * @param start the index of the first digit
+     * @param end the index after the last digit
+     *
+     * @return the number
+     *
+     * @throws IllegalArgumentException an exception thrown if the number is not a positive integer
+     */
+    private static int parseNumber(CharSequence line, int start, int end) {
+        // Up to 9 digits, so the number can't overflow
+        if (end - start > 9)
+            throw new IllegalArgumentException("Number too long: " + line);
+
+        int number = 0;
+
+        for (int index = start; index < end; index++) {
+            char digit = line.charAt(index);
+
+            if (digit < '0' || digit > '9')
+                throw new IllegalArgumentException("Invalid number: " + line);
+
+            number = number * 10 + digit - '0';
+        }
+
+        return number;
+    }
+
+    /**
+     * Parses the time of an event, either milliseconds since the epoch or an ISO-8601 instant.
+     *
+     * @param line the line
+     * @param start the index of the first character of the time
+     * @param end the index after the last character of the time
+     *
+     * @return the time
+     *
+     * @throws IllegalArgumentException an exception thrown if the time is invalid
+     */
+    private static Instant parseTime(CharSequence line, int start, int end) {
+        long milliseconds = 0;
+
+        for (int index = start; index < end; index++) {
+            char digit = line.charAt(index);
+
+            if (digit < '0' || digit > '9') {
+                try {
+                    return Instant.parse(line.subSequence(start, end));
+                } catch (DateTimeException ex) {
+                    throw new IllegalArgumentException("Invalid time: " + line, ex);
+                }
+            }
+
+            if (index - start >= 15)
+                throw new IllegalArgumentException("Time too long: " + line);
+
+            milliseconds = milliseconds * 10 + digit - '0';
+        }
+
+        return Instant.ofEpochMilli(milliseconds);
+    }
+
+    /**
+     * Skips the spaces (and the carriage returns) of a line.
+     *
+     * @param line the line
+     * @param index the index from which the spaces are skipped
+     * @param end the end of the line
+     *
+     * @return the index of the first character which is not a space, or the end of the line
+     */
+    private static int skipSpaces(CharSequence line, int index, int end) {
+        while (index < end && Character.isWhitespace(line.charAt(index)))
+            index++;
+
+        return index;
+    }
+
+    /**
+     * Skips a token (the characters up to the next space) of a line.
+     *
+     * @param line the line
+     * @param index the index of the first character of the token
+     * @param end the end of the line
+     *
+     * @return the index after the last character of the token
+     */
+    private static int skipToken(CharSequence line, int index, int end) {
+        while (index < end && !Character.isWhitespace(line.charAt(index)))
+            index++;
+
+        return index;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.ingest;
+
+import be.bulck.smartrace.dao.handler.DataHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class deduplicating the finish events of the timing devices. An RFID mat reads a chip dozens of times while its
+ * racer crosses the finish line: the reads of a number separated by less than the window (on the time read, not the
+ * time received) belong to the same crossing, and only the read kept by the policy is persisted. The window is a
+ * debounce: each read extends it, so a chip lying on the mat doesn't finish again once the window is over.
+ *
+ * The state of a number is held in primitive arrays indexed by the number, whose size is the capacity: the memory is
+ * bounded, and a read costs two array accesses, without allocation. The numbers beyond the capacity aren't deduplicated.
+ *
+ * The deduplicator isn't thread-safe: it is used by the persister thread of the ingestion server only. The state is
+ * cleared when another race file is opened, by the thread of the next read.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see IngestServer
+ */
+public class FinishEventDeduplicator {
+
+    /** The time of the last read of a number without read. */
+    private static final long NO_READ = Long.MIN_VALUE;
+
+    /** The data handler, followed to clear the state when the race file changes. */
+    @Autowired
+    private DataHandler dataHandler;
+
+    /** The window of a crossing (in milliseconds). */
+    private long window = 3000;
+
+    /** The policy choosing the read kept. */
+    private DeduplicationPolicy policy = DeduplicationPolicy.FIRST_READ;
+
+    /** The capacity: the numbers from 0 (included) to the capacity (excluded) are deduplicated. */
+    private int capacity = 100000;
+
+    /** The times kept (milliseconds since the epoch), by number. */
+    private long[] keptTimes;
+
+    /** The times of the last reads (milliseconds since the epoch), by number, or NO_READ. */
+    private long[] lastReadTimes;
+
+    /** Whether the state must be cleared before the next read. */
+    private volatile boolean clearRequested;
+
+
+    /**
+     * Constructs an instance of finish event deduplicator, whose data handler is autowired.
+     */
+    public FinishEventDeduplicator() {
+    }
+
+    /**
+     * Constructs an instance of finish event deduplicator.
+     *
+     * @param dataHandler the data handler
+     */
+    public FinishEventDeduplicator(DataHandler dataHandler) {
+        this.dataHandler = dataHandler;
+    }
+
+    /**
+     * Initializes the deduplicator (init method of the bean): it clears the state when the race file changes, so the
+     * first reads of the numbers in the new race file aren't taken for the duplicates of the previous one.
+     */
+    public void init() {
+        dataHandler.addListener(filePath -> clear());
+    }
+
+    /**
+     * Gets the window of a crossing.
+     *
+     * @return the window of a crossing (in milliseconds)
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * Sets the window of a crossing.
+     *
+     * @param window the new window of a crossing (in milliseconds)
+     */
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    /**
+     * Gets the policy choosing the read kept.
+     *
+     * @return the policy
+     */
+    public DeduplicationPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Sets the policy choosing the read kept.
+     *
+     * @param policy the new policy
+     */
+    public void setPolicy(DeduplicationPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Gets the capacity: the numbers from 0 (included) to the capacity (excluded) are deduplicated.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the capacity: the numbers from 0 (included) to the capacity (excluded) are deduplicated. The state of the
+     * numbers is cleared.
+     *
+     * @param capacity the new capacity
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+        keptTimes = null;
+        lastReadTimes = null;
+    }
+
+    /**
+     * Checks if a read of a number is kept, and records it.
+     *
+     * @param number the number (bib) read
+     * @param time the time read (milliseconds since the epoch)
+     *
+     * @return true if the read is kept, false if it is a duplicate of the crossing of the number
+     */
+    public boolean accept(int number, long time) {
+        if (number < 0 || number >= capacity)
+            return true;
+
+        if (lastReadTimes == null || clearRequested)
+            reset();
+
+        long lastReadTime = lastReadTimes[number];
+
+        // A new crossing, the first read of the number or a read beyond the window of the last one
+        if (lastReadTime == NO_READ || Math.abs(time - lastReadTime) >= window) {
+            keptTimes[number] = time;
+            lastReadTimes[number] = time;
+            return true;
+        }
+
+        lastReadTimes[number] = Math.max(lastReadTime, time);
+
+        if (policy == DeduplicationPolicy.BEST_READ && time < keptTimes[number]) {
+            keptTimes[number] = time;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes the duplicates of a batch of events, in place.
+     *
+     * @param events the events, in the order they were received
+     *
+     * @return the number of events removed
+     */
+    public int deduplicate(List<FinishEvent> events) {
+        int kept = 0;
+
+        for (int index = 0; index < events.size(); index++) {
+            FinishEvent event = events.get(index);
+
+            if (accept(event.getNumber(), event.getTime().toEpochMilli()))
+                events.set(kept++, event);
+        }
+
+        int removed = events.size() - kept;
+        events.subList(kept, events.size()).clear();
+
+        return removed;
+    }
+
+    /**
+     * Clears the state of the numbers, when another race file is opened for instance. It may be called from any thread,
+     * the state being cleared by the thread of the next read.
+     */
+    public void clear() {
+        clearRequested = true;
+    }
+
+    /**
+     * Resets the state of the numbers, allocated first if needed.
+     */
+    private void reset() {
+        clearRequested = false;
+
+        if (lastReadTimes == null) {
+            keptTimes = new long[capacity];
+            lastReadTimes = new long[capacity];
+        }
+
+        Arrays.fill(lastReadTimes, NO_READ);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.ingest;
+
+import be.bulck.smartrace.dao.exception.DataHandlerException;
+import be.bulck.smartrace.dao.exception.DataProviderException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An interface representing the destination of the finish events received by the ingestion server.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public interface FinishEventSink {
+
+    /**
+     * Checks if the sink can persist events. While it can't (no race file opened, for instance), the events wait in
+     * the queue of the ingestion server.
+     *
+     * @return true if the sink can persist events, false otherwise
+     */
+    boolean isReady();
+
+    /**
+     * Persists a batch of finish events, in a single commit.
+     *
+     * @param events the events to persist, in the order they were received
+     *
+     * @return the number of events matching a race record
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    int persist(List<FinishEvent> events) throws DataHandlerException, DataProviderException;
+
+    /**
+     * Persists a batch of finishes kept in arrays, in a single commit. The capture path keeps its finishes in arrays
+     * allocated once, so it doesn't allocate a finish event for each of them; by default, the finish events are created
+     * here.
+     *
+     * @param numbers the numbers (bibs) of the race records
+     * @param times the times at which the finish line was crossed (milliseconds since the epoch)
+     * @param count the number of finishes, from the start of the arrays
+     *
+     * @return the number of finishes matching a race record
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    default int persist(int[] numbers, long[] times, int count) throws DataHandlerException, DataProviderException {
+        List<FinishEvent> events = new ArrayList<>(count);
+
+        for (int index = 0; index < count; index++)
+            events.add(new FinishEvent(numbers[index], Instant.ofEpochMilli(times[index])));
+
+        return persist(events);
+    }
+}
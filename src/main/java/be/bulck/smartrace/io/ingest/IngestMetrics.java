@@ -0,0 +1,259 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.ingest;
+
+/**
+ * A class representing the metrics of an ingestion server: how many events were received, rejected, suppressed and
+ * persisted, and how the batches of the persistence went.
+ *
+ * The metrics are recorded by the threads of the server and may be read from any thread.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see IngestServer
+ */
+public class IngestMetrics {
+
+    /** The number of events received and queued. */
+    private long receivedCount;
+
+    /** The number of malformed lines. */
+    private long malformedCount;
+
+    /** The number of events dropped because the queue was full. */
+    private long droppedCount;
+
+    /** The number of duplicate events removed before persistence. */
+    private long suppressedCount;
+
+    /** The number of events persisted. */
+    private long persistedCount;
+
+    /** The number of events persisted without a race record matching their number. */
+    private long unknownCount;
+
+    /** The number of events which failed to be persisted, given up when the server was stopped. */
+    private long failedCount;
+
+    /** The number of attempts of persistence of a batch which failed, the batch being retried. */
+    private long retryCount;
+
+    /** The number of batches persisted. */
+    private long batchCount;
+
+    /** The number of events of the biggest batch. */
+    private int maxBatchSize;
+
+    /** The cumulated latency of the batches (in nanoseconds). */
+    private long totalLatency;
+
+    /** The latency of the slowest batch (in nanoseconds). */
+    private long maxLatency;
+
+
+    /**
+     * Records events received and queued.
+     *
+     * @param count the number of events
+     */
+    synchronized void recordReceived(int count) {
+        receivedCount += count;
+    }
+
+    /**
+     * Records malformed lines.
+     *
+     * @param count the number of malformed lines
+     */
+    synchronized void recordMalformed(int count) {
+        malformedCount += count;
+    }
+
+    /**
+     * Records an event dropped because the queue was full.
+     */
+    synchronized void recordDropped() {
+        droppedCount++;
+    }
+
+    /**
+     * Records duplicate events removed before persistence.
+     *
+     * @param count the number of events
+     */
+    synchronized void recordSuppressed(int count) {
+        suppressedCount += count;
+    }
+
+    /**
+     * Records a batch persisted.
+     *
+     * @param batchSize the number of events of the batch
+     * @param matched the number of events matching a race record
+     * @param latency the latency of the batch (in nanoseconds)
+     */
+    synchronized void recordBatch(int batchSize, int matched, long latency) {
+        batchCount++;
+        persistedCount += batchSize;
+        unknownCount += batchSize - matched;
+        maxBatchSize = Math.max(maxBatchSize, batchSize);
+        totalLatency += latency;
+        maxLatency = Math.max(maxLatency, latency);
+    }
+
+    /**
+     * Records an attempt of persistence of a batch which failed.
+     */
+    synchronized void recordRetry() {
+        retryCount++;
+    }
+
+    /**
+     * Records a batch which failed to be persisted and was given up.
+     *
+     * @param batchSize the number of events of the batch
+     */
+    synchronized void recordFailure(int batchSize) {
+        failedCount += batchSize;
+    }
+
+    /**
+     * Gets the number of events received and queued.
+     *
+     * @return the number of events received
+     */
+    public synchronized long getReceivedCount() {
+        return receivedCount;
+    }
+
+    /**
+     * Gets the number of malformed lines.
+     *
+     * @return the number of malformed lines
+     */
+    public synchronized long getMalformedCount() {
+        return malformedCount;
+    }
+
+    /**
+     * Gets the number of events dropped because the queue was full (datagrams only, the streams wait).
+     *
+     * @return the number of events dropped
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Gets the number of duplicate events removed before persistence.
+     *
+     * @return the number of events suppressed
+     */
+    public synchronized long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    /**
+     * Gets the number of events persisted, with or without a race record matching their number.
+     *
+     * @return the number of events persisted
+     */
+    public synchronized long getPersistedCount() {
+        return persistedCount;
+    }
+
+    /**
+     * Gets the number of events persisted without a race record matching their number.
+     *
+     * @return the number of events without race record
+     */
+    public synchronized long getUnknownCount() {
+        return unknownCount;
+    }
+
+    /**
+     * Gets the number of events which failed to be persisted, given up when the server was stopped.
+     *
+     * @return the number of events failed
+     */
+    public synchronized long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Gets the number of attempts of persistence of a batch which failed, the batch being retried.
+     *
+     * @return the number of attempts failed
+     */
+    public synchronized long getRetryCount() {
+        return retryCount;
+    }
+
+    /**
+     * Gets the number of batches persisted.
+     *
+     * @return the number of batches
+     */
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Gets the average number of events per batch.
+     *
+     * @return the average number of events per batch
+     */
+    public synchronized double getAverageBatchSize() {
+        return batchCount == 0 ? 0 : (double) persistedCount / batchCount;
+    }
+
+    /**
+     * Gets the number of events of the biggest batch.
+     *
+     * @return the number of events of the biggest batch
+     */
+    public synchronized int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Gets the average latency of the batches.
+     *
+     * @return the average latency of the batches (in milliseconds)
+     */
+    public synchronized double getAverageLatency() {
+        return batchCount == 0 ? 0 : totalLatency / 1e6 / batchCount;
+    }
+
+    /**
+     * Gets the latency of the slowest batch.
+     *
+     * @return the latency of the slowest batch (in milliseconds)
+     */
+    public synchronized double getMaxLatency() {
+        return maxLatency / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d received, %d malformed, %d dropped, %d suppressed, %d persisted (%d unknown, "
+                + "%d failed, %d retries), %d batches (avg %.1f, max %d), latency avg %.2f ms, max %.2f ms", receivedCount,
+                malformedCount, droppedCount, suppressedCount, persistedCount, unknownCount, failedCount, retryCount, batchCount,
+                getAverageBatchSize(), maxBatchSize, getAverageLatency(), getMaxLatency());
+    }
+}
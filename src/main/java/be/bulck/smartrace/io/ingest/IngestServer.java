@@ -0,0 +1,639 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class representing the ingestion server of the finish events sent by the timing devices of the finish line, on the
+ * local network. The events are sent as lines (see {@link FinishEventDecoder}) over TCP streams and/or UDP datagrams.
+ *
+ * The events decoded are put in a bounded queue, emptied by a single persister thread: it takes all the events waiting,
+ * up to the maximum batch size, and persists them through the sink at once, so the commits are grouped under load. When
+ * the queue is full, the TCP connections wait (backpressure through the TCP window) while the datagrams are dropped and
+ * counted, UDP having no way to slow the sender down. With a deduplicator, the duplicate reads of a crossing are removed
+ * from each batch before it is persisted.
+ *
+ * A batch which fails to be persisted (a busy race file, for instance) is kept and retried with an exponential backoff
+ * while the server is running, the queue filling up behind it meanwhile. Only when the server is stopped is a batch
+ * still failing given up, and counted as failed.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class IngestServer {
+
+    /** The size of the buffer of a TCP connection (in characters). */
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    /** The maximum size of a datagram (in bytes). */
+    private static final int DATAGRAM_BUFFER_SIZE = 65507;
+
+    /** The size of the receive buffer of the UDP socket (in bytes), absorbing the bursts of datagrams. */
+    private static final int DATAGRAM_RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    /** The delay between two checks of the sink while it isn't ready (in milliseconds). */
+    private static final long NOT_READY_DELAY = 200;
+
+    /** The port of the TCP endpoint, 0 for any free port, negative to disable it. */
+    private int tcpPort = -1;
+
+    /** The port of the UDP endpoint, 0 for any free port, negative to disable it. */
+    private int udpPort = -1;
+
+    /** The address the endpoints are bound to, null for all the addresses. */
+    private String bindAddress;
+
+    /** The capacity of the queue of the events. */
+    private int queueCapacity = 10000;
+
+    /** The maximum number of events persisted in a batch. */
+    private int maxBatchSize = 500;
+
+    /** The delay before the first retry of a batch which failed to be persisted (in milliseconds). */
+    private long retryInitialBackoff = 50;
+
+    /** The maximum delay between two retries of a batch which failed to be persisted (in milliseconds). */
+    private long retryMaxBackoff = 5000;
+
+    /** The sink persisting the events. */
+    private FinishEventSink sink;
+
+    /** The deduplicator removing the duplicate reads of the batches before they are persisted, or null for none. */
+    private FinishEventDeduplicator deduplicator;
+
+    /** The metrics of the server. */
+    private final IngestMetrics metrics = new IngestMetrics();
+
+    /** The queue of the events waiting to be persisted. */
+    private BlockingQueue<FinishEvent> queue;
+
+    /** The socket of the TCP endpoint. */
+    private ServerSocket serverSocket;
+
+    /** The socket of the UDP endpoint. */
+    private DatagramSocket datagramSocket;
+
+    /** The executor of the TCP connections. */
+    private ExecutorService connectionExecutor;
+
+    /** The sockets of the TCP connections opened. */
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /** The persister thread. */
+    private Thread persister;
+
+    /** Whether the server is running. */
+    private volatile boolean running;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(IngestServer.class);
+
+
+    /**
+     * Gets the port of the TCP endpoint.
+     *
+     * @return the port of the TCP endpoint, 0 for any free port, negative if disabled
+     */
+    public int getTcpPort() {
+        return tcpPort;
+    }
+
+    /**
+     * Sets the port of the TCP endpoint.
+     *
+     * @param tcpPort the new port of the TCP endpoint, 0 for any free port, negative to disable it
+     */
+    public void setTcpPort(int tcpPort) {
+        this.tcpPort = tcpPort;
+    }
+
+    /**
+     * Gets the port of the UDP endpoint.
+     *
+     * @return the port of the UDP endpoint, 0 for any free port, negative if disabled
+     */
+    public int getUdpPort() {
+        return udpPort;
+    }
+
+    /**
+     * Sets the port of the UDP endpoint.
+     *
+     * @param udpPort the new port of the UDP endpoint, 0 for any free port, negative to disable it
+     */
+    public void setUdpPort(int udpPort) {
+        this.udpPort = udpPort;
+    }
+
+    /**
+     * Gets the address the endpoints are bound to.
+     *
+     * @return the address the endpoints are bound to, null for all the addresses
+     */
+    public String getBindAddress() {
+        return bindAddress;
+    }
+
+    /**
+     * Sets the address the endpoints are bound to.
+     *
+     * @param bindAddress the new address the endpoints are bound to, null for all the addresses
+     */
+    public void setBindAddress(String bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    /**
+     * Gets the capacity of the queue of the events.
+     *
+     * @return the capacity of the queue
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Sets the capacity of the queue of the events.
+     *
+     * @param queueCapacity the new capacity of the queue
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Gets the maximum number of events persisted in a batch.
+     *
+     * @return the maximum number of events in a batch
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of events persisted in a batch.
+     *
+     * @param maxBatchSize the new maximum number of events in a batch
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Gets the delay before the first retry of a batch which failed to be persisted.
+     *
+     * @return the delay before the first retry (in milliseconds)
+     */
+    public long getRetryInitialBackoff() {
+        return retryInitialBackoff;
+    }
+
+    /**
+     * Sets the delay before the first retry of a batch which failed to be persisted.
+     *
+     * @param retryInitialBackoff the new delay before the first retry (in milliseconds)
+     */
+    public void setRetryInitialBackoff(long retryInitialBackoff) {
+        this.retryInitialBackoff = retryInitialBackoff;
+    }
+
+    /**
+     * Gets the maximum delay between two retries of a batch which failed to be persisted.
+     *
+     * @return the maximum delay between two retries (in milliseconds)
+     */
+    public long getRetryMaxBackoff() {
+        return retryMaxBackoff;
+    }
+
+    /**
+     * Sets the maximum delay between two retries of a batch which failed to be persisted.
+     *
+     * @param retryMaxBackoff the new maximum delay between two retries (in milliseconds)
+     */
+    public void setRetryMaxBackoff(long retryMaxBackoff) {
+        this.retryMaxBackoff = retryMaxBackoff;
+    }
+
+    /**
+     * Gets the sink persisting the events.
+     *
+     * @return the sink
+     */
+    public FinishEventSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Sets the sink persisting the events.
+     *
+     * @param sink the new sink
+     */
+    public void setSink(FinishEventSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Gets the deduplicator removing the duplicate reads of the batches before they are persisted.
+     *
+     * @return the deduplicator, or null for none
+     */
+    public FinishEventDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    /**
+     * Sets the deduplicator removing the duplicate reads of the batches before they are persisted.
+     *
+     * @param deduplicator the new deduplicator, or null for none
+     */
+    public void setDeduplicator(FinishEventDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+    }
+
+    /**
+     * Gets the metrics of the server.
+     *
+     * @return the metrics of the server
+     */
+    public IngestMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Checks if the server is running.
+     *
+     * @return true if the server is running, false otherwise
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Gets the local port of the TCP endpoint, once started.
+     *
+     * @return the local port of the TCP endpoint, or -1 if it isn't open
+     */
+    public int getLocalTcpPort() {
+        return serverSocket != null ? serverSocket.getLocalPort() : -1;
+    }
+
+    /**
+     * Gets the local port of the UDP endpoint, once started.
+     *
+     * @return the local port of the UDP endpoint, or -1 if it isn't open
+     */
+    public int getLocalUdpPort() {
+        return datagramSocket != null ? datagramSocket.getLocalPort() : -1;
+    }
+
+    /**
+     * Gets the number of events waiting to be persisted.
+     *
+     * @return the number of events waiting
+     */
+    public int getQueueSize() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * Starts the server: opens the endpoints enabled and starts the persister.
+     *
+     * @throws IOException an exception thrown if an endpoint can't be opened
+     */
+    public synchronized void start() throws IOException {
+        if (running)
+            return;
+
+        if (sink == null)
+            throw new IllegalStateException("No sink to persist the finish events");
+
+        InetAddress address = bindAddress != null ? InetAddress.getByName(bindAddress) : null;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+
+        try {
+            if (tcpPort >= 0) {
+                serverSocket = new ServerSocket();
+                serverSocket.setReuseAddress(true);
+                serverSocket.bind(new InetSocketAddress(address, tcpPort));
+                connectionExecutor = Executors.newCachedThreadPool(runnable -> newThread(runnable, "ingest-tcp-connection"));
+                newThread(this::acceptConnections, "ingest-tcp").start();
+            }
+
+            if (udpPort >= 0) {
+                datagramSocket = new DatagramSocket(null);
+                datagramSocket.setReceiveBufferSize(DATAGRAM_RECEIVE_BUFFER_SIZE);
+                datagramSocket.bind(new InetSocketAddress(address, udpPort));
+                newThread(this::receiveDatagrams, "ingest-udp").start();
+            }
+        } catch (IOException ex) {
+            stop();
+            throw ex;
+        }
+
+        persister = newThread(this::persistEvents, "ingest-persister");
+        persister.start();
+
+        log.info("Ingestion server started (TCP port " + getLocalTcpPort() + ", UDP port " + getLocalUdpPort() + ")");
+    }
+
+    /**
+     * Stops the server: closes the endpoints and the connections, then waits until the persister has persisted the events
+     * still waiting in the queue.
+     */
+    public synchronized void stop() {
+        if (!running)
+            return;
+
+        running = false;
+        closeQuietly(serverSocket);
+
+        if (datagramSocket != null)
+            datagramSocket.close();
+
+        if (connectionExecutor != null)
+            connectionExecutor.shutdownNow();
+
+        for (Socket socket : connections)
+            closeQuietly(socket);
+
+        if (persister != null) {
+            try {
+                persister.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        serverSocket = null;
+        datagramSocket = null;
+        connectionExecutor = null;
+        persister = null;
+
+        log.info("Ingestion server stopped (" + metrics + ")");
+    }
+
+    /**
+     * Accepts the TCP connections, each of them being read by a thread of its own.
+     */
+    private void acceptConnections() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connectionExecutor.execute(() -> readConnection(socket));
+            } catch (IOException ex) {
+                if (running)
+                    log.error(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    /**
+     * Reads the finish events of a TCP connection, until it is closed.
+     *
+     * @param socket the socket of the connection
+     */
+    private void readConnection(Socket socket) {
+        FinishEventDecoder decoder = new FinishEventDecoder();
+        List<FinishEvent> events = new ArrayList<>();
+        char[] buffer = new char[STREAM_BUFFER_SIZE];
+
+        connections.add(socket);
+        log.info("Timing device connected from " + socket.getRemoteSocketAddress());
+
+        try (Reader reader = new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)) {
+            int length;
+
+            while ((length = reader.read(buffer)) != -1) {
+                metrics.recordMalformed(decoder.decode(buffer, 0, length, Instant.now(), events));
+                enqueue(events);
+            }
+
+            metrics.recordMalformed(decoder.finish(Instant.now(), events));
+            enqueue(events);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            if (running)
+                log.warn("Connection of timing device lost: " + ex.getMessage());
+        } finally {
+            connections.remove(socket);
+            closeQuietly(socket);
+        }
+
+        log.info("Timing device disconnected from " + socket.getRemoteSocketAddress());
+    }
+
+    /**
+     * Puts the events decoded from a TCP connection in the queue, waiting while it is full.
+     *
+     * @param events the events decoded, cleared once queued
+     *
+     * @throws InterruptedException an exception thrown if the server is stopped while waiting
+     */
+    private void enqueue(List<FinishEvent> events) throws InterruptedException {
+        for (FinishEvent event : events)
+            queue.put(event);
+
+        metrics.recordReceived(events.size());
+        events.clear();
+    }
+
+    /**
+     * Receives the UDP datagrams, each of them containing one or more lines.
+     */
+    private void receiveDatagrams() {
+        FinishEventDecoder decoder = new FinishEventDecoder();
+        List<FinishEvent> events = new ArrayList<>();
+        DatagramPacket packet = new DatagramPacket(new byte[DATAGRAM_BUFFER_SIZE], DATAGRAM_BUFFER_SIZE);
+
+        while (running) {
+            try {
+                datagramSocket.receive(packet);
+            } catch (IOException ex) {
+                if (running && !(ex instanceof SocketException))
+                    log.error(ex.getMessage(), ex);
+
+                continue;
+            }
+
+            String text = new String(packet.getData(), packet.getOffset(), packet.getLength(), StandardCharsets.US_ASCII);
+            metrics.recordMalformed(decoder.decode(text, Instant.now(), events));
+            int received = 0;
+
+            for (FinishEvent event : events) {
+                if (queue.offer(event))
+                    received++;
+
+                else
+                    metrics.recordDropped();
+            }
+
+            metrics.recordReceived(received);
+            events.clear();
+        }
+    }
+
+    /**
+     * Persists the events of the queue by batch, until the server is stopped and the queue is empty. A batch which fails
+     * to be persisted is retried, after a backoff, before the next events are taken from the queue.
+     */
+    private void persistEvents() {
+        List<FinishEvent> batch = new ArrayList<>(maxBatchSize);
+        long backoff = 0;
+
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (!sink.isReady()) {
+                    if (!running)
+                        break;
+
+                    Thread.sleep(NOT_READY_DELAY);
+                    continue;
+                }
+
+                if (batch.isEmpty() && !takeBatch(batch))
+                    continue;
+
+                if (persistBatch(batch)) {
+                    batch.clear();
+                    backoff = 0;
+                } else if (!running) {
+                    log.warn("Ingestion server stopped, " + batch.size() + " finish event(s) of a failed batch given up");
+                    metrics.recordFailure(batch.size());
+                    batch.clear();
+                } else {
+                    backoff = backoff == 0 ? retryInitialBackoff : Math.min(backoff * 2, retryMaxBackoff);
+                    log.warn("Retrying the batch of " + batch.size() + " finish event(s) in " + backoff + " ms");
+                    Thread.sleep(backoff);
+                }
+            } catch (InterruptedException ex) {
+                log.warn("Persister of the ingestion server interrupted, " + (queue.size() + batch.size()) + " finish event(s) lost");
+                return;
+            }
+        }
+
+        if (!queue.isEmpty() || !batch.isEmpty())
+            log.warn((queue.size() + batch.size()) + " finish event(s) not persisted, no race file opened");
+    }
+
+    /**
+     * Takes a batch of events from the queue, without their duplicate reads.
+     *
+     * @param batch the batch to fill, empty
+     *
+     * @return true if the batch has events to persist, false otherwise
+     *
+     * @throws InterruptedException an exception thrown if the persister is interrupted while waiting
+     */
+    private boolean takeBatch(List<FinishEvent> batch) throws InterruptedException {
+        FinishEvent first = running ? queue.poll(NOT_READY_DELAY, TimeUnit.MILLISECONDS) : queue.poll();
+
+        if (first == null)
+            return false;
+
+        batch.add(first);
+        queue.drainTo(batch, maxBatchSize - 1);
+
+        // Deduplicated once, as the reads kept are recorded by the deduplicator: a batch retried is left as is
+        if (deduplicator != null)
+            metrics.recordSuppressed(deduplicator.deduplicate(batch));
+
+        return !batch.isEmpty();
+    }
+
+    /**
+     * Persists a batch of events through the sink.
+     *
+     * @param batch the events of the batch
+     *
+     * @return true if the batch was persisted, false if it failed and must be retried
+     */
+    private boolean persistBatch(List<FinishEvent> batch) {
+        long start = System.nanoTime();
+
+        try {
+            int matched = sink.persist(batch);
+            metrics.recordBatch(batch.size(), matched, System.nanoTime() - start);
+
+            if (matched < batch.size())
+                log.warn((batch.size() - matched) + " finish event(s) without race record");
+
+            return true;
+        } catch (Exception ex) {
+            metrics.recordRetry();
+            log.error(ex.getMessage(), ex);
+            return false;
+        }
+    }
+
+    /**
+     * Creates a daemon thread of the server.
+     *
+     * @param runnable the task of the thread
+     * @param name the name of the thread
+     *
+     * @return the thread created
+     */
+    private static Thread newThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Closes a resource, ignoring the exceptions.
+     *
+     * @param closeable the resource to close, may be null
+     */
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null)
+            return;
+
+        try {
+            closeable.close();
+        } catch (Exception ex) {
+            log.debug(ex.getMessage(), ex);
+        }
+    }
+}
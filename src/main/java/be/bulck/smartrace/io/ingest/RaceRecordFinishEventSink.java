@@ -0,0 +1,164 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.ingest;
+
+import be.bulck.smartrace.dao.exception.DataHandlerException;
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.handler.DataHandler;
+import be.bulck.smartrace.dao.provider.RaceRecordProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A sink marking the race records as finished in the race file opened. The events of a batch are written through the
+ * race record provider, then saved at once, so a batch costs a single commit (group commit).
+ *
+ * The end time of a race record already finished is kept, a chip read again after the window of the deduplication
+ * doesn't change it. With the best read policy, an earlier end time corrects it.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RaceRecordFinishEventSink implements FinishEventSink {
+
+    /** The result of a finish without race record matching its number. */
+    private static final int UNKNOWN = 0;
+
+    /** The result of a finish of a race record already finished, whose end time is kept. */
+    private static final int KEPT = 1;
+
+    /** The result of a finish marking its race record as finished. */
+    private static final int UPDATED = 2;
+
+    /** The data handler. */
+    @Autowired
+    private DataHandler dataHandler;
+
+    /** The race record provider. */
+    @Autowired
+    private RaceRecordProvider raceRecordProvider;
+
+    /** The policy of the deduplication of the events, the best read correcting the end times. */
+    private DeduplicationPolicy policy = DeduplicationPolicy.FIRST_READ;
+
+    /** Whether a race file is opened. */
+    private volatile boolean fileOpened;
+
+
+    /**
+     * Constructs an instance of race record finish event sink, whose data handler and provider are autowired.
+     */
+    public RaceRecordFinishEventSink() {
+    }
+
+    /**
+     * Constructs an instance of race record finish event sink.
+     *
+     * @param dataHandler the data handler
+     * @param raceRecordProvider the race record provider
+     */
+    public RaceRecordFinishEventSink(DataHandler dataHandler, RaceRecordProvider raceRecordProvider) {
+        this.dataHandler = dataHandler;
+        this.raceRecordProvider = raceRecordProvider;
+    }
+
+    /**
+     * Gets the policy of the deduplication of the events.
+     *
+     * @return the policy
+     */
+    public DeduplicationPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Sets the policy of the deduplication of the events: with the best read, an earlier end time corrects the end time
+     * of a race record already finished.
+     *
+     * @param policy the new policy
+     */
+    public void setPolicy(DeduplicationPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Initializes the sink (init method of the bean): it follows the race files opened and closed by the data handler.
+     */
+    public void init() {
+        dataHandler.addListener(filePath -> fileOpened = filePath != null);
+    }
+
+    @Override
+    public boolean isReady() {
+        return fileOpened;
+    }
+
+    @Override
+    public int persist(List<FinishEvent> events) throws DataHandlerException, DataProviderException {
+        int matched = 0;
+        boolean updated = false;
+
+        for (FinishEvent event : events) {
+            int result = markFinished(event.getNumber(), event.getTime());
+            matched += result != UNKNOWN ? 1 : 0;
+            updated |= result == UPDATED;
+        }
+
+        if (updated)
+            dataHandler.save();
+
+        return matched;
+    }
+
+    @Override
+    public int persist(int[] numbers, long[] times, int count) throws DataHandlerException, DataProviderException {
+        int matched = 0;
+        boolean updated = false;
+
+        for (int index = 0; index < count; index++) {
+            int result = markFinished(numbers[index], Instant.ofEpochMilli(times[index]));
+            matched += result != UNKNOWN ? 1 : 0;
+            updated |= result == UPDATED;
+        }
+
+        if (updated)
+            dataHandler.save();
+
+        return matched;
+    }
+
+    /**
+     * Marks a race record as finished, without saving.
+     *
+     * @param number the number (bib) of the race record
+     * @param endTime the time at which the finish line was crossed
+     *
+     * @return UPDATED if the race record was marked as finished, KEPT if it was already finished and its end time kept,
+     * UNKNOWN if no race record matches the number
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    private int markFinished(int number, Instant endTime) throws DataProviderException {
+        if (raceRecordProvider.markFinished(number, endTime, policy == DeduplicationPolicy.BEST_READ))
+            return UPDATED;
+
+        // Already finished, the end time kept
+        return raceRecordProvider.findByNumber(number) != null ? KEPT : UNKNOWN;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.sqlite;
+
+import org.sqlite.SQLiteErrorCode;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A class representing the policy of a SQLite database when the race file is locked by another process (another
+ * station working on the same race file).
+ *
+ * A connection first waits for the lock up to the busy timeout, in SQLite itself. A write work still failing because
+ * the race file is busy is then retried after a backoff, doubled after each attempt up to a maximum, with a random
+ * jitter so two stations retrying at the same time don't collide again.
+ *
+ * The busy timeout is kept short: the busy handler of SQLite may sleep by whole seconds (when it is built without
+ * usleep), during which the station holding the lock takes it again and again. The backoff shares the lock fairly.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SQLiteBusyPolicy {
+
+    /** The default busy timeout (in milliseconds). */
+    public static final int DEFAULT_BUSY_TIMEOUT = 100;
+
+    /** The default maximum number of retries of a write work. */
+    public static final int DEFAULT_MAX_RETRIES = 10;
+
+    /** The default backoff before the first retry (in milliseconds). */
+    public static final long DEFAULT_INITIAL_BACKOFF = 5;
+
+    /** The default maximum backoff between two retries (in milliseconds). */
+    public static final long DEFAULT_MAX_BACKOFF = 500;
+
+    /** The default busy policy. */
+    public static final SQLiteBusyPolicy DEFAULT = new SQLiteBusyPolicy(DEFAULT_BUSY_TIMEOUT, DEFAULT_MAX_RETRIES,
+            DEFAULT_INITIAL_BACKOFF, DEFAULT_MAX_BACKOFF);
+
+    /** The time a connection waits for a lock before failing (in milliseconds). */
+    private final int busyTimeout;
+
+    /** The maximum number of retries of a write work. */
+    private final int maxRetries;
+
+    /** The backoff before the first retry (in milliseconds). */
+    private final long initialBackoff;
+
+    /** The maximum backoff between two retries (in milliseconds). */
+    private final long maxBackoff;
+
+
+    /**
+     * Constructs an instance of SQLite busy policy.
+     *
+     * @param busyTimeout the time a connection waits for a lock before failing (in milliseconds)
+     * @param maxRetries the maximum number of retries of a write work (0 to never retry)
+     * @param initialBackoff the backoff before the first retry (in milliseconds)
+     * @param maxBackoff the maximum backoff between two retries (in milliseconds)
+     */
+    public SQLiteBusyPolicy(int busyTimeout, int maxRetries, long initialBackoff, long maxBackoff) {
+        if (busyTimeout < 0 || maxRetries < 0 || initialBackoff < 0 || maxBackoff < initialBackoff)
+            throw new IllegalArgumentException("Invalid busy policy");
+
+        this.busyTimeout = busyTimeout;
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Gets the time a connection waits for a lock before failing.
+     *
+     * @return the busy timeout (in milliseconds)
+     */
+    public int getBusyTimeout() {
+        return busyTimeout;
+    }
+
+    /**
+     * Gets the maximum number of retries of a write work.
+     *
+     * @return the maximum number of retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Gets the backoff before the first retry.
+     *
+     * @return the initial backoff (in milliseconds)
+     */
+    public long getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    /**
+     * Gets the maximum backoff between two retries.
+     *
+     * @return the maximum backoff (in milliseconds)
+     */
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * Computes the backoff before a retry: the initial backoff doubled for each previous retry, capped by the maximum
+     * backoff, of which a random part between the half and the whole is kept.
+     *
+     * @param retry the number of the retry (1 for the first one)
+     *
+     * @return the backoff before the retry (in milliseconds)
+     */
+    public long backoff(int retry) {
+        long backoff = initialBackoff << Math.min(retry - 1, 30);
+        long capped = backoff < 0 || backoff > maxBackoff ? maxBackoff : backoff;
+
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    /**
+     * Checks if a SQL exception was thrown because the race file is locked by another connection.
+     *
+     * @param ex the SQL exception
+     *
+     * @return true if the race file was busy or locked, false otherwise
+     */
+    public static boolean isBusy(SQLException ex) {
+        int code = ex.getErrorCode() & 0xff;
+
+        return code == SQLiteErrorCode.SQLITE_BUSY.code || code == SQLiteErrorCode.SQLITE_LOCKED.code;
+    }
+
+    @Override
+    public String toString() {
+        return "busy timeout " + busyTimeout + " ms, " + maxRetries + " retries, backoff " + initialBackoff + "-"
+                + maxBackoff + " ms";
+    }
+}
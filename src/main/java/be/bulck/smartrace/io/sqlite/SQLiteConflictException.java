@@ -0,0 +1,55 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.sqlite;
+
+import java.sql.SQLException;
+
+/**
+ * A SQL exception thrown by a versioned update which found no row with the version read: the row was changed (or
+ * deleted) by another connection since it was read. Thrown inside an atomic work, it rolls back the whole work.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see SQLiteUpdateQuery#build(String, java.util.Collection, String, String)
+ */
+public class SQLiteConflictException extends SQLException {
+
+    /**
+     * Constructs an instance of SQLite conflict exception.
+     *
+     * @param message the message describing the conflict
+     */
+    public SQLiteConflictException(String message) {
+        super(message);
+    }
+
+    /**
+     * Checks the update counts of a versioned update, executed as a single statement or as a batch.
+     *
+     * @param message the message of the exception thrown on a conflict
+     * @param updateCounts the update counts of the statement or the batch
+     *
+     * @throws SQLiteConflictException an exception thrown if a row wasn't updated
+     */
+    public static void check(String message, int... updateCounts) throws SQLiteConflictException {
+        for (int updateCount : updateCounts) {
+            if (updateCount == 0)
+                throw new SQLiteConflictException(message);
+        }
+    }
+}
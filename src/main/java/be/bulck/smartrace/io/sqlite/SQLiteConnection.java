@@ -0,0 +1,247 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.io.sqlite;
+
+import java.sql.*;
+
+/**
+ * A class representing a connection to a SQLite database, lent by the connection manager.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SQLiteConnection {
+
+    /** The JDBC connection. */
+    private final Connection connection;
+
+    /** If the connection is read-only. */
+    private final boolean readOnly;
+
+    /** The prepared statements cache of the connection. */
+    private final SQLiteStatementCache statementCache;
+
+
+    /**
+     * Constructs an instance of SQLite connection.
+     *
+     * @param connection the JDBC connection
+     * @param readOnly if the connection is read-only
+     */
+    public SQLiteConnection(Connection connection, boolean readOnly) {
+        this(connection, readOnly, SQLiteStatementCache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an instance of SQLite connection.
+     *
+     * @param connection the JDBC connection
+     * @param readOnly if the connection is read-only
+     * @param statementCacheCapacity the maximum number of prepared statements cached
+     */
+    public SQLiteConnection(Connection connection, boolean readOnly, int statementCacheCapacity) {
+        this.connection = connection;
+        this.readOnly = readOnly;
+        this.statementCache = new SQLiteStatementCache(connection, statementCacheCapacity);
+    }
+
+    /**
+     * Gets the JDBC connection.
+     *
+     * @return the JDBC connection
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Checks if the connection is read-only.
+     *
+     * @return true if the connection is read-only, false otherwise
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Creates a SQL statement.
+     *
+     * @return a SQL statement
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    /**
+     * Creates a prepared SQL statement.
+     *
+     * @param sql the SQL instructions
+     *
+     * @return a prepared SQL statement
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public PreparedStatement createPreparedStatement(String sql) throws SQLException {
+        return connection.prepareStatement(sql);
+    }
+
+    /**
+     * Borrows a prepared statement from the statement cache of the connection. It must be returned once used, instead of
+     * being closed.
+     *
+     * @param sql the SQL instructions
+     *
+     * @return a prepared statement
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     *
+     * @see #returnStatement(String, PreparedStatement)
+     */
+    public PreparedStatement borrowStatement(String sql) throws SQLException {
+        return statementCache.borrow(sql);
+    }
+
+    /**
+     * Returns a prepared statement borrowed to the statement cache of the connection.
+     *
+     * @param sql the SQL instructions of the statement
+     * @param statement the statement borrowed
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public void returnStatement(String sql, PreparedStatement statement) throws SQLException {
+        statementCache.giveBack(sql, statement);
+    }
+
+    /**
+     * Gets the prepared statements cache of the connection.
+     *
+     * @return the prepared statements cache of the connection
+     */
+    public SQLiteStatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Executes a work atomically, inside a savepoint of the current transaction: if the work fails, its changes are
+     * rolled back while the other pending changes of the transaction are kept.
+     *
+     * @param work the work to execute
+     * @param <T> the type of the result of the work
+     *
+     * @return the result of the work
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public <T> T executeAtomically(SQLiteWork<T> work) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SAVEPOINT atomic_work");
+
+            try {
+                T result = work.execute(this);
+                statement.execute("RELEASE atomic_work");
+
+                return result;
+            } catch (SQLException | RuntimeException ex) {
+                statement.execute("ROLLBACK TO atomic_work");
+                statement.execute("RELEASE atomic_work");
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * Executes a pragma outside of any transaction, as some pragmas (like the synchronous mode) can't be changed inside
+     * a transaction. The pending changes of the connection are committed first.
+     *
+     * @param pragma the pragma to execute, without the keyword (for instance "synchronous = NORMAL")
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public void executePragma(String pragma) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+
+        if (!autoCommit)
+            connection.setAutoCommit(true);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA " + pragma);
+        } finally {
+            if (!autoCommit)
+                connection.setAutoCommit(false);
+        }
+    }
+
+    /**
+     * Gets the version of the data (pragma data_version), which changes each time another connection commits changes
+     * to the database. The version is frozen while a transaction is opened, so it is only meaningful on a connection in
+     * autocommit mode.
+     *
+     * @return the version of the data
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public long getDataVersion() throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("PRAGMA data_version")) {
+            return resultSet.getLong(1);
+        }
+    }
+
+    /**
+     * Commits the changes (transaction).
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public void commit() throws SQLException {
+        connection.commit();
+    }
+
+    /**
+     * Rollbacks the changes (transaction).
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public void rollback() throws SQLException {
+        connection.rollback();
+    }
+
+    /**
+     * Checks if the connection is closed.
+     *
+     * @return true if the connection is closed, false otherwise
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public boolean isClosed() throws SQLException {
+        return connection.isClosed();
+    }
+
+    /**
+     * Closes the connection.
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public void close() throws SQLException {
+        statementCache.clear();
+
+        if (!connection.isClosed())
+            connection.close();
+    }
+}
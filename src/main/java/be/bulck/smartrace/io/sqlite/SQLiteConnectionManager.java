@@ -0,0 +1,413 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.io.sqlite;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * A class managing the connections to a SQLite database: a pool of read-only connections used by the finders and a
+ * single writer connection owned by a dedicated thread, through which every change goes.
+ *
+ * The database is opened in WAL journal mode, so the readers work on the last committed snapshot and never wait
+ * behind a commit of the writer. When another process writes in the database too, the connections wait for its locks
+ * as configured by the busy policy. The version of the data is checked on a last connection of its own, which stays
+ * in autocommit mode so that it never waits behind the writer nor ends its transactions.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SQLiteConnectionManager {
+
+    /** The default number of read-only connections. */
+    public static final int DEFAULT_READER_COUNT = 4;
+
+    /** The JDBC URL of the SQLite database. */
+    private final String url;
+
+    /** The maximum number of read-only connections. */
+    private final int readerCount;
+
+    /** The policy when the database is locked by another process. */
+    private final SQLiteBusyPolicy busyPolicy;
+
+    /** The writer connection. */
+    private final SQLiteConnection writer;
+
+    /** The executor owning the writer thread. */
+    private final ExecutorService writerExecutor;
+
+    /** The writer thread. */
+    private volatile Thread writerThread;
+
+    /** The read-only connection checking the version of the data. */
+    private final SQLiteConnection versionReader;
+
+    /** The idle read-only connections. */
+    private final BlockingQueue<SQLiteConnection> idleReaders;
+
+    /** All the read-only connections opened. */
+    private final List<SQLiteConnection> readers;
+
+    /** If the connection manager is closed. */
+    private volatile boolean closed;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(SQLiteConnectionManager.class);
+
+
+    /**
+     * Constructs an instance of SQLite connection manager.
+     *
+     * @param filePath the file path of the SQLite database
+     * @param readerCount the maximum number of read-only connections
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public SQLiteConnectionManager(String filePath, int readerCount) throws SQLException {
+        this(filePath, readerCount, SQLiteBusyPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs an instance of SQLite connection manager.
+     *
+     * @param filePath the file path of the SQLite database
+     * @param readerCount the maximum number of read-only connections
+     * @param busyPolicy the policy when the database is locked by another process
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public SQLiteConnectionManager(String filePath, int readerCount, SQLiteBusyPolicy busyPolicy) throws SQLException {
+        if (readerCount < 1)
+            throw new IllegalArgumentException("At least one reader connection is required");
+
+        this.url = "jdbc:sqlite:" + filePath;
+        this.readerCount = readerCount;
+        this.busyPolicy = busyPolicy;
+        this.idleReaders = new LinkedBlockingQueue<>();
+        this.readers = new ArrayList<>();
+
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.enforceForeignKeys(true);
+        config.setBusyTimeout(String.valueOf(busyPolicy.getBusyTimeout()));
+        writer = new SQLiteConnection(DriverManager.getConnection(url, config.toProperties()), false);
+        writer.getConnection().setAutoCommit(false);
+        versionReader = openReader();
+
+        writerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sqlite-writer");
+            thread.setDaemon(true);
+            writerThread = thread;
+            return thread;
+        });
+    }
+
+    /**
+     * Executes a read work on a read-only connection. The work sees the last committed state of the database, except
+     * when it is called from the writer thread, where it runs on the writer connection to see the pending changes.
+     *
+     * @param work the work to execute
+     * @param <T> the type of the result of the work
+     *
+     * @return the result of the work
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public <T> T read(SQLiteWork<T> work) throws SQLException {
+        if (isWriterThread())
+            return work.execute(writer);
+
+        SQLiteConnection reader = borrowReader();
+
+        try {
+            return work.execute(reader);
+        } finally {
+            idleReaders.offer(reader);
+        }
+    }
+
+    /**
+     * Executes a write work on the writer thread and waits for its result. The works are serialized in the order they
+     * are submitted.
+     *
+     * @param work the work to execute
+     * @param <T> the type of the result of the work
+     *
+     * @return the result of the work
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public <T> T write(SQLiteWork<T> work) throws SQLException {
+        if (isWriterThread())
+            return work.execute(writer);
+
+        try {
+            return submitWrite(work).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the writer", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof SQLException)
+                throw (SQLException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+
+            throw new SQLException(cause);
+        }
+    }
+
+    /**
+     * Submits a write work to the writer thread without waiting for its result. A work failing because the database is
+     * locked by another process is retried as configured by the busy policy.
+     *
+     * @param work the work to execute
+     * @param <T> the type of the result of the work
+     *
+     * @return the future result of the work
+     */
+    public <T> Future<T> submitWrite(SQLiteWork<T> work) {
+        if (closed)
+            throw new RejectedExecutionException("The connection manager is closed");
+
+        return writerExecutor.submit(() -> executeWrite(work));
+    }
+
+    /**
+     * Gets the version of the data (pragma data_version) on the connection checking it, which changes each time another
+     * connection, the writer included, commits changes to the database.
+     *
+     * @return the version of the data
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public long getDataVersion() throws SQLException {
+        if (closed)
+            throw new SQLException("The connection manager is closed");
+
+        synchronized (versionReader) {
+            return versionReader.getDataVersion();
+        }
+    }
+
+    /**
+     * Gets the policy when the database is locked by another process.
+     *
+     * @return the busy policy
+     */
+    public SQLiteBusyPolicy getBusyPolicy() {
+        return busyPolicy;
+    }
+
+    /**
+     * Checks if the current thread is the writer thread.
+     *
+     * @return true if the current thread is the writer thread, false otherwise
+     */
+    public boolean isWriterThread() {
+        return Thread.currentThread() == writerThread;
+    }
+
+    /**
+     * Checks if the connection manager is closed.
+     *
+     * @return true if the connection manager is closed, false otherwise
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Gets the number of statement borrowings served by the statement caches of all the connections.
+     *
+     * @return the number of statement borrowings served by the caches
+     */
+    public long getStatementCacheHits() {
+        long hits = writer.getStatementCache().getHits();
+
+        synchronized (readers) {
+            for (SQLiteConnection reader : readers)
+                hits += reader.getStatementCache().getHits();
+        }
+
+        return hits;
+    }
+
+    /**
+     * Gets the number of statement borrowings which required to prepare a statement, on all the connections.
+     *
+     * @return the number of statement borrowings which required to prepare a statement
+     */
+    public long getStatementCacheMisses() {
+        long misses = writer.getStatementCache().getMisses();
+
+        synchronized (readers) {
+            for (SQLiteConnection reader : readers)
+                misses += reader.getStatementCache().getMisses();
+        }
+
+        return misses;
+    }
+
+    /**
+     * Gets the hit rate of the statement caches of all the connections.
+     *
+     * @return the hit rate (between 0 and 1) of the statement caches
+     */
+    public double getStatementCacheHitRate() {
+        long hits = getStatementCacheHits();
+        long borrowings = hits + getStatementCacheMisses();
+
+        return borrowings > 0 ? hits / (double) borrowings : 0.0;
+    }
+
+    /**
+     * Closes the connection manager: the pending write works are finished, then every connection is closed. Please
+     * commit or rollback before.
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public void close() throws SQLException {
+        if (closed)
+            return;
+
+        closed = true;
+        writerExecutor.shutdown();
+
+        try {
+            if (!writerExecutor.awaitTermination(10, TimeUnit.SECONDS))
+                log.warn("The SQLite writer did not finish its pending works in time");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        log.debug(String.format("Statement cache hit rate: %.1f%% (%d hits, %d misses)", getStatementCacheHitRate() * 100,
+                getStatementCacheHits(), getStatementCacheMisses()));
+
+        synchronized (readers) {
+            for (SQLiteConnection reader : readers)
+                reader.close();
+
+            readers.clear();
+            idleReaders.clear();
+        }
+
+        synchronized (versionReader) {
+            versionReader.close();
+        }
+
+        writer.close();
+    }
+
+    /**
+     * Executes a write work on the writer connection, and retries it after a backoff while it fails because the
+     * database is locked by another process.
+     *
+     * In WAL journal mode, a work can only be busy before its transaction holds the write lock, so the transaction has
+     * no change pending yet. It is rolled back before the retry, to leave its read snapshot: SQLite doesn't wait (nor
+     * call its busy handler) for a transaction whose snapshot is older than the last commit of the other process.
+     *
+     * @param work the work to execute
+     * @param <T> the type of the result of the work
+     *
+     * @return the result of the work
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs, or if the database is still busy after the
+     * last retry
+     */
+    private <T> T executeWrite(SQLiteWork<T> work) throws SQLException {
+        for (int retry = 1; ; retry++) {
+            try {
+                return work.execute(writer);
+            } catch (SQLException ex) {
+                if (!SQLiteBusyPolicy.isBusy(ex) || retry > busyPolicy.getMaxRetries())
+                    throw ex;
+
+                writer.rollback();
+                long backoff = busyPolicy.backoff(retry);
+                log.debug("SQLite database busy, write retry #" + retry + " in " + backoff + " ms");
+
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interruption) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Borrows a read-only connection, opening a new one if the pool is not full yet, or waiting for one to be released
+     * otherwise.
+     *
+     * @return a read-only connection
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private SQLiteConnection borrowReader() throws SQLException {
+        if (closed)
+            throw new SQLException("The connection manager is closed");
+
+        SQLiteConnection reader = idleReaders.poll();
+        if (reader != null)
+            return reader;
+
+        synchronized (readers) {
+            if (readers.size() < readerCount) {
+                reader = openReader();
+                readers.add(reader);
+                log.debug("SQLite reader connection #" + readers.size() + " opened");
+                return reader;
+            }
+        }
+
+        try {
+            return idleReaders.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", ex);
+        }
+    }
+
+    /**
+     * Opens a read-only connection.
+     *
+     * @return the read-only connection
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private SQLiteConnection openReader() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        config.setBusyTimeout(String.valueOf(busyPolicy.getBusyTimeout()));
+
+        return new SQLiteConnection(DriverManager.getConnection(url, config.toProperties()), true);
+    }
+}
@@ -21,12 +21,16 @@ package be.bulck.smartrace.io.sqlite;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.*;
+import java.sql.SQLException;
+import java.util.concurrent.Future;
 
 /**
- * A class representing a SQLite database.
+ * A class representing a SQLite database. The reads are spread over a pool of read-only connections while the writes
+ * are serialized on a single writer connection.
  *
  * @author Fabien Vanden Bulck
+ *
+ * @see SQLiteConnectionManager
  */
 public class SQLiteDatabase {
 
@@ -36,8 +40,8 @@ public class SQLiteDatabase {
     /** The file path of the SQLite database. */
     private String filePath;
 
-    /** The connection to the SQLite database. */
-    private Connection connection;
+    /** The connection manager of the SQLite database. */
+    private SQLiteConnectionManager connectionManager;
 
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(SQLiteDatabase.class);
@@ -49,12 +53,32 @@ public class SQLiteDatabase {
      * @param filePath the file path of the SQLite database
      */
     public SQLiteDatabase(String filePath) {
+        this(filePath, SQLiteConnectionManager.DEFAULT_READER_COUNT);
+    }
+
+    /**
+     * Constructs an instance of SQLite database.
+     *
+     * @param filePath the file path of the SQLite database
+     * @param readerCount the maximum number of read-only connections
+     */
+    public SQLiteDatabase(String filePath, int readerCount) {
+        this(filePath, readerCount, SQLiteBusyPolicy.DEFAULT);
+    }
+
+    /**
+     * Constructs an instance of SQLite database.
+     *
+     * @param filePath the file path of the SQLite database
+     * @param readerCount the maximum number of read-only connections
+     * @param busyPolicy the policy when the database is locked by another process (another station)
+     */
+    public SQLiteDatabase(String filePath, int readerCount, SQLiteBusyPolicy busyPolicy) {
         if (filePath != null && !filePath.isEmpty()) {
             try {
                 Class.forName(DRIVER);
                 this.filePath = filePath;
-                connection = DriverManager.getConnection("jdbc:sqlite:" + filePath);
-                connection.setAutoCommit(false);
+                connectionManager = new SQLiteConnectionManager(filePath, readerCount, busyPolicy);
             } catch (ClassNotFoundException | SQLException ex) {
                 log.error(ex.getMessage(), ex);
             }
@@ -71,36 +95,106 @@ public class SQLiteDatabase {
     }
 
     /**
-     * Gets the connection to the SQLite database.
+     * Checks if the SQLite database is opened.
      *
-     * @return the connection to the SQLite database
+     * @return true if the SQLite database is opened, false otherwise
      */
-    public Connection getConnection() {
-        return connection;
+    public boolean isOpened() {
+        return connectionManager != null && !connectionManager.isClosed();
     }
 
     /**
-     * Creates a SQL statement.
+     * Executes a read work on a read-only connection.
      *
-     * @return a SQL statement
+     * @param work the work to execute
+     * @param <T> the type of the result of the work
+     *
+     * @return the result of the work
      *
      * @throws SQLException an exception thrown if a SQL problem occurs
+     *
+     * @see SQLiteConnectionManager#read(SQLiteWork)
      */
-    public Statement createStatement() throws SQLException {
-        return connection.createStatement();
+    public <T> T read(SQLiteWork<T> work) throws SQLException {
+        return getConnectionManager().read(work);
     }
 
     /**
-     * Creates a prepared SQL statement.
+     * Executes a write work on the writer connection.
      *
-     * @param sql the SQL instructions
+     * @param work the work to execute
+     * @param <T> the type of the result of the work
      *
-     * @return a prepared SQL statement
+     * @return the result of the work
      *
      * @throws SQLException an exception thrown if a SQL problem occurs
+     *
+     * @see SQLiteConnectionManager#write(SQLiteWork)
      */
-    public PreparedStatement createPreparedStatement(String sql) throws SQLException {
-        return connection.prepareStatement(sql);
+    public <T> T write(SQLiteWork<T> work) throws SQLException {
+        return getConnectionManager().write(work);
+    }
+
+    /**
+     * Submits a write work to the writer connection without waiting for its result.
+     *
+     * @param work the work to execute
+     * @param <T> the type of the result of the work
+     *
+     * @return the future result of the work
+     *
+     * @throws SQLException an exception thrown if the SQLite database is not opened
+     *
+     * @see SQLiteConnectionManager#submitWrite(SQLiteWork)
+     */
+    public <T> Future<T> submitWrite(SQLiteWork<T> work) throws SQLException {
+        return getConnectionManager().submitWrite(work);
+    }
+
+    /**
+     * Gets the version of the data, which changes each time changes are committed to the SQLite database.
+     *
+     * @return the version of the data
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     *
+     * @see SQLiteConnectionManager#getDataVersion()
+     */
+    public long getDataVersion() throws SQLException {
+        return getConnectionManager().getDataVersion();
+    }
+
+    /**
+     * Gets the hit rate of the prepared statement caches of the SQLite database.
+     *
+     * @return the hit rate (between 0 and 1) of the prepared statement caches
+     *
+     * @throws SQLException an exception thrown if the SQLite database is not opened
+     */
+    public double getStatementCacheHitRate() throws SQLException {
+        return getConnectionManager().getStatementCacheHitRate();
+    }
+
+    /**
+     * Gets the number of statement borrowings served by the prepared statement caches of the SQLite database.
+     *
+     * @return the number of statement borrowings served by the caches
+     *
+     * @throws SQLException an exception thrown if the SQLite database is not opened
+     */
+    public long getStatementCacheHits() throws SQLException {
+        return getConnectionManager().getStatementCacheHits();
+    }
+
+    /**
+     * Gets the number of statement borrowings which required to prepare a statement.
+     *
+     * @return the number of statement borrowings which required to prepare a statement
+     *
+     * @throws SQLException an exception thrown if the SQLite database is not opened
+     */
+    public long getStatementCacheMisses() throws SQLException {
+        return getConnectionManager().getStatementCacheMisses();
     }
 
     /**
@@ -109,7 +203,10 @@ public class SQLiteDatabase {
      * @throws SQLException an exception thrown if a SQL problem occurs
      */
     public void commit() throws SQLException {
-        connection.commit();
+        write(connection -> {
+            connection.commit();
+            return null;
+        });
     }
 
     /**
@@ -118,7 +215,10 @@ public class SQLiteDatabase {
      * @throws SQLException an exception thrown if a SQL problem occurs
      */
     public void rollback() throws SQLException {
-        connection.rollback();
+        write(connection -> {
+            connection.rollback();
+            return null;
+        });
     }
 
     /**
@@ -127,8 +227,22 @@ public class SQLiteDatabase {
      * @throws SQLException an exception thrown if a SQL problem occurs
      */
     public void close() throws SQLException {
-        if (connection != null && !connection.isClosed())
-            connection.close();
+        if (isOpened())
+            connectionManager.close();
+    }
+
+    /**
+     * Gets the connection manager of the SQLite database.
+     *
+     * @return the connection manager of the SQLite database
+     *
+     * @throws SQLException an exception thrown if the SQLite database is not opened
+     */
+    private SQLiteConnectionManager getConnectionManager() throws SQLException {
+        if (!isOpened())
+            throw new SQLException("The SQLite database '" + filePath + "' is not opened");
+
+        return connectionManager;
     }
 
     @Override
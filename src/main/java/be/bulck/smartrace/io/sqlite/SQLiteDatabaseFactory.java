@@ -42,11 +42,21 @@ public class SQLiteDatabaseFactory {
      * @param filePath the file path used to build a new SQLite database instance
      */
     public static void loadNewDatabase(String filePath) {
+        loadNewDatabase(filePath, SQLiteBusyPolicy.DEFAULT);
+    }
+
+    /**
+     * Loads a new SQLite database.
+     *
+     * @param filePath the file path used to build a new SQLite database instance
+     * @param busyPolicy the policy when the database is locked by another process (another station)
+     */
+    public static void loadNewDatabase(String filePath, SQLiteBusyPolicy busyPolicy) {
         try {
-            if (database != null && database.getConnection() != null && !database.getConnection().isClosed())
+            if (database != null && database.isOpened())
                 database.close();
 
-            database = new SQLiteDatabase(filePath);
+            database = new SQLiteDatabase(filePath, SQLiteConnectionManager.DEFAULT_READER_COUNT, busyPolicy);
         } catch (SQLException ex) {
             log.error(ex.getMessage(), ex);
         }
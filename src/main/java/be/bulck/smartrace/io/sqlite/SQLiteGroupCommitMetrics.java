@@ -0,0 +1,149 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.io.sqlite;
+
+/**
+ * A class representing the metrics of a group committer: how many operations each flush carried and how long each flush
+ * took. The flush latency is measured from the oldest pending operation of the batch to the end of its commit, so it is
+ * the longest time an operation waited to become durable.
+ *
+ * The metrics are recorded by the writer thread and may be read from any thread.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see SQLiteGroupCommitter
+ */
+public class SQLiteGroupCommitMetrics {
+
+    /** The number of flushes. */
+    private long flushCount;
+
+    /** The number of operations flushed. */
+    private long operationCount;
+
+    /** The number of operations of the biggest flush. */
+    private int maxBatchSize;
+
+    /** The number of operations of the last flush. */
+    private int lastBatchSize;
+
+    /** The cumulated latency of the flushes (in nanoseconds). */
+    private long totalLatency;
+
+    /** The latency of the slowest flush (in nanoseconds). */
+    private long maxLatency;
+
+    /** The latency of the last flush (in nanoseconds). */
+    private long lastLatency;
+
+
+    /**
+     * Records a flush.
+     *
+     * @param batchSize the number of operations flushed
+     * @param latency the latency of the flush (in nanoseconds)
+     */
+    synchronized void record(int batchSize, long latency) {
+        flushCount++;
+        operationCount += batchSize;
+        maxBatchSize = Math.max(maxBatchSize, batchSize);
+        lastBatchSize = batchSize;
+        totalLatency += latency;
+        maxLatency = Math.max(maxLatency, latency);
+        lastLatency = latency;
+    }
+
+    /**
+     * Gets the number of flushes.
+     *
+     * @return the number of flushes
+     */
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Gets the number of operations flushed.
+     *
+     * @return the number of operations flushed
+     */
+    public synchronized long getOperationCount() {
+        return operationCount;
+    }
+
+    /**
+     * Gets the average number of operations per flush.
+     *
+     * @return the average number of operations per flush
+     */
+    public synchronized double getAverageBatchSize() {
+        return flushCount == 0 ? 0 : (double) operationCount / flushCount;
+    }
+
+    /**
+     * Gets the number of operations of the biggest flush.
+     *
+     * @return the number of operations of the biggest flush
+     */
+    public synchronized int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Gets the number of operations of the last flush.
+     *
+     * @return the number of operations of the last flush
+     */
+    public synchronized int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    /**
+     * Gets the average latency of the flushes.
+     *
+     * @return the average latency of the flushes (in milliseconds)
+     */
+    public synchronized double getAverageLatency() {
+        return flushCount == 0 ? 0 : totalLatency / 1e6 / flushCount;
+    }
+
+    /**
+     * Gets the latency of the slowest flush.
+     *
+     * @return the latency of the slowest flush (in milliseconds)
+     */
+    public synchronized double getMaxLatency() {
+        return maxLatency / 1e6;
+    }
+
+    /**
+     * Gets the latency of the last flush.
+     *
+     * @return the latency of the last flush (in milliseconds)
+     */
+    public synchronized double getLastLatency() {
+        return lastLatency / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d flushes, %d operations (avg batch %.1f, max %d), latency avg %.2f ms, max %.2f ms",
+                flushCount, operationCount, getAverageBatchSize(), maxBatchSize, getAverageLatency(), getMaxLatency());
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.io.sqlite;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class representing a write-behind committer of a SQLite database. The mutations are executed on the writer
+ * connection as usual, but instead of committing each of them, the callers enqueue an operation and the committer
+ * commits all the pending operations at once, every flush interval or as soon as the maximum number of pending
+ * operations is reached, whichever comes first.
+ *
+ * Each operation gets a future completed once its changes are committed, so the callers which need durability can wait
+ * on it while the others go on. The commits are executed on the writer thread, after the mutations already submitted.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see SQLiteGroupCommitMetrics
+ */
+public class SQLiteGroupCommitter {
+
+    /** The default flush interval (in milliseconds). */
+    public static final long DEFAULT_FLUSH_INTERVAL = 50;
+
+    /** The default maximum number of pending operations. */
+    public static final int DEFAULT_MAX_OPERATIONS = 100;
+
+    /** The SQLite database. */
+    private final SQLiteDatabase database;
+
+    /** The maximum number of pending operations before a flush. */
+    private final int maxOperations;
+
+    /** The work executed in the transaction right before each commit (may be null). */
+    private final SQLiteWork<?> beforeCommit;
+
+    /** The lock guarding the pending operations. */
+    private final Object lock = new Object();
+
+    /** The pending operations. */
+    private List<CompletableFuture<Void>> pendingOperations = new ArrayList<>();
+
+    /** The time (in nanoseconds) at which the oldest pending operation was enqueued. */
+    private long oldestPendingTime;
+
+    /** Whether a flush of the pending operations is already submitted. */
+    private boolean flushSubmitted;
+
+    /** Whether the committer is closed. */
+    private boolean closed;
+
+    /** The scheduler of the periodic flushes. */
+    private final ScheduledExecutorService scheduler;
+
+    /** The metrics of the flushes. */
+    private final SQLiteGroupCommitMetrics metrics = new SQLiteGroupCommitMetrics();
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(SQLiteGroupCommitter.class);
+
+
+    /**
+     * Constructs an instance of SQLite group committer.
+     *
+     * @param database the SQLite database
+     * @param flushInterval the flush interval (in milliseconds)
+     * @param maxOperations the maximum number of pending operations before a flush
+     * @param beforeCommit the work executed in the transaction right before each commit (may be null)
+     */
+    public SQLiteGroupCommitter(SQLiteDatabase database, long flushInterval, int maxOperations, SQLiteWork<?> beforeCommit) {
+        if (flushInterval <= 0 || maxOperations <= 0)
+            throw new IllegalArgumentException("The flush interval and the maximum number of operations must be positive");
+
+        this.database = database;
+        this.maxOperations = maxOperations;
+        this.beforeCommit = beforeCommit;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sqlite-group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushIfPending, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Enqueues an operation. The changes of the operation must already be executed on the writer connection.
+     *
+     * @return a future completed once the changes of the operation are committed
+     */
+    public CompletableFuture<Void> enqueue() {
+        CompletableFuture<Void> operation = new CompletableFuture<>();
+        boolean full;
+
+        synchronized (lock) {
+            if (closed) {
+                operation.completeExceptionally(new IllegalStateException("The group committer is closed"));
+                return operation;
+            }
+
+            if (pendingOperations.isEmpty())
+                oldestPendingTime = System.nanoTime();
+
+            pendingOperations.add(operation);
+            full = pendingOperations.size() >= maxOperations && !flushSubmitted;
+
+            if (full)
+                flushSubmitted = true;
+        }
+
+        if (full)
+            submitFlush();
+
+        return operation;
+    }
+
+    /**
+     * Flushes the pending operations without waiting for the flush interval.
+     *
+     * @return a future completed once the operations pending at the call are committed
+     */
+    public CompletableFuture<Void> flush() {
+        synchronized (lock) {
+            flushSubmitted = true;
+        }
+
+        return submitFlush();
+    }
+
+    /**
+     * Gets the metrics of the flushes.
+     *
+     * @return the metrics of the flushes
+     */
+    public SQLiteGroupCommitMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Closes the committer. The periodic flushes are stopped and the pending operations are committed.
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public void close() throws SQLException {
+        synchronized (lock) {
+            if (closed)
+                return;
+
+            closed = true;
+        }
+
+        scheduler.shutdownNow();
+        database.write(connection -> {
+            flushPending(connection);
+            return null;
+        });
+
+        log.debug("Group commit closed: " + metrics);
+    }
+
+    /**
+     * Submits a flush if operations are pending and no flush is submitted yet. Called by the scheduler.
+     */
+    private void flushIfPending() {
+        synchronized (lock) {
+            if (pendingOperations.isEmpty() || flushSubmitted)
+                return;
+
+            flushSubmitted = true;
+        }
+
+        submitFlush();
+    }
+
+    /**
+     * Submits a flush of the pending operations to the writer thread.
+     *
+     * @return a future completed once the flush is executed
+     */
+    private CompletableFuture<Void> submitFlush() {
+        CompletableFuture<Void> flush = new CompletableFuture<>();
+
+        try {
+            database.submitWrite(connection -> {
+                try {
+                    flushPending(connection);
+                    flush.complete(null);
+                } catch (SQLException ex) {
+                    flush.completeExceptionally(ex);
+                }
+
+                return null;
+            });
+        } catch (SQLException | RejectedExecutionException ex) {
+            log.error(ex.getMessage(), ex);
+            failPending(ex);
+            flush.completeExceptionally(ex);
+        }
+
+        return flush;
+    }
+
+    /**
+     * Commits the pending operations. Must be called on the writer thread.
+     *
+     * @param connection the writer connection
+     *
+     * @throws SQLException an exception thrown if the commit fails
+     */
+    private void flushPending(SQLiteConnection connection) throws SQLException {
+        List<CompletableFuture<Void>> operations;
+        long since;
+
+        synchronized (lock) {
+            operations = pendingOperations;
+            since = oldestPendingTime;
+            pendingOperations = new ArrayList<>();
+            flushSubmitted = false;
+        }
+
+        if (operations.isEmpty())
+            return;
+
+        if (beforeCommit != null) {
+            try {
+                beforeCommit.execute(connection);
+            } catch (SQLException ex) {
+                log.error(ex.getMessage(), ex);
+            }
+        }
+
+        try {
+            connection.commit();
+        } catch (SQLException ex) {
+            log.error(ex.getMessage(), ex);
+            operations.forEach(operation -> operation.completeExceptionally(ex));
+            throw ex;
+        }
+
+        metrics.record(operations.size(), System.nanoTime() - since);
+        operations.forEach(operation -> operation.complete(null));
+    }
+
+    /**
+     * Fails the pending operations.
+     *
+     * @param cause the cause of the failure
+     */
+    private void failPending(Throwable cause) {
+        List<CompletableFuture<Void>> operations;
+
+        synchronized (lock) {
+            operations = pendingOperations;
+            pendingOperations = new ArrayList<>();
+            flushSubmitted = false;
+        }
+
+        operations.forEach(operation -> operation.completeExceptionally(cause));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.io.sqlite;
+
+import java.sql.SQLException;
+
+/**
+ * An interface representing a migration of the schema of a SQLite database, from the previous version to its version.
+ * The versions are recorded in the user version of the database.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see SQLiteMigrationRunner
+ */
+public interface SQLiteMigration {
+
+    /**
+     * Gets the version of the schema after the migration.
+     *
+     * @return the version of the schema after the migration
+     */
+    int getVersion();
+
+    /**
+     * Gets the description of the migration.
+     *
+     * @return the description of the migration
+     */
+    String getDescription();
+
+    /**
+     * Migrates the schema. The migration is executed in a transaction, with the foreign keys disabled.
+     *
+     * @param connection the writer connection
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    void migrate(SQLiteConnection connection) throws SQLException;
+}
@@ -0,0 +1,148 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.io.sqlite;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A class representing a runner of the migrations of the schema of a SQLite database. The version of the schema is
+ * recorded in the user version of the database (0 for a database which was never migrated), and the migrations with
+ * a greater version are applied in order.
+ *
+ * Each migration is applied atomically with the update of the user version. The foreign keys are disabled during the
+ * migrations, so the tables can be rebuilt without triggering their cascades.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see SQLiteMigration
+ */
+public class SQLiteMigrationRunner {
+
+    /** The migrations, in version order. */
+    private final List<SQLiteMigration> migrations;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(SQLiteMigrationRunner.class);
+
+
+    /**
+     * Constructs an instance of SQLite migration runner.
+     *
+     * @param migrations the migrations
+     */
+    public SQLiteMigrationRunner(SQLiteMigration... migrations) {
+        this.migrations = new ArrayList<>(Arrays.asList(migrations));
+        this.migrations.sort(Comparator.comparingInt(SQLiteMigration::getVersion));
+    }
+
+    /**
+     * Gets the version of the schema after all the migrations.
+     *
+     * @return the latest version of the schema
+     */
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    /**
+     * Migrates the schema of a SQLite database to the latest version. The pending changes of the writer connection are
+     * committed first if a migration is applied.
+     *
+     * @param database the SQLite database
+     *
+     * @return the version of the schema after the migrations
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public int migrate(SQLiteDatabase database) throws SQLException {
+        return database.write(connection -> {
+            int version = getVersion(connection);
+
+            if (version > getLatestVersion()) {
+                log.warn("The schema version " + version + " is newer than the latest known (" + getLatestVersion() + ")");
+                return version;
+            }
+
+            if (version == getLatestVersion())
+                return version;
+
+            connection.executePragma("foreign_keys = OFF");
+
+            try {
+                for (SQLiteMigration migration : migrations) {
+                    if (migration.getVersion() <= version)
+                        continue;
+
+                    connection.executeAtomically(atomicConnection -> {
+                        migration.migrate(atomicConnection);
+                        setVersion(atomicConnection, migration.getVersion());
+
+                        return null;
+                    });
+
+                    connection.commit();
+                    version = migration.getVersion();
+                    log.info("Schema migrated to version " + version + " (" + migration.getDescription() + ")");
+                }
+            } finally {
+                connection.executePragma("foreign_keys = ON");
+            }
+
+            return version;
+        });
+    }
+
+    /**
+     * Gets the version of the schema of a SQLite database.
+     *
+     * @param connection the connection
+     *
+     * @return the version of the schema
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private int getVersion(SQLiteConnection connection) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet row = statement.executeQuery("PRAGMA user_version")) {
+            return row.next() ? row.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Sets the version of the schema of a SQLite database, in the current transaction.
+     *
+     * @param connection the connection
+     * @param version the new version of the schema
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private void setVersion(SQLiteConnection connection, int version) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA user_version = " + version);
+        }
+    }
+}
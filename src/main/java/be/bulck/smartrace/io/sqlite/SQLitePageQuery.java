@@ -0,0 +1,48 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.sqlite;
+
+/**
+ * A class building the queries of the pages of a keyset pagination. Instead of skipping the rows of the previous pages
+ * with an OFFSET, which reads and drops all of them, a page seeks the index of the sort key right after the key of the
+ * last row of the previous page. The cost of a page doesn't depend on its position.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SQLitePageQuery {
+
+    /**
+     * Builds the query of a page. Its parameters are the key of the last row of the previous page (if any), then the
+     * maximum number of rows of the page.
+     *
+     * @param selectQuery the query selecting the rows, without condition nor order
+     * @param keyColumn the column of the sort key, which must be unique and indexed
+     * @param after true if the page follows another page, false for the first page
+     * @param descending true to sort the rows by decreasing key, false by increasing key
+     *
+     * @return the query of the page
+     */
+    public static String build(String selectQuery, String keyColumn, boolean after, boolean descending) {
+        StringBuilder query = new StringBuilder(selectQuery);
+
+        if (after)
+            query.append(" WHERE ").append(keyColumn).append(descending ? " < ?" : " > ?");
+
+        return query.append(" ORDER BY ").append(keyColumn).append(descending ? " DESC" : " ASC").append(" LIMIT ?").toString();
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.io.sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * An interface representing a binder of the parameters of a prepared statement from an object.
+ *
+ * @param <T> the type of the object bound
+ *
+ * @author Fabien Vanden Bulck
+ */
+@FunctionalInterface
+public interface SQLiteParameterBinder<T> {
+
+    /**
+     * Binds the parameters of the statement from the object provided.
+     *
+     * @param statement the prepared statement
+     * @param object the object to bind
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    void bind(PreparedStatement statement, T object) throws SQLException;
+}
@@ -0,0 +1,50 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.sqlite;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * An interface representing a mapper creating and hydrating an object from the current row of a result set. A mapper is
+ * created for a result set, so it can resolve the indexes of its columns once instead of looking them up by name on
+ * each row.
+ *
+ * The driver closes at once a result set without rows, whose columns can't be resolved anymore, so a mapper must only
+ * be created for an open result set.
+ *
+ * @param <T> the type of the objects mapped
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see SQLiteParameterBinder
+ */
+@FunctionalInterface
+public interface SQLiteRowMapper<T> {
+
+    /**
+     * Creates and hydrates an object from the current row of the result set.
+     *
+     * @param resultSet the result set
+     *
+     * @return the object hydrated
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    T map(ResultSet resultSet) throws SQLException;
+}
@@ -21,12 +21,16 @@ package be.bulck.smartrace.io.sqlite;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.sql.Statement;
 
 /**
- * An class representing a SQLite script loader.
+ * An class representing a SQLite script loader. The scripts are read from the classpath, so they are found in the jar
+ * of the application too, and streamed statement by statement through a {@link SQLiteScriptTokenizer}.
  *
  * @author Fabien Vanden Bulck
  */
@@ -36,53 +40,52 @@ public class SQLiteScriptLoader {
     private static final Logger log = LoggerFactory.getLogger(SQLiteScriptLoader.class);
 
     /**
-     * Gets SQL queries from a SQL file.
+     * Executes the SQL statements of a script of the classpath.
      *
-     * @param filePath the file path of the SQL file
+     * @param database the SQL database where the SQL statements must be executed
+     * @param resourcePath the path of the script in the classpath (for instance "/sqlite/init-database.sql")
      *
-     * @return an array of SQL queries
+     * @return the number of statements executed
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs or if the script can't be read
      */
-    public static String[] getSQLQueriesFromFile(String filePath) {
-        try {
-            FileReader fileReader = new FileReader(new File(filePath));
-            BufferedReader bufferedReader = new BufferedReader(fileReader);
-            StringBuilder stringBuilder = new StringBuilder();
-            String buffer;
-
-            while ((buffer = bufferedReader.readLine()) != null) {
-                if (buffer.length() == 0 || buffer.startsWith("--"))
-                    continue;
-
-                stringBuilder.append(buffer);
-            }
-
-            bufferedReader.close();
-            fileReader.close();
-
-            return stringBuilder.toString().split(";");
-        } catch (IOException ex) {
-            log.error(ex.getMessage(), ex);
-        }
-
-        return new String[0];
+    public static int executeSQLFromResource(SQLiteDatabase database, String resourcePath) throws SQLException {
+        return database.write(connection -> executeSQLFromResource(connection, resourcePath));
     }
 
     /**
-     * Executes SQL queries from a SQL file.
+     * Executes the SQL statements of a script of the classpath on a connection, as a single batch in its current
+     * transaction.
+     *
+     * @param connection the connection where the SQL statements must be executed
+     * @param resourcePath the path of the script in the classpath (for instance "/sqlite/init-database.sql")
      *
-     * @param database the SQL database where the SQL queries must be executed
-     * @param filePath the file path of the SQL file
+     * @return the number of statements executed
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs or if the script can't be read
      */
-    public static void executeSQLFromFile(SQLiteDatabase database, String filePath) {
-        String[] queries = getSQLQueriesFromFile(filePath);
+    public static int executeSQLFromResource(SQLiteConnection connection, String resourcePath) throws SQLException {
+        InputStream script = SQLiteScriptLoader.class.getResourceAsStream(resourcePath);
+
+        if (script == null)
+            throw new SQLException("The SQL script '" + resourcePath + "' doesn't exist");
 
-        try {
-            Statement statement = database.createStatement();
+        try (SQLiteScriptTokenizer tokenizer = new SQLiteScriptTokenizer(new InputStreamReader(script, StandardCharsets.UTF_8));
+             Statement statement = connection.createStatement()) {
+            int count = 0;
+            String query;
 
-            for (String query : queries)
-                statement.execute(query);
-        } catch (SQLException ex) {
-            log.error(ex.getMessage(), ex);
+            while ((query = tokenizer.nextStatement()) != null) {
+                statement.addBatch(query);
+                count++;
+            }
+
+            statement.executeBatch();
+            log.debug(count + " statements executed from the SQL script '" + resourcePath + "'");
+
+            return count;
+        } catch (IOException ex) {
+            throw new SQLException("The SQL script '" + resourcePath + "' can't be read", ex);
         }
     }
 }
@@ -0,0 +1,63 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.io.sqlite;
+
+import java.sql.SQLException;
+
+/**
+ * A class representing a migration of the schema of a SQLite database executing a SQL script. The scripts are named
+ * after their version, like "/sqlite/migration/001-description.sql".
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SQLiteScriptMigration implements SQLiteMigration {
+
+    /** The version of the schema after the migration. */
+    private final int version;
+
+    /** The path of the SQL script of the migration, in the classpath. */
+    private final String scriptPath;
+
+
+    /**
+     * Constructs an instance of SQLite script migration.
+     *
+     * @param version the version of the schema after the migration
+     * @param scriptPath the path of the SQL script of the migration, in the classpath
+     */
+    public SQLiteScriptMigration(int version, String scriptPath) {
+        this.version = version;
+        this.scriptPath = scriptPath;
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return scriptPath.substring(scriptPath.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public void migrate(SQLiteConnection connection) throws SQLException {
+        SQLiteScriptLoader.executeSQLFromResource(connection, scriptPath);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.io.sqlite;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+
+/**
+ * A class representing a tokenizer splitting a SQL script into statements, while it is read. The comments ("--" and
+ * "/* ... *&#47;") are removed, and the semicolons only end a statement outside of the quoted strings and identifiers,
+ * and outside of the BEGIN ... END body of a trigger (CASE ... END expressions included).
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SQLiteScriptTokenizer implements Closeable {
+
+    /** The reader of the SQL script. */
+    private final PushbackReader reader;
+
+    /** The statement being read. */
+    private final StringBuilder statement = new StringBuilder();
+
+    /** The word being read. */
+    private final StringBuilder word = new StringBuilder();
+
+    /** The number of words read in the statement. */
+    private int wordCount;
+
+    /** Whether the statement being read creates a trigger. */
+    private boolean trigger;
+
+    /** Whether the first word of the statement being read is CREATE. */
+    private boolean creation;
+
+    /** The depth of the BEGIN ... END and CASE ... END blocks opened in the statement being read. */
+    private int depth;
+
+
+    /**
+     * Constructs an instance of SQLite script tokenizer.
+     *
+     * @param reader the reader of the SQL script
+     */
+    public SQLiteScriptTokenizer(Reader reader) {
+        this.reader = new PushbackReader(reader, 1);
+    }
+
+    /**
+     * Reads the next statement of the SQL script.
+     *
+     * @return the next statement, without its final semicolon, or null if the end of the script is reached
+     *
+     * @throws IOException an exception thrown if the SQL script can't be read
+     */
+    public String nextStatement() throws IOException {
+        int character;
+
+        while ((character = reader.read()) != -1) {
+            char current = (char) character;
+
+            if (current == '-' && nextIs('-')) {
+                endWord();
+                skipLineComment();
+                statement.append(' ');
+            }
+
+            else if (current == '/' && nextIs('*')) {
+                endWord();
+                skipBlockComment();
+                statement.append(' ');
+            }
+
+            else if (current == '\'' || current == '"' || current == '`' || current == '[') {
+                endWord();
+                readQuoted(current, current == '[' ? ']' : current);
+            }
+
+            else if (Character.isLetterOrDigit(current) || current == '_') {
+                word.append(current);
+                statement.append(current);
+            }
+
+            else {
+                endWord();
+
+                if (current == ';' && depth == 0) {
+                    String completed = completeStatement();
+
+                    if (completed != null)
+                        return completed;
+                }
+
+                else
+                    statement.append(current);
+            }
+        }
+
+        endWord();
+        return completeStatement();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Checks if the next character is the one provided, and consumes it if so.
+     *
+     * @param expected the character expected
+     *
+     * @return true if the next character is the one expected, false otherwise
+     *
+     * @throws IOException an exception thrown if the SQL script can't be read
+     */
+    private boolean nextIs(char expected) throws IOException {
+        int next = reader.read();
+
+        if (next == expected)
+            return true;
+
+        if (next != -1)
+            reader.unread(next);
+
+        return false;
+    }
+
+    /**
+     * Skips a line comment, up to the end of the line.
+     *
+     * @throws IOException an exception thrown if the SQL script can't be read
+     */
+    private void skipLineComment() throws IOException {
+        int character;
+
+        do {
+            character = reader.read();
+        } while (character != -1 && character != '\n');
+    }
+
+    /**
+     * Skips a block comment, up to its closing characters.
+     *
+     * @throws IOException an exception thrown if the SQL script can't be read
+     */
+    private void skipBlockComment() throws IOException {
+        int character;
+
+        while ((character = reader.read()) != -1) {
+            if (character == '*' && nextIs('/'))
+                return;
+        }
+    }
+
+    /**
+     * Reads a quoted string or identifier, up to its closing quote. A doubled quote is an escaped quote.
+     *
+     * @param opening the opening quote
+     * @param closing the closing quote
+     *
+     * @throws IOException an exception thrown if the SQL script can't be read
+     */
+    private void readQuoted(char opening, char closing) throws IOException {
+        int character;
+        statement.append(opening);
+
+        while ((character = reader.read()) != -1) {
+            statement.append((char) character);
+
+            if (character == closing) {
+                if (opening == closing && nextIs(closing))
+                    statement.append(closing);
+
+                else
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Ends the word being read, and follows the blocks opened and closed by the keywords.
+     */
+    private void endWord() {
+        if (word.length() == 0)
+            return;
+
+        String keyword = word.toString().toUpperCase();
+        word.setLength(0);
+        wordCount++;
+
+        if (wordCount == 1)
+            creation = keyword.equals("CREATE");
+
+        else if (creation && wordCount <= 3 && keyword.equals("TRIGGER"))
+            trigger = true;
+
+        if ((trigger && keyword.equals("BEGIN")) || keyword.equals("CASE"))
+            depth++;
+
+        else if (keyword.equals("END") && depth > 0)
+            depth--;
+    }
+
+    /**
+     * Completes the statement being read, and prepares the reading of the next one.
+     *
+     * @return the statement completed, or null if it is empty
+     */
+    private String completeStatement() {
+        String completed = statement.toString().trim();
+
+        statement.setLength(0);
+        wordCount = 0;
+        trigger = false;
+        creation = false;
+        depth = 0;
+
+        return completed.isEmpty() ? null : completed;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.io.sqlite;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class representing a bounded cache of prepared statements for one connection, keyed by SQL text. The statements are
+ * borrowed and returned instead of being prepared and closed, so SQLite parses and plans each query only once. The
+ * least recently used statements are closed when the cache is full.
+ *
+ * A connection is only used by one thread at a time, so the cache itself is not synchronized. Only its counters may be
+ * read from other threads.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SQLiteStatementCache {
+
+    /** The default maximum number of statements cached. */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    /** The JDBC connection. */
+    private final Connection connection;
+
+    /** The maximum number of statements cached. */
+    private final int capacity;
+
+    /** The idle statements, by SQL text, from the least to the most recently used. */
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    /** The number of borrowings served by the cache. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** The number of borrowings which required to prepare a statement. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /** The number of statements closed to free some space. */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(SQLiteStatementCache.class);
+
+
+    /**
+     * Constructs an instance of statement cache.
+     *
+     * @param connection the JDBC connection
+     * @param capacity the maximum number of statements cached
+     */
+    public SQLiteStatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<>(16, 0.75F, true);
+    }
+
+    /**
+     * Borrows a prepared statement for the SQL instructions provided. It must be returned once used.
+     *
+     * @param sql the SQL instructions
+     *
+     * @return a prepared statement
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     *
+     * @see #giveBack(String, PreparedStatement)
+     */
+    public PreparedStatement borrow(String sql) throws SQLException {
+        PreparedStatement statement = statements.remove(sql);
+
+        if (statement != null) {
+            hits.incrementAndGet();
+            return statement;
+        }
+
+        misses.incrementAndGet();
+        return connection.prepareStatement(sql);
+    }
+
+    /**
+     * Gives back a prepared statement borrowed. Its parameters are cleared and it is kept for the next borrowing of the
+     * same SQL instructions.
+     *
+     * @param sql the SQL instructions of the statement
+     * @param statement the statement borrowed
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public void giveBack(String sql, PreparedStatement statement) throws SQLException {
+        if (statement.isClosed())
+            return;
+
+        // The same query borrowed twice at once: the second statement is not kept
+        if (statements.containsKey(sql)) {
+            statement.close();
+            return;
+        }
+
+        // The driver finalizes a statement whose execution failed (a constraint violation for instance), without marking
+        // it as closed: such a statement is not kept
+        try {
+            statement.clearParameters();
+        } catch (SQLException ex) {
+            log.debug("Statement not kept in the cache: " + ex.getMessage());
+            statement.close();
+            return;
+        }
+
+        statements.put(sql, statement);
+
+        if (statements.size() > capacity) {
+            Iterator<Map.Entry<String, PreparedStatement>> eldest = statements.entrySet().iterator();
+            eldest.next().getValue().close();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of borrowings served by the cache.
+     *
+     * @return the number of borrowings served by the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of borrowings which required to prepare a statement.
+     *
+     * @return the number of borrowings which required to prepare a statement
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of statements closed to free some space.
+     *
+     * @return the number of statements closed to free some space
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Closes all the statements cached.
+     */
+    public void clear() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException ex) {
+                log.warn(ex.getMessage(), ex);
+            }
+        }
+
+        statements.clear();
+    }
+}
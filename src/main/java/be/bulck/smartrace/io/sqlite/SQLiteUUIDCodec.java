@@ -0,0 +1,171 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.sqlite;
+
+import org.sqlite.Function;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * A class representing the codec of the UUIDs stored in the SQLite databases. A UUID is stored as a 16-byte BLOB (its
+ * most significant bits, then its least significant bits, in big-endian order) instead of its 36-character string, so
+ * the keys take less than half of the space in the pages and in the B-trees, and are decoded without parsing. The BLOBs
+ * are compared byte per byte, so they are sorted as the strings of the UUIDs.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SQLiteUUIDCodec {
+
+    /** The size of an encoded UUID (in bytes). */
+    public static final int UUID_SIZE = 16;
+
+    /** The name of the SQL function converting the string of a UUID into its BLOB. */
+    public static final String BLOB_FUNCTION = "uuid_blob";
+
+
+    /**
+     * Encodes a UUID into a BLOB.
+     *
+     * @param uuid the UUID to encode
+     *
+     * @return the BLOB of the UUID
+     */
+    public static byte[] encode(UUID uuid) {
+        return ByteBuffer.allocate(UUID_SIZE)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * Decodes a UUID from a BLOB.
+     *
+     * @param bytes the BLOB of the UUID
+     *
+     * @return the UUID decoded, or null if the BLOB is null
+     *
+     * @throws SQLException an exception thrown if the BLOB isn't a UUID
+     */
+    public static UUID decode(byte[] bytes) throws SQLException {
+        if (bytes == null)
+            return null;
+
+        if (bytes.length != UUID_SIZE)
+            throw new SQLException("A UUID of " + bytes.length + " bytes can't be decoded");
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Sets a UUID as a parameter of a prepared statement.
+     *
+     * @param statement the prepared statement
+     * @param index the index of the parameter
+     * @param uuid the UUID (may be null)
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public static void setUUID(PreparedStatement statement, int index, UUID uuid) throws SQLException {
+        if (uuid != null)
+            statement.setBytes(index, encode(uuid));
+
+        else
+            statement.setNull(index, Types.BLOB);
+    }
+
+    /**
+     * Gets a UUID from a column of a result set.
+     *
+     * @param resultSet the result set
+     * @param column the name of the column
+     *
+     * @return the UUID, or null if the column is null
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public static UUID getUUID(ResultSet resultSet, String column) throws SQLException {
+        return decode(resultSet.getBytes(column));
+    }
+
+    /**
+     * Gets a UUID from a column of a result set.
+     *
+     * @param resultSet the result set
+     * @param columnIndex the index of the column
+     *
+     * @return the UUID, or null if the column is null
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    public static UUID getUUID(ResultSet resultSet, int columnIndex) throws SQLException {
+        return decode(resultSet.getBytes(columnIndex));
+    }
+
+    /**
+     * Registers the SQL function converting the string of a UUID into its BLOB on a connection, to migrate the existing
+     * keys.
+     *
+     * @param connection the JDBC connection
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     *
+     * @see #BLOB_FUNCTION
+     */
+    public static void registerBlobFunction(Connection connection) throws SQLException {
+        Function.create(connection, BLOB_FUNCTION, new Function() {
+            @Override
+            protected void xFunc() throws SQLException {
+                if (args() != 1)
+                    throw new SQLException(BLOB_FUNCTION + "() takes a single argument");
+
+                String uuid = value_text(0);
+
+                if (uuid == null) {
+                    result();
+                    return;
+                }
+
+                try {
+                    result(encode(UUID.fromString(uuid)));
+                } catch (IllegalArgumentException ex) {
+                    throw new SQLException("Invalid UUID: " + uuid, ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * Unregisters the SQL function converting the string of a UUID into its BLOB from a connection.
+     *
+     * @param connection the JDBC connection
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     *
+     * @see #BLOB_FUNCTION
+     */
+    public static void unregisterBlobFunction(Connection connection) throws SQLException {
+        Function.destroy(connection, BLOB_FUNCTION);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.sqlite;
+
+import java.util.Collection;
+
+/**
+ * A class building the queries of the partial updates, which only set the columns changed of a row. The queries of the
+ * same columns are identical, so their statements are shared by the statement cache.
+ *
+ * A versioned update also increments the version of the row, and only updates it if its version is still the one read:
+ * an update count of 0 reveals that the row was changed (or deleted) by another station in the meantime.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SQLiteUpdateQuery {
+
+    /**
+     * Builds the query of a partial update. Its parameters are the values of the columns, in the order provided, then
+     * the key of the row.
+     *
+     * @param table the table of the row
+     * @param columns the columns to set, at least one
+     * @param keyColumn the column of the key of the row
+     *
+     * @return the query of the partial update
+     */
+    public static String build(String table, Collection<String> columns, String keyColumn) {
+        return buildSet(table, columns).append(" WHERE ").append(keyColumn).append(" = ?").toString();
+    }
+
+    /**
+     * Builds the query of a versioned partial update. Its parameters are the values of the columns, in the order
+     * provided, then the key of the row, then the version of the row read.
+     *
+     * @param table the table of the row
+     * @param columns the columns to set, at least one
+     * @param keyColumn the column of the key of the row
+     * @param versionColumn the column of the version of the row
+     *
+     * @return the query of the versioned partial update
+     */
+    public static String build(String table, Collection<String> columns, String keyColumn, String versionColumn) {
+        return buildSet(table, columns).append(", ").append(versionColumn).append(" = ").append(versionColumn)
+                .append(" + 1 WHERE ").append(keyColumn).append(" = ? AND ").append(versionColumn).append(" = ?")
+                .toString();
+    }
+
+    /**
+     * Builds the beginning of the query of a partial update, up to the columns set.
+     *
+     * @param table the table of the row
+     * @param columns the columns to set, at least one
+     *
+     * @return the beginning of the query
+     */
+    private static StringBuilder buildSet(String table, Collection<String> columns) {
+        if (columns.isEmpty())
+            throw new IllegalArgumentException("A partial update must set at least one column");
+
+        StringBuilder query = new StringBuilder("UPDATE ").append(table).append(" SET ");
+        String separator = "";
+
+        for (String column : columns) {
+            query.append(separator).append(column).append(" = ?");
+            separator = ", ";
+        }
+
+        return query;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.model;
+
+import java.lang.reflect.Array;
+import java.util.function.ToIntFunction;
+
+/**
+ * A class representing a lookup of the constants of a model enum by their value, the values being small integers from
+ * the undetermined one (the lowest). The constants are indexed in an array, offset by the undetermined value, so a
+ * value is parsed without searching the constants.
+ *
+ * @param <E> the type of the enum
+ *
+ * @author Fabien Vanden Bulck
+ */
+final class EnumLookup<E extends Enum<E>> {
+
+    /** The constants, indexed by their value offset by the undetermined value (null for the values unused). */
+    private final E[] constants;
+
+    /** The undetermined constant, whose value is the lowest one. */
+    private final E undetermined;
+
+    /** The value of the undetermined constant. */
+    private final int offset;
+
+
+    /**
+     * Constructs an instance of enum lookup.
+     *
+     * @param constants the constants, indexed by their value offset by the undetermined value
+     * @param undetermined the undetermined constant
+     * @param offset the value of the undetermined constant
+     */
+    private EnumLookup(E[] constants, E undetermined, int offset) {
+        this.constants = constants;
+        this.undetermined = undetermined;
+        this.offset = offset;
+    }
+
+    /**
+     * Creates a lookup of the constants of an enum by their value.
+     *
+     * @param values the constants of the enum
+     * @param value the function giving the value of a constant
+     * @param undetermined the undetermined constant, whose value is the lowest one
+     * @param <E> the type of the enum
+     *
+     * @return the lookup of the constants by their value
+     */
+    static <E extends Enum<E>> EnumLookup<E> byValue(E[] values, ToIntFunction<? super E> value, E undetermined) {
+        int offset = value.applyAsInt(undetermined);
+        int max = offset;
+
+        for (E constant : values)
+            max = Math.max(max, value.applyAsInt(constant));
+
+        @SuppressWarnings("unchecked")
+        E[] constants = (E[]) Array.newInstance(undetermined.getDeclaringClass(), max - offset + 1);
+
+        for (E constant : values)
+            constants[value.applyAsInt(constant) - offset] = constant;
+
+        return new EnumLookup<>(constants, undetermined, offset);
+    }
+
+    /**
+     * Parses a value to the constant which has it.
+     *
+     * @param value the value to parse
+     *
+     * @return the constant which has the value, or the undetermined constant if none has it
+     */
+    E parse(int value) {
+        int index = value - offset;
+        return index >= 0 && index < constants.length && constants[index] != null ? constants[index] : undetermined;
+    }
+}
@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.model;
 
+import be.bulck.smartrace.util.uuid.UUIDGenerators;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
@@ -66,16 +67,15 @@ public class Race {
     /** The smart race version used of the race. */
     private StringProperty version;
 
+    /** The version of the row of the race, incremented by each update, to detect the concurrent updates. */
+    private volatile long rowVersion;
+
 
     /**
      * Constructs an instance of race.
      */
     public Race() {
-        uuid = new SimpleObjectProperty<>(UUID.randomUUID());
-        this.name = new SimpleStringProperty();
-        this.location = new SimpleStringProperty();
-        this.distanceUnit = new SimpleObjectProperty<>(RaceDistanceUnit.KM);
-        this.elevationUnit = new SimpleObjectProperty<>(RaceElevationUnit.M);
+        this(UUIDGenerators.generate());
     }
 
     /**
@@ -84,8 +84,11 @@ public class Race {
      * @param uuid the identifier (UUID) of the race
      */
     public Race(UUID uuid) {
-        this();
-        this.uuid.set(uuid);
+        this.uuid = new SimpleObjectProperty<>(uuid);
+        this.name = new SimpleStringProperty();
+        this.location = new SimpleStringProperty();
+        this.distanceUnit = new SimpleObjectProperty<>(RaceDistanceUnit.KM);
+        this.elevationUnit = new SimpleObjectProperty<>(RaceElevationUnit.M);
     }
 
     /**
@@ -412,6 +415,24 @@ public class Race {
         return version;
     }
 
+    /**
+     * Gets the version of the row of the race last read or written.
+     *
+     * @return the version of the row of the race
+     */
+    public long getRowVersion() {
+        return rowVersion;
+    }
+
+    /**
+     * Sets the version of the row of the race last read or written.
+     *
+     * @param rowVersion the new version of the row of the race
+     */
+    public void setRowVersion(long rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
     @Override
     public String toString() {
         return getName() + " @ " + getLocation();
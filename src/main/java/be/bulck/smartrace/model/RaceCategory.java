@@ -18,6 +18,8 @@
 
 package be.bulck.smartrace.model;
 
+import be.bulck.smartrace.model.change.ChangeTracker;
+import be.bulck.smartrace.util.uuid.UUIDGenerators;
 import javafx.beans.property.*;
 
 import java.util.UUID;
@@ -38,14 +40,18 @@ public class RaceCategory implements Comparable<RaceCategory> {
     /** The description of the race category. */
     private StringProperty description;
 
+    /** The tracker of the fields changed since the race category was loaded or saved. */
+    private final ChangeTracker<RaceCategoryField> changeTracker = new ChangeTracker<>(RaceCategoryField.class);
+
+    /** The version of the row of the race category, incremented by each update, to detect the concurrent updates. */
+    private volatile long rowVersion;
+
 
     /**
      * Constructs an instance of race category.
      */
     public RaceCategory() {
-        uuid = new SimpleObjectProperty<>(UUID.randomUUID());
-        name = new SimpleStringProperty();
-        description = new SimpleStringProperty();
+        this(UUIDGenerators.generate());
     }
 
     /**
@@ -54,8 +60,12 @@ public class RaceCategory implements Comparable<RaceCategory> {
      * @param uuid the identifier (UUID) of the race category
      */
     public RaceCategory(UUID uuid) {
-        this();
-        this.uuid.set(uuid);
+        this.uuid = new SimpleObjectProperty<>(uuid);
+        name = new SimpleStringProperty();
+        description = new SimpleStringProperty();
+
+        changeTracker.track(RaceCategoryField.NAME, name);
+        changeTracker.track(RaceCategoryField.DESCRIPTION, description);
     }
 
     /**
@@ -149,6 +159,33 @@ public class RaceCategory implements Comparable<RaceCategory> {
         return description;
     }
 
+    /**
+     * Gets the tracker of the fields changed since the race category was loaded or saved.
+     *
+     * @return the tracker of the fields changed
+     */
+    public ChangeTracker<RaceCategoryField> getChangeTracker() {
+        return changeTracker;
+    }
+
+    /**
+     * Gets the version of the row of the race category last read or written.
+     *
+     * @return the version of the row of the race category
+     */
+    public long getRowVersion() {
+        return rowVersion;
+    }
+
+    /**
+     * Sets the version of the row of the race category last read or written.
+     *
+     * @param rowVersion the new version of the row of the race category
+     */
+    public void setRowVersion(long rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
     @Override
     public String toString() {
         return getName();
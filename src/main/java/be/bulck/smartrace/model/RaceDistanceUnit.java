@@ -33,16 +33,14 @@ public enum RaceDistanceUnit {
 
     private int value;
 
+    /** The constants, looked up by their value. */
+    private static final EnumLookup<RaceDistanceUnit> BY_VALUE = EnumLookup.byValue(values(), RaceDistanceUnit::getValue, UNDETERMINED);
+
     RaceDistanceUnit(int value) { this.value = value; }
     public int getValue() { return value; }
 
     public static RaceDistanceUnit parse(int value) {
-        for (RaceDistanceUnit unit : RaceDistanceUnit.values()) {
-            if (unit.getValue() == value)
-                return unit;
-        }
-
-        return UNDETERMINED;
+        return BY_VALUE.parse(value);
     }
 
     public static float compute(RaceDistanceUnit unit, float distance) {
@@ -33,16 +33,14 @@ public enum RaceElevationUnit {
 
     private int value;
 
+    /** The constants, looked up by their value. */
+    private static final EnumLookup<RaceElevationUnit> BY_VALUE = EnumLookup.byValue(values(), RaceElevationUnit::getValue, UNDERTERMINED);
+
     RaceElevationUnit(int value) { this.value = value; }
     public int getValue() { return value; }
 
     public static RaceElevationUnit parse(int value) {
-        for (RaceElevationUnit unit : RaceElevationUnit.values()) {
-            if (unit.getValue() == value)
-                return unit;
-        }
-
-        return UNDERTERMINED;
+        return BY_VALUE.parse(value);
     }
 
     public static float compute(RaceElevationUnit unit, float elevation) {
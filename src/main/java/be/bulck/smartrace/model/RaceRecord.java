@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.model;
 
+import be.bulck.smartrace.util.uuid.UUIDGenerators;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleIntegerProperty;
@@ -56,18 +57,18 @@ public class RaceRecord implements Comparable<RaceRecord> {
     /** The end time of the race record. */
     private ObjectProperty<Instant> endTime;
 
+    /** The splits of the race record, loaded on demand (null until loaded). */
+    private RaceSplits splits;
+
+    /** The version of the row of the race record, incremented by each update, to detect the concurrent updates. */
+    private volatile long rowVersion;
+
 
     /**
      * Constructs an instance of race record.
      */
     public RaceRecord() {
-        uuid = new SimpleObjectProperty<>(UUID.randomUUID());
-        number = new SimpleIntegerProperty();
-        team = new SimpleObjectProperty<>();
-        track = new SimpleObjectProperty<>();
-        categories = new SimpleObjectProperty<>(new ArrayList<>());
-        state = new SimpleObjectProperty<>();
-        endTime = new SimpleObjectProperty<>();
+        this(UUIDGenerators.generate());
     }
 
     /**
@@ -76,8 +77,13 @@ public class RaceRecord implements Comparable<RaceRecord> {
      * @param uuid the identifier (UUID) of the race record
      */
     public RaceRecord(UUID uuid) {
-        this();
-        this.uuid.set(uuid);
+        this.uuid = new SimpleObjectProperty<>(uuid);
+        number = new SimpleIntegerProperty();
+        team = new SimpleObjectProperty<>();
+        track = new SimpleObjectProperty<>();
+        categories = new SimpleObjectProperty<>(new ArrayList<>());
+        state = new SimpleObjectProperty<>();
+        endTime = new SimpleObjectProperty<>();
     }
 
     /**
@@ -303,6 +309,42 @@ public class RaceRecord implements Comparable<RaceRecord> {
         return endTime;
     }
 
+    /**
+     * Gets the splits of the race record, loaded on demand by the race split provider.
+     *
+     * @return the splits of the race record, or null if they aren't loaded
+     */
+    public RaceSplits getSplits() {
+        return splits;
+    }
+
+    /**
+     * Sets the splits of the race record.
+     *
+     * @param splits the new splits of the race record
+     */
+    public void setSplits(RaceSplits splits) {
+        this.splits = splits;
+    }
+
+    /**
+     * Gets the version of the row of the race record last read or written.
+     *
+     * @return the version of the row of the race record
+     */
+    public long getRowVersion() {
+        return rowVersion;
+    }
+
+    /**
+     * Sets the version of the row of the race record last read or written.
+     *
+     * @param rowVersion the new version of the row of the race record
+     */
+    public void setRowVersion(long rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
     @Override
     public String toString() {
         return getTeam().getName() + " [" + getNumber() + "]";
@@ -0,0 +1,212 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.model;
+
+import java.util.Arrays;
+
+/**
+ * A class representing an index of the race records by number (bib), resolving a number on the capture path (each
+ * keystroke or chip read) without boxing it. It is an open-addressing hash table with linear probing: the numbers and
+ * the race records are held in two parallel arrays, so a lookup hashes the number and reads the next slots of the
+ * arrays, instead of boxing an Integer and following the entries of a HashMap.
+ *
+ * The index is not thread-safe.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RaceRecordIndex {
+
+    /** The initial capacity of the arrays (a power of two). */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** The multiplier of the hash of a number (the golden ratio), spreading the consecutive numbers. */
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    /** The numbers of the slots. */
+    private int[] numbers;
+
+    /** The race records of the slots, null for a free slot. */
+    private RaceRecord[] raceRecords;
+
+    /** The number of race records indexed. */
+    private int size;
+
+    /** The shift of the hash of a number, giving the index of its slot. */
+    private int shift;
+
+
+    /**
+     * Constructs an instance of race record index.
+     */
+    public RaceRecordIndex() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Gets the number of race records indexed.
+     *
+     * @return the number of race records indexed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the race record with a number.
+     *
+     * @param number the number of the race record
+     *
+     * @return the race record with the number provided, or null if none is indexed
+     */
+    public RaceRecord get(int number) {
+        int mask = numbers.length - 1;
+
+        for (int slot = slot(number); raceRecords[slot] != null; slot = (slot + 1) & mask) {
+            if (numbers[slot] == number)
+                return raceRecords[slot];
+        }
+
+        return null;
+    }
+
+    /**
+     * Indexes a race record with a number.
+     *
+     * @param number the number of the race record
+     * @param raceRecord the race record
+     *
+     * @return the race record previously indexed with the number, or null if none
+     */
+    public RaceRecord put(int number, RaceRecord raceRecord) {
+        if (raceRecord == null)
+            throw new IllegalArgumentException("The race record instance is null");
+
+        int mask = numbers.length - 1;
+        int slot = slot(number);
+
+        for (; raceRecords[slot] != null; slot = (slot + 1) & mask) {
+            if (numbers[slot] == number) {
+                RaceRecord previous = raceRecords[slot];
+                raceRecords[slot] = raceRecord;
+                return previous;
+            }
+        }
+
+        numbers[slot] = number;
+        raceRecords[slot] = raceRecord;
+
+        // Kept at most half full, so the probe sequences stay short
+        if (++size > numbers.length / 2)
+            resize(numbers.length * 2);
+
+        return null;
+    }
+
+    /**
+     * Removes the race record with a number.
+     *
+     * @param number the number of the race record
+     *
+     * @return the race record removed, or null if none was indexed with the number
+     */
+    public RaceRecord remove(int number) {
+        int mask = numbers.length - 1;
+        int slot = slot(number);
+
+        while (raceRecords[slot] != null && numbers[slot] != number)
+            slot = (slot + 1) & mask;
+
+        RaceRecord removed = raceRecords[slot];
+
+        if (removed == null)
+            return null;
+
+        // The next race records of the probe sequence are shifted back, so no lookup stops at the slot freed
+        int free = slot;
+
+        for (int next = (free + 1) & mask; raceRecords[next] != null; next = (next + 1) & mask) {
+            int home = slot(numbers[next]);
+
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                numbers[free] = numbers[next];
+                raceRecords[free] = raceRecords[next];
+                free = next;
+            }
+        }
+
+        raceRecords[free] = null;
+        size--;
+
+        return removed;
+    }
+
+    /**
+     * Removes all the race records.
+     */
+    public void clear() {
+        Arrays.fill(raceRecords, null);
+        size = 0;
+    }
+
+    /**
+     * Gets the slot of a number, the first one of its probe sequence.
+     *
+     * @param number the number
+     *
+     * @return the index of the slot
+     */
+    private int slot(int number) {
+        return (number * HASH_MULTIPLIER) >>> shift;
+    }
+
+    /**
+     * Allocates the arrays.
+     *
+     * @param capacity the capacity of the arrays (a power of two)
+     */
+    private void allocate(int capacity) {
+        numbers = new int[capacity];
+        raceRecords = new RaceRecord[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    /**
+     * Resizes the arrays, and indexes the race records again.
+     *
+     * @param capacity the new capacity of the arrays (a power of two)
+     */
+    private void resize(int capacity) {
+        int[] oldNumbers = numbers;
+        RaceRecord[] oldRaceRecords = raceRecords;
+        allocate(capacity);
+
+        int mask = capacity - 1;
+
+        for (int index = 0; index < oldNumbers.length; index++) {
+            if (oldRaceRecords[index] != null) {
+                int slot = slot(oldNumbers[index]);
+
+                while (raceRecords[slot] != null)
+                    slot = (slot + 1) & mask;
+
+                numbers[slot] = oldNumbers[index];
+                raceRecords[slot] = oldRaceRecords[index];
+            }
+        }
+    }
+}
@@ -32,6 +32,9 @@ public enum RaceRecordState {
 
     private int value;
 
+    /** The constants, looked up by their value. */
+    private static final EnumLookup<RaceRecordState> BY_VALUE = EnumLookup.byValue(values(), RaceRecordState::getValue, UNDETERMINED);
+
     RaceRecordState(int value) {
         this.value = value;
     }
@@ -40,12 +43,7 @@ public enum RaceRecordState {
         return value;
     }
 
-    public RaceRecordState parse(int value) {
-        for (RaceRecordState state : RaceRecordState.values()) {
-            if (state.getValue() == value)
-                return state;
-        }
-
-        return UNDETERMINED;
+    public static RaceRecordState parse(int value) {
+        return BY_VALUE.parse(value);
     }
 }
@@ -0,0 +1,282 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.model;
+
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * A model class representing the splits of a race record: the times it crossed the timing points of its race track,
+ * sorted by time. The splits are held in primitive columns (the times in nanoseconds since the epoch, and the positions
+ * of the timing points), so the segment times, the paces and the laps are computed without boxing.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RaceSplits {
+
+    /** The initial capacity of the columns. */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /** The number of nanoseconds per second. */
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /** The times of the splits (in nanoseconds since the epoch), sorted. */
+    private long[] times;
+
+    /** The positions of the timing points of the splits. */
+    private int[] positions;
+
+    /** The number of splits. */
+    private int size;
+
+
+    /**
+     * Constructs an instance of race splits, without split.
+     */
+    public RaceSplits() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an instance of race splits, without split.
+     *
+     * @param capacity the number of splits held before the columns grow
+     */
+    public RaceSplits(int capacity) {
+        times = new long[Math.max(1, capacity)];
+        positions = new int[times.length];
+    }
+
+    /**
+     * Gets the number of splits.
+     *
+     * @return the number of splits
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a split, kept in time order. The splits usually arrive in time order, so a split is appended in constant
+     * time.
+     *
+     * @param position the position of the timing point crossed
+     * @param time the time of the crossing (in nanoseconds since the epoch)
+     *
+     * @return true if the split was added, false if a split already has this time
+     */
+    public boolean add(int position, long time) {
+        int index = size;
+
+        while (index > 0 && times[index - 1] > time)
+            index--;
+
+        if (index > 0 && times[index - 1] == time)
+            return false;
+
+        if (size == times.length) {
+            times = Arrays.copyOf(times, size * 2);
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+
+        System.arraycopy(times, index, times, index + 1, size - index);
+        System.arraycopy(positions, index, positions, index + 1, size - index);
+        times[index] = time;
+        positions[index] = position;
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Removes all the splits.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gets the time of a split.
+     *
+     * @param index the index of the split
+     *
+     * @return the time of the split (in nanoseconds since the epoch)
+     */
+    public long getTime(int index) {
+        checkIndex(index);
+        return times[index];
+    }
+
+    /**
+     * Gets the position of the timing point of a split.
+     *
+     * @param index the index of the split
+     *
+     * @return the position of the timing point
+     */
+    public int getPosition(int index) {
+        checkIndex(index);
+        return positions[index];
+    }
+
+    /**
+     * Gets the time elapsed from a start time to a split.
+     *
+     * @param index the index of the split
+     * @param startTime the start time (in nanoseconds since the epoch)
+     *
+     * @return the time elapsed (in nanoseconds)
+     */
+    public long getElapsedTime(int index, long startTime) {
+        return getTime(index) - startTime;
+    }
+
+    /**
+     * Gets the time of the segment ending at a split: from the previous split, or from the start time for the first one.
+     *
+     * @param index the index of the split
+     * @param startTime the start time (in nanoseconds since the epoch)
+     *
+     * @return the time of the segment (in nanoseconds)
+     */
+    public long getSegmentTime(int index, long startTime) {
+        return getTime(index) - (index > 0 ? times[index - 1] : startTime);
+    }
+
+    /**
+     * Gets the pace of the segment ending at a split, the time per unit of distance.
+     *
+     * @param index the index of the split
+     * @param startTime the start time (in nanoseconds since the epoch)
+     * @param distance the distance of the segment (in the distance unit of the race)
+     *
+     * @return the pace of the segment (in nanoseconds per unit of distance), or 0 if the distance isn't positive
+     */
+    public long getPace(int index, long startTime, double distance) {
+        return distance > 0 ? (long) (getSegmentTime(index, startTime) / distance) : 0;
+    }
+
+    /**
+     * Gets the speed of the segment ending at a split, the distance per hour.
+     *
+     * @param index the index of the split
+     * @param startTime the start time (in nanoseconds since the epoch)
+     * @param distance the distance of the segment (in the distance unit of the race)
+     *
+     * @return the speed of the segment (in units of distance per hour), or 0 if the segment has no duration
+     */
+    public double getSpeed(int index, long startTime, double distance) {
+        long segmentTime = getSegmentTime(index, startTime);
+
+        return segmentTime > 0 ? distance * 3600 * NANOS_PER_SECOND / segmentTime : 0;
+    }
+
+    /**
+     * Counts the laps completed: the crossings of a lap line.
+     *
+     * @param lapLinePosition the position of the timing point of the lap line
+     *
+     * @return the number of laps completed
+     */
+    public int countLaps(int lapLinePosition) {
+        int laps = 0;
+
+        for (int index = 0; index < size; index++) {
+            if (positions[index] == lapLinePosition)
+                laps++;
+        }
+
+        return laps;
+    }
+
+    /**
+     * Gets the times of the laps completed: from a crossing of the lap line to the next one, from the start time for
+     * the first lap.
+     *
+     * @param lapLinePosition the position of the timing point of the lap line
+     * @param startTime the start time (in nanoseconds since the epoch)
+     *
+     * @return the times of the laps (in nanoseconds), in order
+     */
+    public long[] getLapTimes(int lapLinePosition, long startTime) {
+        long[] lapTimes = new long[countLaps(lapLinePosition)];
+        long lapStart = startTime;
+        int lap = 0;
+
+        for (int index = 0; index < size; index++) {
+            if (positions[index] == lapLinePosition) {
+                lapTimes[lap++] = times[index] - lapStart;
+                lapStart = times[index];
+            }
+        }
+
+        return lapTimes;
+    }
+
+    /**
+     * Copies the times of the splits.
+     *
+     * @return the times of the splits (in nanoseconds since the epoch), in order
+     */
+    public long[] copyTimes() {
+        return Arrays.copyOf(times, size);
+    }
+
+    /**
+     * Copies the positions of the timing points of the splits.
+     *
+     * @return the positions of the timing points, in the order of the splits
+     */
+    public int[] copyPositions() {
+        return Arrays.copyOf(positions, size);
+    }
+
+    /**
+     * Converts an instant to nanoseconds since the epoch, the unit of the times of the splits.
+     *
+     * @param instant the instant
+     *
+     * @return the nanoseconds since the epoch
+     */
+    public static long toEpochNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND), instant.getNano());
+    }
+
+    /**
+     * Converts nanoseconds since the epoch to an instant.
+     *
+     * @param epochNanos the nanoseconds since the epoch
+     *
+     * @return the instant
+     */
+    public static Instant toInstant(long epochNanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND), Math.floorMod(epochNanos, NANOS_PER_SECOND));
+    }
+
+    /**
+     * Checks the index of a split.
+     *
+     * @param index the index of the split
+     *
+     * @throws IndexOutOfBoundsException an exception thrown if no split has the index provided
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("No split at the index " + index + " (" + size + " splits)");
+    }
+}
@@ -32,6 +32,9 @@ public enum RaceState {
 
     private int value;
 
+    /** The constants, looked up by their value. */
+    private static final EnumLookup<RaceState> BY_VALUE = EnumLookup.byValue(values(), RaceState::getValue, UNDETERMINED);
+
     RaceState(int value) {
         this.value = value;
     }
@@ -40,11 +43,6 @@ public enum RaceState {
     }
 
     public static RaceState parse(int value) {
-        for (RaceState state : RaceState.values()) {
-            if (state.getValue() == value)
-                return state;
-        }
-
-        return UNDETERMINED;
+        return BY_VALUE.parse(value);
     }
 }
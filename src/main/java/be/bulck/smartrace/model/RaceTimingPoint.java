@@ -0,0 +1,272 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.model;
+
+import be.bulck.smartrace.util.uuid.UUIDGenerators;
+import javafx.beans.property.*;
+
+import java.util.UUID;
+
+/**
+ * A model class representing a timing point of a race track: a checkpoint where the race records crossing it are
+ * timed. The timing points of a race track are ordered by their position along the track, from 0. A timing point may be
+ * a lap line (the finish line of a lap), each crossing of it completing a lap.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RaceTimingPoint implements Comparable<RaceTimingPoint> {
+
+    /** The identifier (UUID) of the timing point. */
+    private ObjectProperty<UUID> uuid;
+
+    /** The race track of the timing point. */
+    private ObjectProperty<RaceTrack> track;
+
+    /** The name of the timing point. */
+    private StringProperty name;
+
+    /** The position of the timing point along its race track (from 0). */
+    private IntegerProperty position;
+
+    /** The distance of the timing point from the start of the race track (or of the lap). */
+    private FloatProperty distance;
+
+    /** Whether the timing point is a lap line. */
+    private BooleanProperty lapLine;
+
+
+    /**
+     * Constructs an instance of timing point.
+     */
+    public RaceTimingPoint() {
+        this(UUIDGenerators.generate());
+    }
+
+    /**
+     * Constructs an instance of timing point.
+     *
+     * @param uuid the identifier (UUID) of the timing point
+     */
+    public RaceTimingPoint(UUID uuid) {
+        this.uuid = new SimpleObjectProperty<>(uuid);
+        track = new SimpleObjectProperty<>();
+        name = new SimpleStringProperty();
+        position = new SimpleIntegerProperty();
+        distance = new SimpleFloatProperty();
+        lapLine = new SimpleBooleanProperty();
+    }
+
+    /**
+     * Constructs an instance of timing point.
+     *
+     * @param track the race track of the timing point
+     * @param name the name of the timing point
+     * @param position the position of the timing point along its race track
+     * @param distance the distance of the timing point from the start of the race track
+     */
+    public RaceTimingPoint(RaceTrack track, String name, int position, float distance) {
+        this();
+        this.track.set(track);
+        this.name.set(name);
+        this.position.set(position);
+        this.distance.set(distance);
+    }
+
+    /**
+     * Gets the identifier (UUID) of the timing point.
+     *
+     * @return the identifier (UUID) of the timing point
+     */
+    public UUID getUuid() {
+        return uuid.get();
+    }
+
+    /**
+     * Sets the identifier (UUID) of the timing point.
+     *
+     * @param uuid the new identifier (UUID) of the timing point
+     */
+    public void setUuid(UUID uuid) {
+        this.uuid.set(uuid);
+    }
+
+    /**
+     * Gets the property for the identifier (UUID) of the timing point.
+     *
+     * @return the property for the identifier (UUID) of the timing point
+     */
+    public ObjectProperty<UUID> uuidProperty() {
+        return uuid;
+    }
+
+    /**
+     * Gets the race track of the timing point.
+     *
+     * @return the race track of the timing point
+     */
+    public RaceTrack getTrack() {
+        return track.get();
+    }
+
+    /**
+     * Sets the race track of the timing point.
+     *
+     * @param track the new race track of the timing point
+     */
+    public void setTrack(RaceTrack track) {
+        this.track.set(track);
+    }
+
+    /**
+     * Gets the property for the race track of the timing point.
+     *
+     * @return the property for the race track of the timing point
+     */
+    public ObjectProperty<RaceTrack> trackProperty() {
+        return track;
+    }
+
+    /**
+     * Gets the name of the timing point.
+     *
+     * @return the name of the timing point
+     */
+    public String getName() {
+        return name.get();
+    }
+
+    /**
+     * Sets the name of the timing point.
+     *
+     * @param name the new name of the timing point
+     */
+    public void setName(String name) {
+        this.name.set(name);
+    }
+
+    /**
+     * Gets the property for the name of the timing point.
+     *
+     * @return the property for the name of the timing point
+     */
+    public StringProperty nameProperty() {
+        return name;
+    }
+
+    /**
+     * Gets the position of the timing point along its race track.
+     *
+     * @return the position of the timing point (from 0)
+     */
+    public int getPosition() {
+        return position.get();
+    }
+
+    /**
+     * Sets the position of the timing point along its race track. The splits reference their timing point by its
+     * position, which must not change once the race records are timed.
+     *
+     * @param position the new position of the timing point (from 0)
+     */
+    public void setPosition(int position) {
+        this.position.set(position);
+    }
+
+    /**
+     * Gets the property for the position of the timing point.
+     *
+     * @return the property for the position of the timing point
+     */
+    public IntegerProperty positionProperty() {
+        return position;
+    }
+
+    /**
+     * Gets the distance of the timing point from the start of the race track (or of the lap).
+     *
+     * @return the distance of the timing point
+     */
+    public float getDistance() {
+        return distance.get();
+    }
+
+    /**
+     * Sets the distance of the timing point from the start of the race track (or of the lap).
+     *
+     * @param distance the new distance of the timing point
+     */
+    public void setDistance(float distance) {
+        this.distance.set(distance);
+    }
+
+    /**
+     * Gets the property for the distance of the timing point.
+     *
+     * @return the property for the distance of the timing point
+     */
+    public FloatProperty distanceProperty() {
+        return distance;
+    }
+
+    /**
+     * Checks if the timing point is a lap line.
+     *
+     * @return true if each crossing of the timing point completes a lap, false otherwise
+     */
+    public boolean isLapLine() {
+        return lapLine.get();
+    }
+
+    /**
+     * Sets whether the timing point is a lap line.
+     *
+     * @param lapLine true if each crossing of the timing point completes a lap, false otherwise
+     */
+    public void setLapLine(boolean lapLine) {
+        this.lapLine.set(lapLine);
+    }
+
+    /**
+     * Gets the property for whether the timing point is a lap line.
+     *
+     * @return the property for whether the timing point is a lap line
+     */
+    public BooleanProperty lapLineProperty() {
+        return lapLine;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof RaceTimingPoint && getUuid().equals(((RaceTimingPoint) other).getUuid());
+    }
+
+    @Override
+    public int hashCode() {
+        return getUuid().hashCode();
+    }
+
+    @Override
+    public int compareTo(RaceTimingPoint o) {
+        return Integer.compare(getPosition(), o.getPosition());
+    }
+}
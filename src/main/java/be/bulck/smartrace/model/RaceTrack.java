@@ -18,6 +18,8 @@
 
 package be.bulck.smartrace.model;
 
+import be.bulck.smartrace.model.change.ChangeTracker;
+import be.bulck.smartrace.util.uuid.UUIDGenerators;
 import javafx.beans.property.*;
 
 import java.time.Instant;
@@ -57,12 +59,27 @@ public class RaceTrack implements Comparable<RaceTrack> {
     /** The end time of the race track. */
     private ObjectProperty<Instant> endTime;
 
+    /** The tracker of the fields changed since the race track was loaded or saved. */
+    private final ChangeTracker<RaceTrackField> changeTracker = new ChangeTracker<>(RaceTrackField.class);
+
+    /** The version of the row of the race track, incremented by each update, to detect the concurrent updates. */
+    private volatile long rowVersion;
+
 
     /**
      * Constructs an instance of race track.
      */
     public RaceTrack() {
-        uuid = new SimpleObjectProperty<>(UUID.randomUUID());
+        this(UUIDGenerators.generate());
+    }
+
+    /**
+     * Constructs an instance of race track.
+     *
+     * @param uuid the identifier (UUID) of the race track
+     */
+    public RaceTrack(UUID uuid) {
+        this.uuid = new SimpleObjectProperty<>(uuid);
         name = new SimpleStringProperty();
         distance = new SimpleFloatProperty();
         elevation = new SimpleFloatProperty();
@@ -71,16 +88,15 @@ public class RaceTrack implements Comparable<RaceTrack> {
         state = new SimpleObjectProperty<>(RaceTrackState.UNDETERMINED);
         startTime = new SimpleObjectProperty<>();
         endTime = new SimpleObjectProperty<>();
-    }
 
-    /**
-     * Constructs an instance of race track.
-     *
-     * @param uuid the identifier (UUID) of the race track
-     */
-    public RaceTrack(UUID uuid) {
-        this();
-        this.uuid.set(uuid);
+        changeTracker.track(RaceTrackField.NAME, name);
+        changeTracker.track(RaceTrackField.DISTANCE, distance);
+        changeTracker.track(RaceTrackField.ELEVATION, elevation);
+        changeTracker.track(RaceTrackField.DESCRIPTION, description);
+        changeTracker.track(RaceTrackField.TEAM_SIZE_LIMIT, teamSizeLimit);
+        changeTracker.track(RaceTrackField.STATE, state);
+        changeTracker.track(RaceTrackField.START_TIME, startTime);
+        changeTracker.track(RaceTrackField.END_TIME, endTime);
     }
 
     /**
@@ -338,6 +354,33 @@ public class RaceTrack implements Comparable<RaceTrack> {
         return endTime;
     }
 
+    /**
+     * Gets the tracker of the fields changed since the race track was loaded or saved.
+     *
+     * @return the tracker of the fields changed
+     */
+    public ChangeTracker<RaceTrackField> getChangeTracker() {
+        return changeTracker;
+    }
+
+    /**
+     * Gets the version of the row of the race track last read or written.
+     *
+     * @return the version of the row of the race track
+     */
+    public long getRowVersion() {
+        return rowVersion;
+    }
+
+    /**
+     * Sets the version of the row of the race track last read or written.
+     *
+     * @param rowVersion the new version of the row of the race track
+     */
+    public void setRowVersion(long rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
     @Override
     public String toString() {
         return getName();
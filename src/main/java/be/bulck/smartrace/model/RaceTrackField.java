@@ -0,0 +1,34 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.model;
+
+/**
+ * A model enum representing the fields of a race track whose changes are tracked.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public enum RaceTrackField {
+    NAME,
+    DISTANCE,
+    ELEVATION,
+    DESCRIPTION,
+    TEAM_SIZE_LIMIT,
+    STATE,
+    START_TIME,
+    END_TIME
+}
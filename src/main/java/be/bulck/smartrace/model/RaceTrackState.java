@@ -31,6 +31,9 @@ public enum RaceTrackState {
 
     private int value;
 
+    /** The constants, looked up by their value. */
+    private static final EnumLookup<RaceTrackState> BY_VALUE = EnumLookup.byValue(values(), RaceTrackState::getValue, UNDETERMINED);
+
     RaceTrackState(int value) {
         this.value = value;
     }
@@ -40,11 +43,6 @@ public enum RaceTrackState {
     }
 
     public static RaceTrackState parse(int value) {
-        for (RaceTrackState state : RaceTrackState.values()) {
-            if (state.getValue() == value)
-                return state;
-        }
-
-        return UNDETERMINED;
+        return BY_VALUE.parse(value);
     }
 }
@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.model;
 
+import be.bulck.smartrace.util.uuid.UUIDGenerators;
 import javafx.beans.property.*;
 
 import java.time.LocalDate;
@@ -53,12 +54,7 @@ public class Racer implements Comparable<Racer> {
      * Constructs an instance of racer.
      */
     public Racer() {
-        uuid = new SimpleObjectProperty<>(UUID.randomUUID());
-        lastName = new SimpleStringProperty();
-        firstName = new SimpleStringProperty();
-        sex = new SimpleObjectProperty<>();
-        birthdayDate = new SimpleObjectProperty<>();
-        comments = new SimpleStringProperty();
+        this(UUIDGenerators.generate());
     }
 
     /**
@@ -67,8 +63,12 @@ public class Racer implements Comparable<Racer> {
      * @param uuid the identifier (UUID) of the racer
      */
     public Racer(UUID uuid) {
-        this();
-        this.uuid.set(uuid);
+        this.uuid = new SimpleObjectProperty<>(uuid);
+        lastName = new SimpleStringProperty();
+        firstName = new SimpleStringProperty();
+        sex = new SimpleObjectProperty<>();
+        birthdayDate = new SimpleObjectProperty<>();
+        comments = new SimpleStringProperty();
     }
 
     /**
@@ -30,6 +30,9 @@ public enum RacerSex {
 
     private int value;
 
+    /** The constants, looked up by their value. */
+    private static final EnumLookup<RacerSex> BY_VALUE = EnumLookup.byValue(values(), RacerSex::getValue, UNDETERMINED);
+
     RacerSex(int value) {
         this.value = value;
     }
@@ -39,11 +42,6 @@ public enum RacerSex {
     }
 
     public static RacerSex parse(int value) {
-        for (RacerSex sex : RacerSex.values()) {
-            if (sex.getValue() == value)
-                return sex;
-        }
-
-        return UNDETERMINED;
+        return BY_VALUE.parse(value);
     }
 }
@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.model;
 
+import be.bulck.smartrace.util.uuid.UUIDGenerators;
 import javafx.beans.property.*;
 
 import java.util.ArrayList;
@@ -45,9 +46,7 @@ public class RacerTeam implements Comparable<RacerTeam> {
      * Constructs an instance of racer team.
      */
     public RacerTeam() {
-        uuid = new SimpleObjectProperty<>(UUID.randomUUID());
-        name = new SimpleStringProperty();
-        racers = new SimpleObjectProperty<>(new ArrayList<>());
+        this(UUIDGenerators.generate());
     }
 
     /**
@@ -56,8 +55,9 @@ public class RacerTeam implements Comparable<RacerTeam> {
      * @param uuid the identifier (UUID) of the racer team
      */
     public RacerTeam(UUID uuid) {
-        this();
-        this.uuid.set(uuid);
+        this.uuid = new SimpleObjectProperty<>(uuid);
+        name = new SimpleStringProperty();
+        racers = new SimpleObjectProperty<>(new ArrayList<>());
     }
 
     /**
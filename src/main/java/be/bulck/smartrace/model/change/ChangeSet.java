@@ -0,0 +1,79 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.model.change;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A class representing the fields of a model object changed at some point, to save them.
+ *
+ * @param <F> the type of the fields
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see ChangeTracker
+ */
+public class ChangeSet<F extends Enum<F>> {
+
+    /** The fields changed. */
+    private final Set<F> fields;
+
+    /** The stamp of the last change. */
+    private final long stamp;
+
+
+    /**
+     * Constructs an instance of change set.
+     *
+     * @param fields the fields changed
+     * @param stamp the stamp of the last change
+     */
+    ChangeSet(EnumSet<F> fields, long stamp) {
+        this.fields = Collections.unmodifiableSet(fields);
+        this.stamp = stamp;
+    }
+
+    /**
+     * Gets the fields changed, in the order of their declaration.
+     *
+     * @return the fields changed
+     */
+    public Set<F> getFields() {
+        return fields;
+    }
+
+    /**
+     * Gets the stamp of the last change.
+     *
+     * @return the stamp of the last change
+     */
+    public long getStamp() {
+        return stamp;
+    }
+
+    /**
+     * Checks if no field is changed.
+     *
+     * @return true if no field is changed, false otherwise
+     */
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.model.change;
+
+import javafx.beans.value.ObservableValue;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * A class representing a tracker of the fields of a model object changed since it was loaded or last saved, so only
+ * these fields are written back. The tracker listens to the properties of the fields: a field is changed as soon as the
+ * value of its property changes, whichever thread changes it.
+ *
+ * Each change is stamped, so the fields changed again while they are being saved stay changed once the save completes.
+ *
+ * @param <F> the type of the fields
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class ChangeTracker<F extends Enum<F>> {
+
+    /** The type of the fields. */
+    private final Class<F> fieldType;
+
+    /** The stamps of the last changes of the fields changed. */
+    private final Map<F, Long> changes;
+
+    /** The stamp of the last change. */
+    private long stamp;
+
+
+    /**
+     * Constructs an instance of change tracker.
+     *
+     * @param fieldType the type of the fields
+     */
+    public ChangeTracker(Class<F> fieldType) {
+        this.fieldType = fieldType;
+        this.changes = new EnumMap<>(fieldType);
+    }
+
+    /**
+     * Tracks the changes of a field.
+     *
+     * @param field the field
+     * @param property the property of the field
+     */
+    public void track(F field, ObservableValue<?> property) {
+        property.addListener((observable, oldValue, newValue) -> markChanged(field));
+    }
+
+    /**
+     * Marks a field as changed.
+     *
+     * @param field the field changed
+     */
+    public synchronized void markChanged(F field) {
+        changes.put(field, ++stamp);
+    }
+
+    /**
+     * Checks if fields are changed.
+     *
+     * @return true if fields are changed, false otherwise
+     */
+    public synchronized boolean isChanged() {
+        return !changes.isEmpty();
+    }
+
+    /**
+     * Gets the fields changed, to save them.
+     *
+     * @return the fields changed, with the stamp of the last change
+     *
+     * @see #markSaved(ChangeSet)
+     */
+    public synchronized ChangeSet<F> getChanges() {
+        EnumSet<F> fields = EnumSet.noneOf(fieldType);
+        fields.addAll(changes.keySet());
+
+        return new ChangeSet<>(fields, stamp);
+    }
+
+    /**
+     * Marks the fields of a change set as saved. The fields changed again since the change set was taken stay changed.
+     *
+     * @param changeSet the change set saved
+     */
+    public synchronized void markSaved(ChangeSet<F> changeSet) {
+        changes.entrySet().removeIf(change -> changeSet.getFields().contains(change.getKey()) && change.getValue() <= changeSet.getStamp());
+    }
+
+    /**
+     * Forgets all the changes, once the model object is loaded.
+     */
+    public synchronized void clear() {
+        changes.clear();
+    }
+}
@@ -0,0 +1,467 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.ranking;
+
+import be.bulck.smartrace.model.RaceCategory;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordState;
+import be.bulck.smartrace.model.RaceTrack;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A class representing the live leaderboard of a race: a ranking of the race records finished per race track and per
+ * race category, sorted by elapsed time then by number (bib). The rankings are updated in place for each race record
+ * changed, in O(log n) per ranking it belongs to, instead of sorting all the race records again.
+ *
+ * The elapsed time of a race record is the time between the start of its race track and its end time. When the race
+ * track has no start time yet, the end time itself is used, which ranks the race records the same way as they all
+ * started together.
+ *
+ * The changes of the standings of the race categories are published to the standings listeners, for the race
+ * categories of the race record changed only and from the first rank changed, so the cost of a change doesn't depend
+ * on the number of race categories. The listeners are notified on the thread which changed the leaderboard, outside of
+ * its lock.
+ *
+ * The methods may be called from any thread.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class Leaderboard {
+
+    /** The rankings of the race tracks, by identifier. */
+    private final Map<UUID, RankingTree> trackRankings = new HashMap<>();
+
+    /** The rankings of the race categories, by identifier. */
+    private final Map<UUID, RankingTree> categoryRankings = new HashMap<>();
+
+    /** The placements of the race records ranked, by identifier. */
+    private final Map<UUID, Placement> placements = new HashMap<>();
+
+    /** The placements of the race records ranked, by number. */
+    private final Map<Integer, Placement> placementsByNumber = new HashMap<>();
+
+    /** The revisions of the standings of the race categories, by identifier. */
+    private final Map<UUID, Long> revisions = new HashMap<>();
+
+    /** The listeners of the standings of the race categories. */
+    private final List<StandingsListener> listeners = new CopyOnWriteArrayList<>();
+
+
+    /**
+     * Updates the rankings with a race record created or changed. A race record is ranked while it is finished, with
+     * an end time and a race track, and removed from the rankings otherwise (cancelled, for instance).
+     *
+     * @param raceRecord the race record
+     */
+    public void update(RaceRecord raceRecord) {
+        Instant endTime = raceRecord.getEndTime();
+        boolean finished = raceRecord.getState() == RaceRecordState.FINISHED && endTime != null;
+        List<StandingsChange> changes;
+
+        synchronized (this) {
+            Map<UUID, Integer> firstRanks = new LinkedHashMap<>();
+            replace(raceRecord, finished ? place(raceRecord, endTime.toEpochMilli()) : null, firstRanks);
+            changes = revise(firstRanks);
+        }
+
+        publish(changes);
+    }
+
+    /**
+     * Replaces the placement of a race record in the rankings.
+     *
+     * @param raceRecord the race record
+     * @param placement the new placement of the race record, or null to remove it from the rankings
+     * @param firstRanks the first ranks changed, by race category, completed with the ranks of the placements
+     */
+    private void replace(RaceRecord raceRecord, Placement placement, Map<UUID, Integer> firstRanks) {
+        Placement previous = placements.get(raceRecord.getUuid());
+
+        if (placement != null && placement.equals(previous))
+            return;
+
+        if (previous != null)
+            unrank(previous, firstRanks);
+
+        if (placement != null)
+            rank(placement, firstRanks);
+    }
+
+    /**
+     * Removes a race record from the rankings.
+     *
+     * @param raceRecord the race record
+     */
+    public void remove(RaceRecord raceRecord) {
+        List<StandingsChange> changes;
+
+        synchronized (this) {
+            Placement previous = placements.get(raceRecord.getUuid());
+
+            if (previous == null)
+                return;
+
+            Map<UUID, Integer> firstRanks = new LinkedHashMap<>();
+            unrank(previous, firstRanks);
+            changes = revise(firstRanks);
+        }
+
+        publish(changes);
+    }
+
+    /**
+     * Removes all the race records from the rankings. The standings of all the race categories ranked change from the
+     * first rank.
+     */
+    public void clear() {
+        List<StandingsChange> changes;
+
+        synchronized (this) {
+            Map<UUID, Integer> firstRanks = new LinkedHashMap<>();
+
+            for (Map.Entry<UUID, RankingTree> categoryRanking : categoryRankings.entrySet()) {
+                if (categoryRanking.getValue().size() > 0)
+                    firstRanks.put(categoryRanking.getKey(), 1);
+            }
+
+            trackRankings.clear();
+            categoryRankings.clear();
+            placements.clear();
+            placementsByNumber.clear();
+            changes = revise(firstRanks);
+        }
+
+        publish(changes);
+    }
+
+    /**
+     * Adds a listener of the standings of the race categories.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(StandingsListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener of the standings of the race categories.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(StandingsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the revision of the standings of a race category, increased at each change. The standings published with
+     * the same revision are still up to date.
+     *
+     * @param raceCategory the race category
+     *
+     * @return the revision of the standings of the race category, 0 if they never changed
+     */
+    public synchronized long getRevision(RaceCategory raceCategory) {
+        return revisions.getOrDefault(raceCategory.getUuid(), 0L);
+    }
+
+    /**
+     * Gets the rank of a race record in its race track.
+     *
+     * @param raceTrack the race track
+     * @param number the number of the race record
+     *
+     * @return the rank of the race record (starting at 1), or 0 if it isn't ranked in the race track
+     */
+    public synchronized int rankOf(RaceTrack raceTrack, int number) {
+        Placement placement = placementsByNumber.get(number);
+
+        if (placement == null || !placement.trackUuid.equals(raceTrack.getUuid()))
+            return 0;
+
+        return trackRankings.get(placement.trackUuid).rankOf(placement.elapsedTime, number);
+    }
+
+    /**
+     * Gets the rank of a race record in a race category.
+     *
+     * @param raceCategory the race category
+     * @param number the number of the race record
+     *
+     * @return the rank of the race record (starting at 1), or 0 if it isn't ranked in the race category
+     */
+    public synchronized int rankOf(RaceCategory raceCategory, int number) {
+        Placement placement = placementsByNumber.get(number);
+        RankingTree ranking = categoryRankings.get(raceCategory.getUuid());
+
+        if (placement == null || ranking == null)
+            return 0;
+
+        return ranking.rankOf(placement.elapsedTime, number);
+    }
+
+    /**
+     * Gets the first race records of a race track.
+     *
+     * @param raceTrack the race track
+     * @param count the maximum number of race records
+     *
+     * @return the entries of the first race records, fewer than the count if fewer race records are ranked
+     */
+    public synchronized RankingEntry[] top(RaceTrack raceTrack, int count) {
+        return top(trackRankings.get(raceTrack.getUuid()), count);
+    }
+
+    /**
+     * Gets the first race records of a race category.
+     *
+     * @param raceCategory the race category
+     * @param count the maximum number of race records
+     *
+     * @return the entries of the first race records, fewer than the count if fewer race records are ranked
+     */
+    public synchronized RankingEntry[] top(RaceCategory raceCategory, int count) {
+        return top(categoryRankings.get(raceCategory.getUuid()), count);
+    }
+
+    /**
+     * Gets the number of race records ranked in a race track.
+     *
+     * @param raceTrack the race track
+     *
+     * @return the number of race records ranked
+     */
+    public synchronized int size(RaceTrack raceTrack) {
+        RankingTree ranking = trackRankings.get(raceTrack.getUuid());
+
+        return ranking != null ? ranking.size() : 0;
+    }
+
+    /**
+     * Gets the number of race records ranked in a race category.
+     *
+     * @param raceCategory the race category
+     *
+     * @return the number of race records ranked
+     */
+    public synchronized int size(RaceCategory raceCategory) {
+        RankingTree ranking = categoryRankings.get(raceCategory.getUuid());
+
+        return ranking != null ? ranking.size() : 0;
+    }
+
+    /**
+     * Gets the first race records of a ranking.
+     *
+     * @param ranking the ranking, may be null
+     * @param count the maximum number of race records
+     *
+     * @return the entries of the first race records
+     */
+    private static RankingEntry[] top(RankingTree ranking, int count) {
+        return ranking != null ? ranking.top(count) : new RankingEntry[0];
+    }
+
+    /**
+     * Computes the placement of a race record.
+     *
+     * @param raceRecord the race record
+     * @param endTime the end time of the race record (milliseconds since the epoch)
+     *
+     * @return the placement of the race record, or null if it can't be ranked
+     */
+    private static Placement place(RaceRecord raceRecord, long endTime) {
+        RaceTrack raceTrack = raceRecord.getTrack();
+
+        if (raceTrack == null)
+            return null;
+
+        Instant startTime = raceTrack.getStartTime();
+        long elapsedTime = startTime != null ? endTime - startTime.toEpochMilli() : endTime;
+        RaceCategory[] raceCategories = raceRecord.getCategories();
+        UUID[] categoryUuids = new UUID[raceCategories.length];
+
+        for (int index = 0; index < raceCategories.length; index++)
+            categoryUuids[index] = raceCategories[index].getUuid();
+
+        return new Placement(raceRecord.getUuid(), raceRecord.getNumber(), elapsedTime, raceTrack.getUuid(), categoryUuids);
+    }
+
+    /**
+     * Adds a placement to the rankings of its race track and race categories.
+     *
+     * @param placement the placement
+     * @param firstRanks the first ranks changed, by race category, completed with the ranks of the placement
+     */
+    private void rank(Placement placement, Map<UUID, Integer> firstRanks) {
+        Placement previous = placementsByNumber.put(placement.number, placement);
+
+        // Another race record with the same number (not updated yet) leaves the rankings
+        if (previous != null && !previous.uuid.equals(placement.uuid))
+            unrank(previous, firstRanks);
+
+        placements.put(placement.uuid, placement);
+        trackRankings.computeIfAbsent(placement.trackUuid, uuid -> new RankingTree()).add(placement.elapsedTime, placement.number);
+
+        for (UUID categoryUuid : placement.categoryUuids) {
+            RankingTree ranking = categoryRankings.computeIfAbsent(categoryUuid, uuid -> new RankingTree());
+            ranking.add(placement.elapsedTime, placement.number);
+            firstRanks.merge(categoryUuid, ranking.rankOf(placement.elapsedTime, placement.number), Math::min);
+        }
+    }
+
+    /**
+     * Removes a placement from the rankings of its race track and race categories.
+     *
+     * @param placement the placement
+     * @param firstRanks the first ranks changed, by race category, completed with the ranks of the placement
+     */
+    private void unrank(Placement placement, Map<UUID, Integer> firstRanks) {
+        placements.remove(placement.uuid);
+        placementsByNumber.remove(placement.number, placement);
+        trackRankings.get(placement.trackUuid).remove(placement.elapsedTime, placement.number);
+
+        for (UUID categoryUuid : placement.categoryUuids) {
+            RankingTree ranking = categoryRankings.get(categoryUuid);
+            firstRanks.merge(categoryUuid, ranking.rankOf(placement.elapsedTime, placement.number), Math::min);
+            ranking.remove(placement.elapsedTime, placement.number);
+        }
+    }
+
+    /**
+     * Increases the revisions of the standings of the race categories changed.
+     *
+     * @param firstRanks the first ranks changed, by race category
+     *
+     * @return the changes to publish
+     */
+    private List<StandingsChange> revise(Map<UUID, Integer> firstRanks) {
+        List<StandingsChange> changes = new ArrayList<>(firstRanks.size());
+
+        for (Map.Entry<UUID, Integer> firstRank : firstRanks.entrySet()) {
+            long revision = revisions.merge(firstRank.getKey(), 1L, Long::sum);
+            changes.add(new StandingsChange(firstRank.getKey(), firstRank.getValue(), revision));
+        }
+
+        return changes;
+    }
+
+    /**
+     * Publishes the changes of the standings to the listeners.
+     *
+     * @param changes the changes to publish
+     */
+    private void publish(List<StandingsChange> changes) {
+        for (StandingsChange change : changes) {
+            for (StandingsListener listener : listeners)
+                listener.standingsChanged(change.raceCategoryUuid, change.firstRank, change.revision);
+        }
+    }
+
+    /**
+     * A class representing the placement of a race record in the rankings.
+     */
+    private static class Placement {
+
+        /** The identifier of the race record. */
+        private final UUID uuid;
+
+        /** The number of the race record. */
+        private final int number;
+
+        /** The elapsed time of the race record (in milliseconds). */
+        private final long elapsedTime;
+
+        /** The identifier of the race track. */
+        private final UUID trackUuid;
+
+        /** The identifiers of the race categories. */
+        private final UUID[] categoryUuids;
+
+
+        /**
+         * Constructs an instance of placement.
+         *
+         * @param uuid the identifier of the race record
+         * @param number the number of the race record
+         * @param elapsedTime the elapsed time of the race record
+         * @param trackUuid the identifier of the race track
+         * @param categoryUuids the identifiers of the race categories
+         */
+        private Placement(UUID uuid, int number, long elapsedTime, UUID trackUuid, UUID[] categoryUuids) {
+            this.uuid = uuid;
+            this.number = number;
+            this.elapsedTime = elapsedTime;
+            this.trackUuid = trackUuid;
+            this.categoryUuids = categoryUuids;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Placement))
+                return false;
+
+            Placement placement = (Placement) other;
+
+            return uuid.equals(placement.uuid) && number == placement.number && elapsedTime == placement.elapsedTime
+                    && trackUuid.equals(placement.trackUuid) && Arrays.equals(categoryUuids, placement.categoryUuids);
+        }
+
+        @Override
+        public int hashCode() {
+            return uuid.hashCode();
+        }
+    }
+
+    /**
+     * A class representing a change of the standings of a race category, to publish.
+     */
+    private static class StandingsChange {
+
+        /** The identifier of the race category. */
+        private final UUID raceCategoryUuid;
+
+        /** The first rank changed. */
+        private final int firstRank;
+
+        /** The revision of the standings. */
+        private final long revision;
+
+
+        /**
+         * Constructs an instance of standings change.
+         *
+         * @param raceCategoryUuid the identifier of the race category
+         * @param firstRank the first rank changed
+         * @param revision the revision of the standings
+         */
+        private StandingsChange(UUID raceCategoryUuid, int firstRank, long revision) {
+            this.raceCategoryUuid = raceCategoryUuid;
+            this.firstRank = firstRank;
+            this.revision = revision;
+        }
+    }
+}
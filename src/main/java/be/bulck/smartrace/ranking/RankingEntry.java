@@ -0,0 +1,83 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.ranking;
+
+import java.time.Duration;
+
+/**
+ * A class representing a race record at a rank of a ranking.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RankingEntry {
+
+    /** The rank (starting at 1). */
+    private final int rank;
+
+    /** The number of the race record. */
+    private final int number;
+
+    /** The elapsed time of the race record (in milliseconds). */
+    private final long elapsedTime;
+
+
+    /**
+     * Constructs an instance of ranking entry.
+     *
+     * @param rank the rank (starting at 1)
+     * @param number the number of the race record
+     * @param elapsedTime the elapsed time of the race record (in milliseconds)
+     */
+    public RankingEntry(int rank, int number, long elapsedTime) {
+        this.rank = rank;
+        this.number = number;
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * Gets the rank.
+     *
+     * @return the rank (starting at 1)
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * Gets the number of the race record.
+     *
+     * @return the number of the race record
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Gets the elapsed time of the race record.
+     *
+     * @return the elapsed time of the race record
+     */
+    public Duration getElapsedTime() {
+        return Duration.ofMillis(elapsedTime);
+    }
+
+    @Override
+    public String toString() {
+        return rank + ". " + number + " (" + getElapsedTime() + ")";
+    }
+}
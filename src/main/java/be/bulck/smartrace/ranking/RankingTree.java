@@ -0,0 +1,409 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.ranking;
+
+/**
+ * A class representing an order-statistic tree of the race records ranked, sorted by elapsed time, then by number
+ * (bib) for the ties. It is a balanced binary search tree (AVL) whose nodes know the size of their subtree, so adding
+ * or removing a race record, finding the rank of a race record and finding the race record at a rank all take
+ * O(log n), without sorting the race records again.
+ *
+ * The tree is not thread-safe.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RankingTree {
+
+    /** The root node, or null if the tree is empty. */
+    private Node root;
+
+
+    /**
+     * Gets the number of race records ranked.
+     *
+     * @return the number of race records ranked
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Adds a race record to the ranking.
+     *
+     * @param elapsedTime the elapsed time of the race record (in milliseconds)
+     * @param number the number of the race record
+     *
+     * @return true if the race record was added, false if it was already ranked with this elapsed time
+     */
+    public boolean add(long elapsedTime, int number) {
+        int size = size(root);
+        root = add(root, elapsedTime, number);
+
+        return size(root) != size;
+    }
+
+    /**
+     * Removes a race record from the ranking.
+     *
+     * @param elapsedTime the elapsed time the race record was ranked with (in milliseconds)
+     * @param number the number of the race record
+     *
+     * @return true if the race record was removed, false if it wasn't ranked with this elapsed time
+     */
+    public boolean remove(long elapsedTime, int number) {
+        int size = size(root);
+        root = remove(root, elapsedTime, number);
+
+        return size(root) != size;
+    }
+
+    /**
+     * Removes all the race records from the ranking.
+     */
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Gets the rank of a race record.
+     *
+     * @param elapsedTime the elapsed time the race record was ranked with (in milliseconds)
+     * @param number the number of the race record
+     *
+     * @return the rank of the race record (starting at 1), or 0 if it isn't ranked with this elapsed time
+     */
+    public int rankOf(long elapsedTime, int number) {
+        Node node = root;
+        int before = 0;
+
+        while (node != null) {
+            int comparison = compare(elapsedTime, number, node);
+
+            if (comparison < 0)
+                node = node.left;
+
+            else if (comparison > 0) {
+                before += size(node.left) + 1;
+                node = node.right;
+            }
+
+            else
+                return before + size(node.left) + 1;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Gets the race record at a rank.
+     *
+     * @param rank the rank (starting at 1)
+     *
+     * @return the entry of the race record at the rank
+     *
+     * @throws IndexOutOfBoundsException an exception thrown if no race record has the rank provided
+     */
+    public RankingEntry get(int rank) {
+        if (rank < 1 || rank > size(root))
+            throw new IndexOutOfBoundsException("No race record at the rank " + rank);
+
+        Node node = root;
+        int remaining = rank;
+
+        while (true) {
+            int leftSize = size(node.left);
+
+            if (remaining <= leftSize)
+                node = node.left;
+
+            else if (remaining > leftSize + 1) {
+                remaining -= leftSize + 1;
+                node = node.right;
+            }
+
+            else
+                return new RankingEntry(rank, node.number, node.elapsedTime);
+        }
+    }
+
+    /**
+     * Gets the first race records of the ranking, in O(log n + k).
+     *
+     * @param count the maximum number of race records (k)
+     *
+     * @return the entries of the first race records, fewer than the count if fewer race records are ranked
+     */
+    public RankingEntry[] top(int count) {
+        RankingEntry[] entries = new RankingEntry[Math.max(0, Math.min(count, size(root)))];
+        collect(root, entries, 0);
+
+        return entries;
+    }
+
+    /**
+     * Collects the entries of a subtree in order, until the array is full.
+     *
+     * @param node the root of the subtree
+     * @param entries the entries collected
+     * @param index the index of the next entry to collect
+     *
+     * @return the index of the next entry to collect, once the subtree collected
+     */
+    private static int collect(Node node, RankingEntry[] entries, int index) {
+        if (node == null || index >= entries.length)
+            return index;
+
+        index = collect(node.left, entries, index);
+
+        if (index < entries.length) {
+            entries[index] = new RankingEntry(index + 1, node.number, node.elapsedTime);
+            index = collect(node.right, entries, index + 1);
+        }
+
+        return index;
+    }
+
+    /**
+     * Adds a race record to a subtree.
+     *
+     * @param node the root of the subtree
+     * @param elapsedTime the elapsed time of the race record
+     * @param number the number of the race record
+     *
+     * @return the new root of the subtree, balanced
+     */
+    private static Node add(Node node, long elapsedTime, int number) {
+        if (node == null)
+            return new Node(elapsedTime, number);
+
+        int comparison = compare(elapsedTime, number, node);
+
+        if (comparison < 0)
+            node.left = add(node.left, elapsedTime, number);
+
+        else if (comparison > 0)
+            node.right = add(node.right, elapsedTime, number);
+
+        else
+            return node;
+
+        return balance(node);
+    }
+
+    /**
+     * Removes a race record from a subtree.
+     *
+     * @param node the root of the subtree
+     * @param elapsedTime the elapsed time of the race record
+     * @param number the number of the race record
+     *
+     * @return the new root of the subtree, balanced
+     */
+    private static Node remove(Node node, long elapsedTime, int number) {
+        if (node == null)
+            return null;
+
+        int comparison = compare(elapsedTime, number, node);
+
+        if (comparison < 0)
+            node.left = remove(node.left, elapsedTime, number);
+
+        else if (comparison > 0)
+            node.right = remove(node.right, elapsedTime, number);
+
+        else {
+            if (node.left == null)
+                return node.right;
+
+            if (node.right == null)
+                return node.left;
+
+            // Replaced by its successor, the smallest node of its right subtree
+            Node successor = node.right;
+
+            while (successor.left != null)
+                successor = successor.left;
+
+            successor.right = removeSmallest(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+
+        return balance(node);
+    }
+
+    /**
+     * Removes the smallest node of a subtree.
+     *
+     * @param node the root of the subtree
+     *
+     * @return the new root of the subtree, balanced
+     */
+    private static Node removeSmallest(Node node) {
+        if (node.left == null)
+            return node.right;
+
+        node.left = removeSmallest(node.left);
+        return balance(node);
+    }
+
+    /**
+     * Balances a node whose subtrees differ by two levels at most, after an addition or a removal.
+     *
+     * @param node the node to balance
+     *
+     * @return the new root of the subtree, balanced
+     */
+    private static Node balance(Node node) {
+        int factor = height(node.left) - height(node.right);
+
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right))
+                node.left = rotateLeft(node.left);
+
+            return rotateRight(node);
+        }
+
+        else if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left))
+                node.right = rotateRight(node.right);
+
+            return rotateLeft(node);
+        }
+
+        update(node);
+        return node;
+    }
+
+    /**
+     * Rotates a subtree to the left: its right child becomes its root.
+     *
+     * @param node the root of the subtree
+     *
+     * @return the new root of the subtree
+     */
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+
+        update(node);
+        update(right);
+        return right;
+    }
+
+    /**
+     * Rotates a subtree to the right: its left child becomes its root.
+     *
+     * @param node the root of the subtree
+     *
+     * @return the new root of the subtree
+     */
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+
+        update(node);
+        update(left);
+        return left;
+    }
+
+    /**
+     * Updates the height and the size of a node from its children.
+     *
+     * @param node the node to update
+     */
+    private static void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    /**
+     * Compares a race record to the race record of a node.
+     *
+     * @param elapsedTime the elapsed time of the race record
+     * @param number the number of the race record
+     * @param node the node
+     *
+     * @return a negative value if the race record is ranked before the node, positive if after, 0 if it is the node
+     */
+    private static int compare(long elapsedTime, int number, Node node) {
+        int comparison = Long.compare(elapsedTime, node.elapsedTime);
+
+        return comparison != 0 ? comparison : Integer.compare(number, node.number);
+    }
+
+    /**
+     * Gets the height of a subtree.
+     *
+     * @param node the root of the subtree, may be null
+     *
+     * @return the height of the subtree, 0 if empty
+     */
+    private static int height(Node node) {
+        return node != null ? node.height : 0;
+    }
+
+    /**
+     * Gets the size of a subtree.
+     *
+     * @param node the root of the subtree, may be null
+     *
+     * @return the number of nodes of the subtree, 0 if empty
+     */
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    /**
+     * A class representing a node of the tree, a race record ranked.
+     */
+    private static class Node {
+
+        /** The elapsed time of the race record (in milliseconds). */
+        private final long elapsedTime;
+
+        /** The number of the race record. */
+        private final int number;
+
+        /** The left child, ranked before. */
+        private Node left;
+
+        /** The right child, ranked after. */
+        private Node right;
+
+        /** The height of the subtree. */
+        private int height = 1;
+
+        /** The number of nodes of the subtree. */
+        private int size = 1;
+
+
+        /**
+         * Constructs an instance of node.
+         *
+         * @param elapsedTime the elapsed time of the race record
+         * @param number the number of the race record
+         */
+        private Node(long elapsedTime, int number) {
+            this.elapsedTime = elapsedTime;
+            this.number = number;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.ranking;
+
+import java.util.UUID;
+
+/**
+ * An interface representing a listener of the standings of the race categories. A listener is only notified for the
+ * race categories whose standings changed, and from the first rank changed: the ranks before it are unchanged, so the
+ * standings published can be refreshed from this rank only.
+ *
+ * The listeners are notified on the thread which changed the race record. When several threads change race records,
+ * the notifications of a race category may arrive out of order: each of them must be applied, the revision only telling
+ * which one is the latest.
+ *
+ * @author Fabien Vanden Bulck
+ */
+@FunctionalInterface
+public interface StandingsListener {
+
+    /**
+     * Notifies that the standings of a race category changed.
+     *
+     * @param raceCategoryUuid the identifier of the race category
+     * @param firstRank the first rank changed (starting at 1), the ranks before it are unchanged
+     * @param revision the revision of the standings of the race category, increased at each change
+     */
+    void standingsChanged(UUID raceCategoryUuid, int firstRank, long revision);
+}
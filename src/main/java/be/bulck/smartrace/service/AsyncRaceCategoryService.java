@@ -0,0 +1,147 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.provider.NameSort;
+import be.bulck.smartrace.model.RaceCategory;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * An interface representing an asynchronous service to handle race categories. The calls are executed by the service
+ * executor, off the JavaFX application thread, and their futures are completed on the service thread: the callbacks
+ * updating the view must be run on the JavaFX application thread, with {@code Platform::runLater} as executor.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see RaceCategoryService
+ */
+public interface AsyncRaceCategoryService {
+
+    /**
+     * Finds the race categories.
+     *
+     * @return a future completed with the race categories
+     */
+    CompletableFuture<RaceCategory[]> find();
+
+    /**
+     * Iterates over the race categories, one at a time. The action is executed on the JavaFX application thread, as the
+     * race categories are read.
+     *
+     * @param action the action executed for each race category
+     *
+     * @return a future completed once the action is executed for all the race categories
+     */
+    CompletableFuture<Void> forEach(Consumer<? super RaceCategory> action);
+
+    /**
+     * Finds a page of race categories, to load them on demand.
+     *
+     * @param afterName the name of the last race category of the previous page, or null for the first page
+     * @param limit the maximum number of race categories in the page
+     * @param sort the sort of the race categories
+     *
+     * @return a future completed with the race categories of the page, fewer than the limit for the last page
+     */
+    CompletableFuture<RaceCategory[]> findPage(String afterName, int limit, NameSort sort);
+
+    /**
+     * Finds a race category by his identifier.
+     *
+     * @param uuid the identifier of the race category to find
+     *
+     * @return a future completed with the race category found with the identifier provided
+     */
+    CompletableFuture<RaceCategory> find(UUID uuid);
+
+    /**
+     * Finds a race category by his name.
+     *
+     * @param name the name of the race category to find
+     *
+     * @return a future completed with the race category found with the name provided
+     */
+    CompletableFuture<RaceCategory> findByName(String name);
+
+    /**
+     * Creates a race category.
+     *
+     * @param raceCategory the race category to create
+     *
+     * @return a future completed once the race category is created
+     */
+    CompletableFuture<Void> create(RaceCategory raceCategory);
+
+    /**
+     * Creates several race categories at once, saved together.
+     *
+     * @param raceCategories the race categories to create
+     *
+     * @return a future completed once the race categories are created
+     */
+    CompletableFuture<Void> createAll(List<? extends RaceCategory> raceCategories);
+
+    /**
+     * Creates a race category.
+     *
+     * @param name the name of the race category
+     *
+     * @return a future completed with the race category created
+     */
+    CompletableFuture<RaceCategory> create(String name);
+
+    /**
+     * Updates a race category.
+     *
+     * @param raceCategory the race category to update
+     *
+     * @return a future completed once the race category is updated
+     */
+    CompletableFuture<Void> update(RaceCategory raceCategory);
+
+    /**
+     * Updates several race categories at once, saved together.
+     *
+     * @param raceCategories the race categories to update
+     *
+     * @return a future completed once the race categories are updated
+     */
+    CompletableFuture<Void> updateAll(List<? extends RaceCategory> raceCategories);
+
+    /**
+     * Deletes a race category.
+     *
+     * @param raceCategory the race category to delete
+     *
+     * @return a future completed once the race category is deleted
+     */
+    CompletableFuture<Void> delete(RaceCategory raceCategory);
+
+    /**
+     * Deletes several race categories at once, saved together.
+     *
+     * @param raceCategories the race categories to delete
+     *
+     * @return a future completed once the race categories are deleted
+     */
+    CompletableFuture<Void> deleteAll(List<? extends RaceCategory> raceCategories);
+}
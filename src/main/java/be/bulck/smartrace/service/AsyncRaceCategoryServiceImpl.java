@@ -0,0 +1,131 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.provider.NameSort;
+import be.bulck.smartrace.model.RaceCategory;
+import javafx.application.Platform;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A class representing an implementation of an asynchronous service to handle race categories, delegating to the
+ * synchronous one.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class AsyncRaceCategoryServiceImpl implements AsyncRaceCategoryService {
+
+    /** The race category service. */
+    @Autowired
+    private RaceCategoryService raceCategoryService;
+
+    /** The service executor. */
+    @Autowired
+    private ServiceExecutor serviceExecutor;
+
+
+    @Override
+    public CompletableFuture<RaceCategory[]> find() {
+        return serviceExecutor.submit(() -> raceCategoryService.find());
+    }
+
+    @Override
+    public CompletableFuture<Void> forEach(Consumer<? super RaceCategory> action) {
+        // The model objects are bound to the view: the action is executed on the JavaFX application thread, the future
+        // being completed after the action queued for the last race category
+        CompletableFuture<Void> read = serviceExecutor.submit(() -> {
+            raceCategoryService.forEach(raceCategory -> Platform.runLater(() -> action.accept(raceCategory)));
+            return null;
+        });
+
+        return read.thenApplyAsync(done -> done, Platform::runLater);
+    }
+
+    @Override
+    public CompletableFuture<RaceCategory[]> findPage(String afterName, int limit, NameSort sort) {
+        return serviceExecutor.submit(() -> raceCategoryService.findPage(afterName, limit, sort));
+    }
+
+    @Override
+    public CompletableFuture<RaceCategory> find(UUID uuid) {
+        return serviceExecutor.submit(() -> raceCategoryService.find(uuid));
+    }
+
+    @Override
+    public CompletableFuture<RaceCategory> findByName(String name) {
+        return serviceExecutor.submit(() -> raceCategoryService.findByName(name));
+    }
+
+    @Override
+    public CompletableFuture<Void> create(RaceCategory raceCategory) {
+        return serviceExecutor.submit(() -> {
+            raceCategoryService.create(raceCategory);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> createAll(List<? extends RaceCategory> raceCategories) {
+        return serviceExecutor.submit(() -> {
+            raceCategoryService.createAll(raceCategories);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<RaceCategory> create(String name) {
+        return serviceExecutor.submit(() -> raceCategoryService.create(name));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(RaceCategory raceCategory) {
+        return serviceExecutor.submit(() -> {
+            raceCategoryService.update(raceCategory);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAll(List<? extends RaceCategory> raceCategories) {
+        return serviceExecutor.submit(() -> {
+            raceCategoryService.updateAll(raceCategories);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(RaceCategory raceCategory) {
+        return serviceExecutor.submit(() -> {
+            raceCategoryService.delete(raceCategory);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAll(List<? extends RaceCategory> raceCategories) {
+        return serviceExecutor.submit(() -> {
+            raceCategoryService.deleteAll(raceCategories);
+            return null;
+        });
+    }
+}
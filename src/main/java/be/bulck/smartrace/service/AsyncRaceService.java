@@ -0,0 +1,76 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.model.Race;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An interface representing an asynchronous service to handle races. The calls are executed by the service executor,
+ * off the JavaFX application thread, and their futures are completed on the service thread: the callbacks updating the
+ * view must be run on the JavaFX application thread, with {@code Platform::runLater} as executor.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see RaceService
+ */
+public interface AsyncRaceService {
+
+    /**
+     * Gets the current race.
+     *
+     * @return a future completed with the current race
+     */
+    CompletableFuture<Race> getRace();
+
+    /**
+     * Creates the race.
+     *
+     * @param filePath the file path of the race
+     * @param name the name of the race
+     * @param location the location of the race
+     * @param description the description of the race
+     *
+     * @return a future completed with the race created
+     */
+    CompletableFuture<Race> create(String filePath, String name, String location, String description);
+
+    /**
+     * Creates the race with a durability profile for its file.
+     *
+     * @param filePath the file path of the race
+     * @param name the name of the race
+     * @param location the location of the race
+     * @param description the description of the race
+     * @param durabilityProfile the durability profile of the race file
+     *
+     * @return a future completed with the race created
+     */
+    CompletableFuture<Race> create(String filePath, String name, String location, String description, DurabilityProfile durabilityProfile);
+
+    /**
+     * Updates the current race.
+     *
+     * @param race the race to update
+     *
+     * @return a future completed once the race is updated
+     */
+    CompletableFuture<Void> update(Race race);
+}
@@ -0,0 +1,64 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.model.Race;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A class representing an implementation of an asynchronous service to handle races, delegating to the synchronous one.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class AsyncRaceServiceImpl implements AsyncRaceService {
+
+    /** The race service. */
+    @Autowired
+    private RaceService raceService;
+
+    /** The service executor. */
+    @Autowired
+    private ServiceExecutor serviceExecutor;
+
+
+    @Override
+    public CompletableFuture<Race> getRace() {
+        return serviceExecutor.submit(() -> raceService.getRace());
+    }
+
+    @Override
+    public CompletableFuture<Race> create(String filePath, String name, String location, String description) {
+        return serviceExecutor.submit(() -> raceService.create(filePath, name, location, description));
+    }
+
+    @Override
+    public CompletableFuture<Race> create(String filePath, String name, String location, String description, DurabilityProfile durabilityProfile) {
+        return serviceExecutor.submit(() -> raceService.create(filePath, name, location, description, durabilityProfile));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(Race race) {
+        return serviceExecutor.submit(() -> {
+            raceService.update(race);
+            return null;
+        });
+    }
+}
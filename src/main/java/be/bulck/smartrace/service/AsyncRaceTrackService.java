@@ -0,0 +1,151 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.provider.NameSort;
+import be.bulck.smartrace.model.RaceTrack;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * An interface representing an asynchronous service to handle race tracks. The calls are executed by the service
+ * executor, off the JavaFX application thread, and their futures are completed on the service thread: the callbacks
+ * updating the view must be run on the JavaFX application thread, with {@code Platform::runLater} as executor.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see RaceTrackService
+ */
+public interface AsyncRaceTrackService {
+
+    /**
+     * Finds the race tracks.
+     *
+     * @return a future completed with the race tracks
+     */
+    CompletableFuture<RaceTrack[]> find();
+
+    /**
+     * Iterates over the race tracks, one at a time. The action is executed on the JavaFX application thread, as the
+     * race tracks are read.
+     *
+     * @param action the action executed for each race track
+     *
+     * @return a future completed once the action is executed for all the race tracks
+     */
+    CompletableFuture<Void> forEach(Consumer<? super RaceTrack> action);
+
+    /**
+     * Finds a page of race tracks, to load them on demand.
+     *
+     * @param afterName the name of the last race track of the previous page, or null for the first page
+     * @param limit the maximum number of race tracks in the page
+     * @param sort the sort of the race tracks
+     *
+     * @return a future completed with the race tracks of the page, fewer than the limit for the last page
+     */
+    CompletableFuture<RaceTrack[]> findPage(String afterName, int limit, NameSort sort);
+
+    /**
+     * Finds a race track by his identifier.
+     *
+     * @param uuid the identifier of the race track to find
+     *
+     * @return a future completed with the race track found with the identifier provided
+     */
+    CompletableFuture<RaceTrack> find(UUID uuid);
+
+    /**
+     * Finds a race track by his name.
+     *
+     * @param name the name of the race track to find
+     *
+     * @return a future completed with the race track found with the name provided
+     */
+    CompletableFuture<RaceTrack> findByName(String name);
+
+    /**
+     * Creates a race track.
+     *
+     * @param raceTrack the race track to create
+     *
+     * @return a future completed once the race track is created
+     */
+    CompletableFuture<Void> create(RaceTrack raceTrack);
+
+    /**
+     * Creates several race tracks at once, saved together.
+     *
+     * @param raceTracks the race tracks to create
+     *
+     * @return a future completed once the race tracks are created
+     */
+    CompletableFuture<Void> createAll(List<? extends RaceTrack> raceTracks);
+
+    /**
+     * Creates a race track.
+     *
+     * @param name the name of the race track
+     * @param distance the distance of the race track
+     * @param elevation the elevation of the race track
+     * @param description the description of the race track
+     * @param teamSizeLimit the team size limit of the race track
+     *
+     * @return a future completed with the race track created
+     */
+    CompletableFuture<RaceTrack> create(String name, float distance, float elevation, String description, int teamSizeLimit);
+
+    /**
+     * Updates a race track.
+     *
+     * @param raceTrack the race track to update
+     *
+     * @return a future completed once the race track is updated
+     */
+    CompletableFuture<Void> update(RaceTrack raceTrack);
+
+    /**
+     * Updates several race tracks at once, saved together.
+     *
+     * @param raceTracks the race tracks to update
+     *
+     * @return a future completed once the race tracks are updated
+     */
+    CompletableFuture<Void> updateAll(List<? extends RaceTrack> raceTracks);
+
+    /**
+     * Deletes a race track.
+     *
+     * @param raceTrack the race track to delete
+     *
+     * @return a future completed once the race track is deleted
+     */
+    CompletableFuture<Void> delete(RaceTrack raceTrack);
+
+    /**
+     * Deletes several race tracks at once, saved together.
+     *
+     * @param raceTracks the race tracks to delete
+     *
+     * @return a future completed once the race tracks are deleted
+     */
+    CompletableFuture<Void> deleteAll(List<? extends RaceTrack> raceTracks);
+}
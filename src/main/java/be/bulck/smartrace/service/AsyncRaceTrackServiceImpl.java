@@ -0,0 +1,131 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.provider.NameSort;
+import be.bulck.smartrace.model.RaceTrack;
+import javafx.application.Platform;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A class representing an implementation of an asynchronous service to handle race tracks, delegating to the
+ * synchronous one.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class AsyncRaceTrackServiceImpl implements AsyncRaceTrackService {
+
+    /** The race track service. */
+    @Autowired
+    private RaceTrackService raceTrackService;
+
+    /** The service executor. */
+    @Autowired
+    private ServiceExecutor serviceExecutor;
+
+
+    @Override
+    public CompletableFuture<RaceTrack[]> find() {
+        return serviceExecutor.submit(() -> raceTrackService.find());
+    }
+
+    @Override
+    public CompletableFuture<Void> forEach(Consumer<? super RaceTrack> action) {
+        // The model objects are bound to the view: the action is executed on the JavaFX application thread, the future
+        // being completed after the action queued for the last race track
+        CompletableFuture<Void> read = serviceExecutor.submit(() -> {
+            raceTrackService.forEach(raceTrack -> Platform.runLater(() -> action.accept(raceTrack)));
+            return null;
+        });
+
+        return read.thenApplyAsync(done -> done, Platform::runLater);
+    }
+
+    @Override
+    public CompletableFuture<RaceTrack[]> findPage(String afterName, int limit, NameSort sort) {
+        return serviceExecutor.submit(() -> raceTrackService.findPage(afterName, limit, sort));
+    }
+
+    @Override
+    public CompletableFuture<RaceTrack> find(UUID uuid) {
+        return serviceExecutor.submit(() -> raceTrackService.find(uuid));
+    }
+
+    @Override
+    public CompletableFuture<RaceTrack> findByName(String name) {
+        return serviceExecutor.submit(() -> raceTrackService.findByName(name));
+    }
+
+    @Override
+    public CompletableFuture<Void> create(RaceTrack raceTrack) {
+        return serviceExecutor.submit(() -> {
+            raceTrackService.create(raceTrack);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> createAll(List<? extends RaceTrack> raceTracks) {
+        return serviceExecutor.submit(() -> {
+            raceTrackService.createAll(raceTracks);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<RaceTrack> create(String name, float distance, float elevation, String description, int teamSizeLimit) {
+        return serviceExecutor.submit(() -> raceTrackService.create(name, distance, elevation, description, teamSizeLimit));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(RaceTrack raceTrack) {
+        return serviceExecutor.submit(() -> {
+            raceTrackService.update(raceTrack);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAll(List<? extends RaceTrack> raceTracks) {
+        return serviceExecutor.submit(() -> {
+            raceTrackService.updateAll(raceTracks);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(RaceTrack raceTrack) {
+        return serviceExecutor.submit(() -> {
+            raceTrackService.delete(raceTrack);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAll(List<? extends RaceTrack> raceTracks) {
+        return serviceExecutor.submit(() -> {
+            raceTrackService.deleteAll(raceTracks);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.model.RaceCategory;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.ranking.RankingEntry;
+import be.bulck.smartrace.ranking.StandingsListener;
+
+/**
+ * An interface representing a service to get the live rankings of the race records finished, per race track and per
+ * race category.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public interface LeaderboardService {
+
+    /**
+     * Gets the rank of a race record in its race track.
+     *
+     * @param raceTrack the race track
+     * @param number the number of the race record
+     *
+     * @return the rank of the race record (starting at 1), or 0 if it isn't ranked in the race track
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    int rankOf(RaceTrack raceTrack, int number) throws DataProviderException;
+
+    /**
+     * Gets the rank of a race record in a race category.
+     *
+     * @param raceCategory the race category
+     * @param number the number of the race record
+     *
+     * @return the rank of the race record (starting at 1), or 0 if it isn't ranked in the race category
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    int rankOf(RaceCategory raceCategory, int number) throws DataProviderException;
+
+    /**
+     * Gets the first race records of a race track.
+     *
+     * @param raceTrack the race track
+     * @param count the maximum number of race records
+     *
+     * @return the entries of the first race records, fewer than the count if fewer race records are finished
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RankingEntry[] top(RaceTrack raceTrack, int count) throws DataProviderException;
+
+    /**
+     * Gets the first race records of a race category.
+     *
+     * @param raceCategory the race category
+     * @param count the maximum number of race records
+     *
+     * @return the entries of the first race records, fewer than the count if fewer race records are finished
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RankingEntry[] top(RaceCategory raceCategory, int count) throws DataProviderException;
+
+    /**
+     * Gets the revision of the standings of a race category, increased each time they change. A view publishing the
+     * standings of many race categories only refreshes the race categories whose revision changed.
+     *
+     * @param raceCategory the race category
+     *
+     * @return the revision of the standings of the race category
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    long getStandingsRevision(RaceCategory raceCategory) throws DataProviderException;
+
+    /**
+     * Adds a listener of the standings of the race categories, notified for each race category whose standings changed
+     * (a race record finished, cancelled or changed), from the first rank changed.
+     *
+     * @param listener the listener to add
+     */
+    void addStandingsListener(StandingsListener listener);
+
+    /**
+     * Removes a listener of the standings of the race categories.
+     *
+     * @param listener the listener to remove
+     */
+    void removeStandingsListener(StandingsListener listener);
+
+    /**
+     * Forgets the rankings, to compute them again from the race file at the next call. Required when the start time of
+     * a race track changes, which changes the elapsed times of all its race records.
+     */
+    void invalidate();
+}
@@ -0,0 +1,152 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.handler.DataHandler;
+import be.bulck.smartrace.dao.provider.RaceRecordListener;
+import be.bulck.smartrace.dao.provider.RaceRecordProvider;
+import be.bulck.smartrace.model.RaceCategory;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.ranking.Leaderboard;
+import be.bulck.smartrace.ranking.RankingEntry;
+import be.bulck.smartrace.ranking.StandingsListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * A class representing an implementation of a service to get the live rankings of the race records finished. The
+ * leaderboard is built from the race file at the first call, then kept up to date by the race records written through
+ * the race record provider (finish events included), each of them moving its race record in O(log n).
+ *
+ * The standings of the race categories are maintained the same way: a race record finished or cancelled only changes
+ * the standings of its own race categories, published to the standings listeners without computing the others again.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class LeaderboardServiceImpl implements LeaderboardService, RaceRecordListener {
+
+    /** The data handler. */
+    @Autowired
+    private DataHandler dataHandler;
+
+    /** The race record provider. */
+    @Autowired
+    private RaceRecordProvider raceRecordProvider;
+
+    /** The leaderboard of the race file opened. */
+    private final Leaderboard leaderboard = new Leaderboard();
+
+    /** Whether the leaderboard is built (or being built) from the race file opened. */
+    private volatile boolean loaded;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardServiceImpl.class);
+
+
+    /**
+     * Initializes the service (init method of the bean): it follows the race records written, and forgets the
+     * rankings when the race file changes.
+     */
+    public void init() {
+        raceRecordProvider.addListener(this);
+        dataHandler.addListener(filePath -> invalidate());
+    }
+
+    @Override
+    public int rankOf(RaceTrack raceTrack, int number) throws DataProviderException {
+        loadIfNeeded();
+        return leaderboard.rankOf(raceTrack, number);
+    }
+
+    @Override
+    public int rankOf(RaceCategory raceCategory, int number) throws DataProviderException {
+        loadIfNeeded();
+        return leaderboard.rankOf(raceCategory, number);
+    }
+
+    @Override
+    public RankingEntry[] top(RaceTrack raceTrack, int count) throws DataProviderException {
+        loadIfNeeded();
+        return leaderboard.top(raceTrack, count);
+    }
+
+    @Override
+    public RankingEntry[] top(RaceCategory raceCategory, int count) throws DataProviderException {
+        loadIfNeeded();
+        return leaderboard.top(raceCategory, count);
+    }
+
+    @Override
+    public long getStandingsRevision(RaceCategory raceCategory) throws DataProviderException {
+        loadIfNeeded();
+        return leaderboard.getRevision(raceCategory);
+    }
+
+    @Override
+    public void addStandingsListener(StandingsListener listener) {
+        leaderboard.addListener(listener);
+    }
+
+    @Override
+    public void removeStandingsListener(StandingsListener listener) {
+        leaderboard.removeListener(listener);
+    }
+
+    @Override
+    public void invalidate() {
+        loaded = false;
+        leaderboard.clear();
+    }
+
+    @Override
+    public void raceRecordChanged(RaceRecord raceRecord) {
+        if (loaded)
+            leaderboard.update(raceRecord);
+    }
+
+    @Override
+    public void raceRecordDeleted(RaceRecord raceRecord) {
+        if (loaded)
+            leaderboard.remove(raceRecord);
+    }
+
+    /**
+     * Builds the leaderboard from the race file opened, if not built yet. The race records written meanwhile are
+     * applied as well, the updates of a race record being idempotent.
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    private synchronized void loadIfNeeded() throws DataProviderException {
+        if (loaded)
+            return;
+
+        log.debug("Building the leaderboard...");
+        leaderboard.clear();
+        loaded = true;
+
+        try {
+            raceRecordProvider.forEach(leaderboard::update);
+        } catch (DataProviderException ex) {
+            invalidate();
+            throw ex;
+        }
+    }
+}
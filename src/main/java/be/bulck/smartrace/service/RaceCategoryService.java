@@ -20,9 +20,12 @@ package be.bulck.smartrace.service;
 
 import be.bulck.smartrace.dao.exception.DataHandlerException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.provider.NameSort;
 import be.bulck.smartrace.model.RaceCategory;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * An interface representing a service to handle race categories.
@@ -40,6 +43,28 @@ public interface RaceCategoryService {
      */
     RaceCategory[] find() throws DataProviderException;
 
+    /**
+     * Iterates over the race categories, one at a time. The action is executed while the race categories are read.
+     *
+     * @param action the action executed for each race category
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void forEach(Consumer<? super RaceCategory> action) throws DataProviderException;
+
+    /**
+     * Finds a page of race categories, to load them on demand.
+     *
+     * @param afterName the name of the last race category of the previous page, or null for the first page
+     * @param limit the maximum number of race categories in the page
+     * @param sort the sort of the race categories
+     *
+     * @return the race categories of the page, fewer than the limit for the last page
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceCategory[] findPage(String afterName, int limit, NameSort sort) throws DataProviderException;
+
     /**
      * Finds a race category by his identifier.
      *
@@ -72,6 +97,16 @@ public interface RaceCategoryService {
      */
     void create(RaceCategory raceCategory) throws DataHandlerException, DataProviderException;
 
+    /**
+     * Creates several race categories at once, saved together.
+     *
+     * @param raceCategories the race categories to create
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void createAll(List<? extends RaceCategory> raceCategories) throws DataHandlerException, DataProviderException;
+
     /**
      * Creates a race category.
      *
@@ -85,7 +120,8 @@ public interface RaceCategoryService {
     RaceCategory create(String name) throws DataHandlerException, DataProviderException;
 
     /**
-     * Updates a race category.
+     * Updates the fields of a race category changed since it was loaded or saved. Nothing is written for a race
+     * category unchanged.
      *
      * @param raceCategory the race category to update
      *
@@ -94,6 +130,17 @@ public interface RaceCategoryService {
      */
     void update(RaceCategory raceCategory) throws DataHandlerException, DataProviderException;
 
+    /**
+     * Updates the fields changed of several race categories at once, saved together. The race categories unchanged are
+     * skipped.
+     *
+     * @param raceCategories the race categories to update
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void updateAll(List<? extends RaceCategory> raceCategories) throws DataHandlerException, DataProviderException;
+
     /**
      * Deletes a race category.
      *
@@ -103,4 +150,14 @@ public interface RaceCategoryService {
      * @throws DataProviderException an exception thrown if a data provider problem occurs
      */
     void delete(RaceCategory raceCategory) throws DataHandlerException, DataProviderException;
+
+    /**
+     * Deletes several race categories at once, saved together.
+     *
+     * @param raceCategories the race categories to delete
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void deleteAll(List<? extends RaceCategory> raceCategories) throws DataHandlerException, DataProviderException;
 }
@@ -19,15 +19,21 @@
 package be.bulck.smartrace.service;
 
 import be.bulck.smartrace.dao.exception.DataHandlerException;
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.dao.handler.DataHandler;
+import be.bulck.smartrace.dao.provider.NameSort;
 import be.bulck.smartrace.dao.provider.RaceCategoryProvider;
 import be.bulck.smartrace.model.RaceCategory;
+import be.bulck.smartrace.service.cache.IdentityMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * A class representing an implementation of a service to handle race categories.
@@ -44,42 +50,106 @@ public class RaceCategoryServiceImpl implements RaceCategoryService {
     @Autowired
     private RaceCategoryProvider raceCategoryProvider;
 
+    /** The identity map of the race categories of the race file opened. */
+    private final IdentityMap<RaceCategory> raceCategoryIdentityMap = new IdentityMap<>(RaceCategory::getUuid);
+
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(RaceCategoryServiceImpl.class);
 
 
+    /**
+     * Initializes the service (init method of the bean): the race categories mapped are forgotten when the race file changes.
+     */
+    public void init() {
+        dataHandler.addListener(filePath -> raceCategoryIdentityMap.clear());
+    }
+
     @Override
     public RaceCategory[] find() throws DataProviderException {
         log.debug("Finding all race categories...");
-        return raceCategoryProvider.find();
+        validateIdentityMap();
+        List<RaceCategory> raceCategories = raceCategoryIdentityMap.isComplete() ? raceCategoryIdentityMap.getAll() : raceCategoryIdentityMap.attachAll(raceCategoryProvider.find());
+
+        return raceCategories.toArray(new RaceCategory[raceCategories.size()]);
+    }
+
+    @Override
+    public void forEach(Consumer<? super RaceCategory> action) throws DataProviderException {
+        log.debug("Iterating over the race categories...");
+        validateIdentityMap();
+
+        if (raceCategoryIdentityMap.isComplete())
+            raceCategoryIdentityMap.getAll().forEach(action);
+        else
+            raceCategoryProvider.forEach(raceCategory -> action.accept(raceCategoryIdentityMap.attach(raceCategory)));
+    }
+
+    @Override
+    public RaceCategory[] findPage(String afterName, int limit, NameSort sort) throws DataProviderException {
+        log.debug("Finding a page of " + limit + " race categories after '" + afterName + "' (" + sort + ")...");
+        validateIdentityMap();
+        RaceCategory[] raceCategorys = raceCategoryProvider.findPage(afterName, limit, sort);
+
+        for (int index = 0; index < raceCategorys.length; index++)
+            raceCategorys[index] = raceCategoryIdentityMap.attach(raceCategorys[index]);
+
+        return raceCategorys;
     }
 
     @Override
     public RaceCategory find(UUID uuid) throws DataProviderException {
         log.debug("Finding race category with UUID '" + uuid + "'...");
-        return raceCategoryProvider.find(uuid);
+        validateIdentityMap();
+        RaceCategory raceCategory = raceCategoryIdentityMap.get(uuid);
+
+        if (raceCategory == null && !raceCategoryIdentityMap.isComplete())
+            raceCategory = raceCategoryIdentityMap.attach(raceCategoryProvider.find(uuid));
+
+        return raceCategory;
     }
 
     @Override
     public RaceCategory findByName(String name) throws DataProviderException {
         log.debug("Finding the race category with the name '" + name + "'...");
-        return raceCategoryProvider.findByName(name);
+        validateIdentityMap();
+
+        if (raceCategoryIdentityMap.isComplete()) {
+            for (RaceCategory raceCategory : raceCategoryIdentityMap.getAll()) {
+                if (raceCategory.getName().equals(name))
+                    return raceCategory;
+            }
+
+            return null;
+        }
+
+        return raceCategoryIdentityMap.attach(raceCategoryProvider.findByName(name));
     }
 
     @Override
     public void create(RaceCategory raceCategory) throws DataHandlerException, DataProviderException {
         log.debug("Creating the race category '" + raceCategory.getName() + "' (" + raceCategory.getUuid() + ")...");
         raceCategoryProvider.create(raceCategory);
+        raceCategoryIdentityMap.put(raceCategory);
         dataHandler.save();
         log.info("Race category '" + raceCategory + "' (" + raceCategory.getUuid() + ") created");
     }
 
+    @Override
+    public void createAll(List<? extends RaceCategory> raceCategories) throws DataHandlerException, DataProviderException {
+        log.debug("Creating " + raceCategories.size() + " race categories...");
+        raceCategoryProvider.createAll(raceCategories);
+        raceCategories.forEach(raceCategoryIdentityMap::put);
+        dataHandler.save();
+        log.info(raceCategories.size() + " race categories created");
+    }
+
     @Override
     public RaceCategory create(String name) throws DataHandlerException, DataProviderException {
         log.debug("Creating the race category '" + name + "'...");
         RaceCategory raceCategory = new RaceCategory(name);
 
         raceCategoryProvider.create(raceCategory);
+        raceCategoryIdentityMap.put(raceCategory);
         dataHandler.save();
 
         log.info("Race category '" + raceCategory + "' (" + raceCategory.getUuid() + ") created");
@@ -89,16 +159,85 @@ public class RaceCategoryServiceImpl implements RaceCategoryService {
     @Override
     public void update(RaceCategory raceCategory) throws DataHandlerException, DataProviderException {
         log.debug("Updating the race category '" + raceCategory + "' (" + raceCategory.getUuid() + ")...");
-        raceCategoryProvider.update(raceCategory);
+
+        if (!raceCategory.getChangeTracker().isChanged()) {
+            log.debug("Race category '" + raceCategory + "' (" + raceCategory.getUuid() + ") unchanged");
+            return;
+        }
+
+        try {
+            raceCategoryProvider.update(raceCategory);
+        } catch (DataProviderConflictException ex) {
+            // Another station changed the race file: the race categories mapped are loaded again
+            raceCategoryIdentityMap.clear();
+            throw ex;
+        } catch (DataProviderException ex) {
+            // The instance holds changes which weren't written: it will be loaded again
+            raceCategoryIdentityMap.remove(raceCategory, false);
+            throw ex;
+        }
+
+        raceCategoryIdentityMap.put(raceCategory);
         dataHandler.save();
         log.info("Race category '" + raceCategory + "' (" + raceCategory.getUuid() + ") updated");
     }
 
+    @Override
+    public void updateAll(List<? extends RaceCategory> raceCategories) throws DataHandlerException, DataProviderException {
+        List<RaceCategory> changedRaceCategories = new ArrayList<>();
+
+        for (RaceCategory raceCategory : raceCategories) {
+            if (raceCategory.getChangeTracker().isChanged())
+                changedRaceCategories.add(raceCategory);
+        }
+
+        log.debug("Updating " + changedRaceCategories.size() + " race categories changed out of " + raceCategories.size() + "...");
+
+        if (changedRaceCategories.isEmpty())
+            return;
+
+        try {
+            raceCategoryProvider.updateAll(changedRaceCategories);
+        } catch (DataProviderConflictException ex) {
+            // Another station changed the race file: the race categories mapped are loaded again
+            raceCategoryIdentityMap.clear();
+            throw ex;
+        } catch (DataProviderException ex) {
+            // The instances hold changes which weren't written: they will be loaded again
+            changedRaceCategories.forEach(raceCategory -> raceCategoryIdentityMap.remove(raceCategory, false));
+            throw ex;
+        }
+
+        changedRaceCategories.forEach(raceCategoryIdentityMap::put);
+        dataHandler.save();
+        log.info(changedRaceCategories.size() + " race categories updated");
+    }
+
     @Override
     public void delete(RaceCategory raceCategory) throws DataHandlerException, DataProviderException {
         log.debug("Deleting the race category '" + raceCategory + "' (" + raceCategory.getUuid() + ")...");
         raceCategoryProvider.delete(raceCategory);
+        raceCategoryIdentityMap.remove(raceCategory, true);
         dataHandler.save();
         log.info("Race category '" + raceCategory + "' (" + raceCategory.getUuid() + ") deleted");
     }
+
+    @Override
+    public void deleteAll(List<? extends RaceCategory> raceCategories) throws DataHandlerException, DataProviderException {
+        log.debug("Deleting " + raceCategories.size() + " race categories...");
+        raceCategoryProvider.deleteAll(raceCategories);
+        raceCategories.forEach(raceCategory -> raceCategoryIdentityMap.remove(raceCategory, true));
+        dataHandler.save();
+        log.info(raceCategories.size() + " race categories deleted");
+    }
+
+    /**
+     * Validates the race categories mapped against the version of the data, so the ones changed by another station are
+     * loaded again.
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    private void validateIdentityMap() throws DataProviderException {
+        raceCategoryIdentityMap.validate(dataHandler.getDataVersion());
+    }
 }
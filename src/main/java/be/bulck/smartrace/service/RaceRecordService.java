@@ -0,0 +1,146 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.exception.DataHandlerException;
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.provider.RaceRecordSort;
+import be.bulck.smartrace.model.RaceRecord;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * An interface representing a service to handle race records.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public interface RaceRecordService {
+
+    /**
+     * Finds the race records, with their racer team, race track and race categories.
+     *
+     * @return the race records
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceRecord[] find() throws DataProviderException;
+
+    /**
+     * Iterates over the race records, with their racer team, race track and race categories, one at a time, without
+     * holding all of them in memory. The action is executed while the race records are read.
+     *
+     * @param action the action executed for each race record
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void forEach(Consumer<? super RaceRecord> action) throws DataProviderException;
+
+    /**
+     * Finds a page of race records, to load them on demand.
+     *
+     * @param after the last race record of the previous page, or null for the first page
+     * @param limit the maximum number of race records in the page
+     * @param sort the sort of the race records
+     *
+     * @return the race records of the page, fewer than the limit for the last page
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceRecord[] findPage(RaceRecord after, int limit, RaceRecordSort sort) throws DataProviderException;
+
+    /**
+     * Finds a race record by his identifier.
+     *
+     * @param uuid the identifier of the race record to find
+     *
+     * @return the race record found with the identifier provided
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceRecord find(UUID uuid) throws DataProviderException;
+
+    /**
+     * Finds a race record by his number (bib).
+     *
+     * @param number the number of the race record to find
+     *
+     * @return the race record found with the number provided, or null if none is found
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceRecord findByNumber(int number) throws DataProviderException;
+
+    /**
+     * Creates a race record.
+     *
+     * @param raceRecord the race record to create
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void create(RaceRecord raceRecord) throws DataHandlerException, DataProviderException;
+
+    /**
+     * Creates several race records at once, saved together.
+     *
+     * @param raceRecords the race records to create
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void createAll(List<? extends RaceRecord> raceRecords) throws DataHandlerException, DataProviderException;
+
+    /**
+     * Updates a race record.
+     *
+     * @param raceRecord the race record to update
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void update(RaceRecord raceRecord) throws DataHandlerException, DataProviderException;
+
+    /**
+     * Deletes a race record.
+     *
+     * @param raceRecord the race record to delete
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void delete(RaceRecord raceRecord) throws DataHandlerException, DataProviderException;
+
+    /**
+     * Marks a race record as finished, when he crosses the finish line. The end time of a race record already finished
+     * is kept.
+     *
+     * @param number the number of the race record
+     * @param endTime the end time of the race record
+     *
+     * @return true if the race record was marked as finished, false if no race record has the number provided or if it
+     * is already finished
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    boolean markFinished(int number, Instant endTime) throws DataHandlerException, DataProviderException;
+}
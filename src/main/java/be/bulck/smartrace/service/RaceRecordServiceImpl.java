@@ -0,0 +1,135 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.exception.DataHandlerException;
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.handler.DataHandler;
+import be.bulck.smartrace.dao.provider.RaceRecordSort;
+import be.bulck.smartrace.dao.provider.RaceRecordProvider;
+import be.bulck.smartrace.model.RaceRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * A class representing an implementation of a service to handle race records.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RaceRecordServiceImpl implements RaceRecordService {
+
+    /** The data handler. */
+    @Autowired
+    private DataHandler dataHandler;
+
+    /** The data provider. */
+    @Autowired
+    private RaceRecordProvider raceRecordProvider;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(RaceRecordServiceImpl.class);
+
+
+    @Override
+    public RaceRecord[] find() throws DataProviderException {
+        log.debug("Finding all race records...");
+        return raceRecordProvider.find();
+    }
+
+    @Override
+    public void forEach(Consumer<? super RaceRecord> action) throws DataProviderException {
+        log.debug("Iterating over the race records...");
+        raceRecordProvider.forEach(action);
+    }
+
+    @Override
+    public RaceRecord[] findPage(RaceRecord after, int limit, RaceRecordSort sort) throws DataProviderException {
+        log.debug("Finding a page of " + limit + " race records after '" + after + "' (" + sort + ")...");
+        return raceRecordProvider.findPage(after, limit, sort);
+    }
+
+    @Override
+    public RaceRecord find(UUID uuid) throws DataProviderException {
+        log.debug("Finding race record with UUID '" + uuid + "'...");
+        return raceRecordProvider.find(uuid);
+    }
+
+    @Override
+    public RaceRecord findByNumber(int number) throws DataProviderException {
+        log.debug("Finding the race record with the number " + number + "...");
+        return raceRecordProvider.findByNumber(number);
+    }
+
+    @Override
+    public void create(RaceRecord raceRecord) throws DataHandlerException, DataProviderException {
+        log.debug("Creating the race record " + raceRecord.getNumber() + " (" + raceRecord.getUuid() + ")...");
+        raceRecordProvider.create(raceRecord);
+        dataHandler.save();
+        log.info("Race record " + raceRecord.getNumber() + " (" + raceRecord.getUuid() + ") created");
+    }
+
+    @Override
+    public void createAll(List<? extends RaceRecord> raceRecords) throws DataHandlerException, DataProviderException {
+        log.debug("Creating " + raceRecords.size() + " race records...");
+        raceRecordProvider.createAll(raceRecords);
+        dataHandler.save();
+        log.info(raceRecords.size() + " race records created");
+    }
+
+    @Override
+    public void update(RaceRecord raceRecord) throws DataHandlerException, DataProviderException {
+        log.debug("Updating the race record " + raceRecord.getNumber() + " (" + raceRecord.getUuid() + ")...");
+        raceRecordProvider.update(raceRecord);
+        dataHandler.save();
+        log.info("Race record " + raceRecord.getNumber() + " (" + raceRecord.getUuid() + ") updated");
+    }
+
+    @Override
+    public void delete(RaceRecord raceRecord) throws DataHandlerException, DataProviderException {
+        log.debug("Deleting the race record " + raceRecord.getNumber() + " (" + raceRecord.getUuid() + ")...");
+        raceRecordProvider.delete(raceRecord);
+        dataHandler.save();
+        log.info("Race record " + raceRecord.getNumber() + " (" + raceRecord.getUuid() + ") deleted");
+    }
+
+    @Override
+    public boolean markFinished(int number, Instant endTime) throws DataHandlerException, DataProviderException {
+        log.debug("Marking the race record " + number + " as finished...");
+
+        if (!raceRecordProvider.markFinished(number, endTime, false)) {
+            if (raceRecordProvider.findByNumber(number) == null)
+                log.warn("No race record with the number " + number);
+
+            else
+                log.warn("Race record " + number + " already finished, end time kept");
+
+            return false;
+        }
+
+        dataHandler.save();
+        log.info("Race record " + number + " finished at " + endTime);
+        return true;
+    }
+}
@@ -20,6 +20,7 @@ package be.bulck.smartrace.service;
 
 import be.bulck.smartrace.dao.exception.DataHandlerException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
 import be.bulck.smartrace.model.Race;
 
 /**
@@ -53,6 +54,22 @@ public interface RaceService {
      */
     Race create(String filePath, String name, String location, String description) throws DataHandlerException, DataProviderException;
 
+    /**
+     * Creates the race with a durability profile for its file.
+     *
+     * @param filePath the file path of the race
+     * @param name the name of the race
+     * @param location the location of the race
+     * @param description the description of the race
+     * @param durabilityProfile the durability profile of the race file
+     *
+     * @return the race created
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    Race create(String filePath, String name, String location, String description, DurabilityProfile durabilityProfile) throws DataHandlerException, DataProviderException;
+
     /**
      * Updates the current race.
      *
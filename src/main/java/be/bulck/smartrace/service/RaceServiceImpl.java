@@ -22,6 +22,7 @@ import be.bulck.smartrace.SmartRace;
 import be.bulck.smartrace.dao.exception.DataHandlerException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.dao.handler.DataHandler;
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
 import be.bulck.smartrace.dao.provider.RaceProvider;
 import be.bulck.smartrace.lang.LanguageSupport;
 import be.bulck.smartrace.model.Race;
@@ -30,6 +31,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.concurrent.ExecutionException;
+
 /**
  * A class representing an implementation of a service to handle races.
  *
@@ -45,27 +48,50 @@ public class RaceServiceImpl implements RaceService {
     @Autowired
     private RaceProvider raceProvider;
 
+    /** The race of the race file opened, materialized once (null if not loaded yet). */
+    private volatile Race race;
+
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(RaceServiceImpl.class);
 
 
+    /**
+     * Initializes the service (init method of the bean): the race loaded is forgotten when the race file changes.
+     */
+    public void init() {
+        dataHandler.addListener(filePath -> race = null);
+    }
+
     @Override
     public Race getRace() throws DataProviderException {
-        log.debug("Finding current race...");
-        return raceProvider.find();
+        Race race = this.race;
+
+        if (race == null) {
+            log.debug("Finding current race...");
+            race = raceProvider.find();
+            this.race = race;
+        }
+
+        return race;
     }
 
     @Override
     public Race create(String filePath, String name, String location, String description) throws DataHandlerException, DataProviderException {
+        return create(filePath, name, location, description, DurabilityProfile.TIMING);
+    }
+
+    @Override
+    public Race create(String filePath, String name, String location, String description, DurabilityProfile durabilityProfile) throws DataHandlerException, DataProviderException {
         log.debug("Creating race '" + name + " @ " + location + "' ...");
         Race race = new Race(name, location);
         race.setState(RaceState.SETTING_UP);
         race.setDescription(description);
         race.setVersion(SmartRace.VERSION);
 
-        dataHandler.create(filePath);
+        dataHandler.create(filePath, durabilityProfile);
         raceProvider.create(race);
-        dataHandler.save();
+        this.race = race;
+        saveDurably();
 
         log.info("Race '" + name + " @ " + location + "' (" + race.getUuid() + ") created");
         return race;
@@ -74,8 +100,42 @@ public class RaceServiceImpl implements RaceService {
     @Override
     public void update(Race race) throws DataHandlerException, DataProviderException {
         log.debug("Updating race '" + race.getName() + "' (" + race.getUuid() + ")...");
-        raceProvider.update(race);
-        dataHandler.save();
+
+        try {
+            raceProvider.update(race);
+        } catch (DataProviderException ex) {
+            // The instance holds changes which weren't written: it will be loaded again
+            this.race = null;
+            throw ex;
+        }
+
+        this.race = race;
+        saveDurably();
         log.debug("Race '" + race.getName() + " '(" + race.getUuid() + ") updated");
     }
+
+    /**
+     * Saves the current data and waits for the changes to be durable. The race is read back through the read-only
+     * connections, which only see the committed changes, so its saves can't be left behind.
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     */
+    private void saveDurably() throws DataHandlerException {
+        try {
+            dataHandler.saveAsync().get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.error(ex.getMessage(), ex);
+            throw new DataHandlerException("Saving file interrupted");
+        } catch (ExecutionException ex) {
+            // The failure of the save itself is reported, not its wrapper
+            Throwable cause = ex.getCause();
+
+            if (cause instanceof DataHandlerException)
+                throw (DataHandlerException) cause;
+
+            log.error(cause.getMessage(), cause);
+            throw new DataHandlerException("Saving file failed: " + cause.getMessage());
+        }
+    }
 }
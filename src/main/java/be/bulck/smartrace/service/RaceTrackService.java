@@ -20,9 +20,12 @@ package be.bulck.smartrace.service;
 
 import be.bulck.smartrace.dao.exception.DataHandlerException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.provider.NameSort;
 import be.bulck.smartrace.model.RaceTrack;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * An interface representing a service to handle race tracks.
@@ -40,6 +43,28 @@ public interface RaceTrackService {
      */
     RaceTrack[] find() throws DataProviderException;
 
+    /**
+     * Iterates over the race tracks, one at a time. The action is executed while the race tracks are read.
+     *
+     * @param action the action executed for each race track
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void forEach(Consumer<? super RaceTrack> action) throws DataProviderException;
+
+    /**
+     * Finds a page of race tracks, to load them on demand.
+     *
+     * @param afterName the name of the last race track of the previous page, or null for the first page
+     * @param limit the maximum number of race tracks in the page
+     * @param sort the sort of the race tracks
+     *
+     * @return the race tracks of the page, fewer than the limit for the last page
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    RaceTrack[] findPage(String afterName, int limit, NameSort sort) throws DataProviderException;
+
     /**
      * Finds a race track by his identifier.
      *
@@ -72,6 +97,16 @@ public interface RaceTrackService {
      */
     void create(RaceTrack raceTrack) throws DataHandlerException, DataProviderException;
 
+    /**
+     * Creates several race tracks at once, saved together.
+     *
+     * @param raceTracks the race tracks to create
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void createAll(List<? extends RaceTrack> raceTracks) throws DataHandlerException, DataProviderException;
+
     /**
      * Creates a race track.
      *
@@ -89,7 +124,8 @@ public interface RaceTrackService {
     RaceTrack create(String name, float distance, float elevation, String description, int teamSizeLimit) throws DataHandlerException, DataProviderException;
 
     /**
-     * Updates a race track.
+     * Updates the fields of a race track changed since it was loaded or saved. Nothing is written for a race track
+     * unchanged.
      *
      * @param raceTrack the race track to update
      *
@@ -98,6 +134,16 @@ public interface RaceTrackService {
      */
     void update(RaceTrack raceTrack) throws DataHandlerException, DataProviderException;
 
+    /**
+     * Updates the fields changed of several race tracks at once, saved together. The race tracks unchanged are skipped.
+     *
+     * @param raceTracks the race tracks to update
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void updateAll(List<? extends RaceTrack> raceTracks) throws DataHandlerException, DataProviderException;
+
     /**
      * Deletes a race track.
      *
@@ -107,4 +153,14 @@ public interface RaceTrackService {
      * @throws DataProviderException an exception thrown if a data provider problem occurs
      */
     void delete(RaceTrack raceTrack) throws DataHandlerException, DataProviderException;
+
+    /**
+     * Deletes several race tracks at once, saved together.
+     *
+     * @param raceTracks the race tracks to delete
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    void deleteAll(List<? extends RaceTrack> raceTracks) throws DataHandlerException, DataProviderException;
 }
@@ -19,15 +19,21 @@
 package be.bulck.smartrace.service;
 
 import be.bulck.smartrace.dao.exception.DataHandlerException;
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
 import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.dao.handler.DataHandler;
+import be.bulck.smartrace.dao.provider.NameSort;
 import be.bulck.smartrace.dao.provider.RaceTrackProvider;
 import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.service.cache.IdentityMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * A class representing an implementation of a service to handle race tracks.
@@ -44,36 +50,99 @@ public class RaceTrackServiceImpl implements RaceTrackService {
     @Autowired
     private RaceTrackProvider raceTrackProvider;
 
+    /** The identity map of the race tracks of the race file opened. */
+    private final IdentityMap<RaceTrack> raceTrackIdentityMap = new IdentityMap<>(RaceTrack::getUuid);
+
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(RaceTrackServiceImpl.class);
 
 
+    /**
+     * Initializes the service (init method of the bean): the race tracks mapped are forgotten when the race file changes.
+     */
+    public void init() {
+        dataHandler.addListener(filePath -> raceTrackIdentityMap.clear());
+    }
+
     @Override
     public RaceTrack[] find() throws DataProviderException {
         log.debug("Finding all race tracks...");
-        return raceTrackProvider.find();
+        validateIdentityMap();
+        List<RaceTrack> raceTracks = raceTrackIdentityMap.isComplete() ? raceTrackIdentityMap.getAll() : raceTrackIdentityMap.attachAll(raceTrackProvider.find());
+
+        return raceTracks.toArray(new RaceTrack[raceTracks.size()]);
+    }
+
+    @Override
+    public void forEach(Consumer<? super RaceTrack> action) throws DataProviderException {
+        log.debug("Iterating over the race tracks...");
+        validateIdentityMap();
+
+        if (raceTrackIdentityMap.isComplete())
+            raceTrackIdentityMap.getAll().forEach(action);
+        else
+            raceTrackProvider.forEach(raceTrack -> action.accept(raceTrackIdentityMap.attach(raceTrack)));
+    }
+
+    @Override
+    public RaceTrack[] findPage(String afterName, int limit, NameSort sort) throws DataProviderException {
+        log.debug("Finding a page of " + limit + " race tracks after '" + afterName + "' (" + sort + ")...");
+        validateIdentityMap();
+        RaceTrack[] raceTracks = raceTrackProvider.findPage(afterName, limit, sort);
+
+        for (int index = 0; index < raceTracks.length; index++)
+            raceTracks[index] = raceTrackIdentityMap.attach(raceTracks[index]);
+
+        return raceTracks;
     }
 
     @Override
     public RaceTrack find(UUID uuid) throws DataProviderException {
         log.debug("Finding the race track with the UUID '" + uuid + "'...");
-        return raceTrackProvider.find(uuid);
+        validateIdentityMap();
+        RaceTrack raceTrack = raceTrackIdentityMap.get(uuid);
+
+        if (raceTrack == null && !raceTrackIdentityMap.isComplete())
+            raceTrack = raceTrackIdentityMap.attach(raceTrackProvider.find(uuid));
+
+        return raceTrack;
     }
 
     @Override
     public RaceTrack findByName(String name) throws DataProviderException {
         log.debug("Finding the race track with the name '" + name + "'...");
-        return raceTrackProvider.findByName(name);
+        validateIdentityMap();
+
+        if (raceTrackIdentityMap.isComplete()) {
+            for (RaceTrack raceTrack : raceTrackIdentityMap.getAll()) {
+                if (raceTrack.getName().equals(name))
+                    return raceTrack;
+            }
+
+            return null;
+        }
+
+        return raceTrackIdentityMap.attach(raceTrackProvider.findByName(name));
     }
 
     @Override
     public void create(RaceTrack raceTrack) throws DataHandlerException, DataProviderException {
         log.debug("Creating the race track '" + raceTrack + "' (" + raceTrack.getUuid() + ")...");
         raceTrackProvider.create(raceTrack);
+        raceTrackIdentityMap.put(raceTrack);
         dataHandler.save();
         log.info("Race track '" + raceTrack + "' (" + raceTrack.getUuid() + ") created");
     }
 
+    @Override
+    public void createAll(List<? extends RaceTrack> raceTracks) throws DataHandlerException, DataProviderException {
+        log.debug("Creating " + raceTracks.size() + " race tracks...");
+        raceTrackProvider.createAll(raceTracks);
+        raceTracks.forEach(raceTrackIdentityMap::put);
+        dataHandler.save();
+        log.info(raceTracks.size() + " race tracks created");
+    }
+
     @Override
     public RaceTrack create(String name, float distance, float elevation, String description, int teamSizeLimit) throws DataHandlerException, DataProviderException {
         log.debug("Creating the race track '" + name + "'...");
@@ -83,6 +152,7 @@ public class RaceTrackServiceImpl implements RaceTrackService {
         raceTrack.setTeamSizeLimit(teamSizeLimit);
 
         raceTrackProvider.create(raceTrack);
+        raceTrackIdentityMap.put(raceTrack);
         dataHandler.save();
 
         log.info("Race track '" + name + "' (" + raceTrack.getUuid() + ") created");
@@ -92,16 +162,85 @@ public class RaceTrackServiceImpl implements RaceTrackService {
     @Override
     public void update(RaceTrack raceTrack) throws DataHandlerException, DataProviderException {
         log.debug("Updating the race track '" + raceTrack + "' (" + raceTrack.getUuid() + ")...");
-        raceTrackProvider.update(raceTrack);
+
+        if (!raceTrack.getChangeTracker().isChanged()) {
+            log.debug("Race track '" + raceTrack + "' (" + raceTrack.getUuid() + ") unchanged");
+            return;
+        }
+
+        try {
+            raceTrackProvider.update(raceTrack);
+        } catch (DataProviderConflictException ex) {
+            // Another station changed the race file: the race tracks mapped are loaded again
+            raceTrackIdentityMap.clear();
+            throw ex;
+        } catch (DataProviderException ex) {
+            // The instance holds changes which weren't written: it will be loaded again
+            raceTrackIdentityMap.remove(raceTrack, false);
+            throw ex;
+        }
+
+        raceTrackIdentityMap.put(raceTrack);
         dataHandler.save();
         log.info("Race track '" + raceTrack + "' (" + raceTrack.getUuid() + ") updated");
     }
 
+    @Override
+    public void updateAll(List<? extends RaceTrack> raceTracks) throws DataHandlerException, DataProviderException {
+        List<RaceTrack> changedRaceTracks = new ArrayList<>();
+
+        for (RaceTrack raceTrack : raceTracks) {
+            if (raceTrack.getChangeTracker().isChanged())
+                changedRaceTracks.add(raceTrack);
+        }
+
+        log.debug("Updating " + changedRaceTracks.size() + " race tracks changed out of " + raceTracks.size() + "...");
+
+        if (changedRaceTracks.isEmpty())
+            return;
+
+        try {
+            raceTrackProvider.updateAll(changedRaceTracks);
+        } catch (DataProviderConflictException ex) {
+            // Another station changed the race file: the race tracks mapped are loaded again
+            raceTrackIdentityMap.clear();
+            throw ex;
+        } catch (DataProviderException ex) {
+            // The instances hold changes which weren't written: they will be loaded again
+            changedRaceTracks.forEach(raceTrack -> raceTrackIdentityMap.remove(raceTrack, false));
+            throw ex;
+        }
+
+        changedRaceTracks.forEach(raceTrackIdentityMap::put);
+        dataHandler.save();
+        log.info(changedRaceTracks.size() + " race tracks updated");
+    }
+
     @Override
     public void delete(RaceTrack raceTrack) throws DataHandlerException, DataProviderException {
         log.debug("Deleting the race track '" + raceTrack + "' (" + raceTrack.getUuid() + ")...");
         raceTrackProvider.delete(raceTrack);
+        raceTrackIdentityMap.remove(raceTrack, true);
         dataHandler.save();
         log.info("Race track '" + raceTrack + "' (" + raceTrack.getUuid() + ") deleted");
     }
+
+    @Override
+    public void deleteAll(List<? extends RaceTrack> raceTracks) throws DataHandlerException, DataProviderException {
+        log.debug("Deleting " + raceTracks.size() + " race tracks...");
+        raceTrackProvider.deleteAll(raceTracks);
+        raceTracks.forEach(raceTrack -> raceTrackIdentityMap.remove(raceTrack, true));
+        dataHandler.save();
+        log.info(raceTracks.size() + " race tracks deleted");
+    }
+
+    /**
+     * Validates the race tracks mapped against the version of the data, so the ones changed by another station are
+     * loaded again.
+     *
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    private void validateIdentityMap() throws DataProviderException {
+        raceTrackIdentityMap.validate(dataHandler.getDataVersion());
+    }
 }
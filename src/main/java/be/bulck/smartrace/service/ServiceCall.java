@@ -0,0 +1,44 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.service;
+
+import be.bulck.smartrace.dao.exception.DataHandlerException;
+import be.bulck.smartrace.dao.exception.DataProviderException;
+
+/**
+ * An interface representing a call to a service, executed by the service executor.
+ *
+ * @param <T> the type of the result of the call
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see ServiceExecutor
+ */
+@FunctionalInterface
+public interface ServiceCall<T> {
+
+    /**
+     * Calls the service.
+     *
+     * @return the result of the call (may be null)
+     *
+     * @throws DataHandlerException an exception thrown if a data handler problem occurs
+     * @throws DataProviderException an exception thrown if a data provider problem occurs
+     */
+    T call() throws DataHandlerException, DataProviderException;
+}
@@ -0,0 +1,107 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A class representing the executor of the asynchronous services, so the JavaFX application thread never waits for the
+ * race file. The calls are executed one at a time, in the order of their submission, on a single daemon thread: the
+ * changes submitted by a controller are saved in the order they were made, and the synchronous services behind the
+ * asynchronous ones don't need to be thread-safe.
+ *
+ * The pending calls are bounded: a call submitted while the queue is full fails at once instead of piling up behind a
+ * slow race file.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class ServiceExecutor {
+
+    /** The default maximum number of pending calls. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    /** The executor owning the service thread. */
+    private final ThreadPoolExecutor executor;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(ServiceExecutor.class);
+
+
+    /**
+     * Constructs an instance of service executor, with the default maximum number of pending calls.
+     */
+    public ServiceExecutor() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructs an instance of service executor.
+     *
+     * @param queueCapacity the maximum number of pending calls
+     */
+    public ServiceExecutor(int queueCapacity) {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "smart-race-service");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Submits a call to a service.
+     *
+     * @param call the call to the service
+     * @param <T> the type of the result of the call
+     *
+     * @return a future completed with the result of the call, or completed exceptionally with the exception thrown by
+     * the call, or with a rejected execution exception if too many calls are pending
+     */
+    public <T> CompletableFuture<T> submit(ServiceCall<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(call.call());
+                } catch (Exception ex) {
+                    result.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            log.error(ex.getMessage(), ex);
+            result.completeExceptionally(ex);
+        }
+
+        return result;
+    }
+
+    /**
+     * Shuts the executor down (destroy method of the bean): the pending calls are still executed, the next ones are
+     * rejected.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package be.bulck.smartrace.service.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * A class representing an identity map of entities, keyed by their identifier (UUID). Each entity is materialized
+ * once: the entities loaded again are replaced by the instances already mapped, so all the callers share the same
+ * instance of an entity.
+ *
+ * The map is complete once all the entities were attached at once, so the next lookups of all the entities are served
+ * without loading them again. The map must be cleared when the file which contains the entities changes, and validated
+ * against the version of the data before the lookups, so the entities changed by another station are loaded again.
+ *
+ * @param <T> the type of the entities
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class IdentityMap<T> {
+
+    /** The function giving the identifier of an entity. */
+    private final Function<T, UUID> identifier;
+
+    /** The entities, by identifier. */
+    private final Map<UUID, T> entities = new LinkedHashMap<>();
+
+    /** Whether all the entities are mapped. */
+    private boolean complete;
+
+    /** The version of the data of the entities mapped. */
+    private long dataVersion;
+
+
+    /**
+     * Constructs an instance of identity map.
+     *
+     * @param identifier the function giving the identifier of an entity
+     */
+    public IdentityMap(Function<T, UUID> identifier) {
+        this.identifier = identifier;
+    }
+
+    /**
+     * Validates the map against the version of the data: if the data was changed by another station since the entities
+     * were mapped, the map is cleared.
+     *
+     * @param currentDataVersion the current version of the data
+     */
+    public synchronized void validate(long currentDataVersion) {
+        if (currentDataVersion != dataVersion) {
+            entities.clear();
+            complete = false;
+            dataVersion = currentDataVersion;
+        }
+    }
+
+    /**
+     * Gets an entity mapped.
+     *
+     * @param uuid the identifier of the entity
+     *
+     * @return the entity mapped, or null if it is not mapped
+     */
+    public synchronized T get(UUID uuid) {
+        return entities.get(uuid);
+    }
+
+    /**
+     * Checks if all the entities are mapped.
+     *
+     * @return true if all the entities are mapped, false otherwise
+     */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Gets all the entities mapped, in the order they were mapped.
+     *
+     * @return the entities mapped
+     */
+    public synchronized List<T> getAll() {
+        return new ArrayList<>(entities.values());
+    }
+
+    /**
+     * Attaches an entity loaded. If an instance of the entity is already mapped, it is kept.
+     *
+     * @param entity the entity loaded (may be null)
+     *
+     * @return the instance mapped for the entity, or null if the entity is null
+     */
+    public synchronized T attach(T entity) {
+        if (entity == null)
+            return null;
+
+        return entities.computeIfAbsent(identifier.apply(entity), uuid -> entity);
+    }
+
+    /**
+     * Attaches all the entities loaded. The instances already mapped are kept, the others are dropped as the entities
+     * aren't part of the file anymore, and the map becomes complete.
+     *
+     * @param loadedEntities all the entities loaded
+     *
+     * @return the instances mapped for the entities, in the order provided
+     */
+    public synchronized List<T> attachAll(T[] loadedEntities) {
+        Map<UUID, T> mappedEntities = new LinkedHashMap<>();
+
+        for (T entity : loadedEntities) {
+            UUID uuid = identifier.apply(entity);
+            T mappedEntity = entities.get(uuid);
+
+            mappedEntities.put(uuid, mappedEntity != null ? mappedEntity : entity);
+        }
+
+        entities.clear();
+        entities.putAll(mappedEntities);
+        complete = true;
+
+        return new ArrayList<>(entities.values());
+    }
+
+    /**
+     * Puts an entity written, replacing the instance mapped if it is another one.
+     *
+     * @param entity the entity written
+     */
+    public synchronized void put(T entity) {
+        entities.put(identifier.apply(entity), entity);
+    }
+
+    /**
+     * Removes an entity, because it was deleted or because its state in the file is unknown after a failed write. In
+     * the latter case, the map isn't complete anymore.
+     *
+     * @param entity the entity to remove
+     * @param deleted true if the entity was deleted, false if its state is unknown
+     */
+    public synchronized void remove(T entity, boolean deleted) {
+        entities.remove(identifier.apply(entity));
+
+        if (!deleted)
+            complete = false;
+    }
+
+    /**
+     * Clears the map.
+     */
+    public synchronized void clear() {
+        entities.clear();
+        complete = false;
+    }
+}
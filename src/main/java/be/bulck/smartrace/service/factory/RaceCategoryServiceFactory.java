@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.service.factory;
 
+import be.bulck.smartrace.service.AsyncRaceCategoryService;
 import be.bulck.smartrace.service.RaceCategoryService;
 import be.bulck.smartrace.service.ServiceManager;
 
@@ -35,6 +36,13 @@ public abstract class RaceCategoryServiceFactory {
      */
     public abstract RaceCategoryService raceCategoryService();
 
+    /**
+     * Gets the asynchronous race category service.
+     *
+     * @return the asynchronous race category service
+     */
+    public abstract AsyncRaceCategoryService asyncRaceCategoryService();
+
     /**
      * Gets the instance of this factory to retrieve the race category service.
      *
@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.service.factory;
 
+import be.bulck.smartrace.service.AsyncRaceCategoryService;
 import be.bulck.smartrace.service.RaceCategoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -32,8 +33,17 @@ public class RaceCategoryServiceFactoryImpl extends RaceCategoryServiceFactory {
     @Autowired
     private RaceCategoryService raceCategoryService;
 
+    /** The asynchronous race category service. */
+    @Autowired
+    private AsyncRaceCategoryService asyncRaceCategoryService;
+
     @Override
     public RaceCategoryService raceCategoryService() {
         return raceCategoryService;
     }
+
+    @Override
+    public AsyncRaceCategoryService asyncRaceCategoryService() {
+        return asyncRaceCategoryService;
+    }
 }
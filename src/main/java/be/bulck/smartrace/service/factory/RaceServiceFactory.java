@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.service.factory;
 
+import be.bulck.smartrace.service.AsyncRaceService;
 import be.bulck.smartrace.service.RaceService;
 import be.bulck.smartrace.service.ServiceManager;
 
@@ -35,6 +36,13 @@ public abstract class RaceServiceFactory {
      */
     public abstract RaceService getRaceService();
 
+    /**
+     * Gets the asynchronous race service.
+     *
+     * @return the asynchronous race service
+     */
+    public abstract AsyncRaceService getAsyncRaceService();
+
     /**
      * Gets the instance of a factory to retrieve the race service.
      *
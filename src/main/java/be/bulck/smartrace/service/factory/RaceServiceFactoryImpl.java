@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.service.factory;
 
+import be.bulck.smartrace.service.AsyncRaceService;
 import be.bulck.smartrace.service.RaceService;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -32,9 +33,18 @@ public class RaceServiceFactoryImpl extends RaceServiceFactory {
     @Autowired
     private RaceService raceService;
 
+    /** The asynchronous race service. */
+    @Autowired
+    private AsyncRaceService asyncRaceService;
+
 
     @Override
     public RaceService getRaceService() {
         return raceService;
     }
+
+    @Override
+    public AsyncRaceService getAsyncRaceService() {
+        return asyncRaceService;
+    }
 }
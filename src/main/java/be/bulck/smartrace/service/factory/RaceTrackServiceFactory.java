@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.service.factory;
 
+import be.bulck.smartrace.service.AsyncRaceTrackService;
 import be.bulck.smartrace.service.RaceTrackService;
 import be.bulck.smartrace.service.ServiceManager;
 
@@ -35,6 +36,13 @@ public abstract class RaceTrackServiceFactory {
      */
     public abstract RaceTrackService getRaceTrackService();
 
+    /**
+     * Gets the asynchronous race track service.
+     *
+     * @return the asynchronous race track service
+     */
+    public abstract AsyncRaceTrackService getAsyncRaceTrackService();
+
     /**
      * Gets the instance of a factory to retrieve the race track service.
      *
@@ -18,6 +18,7 @@
 
 package be.bulck.smartrace.service.factory;
 
+import be.bulck.smartrace.service.AsyncRaceTrackService;
 import be.bulck.smartrace.service.RaceTrackService;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -32,9 +33,18 @@ public class RaceTrackServiceFactoryImpl extends RaceTrackServiceFactory {
     @Autowired
     private RaceTrackService raceTrackService;
 
+    /** The asynchronous race track service. */
+    @Autowired
+    private AsyncRaceTrackService asyncRaceTrackService;
+
 
     @Override
     public RaceTrackService getRaceTrackService() {
         return raceTrackService;
     }
+
+    @Override
+    public AsyncRaceTrackService getAsyncRaceTrackService() {
+        return asyncRaceTrackService;
+    }
 }
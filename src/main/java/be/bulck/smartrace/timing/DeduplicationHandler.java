@@ -0,0 +1,63 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+import be.bulck.smartrace.io.ingest.FinishEventDeduplicator;
+
+/**
+ * A handler marking the duplicate reads of the crossings, through a finish event deduplicator. The consumers depending
+ * on the deduplication skip the events marked.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class DeduplicationHandler implements TimingEventHandler {
+
+    /** The deduplicator, used by the thread of the consumer only. */
+    private final FinishEventDeduplicator deduplicator;
+
+    /** The number of duplicates marked. */
+    private volatile long duplicateCount;
+
+
+    /**
+     * Constructs an instance of deduplication handler.
+     *
+     * @param deduplicator the deduplicator
+     */
+    public DeduplicationHandler(FinishEventDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+    }
+
+    @Override
+    public void onEvent(TimingEvent event, long sequence, boolean endOfBatch) {
+        boolean duplicate = !deduplicator.accept(event.getNumber(), event.getTime());
+        event.setDuplicate(duplicate);
+
+        if (duplicate)
+            duplicateCount++;
+    }
+
+    /**
+     * Gets the number of duplicates marked.
+     *
+     * @return the number of duplicates
+     */
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+}
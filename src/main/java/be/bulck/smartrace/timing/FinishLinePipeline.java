@@ -0,0 +1,94 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+import be.bulck.smartrace.io.ingest.FinishEventDeduplicator;
+import be.bulck.smartrace.io.ingest.FinishEventSink;
+
+/**
+ * A class representing the timing pipeline of the finish line: the deduplication of the reads first, then the
+ * persistence of the finishes in the race file opened.
+ *
+ * The finishes are ranked from the outcome of their persistence: the leaderboard follows the race records marked as
+ * finished through the listeners of the race record provider, so a read the race file doesn't keep (a race record
+ * already finished earlier, or cancelled) never changes the live standings.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class FinishLinePipeline extends TimingPipeline {
+
+    /** The deduplicator of the reads. */
+    private FinishEventDeduplicator deduplicator;
+
+    /** The sink persisting the finishes. */
+    private FinishEventSink sink;
+
+
+    /**
+     * Constructs an instance of finish line pipeline.
+     *
+     * @param bufferSize the number of slots of the ring buffer (a power of two)
+     */
+    public FinishLinePipeline(int bufferSize) {
+        super(bufferSize);
+    }
+
+    /**
+     * Gets the deduplicator of the reads.
+     *
+     * @return the deduplicator
+     */
+    public FinishEventDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    /**
+     * Sets the deduplicator of the reads.
+     *
+     * @param deduplicator the new deduplicator
+     */
+    public void setDeduplicator(FinishEventDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+    }
+
+    /**
+     * Gets the sink persisting the finishes.
+     *
+     * @return the sink
+     */
+    public FinishEventSink getSink() {
+        return sink;
+    }
+
+    /**
+     * Sets the sink persisting the finishes.
+     *
+     * @param sink the new sink
+     */
+    public void setSink(FinishEventSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Initializes the pipeline (init method of the bean): adds its consumers, started with the pipeline.
+     */
+    public void init() {
+        TimingConsumer deduplication = addConsumer("deduplication", new DeduplicationHandler(deduplicator));
+        addConsumer("persistence", new PersistenceHandler(sink, getRingBuffer().getBatchLimit()), deduplication);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+import be.bulck.smartrace.dao.exception.DataHandlerException;
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.io.ingest.FinishEventSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A handler persisting the finishes through a finish event sink, the duplicates skipped. The finishes of a batch of
+ * the consumer are persisted at once, so a batch costs a single commit.
+ *
+ * The finishes waiting are kept in arrays allocated once, so an event takes neither a lock nor an allocation. While the
+ * sink isn't ready (no race file opened) or fails, the finishes are kept and persisted again later, with a backoff
+ * after a failure. Once the arrays are full, the handler waits until the finishes are persisted: the consumer stops
+ * freeing its slots meanwhile, and the ring buffer fills up until the producers are slowed down (backpressure). Only
+ * when the consumer is stopped are the finishes still waiting given up.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class PersistenceHandler implements TimingEventHandler {
+
+    /** The delay before the first retry of a persistence which failed (in nanoseconds). */
+    private static final long RETRY_INITIAL_BACKOFF = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** The maximum delay between two retries of a persistence which failed (in nanoseconds). */
+    private static final long RETRY_MAX_BACKOFF = TimeUnit.SECONDS.toNanos(1);
+
+    /** The sink persisting the finishes. */
+    private final FinishEventSink sink;
+
+    /** The numbers of the finishes waiting to be persisted. */
+    private final int[] numbers;
+
+    /** The times of the finishes waiting to be persisted (milliseconds since the epoch). */
+    private final long[] times;
+
+    /** The number of finishes waiting to be persisted. */
+    private int count;
+
+    /** The delay before the next retry, 0 if the last persistence succeeded (in nanoseconds). */
+    private long backoff;
+
+    /** The time of the next retry (in nanoseconds, see {@link System#nanoTime()}). */
+    private long nextAttempt;
+
+    /** Whether the consumer is being stopped, the handler giving up waiting. */
+    private volatile boolean halted;
+
+    /** The number of finishes persisted. */
+    private volatile long persistedCount;
+
+    /** The number of finishes persisted without a race record matching their number. */
+    private volatile long unknownCount;
+
+    /** The number of finishes which failed to be persisted, given up when the consumer was stopped. */
+    private volatile long failedCount;
+
+    /** The number of attempts of persistence which failed, the finishes being persisted again later. */
+    private volatile long retryCount;
+
+    /** The number of times the handler waited for the finishes waiting to be persisted, the arrays being full. */
+    private volatile long stallCount;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(PersistenceHandler.class);
+
+
+    /**
+     * Constructs an instance of persistence handler.
+     *
+     * @param sink the sink persisting the finishes
+     * @param capacity the maximum number of finishes waiting to be persisted
+     */
+    public PersistenceHandler(FinishEventSink sink, int capacity) {
+        this.sink = sink;
+        numbers = new int[capacity];
+        times = new long[capacity];
+    }
+
+    @Override
+    public void onEvent(TimingEvent event, long sequence, boolean endOfBatch) {
+        if (!event.isDuplicate()) {
+            if (count == numbers.length)
+                awaitPersistence();
+
+            if (count < numbers.length) {
+                numbers[count] = event.getNumber();
+                times[count] = event.getTime();
+                count++;
+            } else {
+                failedCount++;
+            }
+        }
+
+        if (endOfBatch && count > 0 && canAttempt())
+            persist();
+    }
+
+    @Override
+    public void onHalt() {
+        halted = true;
+    }
+
+    @Override
+    public void onStop() {
+        if (count > 0 && sink.isReady())
+            persist();
+
+        if (count > 0) {
+            log.warn(count + " finish(es) not persisted, no race file opened or the persistence failed");
+            failedCount += count;
+            count = 0;
+        }
+
+        if (failedCount > 0)
+            log.warn(failedCount + " finish(es) given up by the persistence");
+    }
+
+    /**
+     * Gets the number of finishes persisted, with or without a race record matching their number.
+     *
+     * @return the number of finishes persisted
+     */
+    public long getPersistedCount() {
+        return persistedCount;
+    }
+
+    /**
+     * Gets the number of finishes persisted without a race record matching their number.
+     *
+     * @return the number of finishes without race record
+     */
+    public long getUnknownCount() {
+        return unknownCount;
+    }
+
+    /**
+     * Gets the number of finishes which failed to be persisted, given up when the consumer was stopped.
+     *
+     * @return the number of finishes failed
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Gets the number of attempts of persistence which failed, the finishes being persisted again later.
+     *
+     * @return the number of attempts failed
+     */
+    public long getRetryCount() {
+        return retryCount;
+    }
+
+    /**
+     * Gets the number of times the handler waited for the finishes waiting to be persisted, the arrays being full.
+     *
+     * @return the number of stalls
+     */
+    public long getStallCount() {
+        return stallCount;
+    }
+
+    /**
+     * Waits until the finishes waiting are persisted, or until the consumer is stopped.
+     */
+    private void awaitPersistence() {
+        stallCount++;
+        int idles = 0;
+
+        while (count == numbers.length && !halted) {
+            if (canAttempt())
+                persist();
+
+            else
+                TimingRingBuffer.idle(idles++);
+        }
+    }
+
+    /**
+     * Checks if the finishes waiting can be persisted: the sink is ready, and the backoff after a failure is over.
+     *
+     * @return true if the finishes can be persisted, false otherwise
+     */
+    private boolean canAttempt() {
+        return sink.isReady() && (backoff == 0 || System.nanoTime() - nextAttempt >= 0);
+    }
+
+    /**
+     * Persists the finishes waiting, in a single commit. On failure, they are kept for the next attempt.
+     */
+    private void persist() {
+        try {
+            int matched = sink.persist(numbers, times, count);
+            persistedCount += count;
+            unknownCount += count - matched;
+            count = 0;
+            backoff = 0;
+        } catch (DataHandlerException | DataProviderException ex) {
+            retryCount++;
+            backoff = backoff == 0 ? RETRY_INITIAL_BACKOFF : Math.min(backoff * 2, RETRY_MAX_BACKOFF);
+            nextAttempt = System.nanoTime() + backoff;
+            log.error(ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class representing a consumer of the capture path, handling the timing events of the ring buffer at its own pace,
+ * on a thread of its own. A consumer handles all the events available at once (a batch), then stores the sequence of
+ * the last one, which frees their slots for the producers.
+ *
+ * A consumer may depend on other consumers: it only handles the events they have handled, and so sees what they wrote
+ * in the events (the duplicates marked by the deduplication, for instance).
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see TimingRingBuffer
+ */
+public class TimingConsumer implements Runnable {
+
+    /** The name of the consumer. */
+    private final String name;
+
+    /** The ring buffer of the events. */
+    private final TimingRingBuffer ringBuffer;
+
+    /** The handler of the events. */
+    private final TimingEventHandler handler;
+
+    /** The consumers whose events are handled after them. */
+    private final TimingConsumer[] dependencies;
+
+    /** The sequence of the last event handled. */
+    private final AtomicLong sequence = new AtomicLong(-1);
+
+    /** Whether the consumer is running, it stops once the events available are handled otherwise. */
+    private volatile boolean running = true;
+
+    /** The number of batches handled. */
+    private volatile long batchCount;
+
+    /** The number of events of the biggest batch. */
+    private volatile long maxBatchSize;
+
+    /** The number of events whose handling failed. */
+    private volatile long failedCount;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(TimingConsumer.class);
+
+
+    /**
+     * Constructs an instance of timing consumer.
+     *
+     * @param name the name of the consumer
+     * @param ringBuffer the ring buffer of the events
+     * @param handler the handler of the events
+     * @param dependencies the consumers whose events are handled after them
+     */
+    public TimingConsumer(String name, TimingRingBuffer ringBuffer, TimingEventHandler handler, TimingConsumer... dependencies) {
+        this.name = name;
+        this.ringBuffer = ringBuffer;
+        this.handler = handler;
+        this.dependencies = dependencies.clone();
+    }
+
+    @Override
+    public void run() {
+        long next = sequence.get() + 1;
+        int idles = 0;
+
+        while (true) {
+            long available = getAvailableSequence(next);
+
+            if (available < next) {
+                // Checked again once stopped, for the events published before the stop
+                if (!running && getAvailableSequence(next) < next)
+                    break;
+
+                TimingRingBuffer.idle(idles++);
+                continue;
+            }
+
+            idles = 0;
+
+            for (long current = next; current <= available; current++) {
+                try {
+                    handler.onEvent(ringBuffer.get(current), current, current == available);
+                } catch (Exception ex) {
+                    failedCount++;
+                    log.error(ex.getMessage(), ex);
+                }
+            }
+
+            batchCount++;
+            maxBatchSize = Math.max(maxBatchSize, available - next + 1);
+            sequence.lazySet(available);
+            next = available + 1;
+        }
+
+        handler.onStop();
+    }
+
+    /**
+     * Stops the consumer, once the events available are handled. The producers and the consumers it depends on must
+     * be stopped first, so it handles all their events.
+     */
+    public void halt() {
+        running = false;
+        handler.onHalt();
+    }
+
+    /**
+     * Gets the name of the consumer.
+     *
+     * @return the name of the consumer
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the handler of the events.
+     *
+     * @return the handler
+     */
+    public TimingEventHandler getHandler() {
+        return handler;
+    }
+
+    /**
+     * Gets the sequence of the last event handled.
+     *
+     * @return the sequence of the last event handled, or -1 if none
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Gets the number of events published and not yet handled by the consumer.
+     *
+     * @return the lag of the consumer
+     */
+    public long getLag() {
+        return ringBuffer.getCursor() - sequence.get();
+    }
+
+    /**
+     * Gets the number of batches handled.
+     *
+     * @return the number of batches
+     */
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * Gets the number of events of the biggest batch.
+     *
+     * @return the number of events of the biggest batch
+     */
+    public long getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Gets the number of events whose handling failed.
+     *
+     * @return the number of events failed
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    @Override
+    public String toString() {
+        long handled = sequence.get() + 1;
+        return String.format("%s: %d handled, %d failed, lag %d, %d batches (avg %.1f, max %d)", name, handled,
+                failedCount, getLag(), batchCount, batchCount == 0 ? 0 : (double) handled / batchCount, maxBatchSize);
+    }
+
+    /**
+     * Gets the sequence of the last event available to the consumer: published, and handled by the consumers it depends
+     * on.
+     *
+     * @param next the sequence of the next event to handle
+     *
+     * @return the sequence of the last event available, lower than the next one if none is available
+     */
+    private long getAvailableSequence(long next) {
+        long bound = ringBuffer.getCursor();
+
+        for (TimingConsumer dependency : dependencies)
+            bound = Math.min(bound, dependency.getSequence());
+
+        long available = next - 1;
+
+        // A batch is bounded by a quarter of the ring buffer, so its slots are freed before the producers stall
+        bound = Math.min(bound, next - 1 + ringBuffer.getBatchLimit());
+
+        while (available < bound && ringBuffer.isPublished(available + 1))
+            available++;
+
+        return available;
+    }
+}
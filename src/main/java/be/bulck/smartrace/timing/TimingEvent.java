@@ -0,0 +1,107 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+/**
+ * A class representing a timing event, a slot of the ring buffer of the capture path: a number (bib) read at a given
+ * time by an input. The slots are allocated once with the ring buffer and overwritten by each event published, so a
+ * handler must copy what it keeps of an event, the slot being reused once all the consumers have passed it.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see TimingRingBuffer
+ */
+public class TimingEvent {
+
+    /** The input which captured the event. */
+    private TimingSource source;
+
+    /** The number (bib) read. */
+    private int number;
+
+    /** The time read (milliseconds since the epoch). */
+    private long time;
+
+    /** Whether the event is a duplicate read of a crossing already captured, set by the deduplication consumer. */
+    private boolean duplicate;
+
+
+    /**
+     * Overwrites the slot with an event published.
+     *
+     * @param source the input which captured the event
+     * @param number the number (bib) read
+     * @param time the time read (milliseconds since the epoch)
+     */
+    void set(TimingSource source, int number, long time) {
+        this.source = source;
+        this.number = number;
+        this.time = time;
+        duplicate = false;
+    }
+
+    /**
+     * Gets the input which captured the event.
+     *
+     * @return the input
+     */
+    public TimingSource getSource() {
+        return source;
+    }
+
+    /**
+     * Gets the number (bib) read.
+     *
+     * @return the number read
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Gets the time read.
+     *
+     * @return the time read (milliseconds since the epoch)
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Checks if the event is a duplicate read of a crossing already captured.
+     *
+     * @return true if the event is a duplicate, false otherwise
+     */
+    public boolean isDuplicate() {
+        return duplicate;
+    }
+
+    /**
+     * Sets whether the event is a duplicate read of a crossing already captured.
+     *
+     * @param duplicate true if the event is a duplicate, false otherwise
+     */
+    public void setDuplicate(boolean duplicate) {
+        this.duplicate = duplicate;
+    }
+
+    @Override
+    public String toString() {
+        return source + " " + number + " " + time + (duplicate ? " (duplicate)" : "");
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+/**
+ * An interface representing the handler of the timing events of a consumer of the capture path.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see TimingConsumer
+ */
+public interface TimingEventHandler {
+
+    /**
+     * Handles a timing event. The event is a slot of the ring buffer, reused once all the consumers have passed it.
+     *
+     * @param event the event
+     * @param sequence the sequence of the event
+     * @param endOfBatch true if the event is the last one available to the consumer for now, false otherwise
+     *
+     * @throws Exception an exception thrown if the event can't be handled, logged by the consumer
+     */
+    void onEvent(TimingEvent event, long sequence, boolean endOfBatch) throws Exception;
+
+    /**
+     * Handles the request to stop the consumer, on the thread stopping it: a handler waiting (for its destination to be
+     * ready, for instance) must give up, so the consumer handles the events left and stops.
+     */
+    default void onHalt() {
+    }
+
+    /**
+     * Handles the stop of the consumer, once the events published were all handled.
+     */
+    default void onStop() {
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class representing the capture path from the inputs of the finish line to the consumers of the timing events,
+ * through a ring buffer. The inputs (keyboard, TCP feed, chip reader) publish the events, and each consumer handles
+ * them on a thread of its own, at its own pace: the deduplication first, then the consumers depending on it.
+ *
+ * A pipeline is started once its consumers are added, and can't be started again once stopped.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class TimingPipeline {
+
+    /** The ring buffer of the events. */
+    private final TimingRingBuffer ringBuffer;
+
+    /** The consumers, each one added after the consumers it depends on. */
+    private final List<TimingConsumer> consumers = new ArrayList<>();
+
+    /** The threads of the consumers. */
+    private final List<Thread> threads = new ArrayList<>();
+
+    /** Whether the pipeline is running. */
+    private volatile boolean running;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(TimingPipeline.class);
+
+
+    /**
+     * Constructs an instance of timing pipeline.
+     *
+     * @param bufferSize the number of slots of the ring buffer (a power of two)
+     */
+    public TimingPipeline(int bufferSize) {
+        ringBuffer = new TimingRingBuffer(bufferSize);
+    }
+
+    /**
+     * Adds a consumer of the events.
+     *
+     * @param name the name of the consumer
+     * @param handler the handler of the events
+     * @param dependencies the consumers whose events are handled after them, already added
+     *
+     * @return the consumer added
+     */
+    public synchronized TimingConsumer addConsumer(String name, TimingEventHandler handler, TimingConsumer... dependencies) {
+        if (running || ringBuffer.isClosed())
+            throw new IllegalStateException("The consumers are added before the timing pipeline is started");
+
+        TimingConsumer consumer = new TimingConsumer(name, ringBuffer, handler, dependencies);
+        ringBuffer.addConsumer(consumer);
+        consumers.add(consumer);
+
+        return consumer;
+    }
+
+    /**
+     * Starts the threads of the consumers.
+     */
+    public synchronized void start() {
+        if (running)
+            return;
+
+        if (ringBuffer.isClosed())
+            throw new IllegalStateException("The timing pipeline is stopped");
+
+        running = true;
+
+        for (TimingConsumer consumer : consumers) {
+            Thread thread = new Thread(consumer, "timing-" + consumer.getName());
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        log.info("Timing pipeline started (" + ringBuffer.getSize() + " slots, " + consumers.size() + " consumers)");
+    }
+
+    /**
+     * Stops the pipeline: closes the ring buffer, then stops the consumers in the order they were added, each one once
+     * it has handled all the events of the consumers it depends on.
+     */
+    public synchronized void stop() {
+        if (!running)
+            return;
+
+        running = false;
+        ringBuffer.close();
+
+        for (int index = 0; index < consumers.size(); index++) {
+            consumers.get(index).halt();
+
+            try {
+                threads.get(index).join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        threads.clear();
+
+        log.info("Timing pipeline stopped (" + this + ")");
+    }
+
+    /**
+     * Publishes an event read now, typed on the keyboard for instance, waiting for a slot while the ring buffer is full.
+     *
+     * @param source the input which captured the event
+     * @param number the number (bib) read
+     *
+     * @return the sequence of the event
+     */
+    public long publish(TimingSource source, int number) {
+        return ringBuffer.publish(source, number, System.currentTimeMillis());
+    }
+
+    /**
+     * Publishes an event, waiting for a slot while the ring buffer is full.
+     *
+     * @param source the input which captured the event
+     * @param number the number (bib) read
+     * @param time the time read (milliseconds since the epoch)
+     *
+     * @return the sequence of the event
+     */
+    public long publish(TimingSource source, int number, long time) {
+        return ringBuffer.publish(source, number, time);
+    }
+
+    /**
+     * Gets the ring buffer of the events.
+     *
+     * @return the ring buffer
+     */
+    public TimingRingBuffer getRingBuffer() {
+        return ringBuffer;
+    }
+
+    /**
+     * Gets the consumers of the events.
+     *
+     * @return the consumers, in the order they were added
+     */
+    public synchronized List<TimingConsumer> getConsumers() {
+        return Collections.unmodifiableList(new ArrayList<>(consumers));
+    }
+
+    /**
+     * Checks if the pipeline is running.
+     *
+     * @return true if the pipeline is running, false otherwise
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder description = new StringBuilder(ringBuffer.toString());
+
+        for (TimingConsumer consumer : consumers)
+            description.append("; ").append(consumer);
+
+        return description.toString();
+    }
+}
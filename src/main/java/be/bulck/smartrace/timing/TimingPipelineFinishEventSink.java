@@ -0,0 +1,67 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+import be.bulck.smartrace.io.ingest.FinishEvent;
+import be.bulck.smartrace.io.ingest.FinishEventSink;
+
+import java.util.List;
+
+/**
+ * A sink of the ingestion server publishing the finish events received from the TCP feed (and the datagrams) in a
+ * timing pipeline, instead of persisting them. The persister thread of the ingestion server is then the single producer
+ * of the feed, whatever the number of connections.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class TimingPipelineFinishEventSink implements FinishEventSink {
+
+    /** The timing pipeline. */
+    private final TimingPipeline pipeline;
+
+
+    /**
+     * Constructs an instance of timing pipeline finish event sink.
+     *
+     * @param pipeline the timing pipeline
+     */
+    public TimingPipelineFinishEventSink(TimingPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public boolean isReady() {
+        return pipeline.isRunning();
+    }
+
+    /**
+     * Publishes a batch of finish events in the timing pipeline. The race records are matched by its consumers, so the
+     * events are all counted as matching.
+     *
+     * @param events the events to publish, in the order they were received
+     *
+     * @return the number of events published
+     */
+    @Override
+    public int persist(List<FinishEvent> events) {
+        for (FinishEvent event : events)
+            pipeline.publish(TimingSource.TCP_FEED, event.getNumber(), event.getTime().toEpochMilli());
+
+        return events.size();
+    }
+}
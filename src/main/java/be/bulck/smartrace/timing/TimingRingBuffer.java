@@ -0,0 +1,349 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A class representing the ring buffer of the capture path, between the inputs publishing the timing events and the
+ * consumers handling them. The slots are allocated once, and an event is published by overwriting the next slot: the
+ * capture allocates nothing per event, and takes no lock.
+ *
+ * The sequences of the events are claimed by an atomic increment. The ring buffer is meant for a single producer (the
+ * thread of an input), the claim never contending then, but several inputs may publish concurrently. A slot is
+ * published by storing its sequence, so the consumers know which slots are ready whatever the order in which they were
+ * published. A slot is reused once all the consumers have passed it: until then, the producer waits (backpressure) or
+ * the event is rejected, and the stalls are measured.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see TimingConsumer
+ */
+public class TimingRingBuffer {
+
+    /** The number of busy spins of a thread waiting for the ring buffer, before it yields. */
+    private static final int SPIN_TRIES = 100;
+
+    /** The number of yields of a thread waiting for the ring buffer, before it parks. */
+    private static final int YIELD_TRIES = 100;
+
+    /** The time a thread waiting for the ring buffer is parked (in nanoseconds). */
+    private static final long PARK_TIME = 50000;
+
+    /** The slots of the events. */
+    private final TimingEvent[] events;
+
+    /** The mask of the index of the slot of a sequence. */
+    private final int mask;
+
+    /** The sequences of the events published, by slot. */
+    private final AtomicLongArray publishedSequences;
+
+    /** The last sequence claimed. */
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    /** The consumers gating the reuse of the slots. */
+    private volatile TimingConsumer[] consumers = new TimingConsumer[0];
+
+    /** Whether the ring buffer is closed, rejecting the events published. */
+    private volatile boolean closed;
+
+    /** The number of times a producer waited for a slot. */
+    private final AtomicLong stallCount = new AtomicLong();
+
+    /** The cumulated time the producers waited for a slot (in nanoseconds). */
+    private final AtomicLong stallTime = new AtomicLong();
+
+    /** The number of events rejected because the ring buffer was full. */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /** The maximum number of slots used at once. */
+    private final AtomicLong maxOccupancy = new AtomicLong();
+
+
+    /**
+     * Constructs an instance of timing ring buffer.
+     *
+     * @param size the number of slots (a power of two)
+     */
+    public TimingRingBuffer(int size) {
+        if (size <= 0 || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("The size of the ring buffer isn't a power of two");
+
+        events = new TimingEvent[size];
+        mask = size - 1;
+
+        for (int index = 0; index < size; index++)
+            events[index] = new TimingEvent();
+
+        long[] initialSequences = new long[size];
+        Arrays.fill(initialSequences, -1);
+        publishedSequences = new AtomicLongArray(initialSequences);
+    }
+
+    /**
+     * Publishes an event, waiting for a slot while the ring buffer is full.
+     *
+     * @param source the input which captured the event
+     * @param number the number (bib) read
+     * @param time the time read (milliseconds since the epoch)
+     *
+     * @return the sequence of the event
+     *
+     * @throws IllegalStateException an exception thrown if the ring buffer is closed
+     */
+    public long publish(TimingSource source, int number, long time) {
+        if (closed)
+            throw new IllegalStateException("The timing ring buffer is closed");
+
+        long sequence = cursor.incrementAndGet();
+        long minimum = getMinimumSequence(sequence - 1);
+
+        if (sequence - events.length > minimum) {
+            long start = System.nanoTime();
+            int idles = 0;
+
+            do {
+                if (closed)
+                    throw new IllegalStateException("The timing ring buffer is closed");
+
+                idle(idles++);
+                minimum = getMinimumSequence(sequence - 1);
+            } while (sequence - events.length > minimum);
+
+            stallCount.incrementAndGet();
+            stallTime.addAndGet(System.nanoTime() - start);
+        }
+
+        write(sequence, minimum, source, number, time);
+        return sequence;
+    }
+
+    /**
+     * Publishes an event if a slot is free, without waiting.
+     *
+     * @param source the input which captured the event
+     * @param number the number (bib) read
+     * @param time the time read (milliseconds since the epoch)
+     *
+     * @return the sequence of the event, or -1 if the ring buffer is full or closed
+     */
+    public long tryPublish(TimingSource source, int number, long time) {
+        long sequence;
+        long minimum;
+
+        do {
+            long current = cursor.get();
+            sequence = current + 1;
+            minimum = getMinimumSequence(current);
+
+            if (closed || sequence - events.length > minimum) {
+                rejectedCount.incrementAndGet();
+                return -1;
+            }
+        } while (!cursor.compareAndSet(sequence - 1, sequence));
+
+        write(sequence, minimum, source, number, time);
+        return sequence;
+    }
+
+    /**
+     * Gets the event of a sequence. The event is only valid once published, and until all the consumers have passed it.
+     *
+     * @param sequence the sequence of the event
+     *
+     * @return the slot of the event
+     */
+    public TimingEvent get(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    /**
+     * Checks if the event of a sequence is published.
+     *
+     * @param sequence the sequence of the event
+     *
+     * @return true if the event is published, false otherwise
+     */
+    public boolean isPublished(long sequence) {
+        return publishedSequences.get((int) sequence & mask) == sequence;
+    }
+
+    /**
+     * Gets the number of slots.
+     *
+     * @return the number of slots
+     */
+    public int getSize() {
+        return events.length;
+    }
+
+    /**
+     * Gets the maximum number of events of a batch of a consumer: a quarter of the ring buffer, so the slots of a batch
+     * are freed before the producers stall. The handlers may size the buffers of a batch with it.
+     *
+     * @return the maximum number of events of a batch
+     */
+    public int getBatchLimit() {
+        return Math.max(1, events.length / 4);
+    }
+
+    /**
+     * Gets the last sequence claimed by a producer.
+     *
+     * @return the last sequence claimed, or -1 if none
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * Gets the number of slots used, by the events not yet passed by all the consumers.
+     *
+     * @return the number of slots used
+     */
+    public long getOccupancy() {
+        long current = cursor.get();
+        return current - getMinimumSequence(current);
+    }
+
+    /**
+     * Gets the maximum number of slots used at once.
+     *
+     * @return the maximum number of slots used
+     */
+    public long getMaxOccupancy() {
+        return maxOccupancy.get();
+    }
+
+    /**
+     * Gets the number of times a producer waited for a slot.
+     *
+     * @return the number of stalls
+     */
+    public long getStallCount() {
+        return stallCount.get();
+    }
+
+    /**
+     * Gets the cumulated time the producers waited for a slot.
+     *
+     * @return the time waited (in milliseconds)
+     */
+    public double getStallTime() {
+        return stallTime.get() / 1e6;
+    }
+
+    /**
+     * Gets the number of events rejected because the ring buffer was full or closed.
+     *
+     * @return the number of events rejected
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Checks if the ring buffer is closed.
+     *
+     * @return true if the ring buffer is closed, false otherwise
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the ring buffer: the events published from now on are rejected, and the producers waiting for a slot give
+     * up. The events already published are still handled by the consumers.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d published, %d rejected, %d stalls (%.2f ms), occupancy max %d of %d",
+                cursor.get() + 1, rejectedCount.get(), stallCount.get(), getStallTime(), maxOccupancy.get(), events.length);
+    }
+
+    /**
+     * Adds a consumer gating the reuse of the slots.
+     *
+     * @param consumer the consumer
+     */
+    void addConsumer(TimingConsumer consumer) {
+        TimingConsumer[] added = Arrays.copyOf(consumers, consumers.length + 1);
+        added[consumers.length] = consumer;
+        consumers = added;
+    }
+
+    /**
+     * Makes a thread waiting for the ring buffer idle: it spins first, then yields, then parks.
+     *
+     * @param idles the number of times the thread was already idle while waiting
+     */
+    static void idle(int idles) {
+        if (idles < SPIN_TRIES)
+            return;
+
+        else if (idles < SPIN_TRIES + YIELD_TRIES)
+            Thread.yield();
+
+        else
+            LockSupport.parkNanos(PARK_TIME);
+    }
+
+    /**
+     * Gets the lowest sequence handled by all the consumers.
+     *
+     * @param defaultSequence the sequence returned without consumer
+     *
+     * @return the lowest sequence handled
+     */
+    private long getMinimumSequence(long defaultSequence) {
+        long minimum = defaultSequence;
+
+        for (TimingConsumer consumer : consumers)
+            minimum = Math.min(minimum, consumer.getSequence());
+
+        return minimum;
+    }
+
+    /**
+     * Writes an event in the slot of its sequence claimed, and publishes it.
+     *
+     * @param sequence the sequence claimed
+     * @param minimum the lowest sequence handled by all the consumers, when the slot was claimed
+     * @param source the input which captured the event
+     * @param number the number (bib) read
+     * @param time the time read (milliseconds since the epoch)
+     */
+    private void write(long sequence, long minimum, TimingSource source, int number, long time) {
+        long occupancy = sequence - minimum;
+
+        if (occupancy > maxOccupancy.get())
+            maxOccupancy.accumulateAndGet(occupancy, Math::max);
+
+        int index = (int) sequence & mask;
+        events[index].set(source, number, time);
+        publishedSequences.lazySet(index, sequence);
+    }
+}
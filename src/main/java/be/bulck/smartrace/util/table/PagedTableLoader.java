@@ -0,0 +1,226 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.util.table;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A class representing a loader of the rows of a table, page by page. The first page is loaded at once, and the next
+ * pages are loaded on demand, when the table is scrolled near its last row. The pages are found off the JavaFX
+ * application thread. Each page follows the key of the last row of the previous one, taken when that page was loaded,
+ * so the source can seek it instead of skipping the rows already loaded. The rows of a page already in the table (added
+ * there before their page was loaded) are skipped.
+ *
+ * The page size must exceed the number of rows visible in the table, so the table can be scrolled after the first page.
+ *
+ * @param <T> the type of the rows
+ * @param <K> the type of the key the rows are sorted by
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class PagedTableLoader<T, K> {
+
+    /** The default number of rows of a page. */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /** The proportion of the rows to scroll before the next page is loaded. */
+    private static final double PREFETCH_THRESHOLD = 0.9;
+
+    /** The rows of the table. */
+    private final ObservableList<T> items;
+
+    /** The source of the pages. */
+    private final PageSource<T, K> pageSource;
+
+    /** The function giving the key of a row, which the rows are sorted by. */
+    private final Function<? super T, ? extends K> keyOf;
+
+    /** The function giving the identity of a row. */
+    private final Function<? super T, ?> identityOf;
+
+    /** The number of rows of a page. */
+    private final int pageSize;
+
+    /** The key of the last row loaded. */
+    private K lastKey;
+
+    /** Whether all the rows are loaded. */
+    private boolean complete;
+
+    /** Whether a page is being loaded. */
+    private boolean loading;
+
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(PagedTableLoader.class);
+
+
+    /**
+     * Constructs an instance of paged table loader.
+     *
+     * @param items the rows of the table, where the pages are added
+     * @param pageSource the source of the pages
+     * @param keyOf the function giving the key of a row, which the rows are sorted by
+     * @param identityOf the function giving the identity of a row
+     * @param pageSize the number of rows of a page
+     */
+    public PagedTableLoader(ObservableList<T> items, PageSource<T, K> pageSource, Function<? super T, ? extends K> keyOf,
+                            Function<? super T, ?> identityOf, int pageSize) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("The page size must be positive");
+
+        this.items = items;
+        this.pageSource = pageSource;
+        this.keyOf = keyOf;
+        this.identityOf = identityOf;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Loads the next page, unless all the rows are loaded or a page is already being loaded. The page is found off the
+     * JavaFX application thread, and added to the rows on it. Must be called on the JavaFX application thread.
+     */
+    public void loadNextPage() {
+        if (complete || loading)
+            return;
+
+        loading = true;
+        pageSource.findPage(lastKey, pageSize).whenCompleteAsync((page, ex) -> {
+            try {
+                if (ex != null) {
+                    log.error(ex.getMessage(), ex);
+                    return;
+                }
+
+                if (page.length > 0)
+                    lastKey = keyOf.apply(page[page.length - 1]);
+
+                complete = page.length < pageSize;
+                items.addAll(newRows(page));
+            } finally {
+                loading = false;
+            }
+        }, Platform::runLater);
+    }
+
+    /**
+     * Binds the loader to a table, to load the next pages when the table is scrolled near its last row.
+     *
+     * @param tableView the table
+     */
+    public void bind(TableView<T> tableView) {
+        if (tableView.getSkin() != null)
+            bindScrollBar(tableView);
+
+        tableView.skinProperty().addListener((observable, oldSkin, newSkin) -> {
+            if (newSkin != null)
+                bindScrollBar(tableView);
+        });
+    }
+
+    /**
+     * Checks if a page is being loaded. The rows of the page are added while it is still being loaded: they come from
+     * the source, so they must not be written back to it.
+     *
+     * @return true if a page is being loaded, false otherwise
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Checks if all the rows are loaded.
+     *
+     * @return true if all the rows are loaded, false otherwise
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Filters the rows of a page which are not in the table yet.
+     *
+     * @param page the rows of the page
+     *
+     * @return the rows of the page not in the table yet
+     */
+    private List<T> newRows(T[] page) {
+        Set<Object> identities = new HashSet<>();
+        for (T item : items)
+            identities.add(identityOf.apply(item));
+
+        List<T> rows = new ArrayList<>(page.length);
+        for (T row : page) {
+            if (!identities.contains(identityOf.apply(row)))
+                rows.add(row);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Listens to the vertical scroll bar of a table.
+     *
+     * @param tableView the table
+     */
+    private void bindScrollBar(TableView<T> tableView) {
+        for (Node node : tableView.lookupAll(".scroll-bar")) {
+            if (!(node instanceof ScrollBar) || ((ScrollBar) node).getOrientation() != Orientation.VERTICAL)
+                continue;
+
+            ScrollBar scrollBar = (ScrollBar) node;
+            scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> {
+                if (newValue.doubleValue() >= scrollBar.getMax() * PREFETCH_THRESHOLD)
+                    loadNextPage();
+            });
+        }
+    }
+
+    /**
+     * An interface representing the source of the pages of a table.
+     *
+     * @param <T> the type of the rows
+     * @param <K> the type of the key the rows are sorted by
+     */
+    @FunctionalInterface
+    public interface PageSource<T, K> {
+
+        /**
+         * Finds a page of rows.
+         *
+         * @param after the key of the last row of the previous page, or null for the first page
+         * @param limit the maximum number of rows of the page
+         *
+         * @return a future completed with the rows of the page, fewer than the limit for the last page
+         */
+        CompletableFuture<T[]> findPage(K after, int limit);
+    }
+}
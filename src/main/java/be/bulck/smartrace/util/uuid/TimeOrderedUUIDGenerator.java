@@ -0,0 +1,64 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.util.uuid;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class representing a generator of time-ordered (version 7) UUIDs. The 48 first bits are the Unix time in
+ * milliseconds, the 12 next bits (after the version) a counter of the UUIDs generated in the same millisecond, and the
+ * 62 last bits (after the variant) are random.
+ *
+ * The UUIDs are strictly increasing, even if the clock goes backward or more than 4096 UUIDs are generated in the same
+ * millisecond (the timestamp is then borrowed from the next milliseconds), so the new rows are appended at the end of
+ * the B-trees of the keys instead of being scattered across them. The random bits are drawn from a thread local
+ * generator, which never blocks on the entropy of the system.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class TimeOrderedUUIDGenerator implements UUIDGenerator {
+
+    /** The number of bits of the counter. */
+    private static final int COUNTER_BITS = 12;
+
+    /** The version of the UUIDs (7), in the most significant bits. */
+    private static final long VERSION = 0x7000L;
+
+    /** The variant of the UUIDs (IETF), in the least significant bits. */
+    private static final long VARIANT = 0x8000000000000000L;
+
+    /** The mask of the random bits of the least significant bits. */
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    /** The last timestamp generated, followed by its counter. */
+    private final AtomicLong lastTimestamp = new AtomicLong();
+
+
+    @Override
+    public UUID generate() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        long timestamp = lastTimestamp.updateAndGet(last -> now > last ? now : last + 1);
+
+        long mostSignificantBits = (timestamp >>> COUNTER_BITS) << 16 | VERSION | (timestamp & 0xFFF);
+        long leastSignificantBits = VARIANT | (ThreadLocalRandom.current().nextLong() & RANDOM_MASK);
+
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.util.uuid;
+
+import java.util.UUID;
+
+/**
+ * A class holding the generator of the identifiers (UUID) of the model entities. The time-ordered generator is used by
+ * default.
+ *
+ * @author Fabien Vanden Bulck
+ *
+ * @see TimeOrderedUUIDGenerator
+ */
+public class UUIDGenerators {
+
+    /** The generator of the identifiers. */
+    private static volatile UUIDGenerator generator = new TimeOrderedUUIDGenerator();
+
+
+    /**
+     * Gets the generator of the identifiers.
+     *
+     * @return the generator of the identifiers
+     */
+    public static UUIDGenerator getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Sets the generator of the identifiers.
+     *
+     * @param generator the new generator of the identifiers
+     */
+    public static void setGenerator(UUIDGenerator generator) {
+        if (generator == null)
+            throw new IllegalArgumentException("The generator of the identifiers can't be null");
+
+        UUIDGenerators.generator = generator;
+    }
+
+    /**
+     * Generates a new identifier with the current generator.
+     *
+     * @return a new identifier
+     */
+    public static UUID generate() {
+        return generator.generate();
+    }
+}
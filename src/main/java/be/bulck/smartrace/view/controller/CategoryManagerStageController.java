@@ -18,12 +18,12 @@
 
 package be.bulck.smartrace.view.controller;
 
-import be.bulck.smartrace.dao.exception.DataHandlerException;
-import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.provider.NameSort;
 import be.bulck.smartrace.lang.LanguageSupport;
 import be.bulck.smartrace.model.RaceCategory;
-import be.bulck.smartrace.service.RaceCategoryService;
+import be.bulck.smartrace.service.AsyncRaceCategoryService;
 import be.bulck.smartrace.service.factory.RaceCategoryServiceFactory;
+import be.bulck.smartrace.util.table.PagedTableLoader;
 import be.bulck.smartrace.view.stage.CategoryManagerStage;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIcon;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIconView;
@@ -37,6 +37,7 @@ import javafx.stage.WindowEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Optional;
 
 /**
@@ -77,8 +78,11 @@ public class CategoryManagerStageController extends StageController<CategoryMana
     /** The race categories. */
     private ObservableList<RaceCategory> raceCategories;
 
-    /** The race category service. */
-    private RaceCategoryService raceCategoryService;
+    /** The loader of the pages of race categories. */
+    private PagedTableLoader<RaceCategory, String> raceCategoryLoader;
+
+    /** The asynchronous race category service. */
+    private AsyncRaceCategoryService asyncRaceCategoryService;
 
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(CategoryManagerStageController.class);
@@ -86,17 +90,18 @@ public class CategoryManagerStageController extends StageController<CategoryMana
 
     /**
      * Constructs an instance of the category manager stage controller.
-     *
-     * @throws DataProviderException an exception thrown if a data provider problem occurs
      */
-    public CategoryManagerStageController() throws DataProviderException {
-        raceCategoryService = RaceCategoryServiceFactory.getInstance().raceCategoryService();
+    public CategoryManagerStageController() {
+        asyncRaceCategoryService = RaceCategoryServiceFactory.getInstance().asyncRaceCategoryService();
 
         raceCategories = FXCollections.observableArrayList(raceCategory -> new Observable[] {
             raceCategory.nameProperty(),
             raceCategory.descriptionProperty()
         });
-        raceCategories.setAll(raceCategoryService.find());
+        raceCategoryLoader = new PagedTableLoader<>(raceCategories,
+                (after, limit) -> asyncRaceCategoryService.findPage(after, limit, NameSort.NAME_ASCENDING),
+                RaceCategory::getName, RaceCategory::getUuid, PagedTableLoader.DEFAULT_PAGE_SIZE);
+        raceCategoryLoader.loadNextPage();
 
         trackTableViewDataChanges();
     }
@@ -133,6 +138,7 @@ public class CategoryManagerStageController extends StageController<CategoryMana
         descriptionTableColumn.setCellValueFactory(cellData -> cellData.getValue().descriptionProperty());
 
         categoryTableView.setItems(raceCategories);
+        raceCategoryLoader.bind(categoryTableView);
     }
 
     /**
@@ -140,24 +146,22 @@ public class CategoryManagerStageController extends StageController<CategoryMana
      */
     private void trackTableViewDataChanges() {
         raceCategories.addListener((ListChangeListener<? super RaceCategory>) listener -> {
+            // The pages loaded on demand come from the race file
+            if (raceCategoryLoader.isLoading())
+                return;
+
+            // The changes are copied, the lists of a change being only valid while it is handled
             while (listener.next()) {
-                try {
-                    if (listener.wasAdded()) {
-                        for (RaceCategory categoryToAdd : listener.getAddedSubList())
-                            raceCategoryService.create(categoryToAdd);
-                    }
-
-                    else if (listener.wasUpdated()) {
-                        for (RaceCategory categoryToUpdate : listener.getList())
-                            raceCategoryService.update(categoryToUpdate);
-                    }
-
-                    else if (listener.wasRemoved()) {
-                        for (RaceCategory categoryToRemove : listener.getRemoved())
-                            raceCategoryService.delete(categoryToRemove);
-                    }
-                } catch (DataHandlerException | DataProviderException ex) {
-                    log.error(ex.getMessage(), ex);
+                if (listener.wasAdded()) {
+                    logFailure(asyncRaceCategoryService.createAll(new ArrayList<>(listener.getAddedSubList())));
+                }
+
+                else if (listener.wasUpdated()) {
+                    logFailure(asyncRaceCategoryService.updateAll(new ArrayList<>(listener.getList().subList(listener.getFrom(), listener.getTo()))));
+                }
+
+                else if (listener.wasRemoved()) {
+                    logFailure(asyncRaceCategoryService.deleteAll(new ArrayList<>(listener.getRemoved())));
                 }
             }
         });
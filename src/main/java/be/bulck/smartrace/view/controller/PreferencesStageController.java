@@ -18,13 +18,11 @@
 
 package be.bulck.smartrace.view.controller;
 
-import be.bulck.smartrace.dao.exception.DataHandlerException;
-import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.lang.LanguageSupport;
 import be.bulck.smartrace.model.Race;
 import be.bulck.smartrace.model.RaceDistanceUnit;
 import be.bulck.smartrace.model.RaceElevationUnit;
-import be.bulck.smartrace.service.RaceService;
+import be.bulck.smartrace.service.AsyncRaceService;
 import be.bulck.smartrace.service.factory.RaceServiceFactory;
 import be.bulck.smartrace.view.stage.PreferencesStage;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIcon;
@@ -64,8 +62,8 @@ public class PreferencesStageController extends StageController<PreferencesStage
     @FXML
     private Button saveButton;
 
-    /** The race service. */
-    private RaceService raceService;
+    /** The asynchronous race service. */
+    private AsyncRaceService asyncRaceService;
 
     /** The race. */
     private Race race;
@@ -78,12 +76,7 @@ public class PreferencesStageController extends StageController<PreferencesStage
      * Constructs an instance of preferences stage controller.
      */
     public PreferencesStageController() {
-        try {
-            raceService = RaceServiceFactory.getInstance().getRaceService();
-            race = raceService.getRace();
-        } catch (DataProviderException ex) {
-            log.error(ex.getMessage(), ex);
-        }
+        asyncRaceService = RaceServiceFactory.getInstance().getAsyncRaceService();
     }
 
     /**
@@ -95,6 +88,21 @@ public class PreferencesStageController extends StageController<PreferencesStage
         saveButton.setGraphic(new FontAwesomeIconView(FontAwesomeIcon.CHECK));
 
         initComboBox();
+        loadRace();
+    }
+
+    /**
+     * Loads the race, off the JavaFX application thread. The preferences can't be saved until the race is loaded.
+     */
+    private void loadRace() {
+        saveButton.setDisable(true);
+
+        onCompletion(asyncRaceService.getRace(), race -> {
+            this.race = race;
+            distanceUnitComboBox.getSelectionModel().select(race.getDistanceUnit());
+            elevationUnitComboBox.getSelectionModel().select(race.getElevationUnit());
+            saveButton.setDisable(false);
+        });
     }
 
     /**
@@ -116,7 +124,6 @@ public class PreferencesStageController extends StageController<PreferencesStage
         ObservableList<RaceDistanceUnit> distanceUnits = FXCollections.observableArrayList(RaceDistanceUnit.values());
         distanceUnits.remove(RaceDistanceUnit.UNDETERMINED);
         distanceUnitComboBox.setItems(distanceUnits);
-        distanceUnitComboBox.getSelectionModel().select(race.getDistanceUnit());
 
         // Elevation unit
         elevationUnitComboBox.setConverter(new StringConverter<RaceElevationUnit>() {
@@ -133,7 +140,6 @@ public class PreferencesStageController extends StageController<PreferencesStage
         ObservableList<RaceElevationUnit> raceElevationUnits = FXCollections.observableArrayList(RaceElevationUnit.values());
         raceElevationUnits.remove(RaceElevationUnit.UNDERTERMINED);
         elevationUnitComboBox.setItems(raceElevationUnits);
-        elevationUnitComboBox.getSelectionModel().select(race.getElevationUnit());
     }
 
     /**
@@ -152,12 +158,7 @@ public class PreferencesStageController extends StageController<PreferencesStage
         race.setDistanceUnit(distanceUnitComboBox.getSelectionModel().getSelectedItem());
         race.setElevationUnit(elevationUnitComboBox.getSelectionModel().getSelectedItem());
 
-        try {
-            raceService.update(race);
-        } catch (DataHandlerException | DataProviderException ex) {
-            log.error(ex.getMessage(), ex);
-        }
-
+        logFailure(asyncRaceService.update(race));
         handleClose();
     }
 
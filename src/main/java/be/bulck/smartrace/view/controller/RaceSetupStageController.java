@@ -18,16 +18,14 @@
 
 package be.bulck.smartrace.view.controller;
 
-import be.bulck.smartrace.dao.exception.DataHandlerException;
-import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.lang.LanguageSupport;
-import be.bulck.smartrace.model.Race;
-import be.bulck.smartrace.service.RaceService;
+import be.bulck.smartrace.service.AsyncRaceService;
 import be.bulck.smartrace.service.factory.RaceServiceFactory;
 import be.bulck.smartrace.util.form.ValidatorAlert;
 import be.bulck.smartrace.view.stage.RaceSetupStage;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIcon;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIconView;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
@@ -88,8 +86,8 @@ public class RaceSetupStageController extends StageController<RaceSetupStage> {
     @FXML
     private Button createButton;
 
-    /** The race service. */
-    private RaceService raceService;
+    /** The asynchronous race service. */
+    private AsyncRaceService asyncRaceService;
 
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(RaceSetupStageController.class);
@@ -99,7 +97,7 @@ public class RaceSetupStageController extends StageController<RaceSetupStage> {
      * Constructs an instance of a race setup stage controller.
      */
     public RaceSetupStageController() {
-        raceService = RaceServiceFactory.getInstance().getRaceService();
+        asyncRaceService = RaceServiceFactory.getInstance().getAsyncRaceService();
     }
 
     /**
@@ -184,13 +182,19 @@ public class RaceSetupStageController extends StageController<RaceSetupStage> {
     @FXML
     private void handleCreateRace() {
         if (formIsValid()) {
-            try {
-                Race race = raceService.create(fileTextField.getText(), nameTextField.getText(), locationTextField.getText(), descriptionTextArea.getText());
+            createButton.setDisable(true);
+
+            asyncRaceService.create(fileTextField.getText(), nameTextField.getText(), locationTextField.getText(), descriptionTextArea.getText()).whenCompleteAsync((race, ex) -> {
+                createButton.setDisable(false);
+
+                if (ex != null) {
+                    log.error(ex.getMessage(), ex);
+                    return;
+                }
+
                 app.closeRaceSetupStage();
                 app.openRaceStage(race);
-            } catch (DataHandlerException | DataProviderException ex) {
-                log.error(ex.getMessage(), ex);
-            }
+            }, Platform::runLater);
         }
     }
 
@@ -18,15 +18,14 @@
 
 package be.bulck.smartrace.view.controller;
 
-import be.bulck.smartrace.dao.exception.DataHandlerException;
-import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.lang.LanguageSupport;
 import be.bulck.smartrace.model.Race;
-import be.bulck.smartrace.service.RaceService;
+import be.bulck.smartrace.service.AsyncRaceService;
 import be.bulck.smartrace.service.factory.RaceServiceFactory;
 import be.bulck.smartrace.view.stage.RaceStage;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIcon;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIconView;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.Cursor;
 import javafx.scene.control.*;
@@ -119,8 +118,8 @@ public class RaceStageController extends StageController<RaceStage> {
     @FXML
     private TitledPane timerTitledPane;
 
-    /** The race service. */
-    private RaceService raceService;
+    /** The asynchronous race service. */
+    private AsyncRaceService asyncRaceService;
 
     /** The race to handle. */
     private Race race;
@@ -131,12 +130,9 @@ public class RaceStageController extends StageController<RaceStage> {
 
     /**
      * Constructs an instance of the race stage controller.
-     *
-     * @throws DataProviderException an exception thrown if a data provider problem occurs
      */
-    public RaceStageController() throws DataProviderException {
-        raceService = RaceServiceFactory.getInstance().getRaceService();
-        race = raceService.getRace();
+    public RaceStageController() {
+        asyncRaceService = RaceServiceFactory.getInstance().getAsyncRaceService();
     }
 
     /**
@@ -146,6 +142,18 @@ public class RaceStageController extends StageController<RaceStage> {
     private void initialize() {
         initMenuBar();
         initToolBar();
+    }
+
+    /**
+     * Sets the race stage concerned by the controller, which holds the race to handle: the race is never loaded on the
+     * JavaFX application thread.
+     *
+     * @param stage the race stage
+     */
+    @Override
+    public void setStage(RaceStage stage) {
+        super.setStage(stage);
+        race = stage.getRace();
         initInformationPane();
     }
 
@@ -226,28 +234,25 @@ public class RaceStageController extends StageController<RaceStage> {
         alert.getButtonTypes().setAll(buttonCancel, buttonClose, buttonExit);
 
         Optional<ButtonType> choice = alert.showAndWait();
+        // The race is saved before the stage is closed, so the application can't exit while it is being saved
         if (choice.get() == buttonExit) {
-            app.closeRaceStage();
+            asyncRaceService.update(race).whenCompleteAsync((updated, ex) -> {
+                if (ex != null)
+                    log.error(ex.getMessage(), ex);
 
-            try {
-                raceService.update(race);
-            } catch (DataHandlerException | DataProviderException ex) {
-                log.error(ex.getMessage(), ex);
-            }
-
-            System.exit(0);
+                app.closeRaceStage();
+                System.exit(0);
+            }, Platform::runLater);
         }
 
         else if (choice.get() == buttonClose) {
-            app.closeRaceStage();
-
-            try {
-                raceService.update(race);
-            } catch (DataHandlerException | DataProviderException ex) {
-                log.error(ex.getMessage(), ex);
-            }
+            asyncRaceService.update(race).whenCompleteAsync((updated, ex) -> {
+                if (ex != null)
+                    log.error(ex.getMessage(), ex);
 
-            app.openWelcomeStage();
+                app.closeRaceStage();
+                app.openWelcomeStage();
+            }, Platform::runLater);
         }
     }
 
@@ -18,10 +18,9 @@
 
 package be.bulck.smartrace.view.controller;
 
-import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.lang.LanguageSupport;
 import be.bulck.smartrace.model.*;
-import be.bulck.smartrace.service.RaceService;
+import be.bulck.smartrace.service.AsyncRaceService;
 import be.bulck.smartrace.service.factory.RaceServiceFactory;
 import be.bulck.smartrace.util.form.TypeMatcher;
 import be.bulck.smartrace.util.form.ValidatorAlert;
@@ -111,8 +110,8 @@ public class SetTrackStageController extends StageController<SetTrackStage> {
     /** The race track to edit. */
     private RaceTrack existingRaceTrack;
 
-    /** The race service. */
-    private RaceService raceService;
+    /** The asynchronous race service. */
+    private AsyncRaceService asyncRaceService;
 
     /** The race. */
     private Race race;
@@ -131,12 +130,7 @@ public class SetTrackStageController extends StageController<SetTrackStage> {
         this.raceTracks = raceTracks;
         this.existingRaceTrack = existingRaceTrack;
 
-        raceService = RaceServiceFactory.getInstance().getRaceService();
-        try {
-            race = raceService.getRace();
-        } catch (DataProviderException ex ){
-            log.error(ex.getMessage(), ex);
-        }
+        asyncRaceService = RaceServiceFactory.getInstance().getAsyncRaceService();
     }
 
     /**
@@ -152,17 +146,36 @@ public class SetTrackStageController extends StageController<SetTrackStage> {
         applyButton.setGraphic(new FontAwesomeIconView(existingRaceTrack != null ? FontAwesomeIcon.PENCIL : FontAwesomeIcon.PLUS));
 
         titleLabel.setText(LanguageSupport.getText("stage.set-track.title." + (existingRaceTrack != null ? "edit" : "create")));
-        distanceUnitLabel.setText(LanguageSupport.getText("model.race.distance-unit." + race.getDistanceUnit().getValue()));
-        elevationUnitLabel.setText(LanguageSupport.getText("model.race.elevation-unit." + race.getElevationUnit().getValue()));
         applyButton.setText(LanguageSupport.getText("stage.set-track.button." + (existingRaceTrack != null ? "edit" : "create")));
 
         if (existingRaceTrack != null) {
             nameTextField.setText(existingRaceTrack.getName());
-            distanceTextField.setText(String.valueOf(RaceDistanceUnit.compute(race.getDistanceUnit(), existingRaceTrack.getDistance())));
-            elevationTextField.setText(String.valueOf(RaceElevationUnit.compute(race.getElevationUnit(), existingRaceTrack.getElevation())));
             teamSizeLimitSlider.setValue(existingRaceTrack.getTeamSizeLimit());
             descriptionTextArea.setText(existingRaceTrack.getDescription());
         }
+
+        loadRace();
+    }
+
+    /**
+     * Loads the race, off the JavaFX application thread. The distance and the elevation are entered in the units of the
+     * race, so the race track can't be applied until the race is loaded.
+     */
+    private void loadRace() {
+        applyButton.setDisable(true);
+
+        onCompletion(asyncRaceService.getRace(), race -> {
+            this.race = race;
+            distanceUnitLabel.setText(LanguageSupport.getText("model.race.distance-unit." + race.getDistanceUnit().getValue()));
+            elevationUnitLabel.setText(LanguageSupport.getText("model.race.elevation-unit." + race.getElevationUnit().getValue()));
+
+            if (existingRaceTrack != null) {
+                distanceTextField.setText(String.valueOf(RaceDistanceUnit.compute(race.getDistanceUnit(), existingRaceTrack.getDistance())));
+                elevationTextField.setText(String.valueOf(RaceElevationUnit.compute(race.getElevationUnit(), existingRaceTrack.getElevation())));
+            }
+
+            applyButton.setDisable(false);
+        });
     }
 
     /**
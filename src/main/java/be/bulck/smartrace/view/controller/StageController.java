@@ -19,8 +19,14 @@
 package be.bulck.smartrace.view.controller;
 
 import be.bulck.smartrace.app.SmartRaceApplication;
+import javafx.application.Platform;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * The stage controller.
@@ -35,6 +41,9 @@ public abstract class StageController<T> {
     /** The stage concerned by the controller. */
     protected T stage;
 
+    /** The logger. */
+    private static final Logger log = LoggerFactory.getLogger(StageController.class);
+
 
     /**
      * Sets the smart race JavaFX application.
@@ -59,4 +68,34 @@ public abstract class StageController<T> {
      * @param event the window event
      */
     protected void performOnExit(WindowEvent event) {}
+
+    /**
+     * Executes an action on the JavaFX application thread once a call to an asynchronous service is completed. The
+     * action is skipped and the failure is logged if the call fails.
+     *
+     * @param call the future of the call
+     * @param action the action executed with the result of the call
+     * @param <R> the type of the result of the call
+     */
+    protected <R> void onCompletion(CompletableFuture<R> call, Consumer<? super R> action) {
+        call.whenCompleteAsync((result, ex) -> {
+            if (ex != null)
+                log.error(ex.getMessage(), ex);
+
+            else
+                action.accept(result);
+        }, Platform::runLater);
+    }
+
+    /**
+     * Logs the failure of a call to an asynchronous service, if it fails.
+     *
+     * @param call the future of the call
+     */
+    protected void logFailure(CompletableFuture<?> call) {
+        call.whenComplete((result, ex) -> {
+            if (ex != null)
+                log.error(ex.getMessage(), ex);
+        });
+    }
 }
@@ -18,17 +18,17 @@
 
 package be.bulck.smartrace.view.controller;
 
-import be.bulck.smartrace.dao.exception.DataHandlerException;
-import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.provider.NameSort;
 import be.bulck.smartrace.lang.LanguageSupport;
 import be.bulck.smartrace.model.Race;
 import be.bulck.smartrace.model.RaceDistanceUnit;
 import be.bulck.smartrace.model.RaceElevationUnit;
 import be.bulck.smartrace.model.RaceTrack;
-import be.bulck.smartrace.service.RaceService;
-import be.bulck.smartrace.service.RaceTrackService;
+import be.bulck.smartrace.service.AsyncRaceService;
+import be.bulck.smartrace.service.AsyncRaceTrackService;
 import be.bulck.smartrace.service.factory.RaceServiceFactory;
 import be.bulck.smartrace.service.factory.RaceTrackServiceFactory;
+import be.bulck.smartrace.util.table.PagedTableLoader;
 import be.bulck.smartrace.view.stage.TrackManagerStage;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIcon;
 import de.jensd.fx.glyphs.fontawesome.FontAwesomeIconView;
@@ -42,6 +42,7 @@ import javafx.stage.WindowEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Optional;
 
 /**
@@ -91,27 +92,31 @@ public class TrackManagerStageController extends StageController<TrackManagerSta
     @FXML
     private Button deleteButton;
 
-    /** The race service. */
-    private RaceService raceService;
+    /** The asynchronous race service. */
+    private AsyncRaceService asyncRaceService;
 
-    /** The race track service. */
-    private RaceTrackService raceTrackService;
+    /** The race (null until loaded). */
+    private Race race;
+
+    /** The asynchronous race track service. */
+    private AsyncRaceTrackService asyncRaceTrackService;
 
     /** The race tracks. */
     private ObservableList<RaceTrack> raceTracks;
 
+    /** The loader of the pages of race tracks. */
+    private PagedTableLoader<RaceTrack, String> raceTrackLoader;
+
     /** The logger. */
     private static final Logger log = LoggerFactory.getLogger(TrackManagerStageController.class);
 
 
     /**
      * Constructs an instance of the track manager stage controller.
-     *
-     * @throws DataProviderException an exception thrown if a data provider problem occurs
      */
-    public TrackManagerStageController() throws DataProviderException {
-        raceService = RaceServiceFactory.getInstance().getRaceService();
-        raceTrackService = RaceTrackServiceFactory.getInstance().getRaceTrackService();
+    public TrackManagerStageController() {
+        asyncRaceService = RaceServiceFactory.getInstance().getAsyncRaceService();
+        asyncRaceTrackService = RaceTrackServiceFactory.getInstance().getAsyncRaceTrackService();
 
         raceTracks = FXCollections.observableArrayList(raceTrack -> new Observable[] {
                 raceTrack.nameProperty(),
@@ -120,7 +125,10 @@ public class TrackManagerStageController extends StageController<TrackManagerSta
                 raceTrack.teamSizeLimitProperty(),
                 raceTrack.descriptionProperty()
         });
-        raceTracks.setAll(raceTrackService.find());
+        raceTrackLoader = new PagedTableLoader<>(raceTracks,
+                (after, limit) -> asyncRaceTrackService.findPage(after, limit, NameSort.NAME_ASCENDING),
+                RaceTrack::getName, RaceTrack::getUuid, PagedTableLoader.DEFAULT_PAGE_SIZE);
+        raceTrackLoader.loadNextPage();
 
         trackTableViewDataChanges();
     }
@@ -129,9 +137,21 @@ public class TrackManagerStageController extends StageController<TrackManagerSta
      * Initializes the controller.
      */
     @FXML
-    private void initialize() throws DataProviderException {
+    private void initialize() {
         initIcons();
         initTable();
+        loadRace();
+    }
+
+    /**
+     * Loads the race, off the JavaFX application thread. The distances and elevations are shown in the units of the race
+     * once it is loaded.
+     */
+    private void loadRace() {
+        onCompletion(asyncRaceService.getRace(), race -> {
+            this.race = race;
+            trackTableView.refresh();
+        });
     }
 
     /**
@@ -151,9 +171,7 @@ public class TrackManagerStageController extends StageController<TrackManagerSta
     /**
      * Initializes the table.
      */
-    private void initTable() throws DataProviderException {
-        Race race = raceService.getRace();
-
+    private void initTable() {
         trackTableView.setPlaceholder(new Label(LanguageSupport.getText("stage.track-manager.table.value.none")));
 
         nameTableColumn.setCellValueFactory(cellData -> cellData.getValue().nameProperty());
@@ -163,7 +181,7 @@ public class TrackManagerStageController extends StageController<TrackManagerSta
             public void updateItem(Number item, boolean empty) {
                 super.updateItem(item, empty);
 
-                if (!empty)
+                if (!empty && race != null)
                     setText(RaceDistanceUnit.compute(race.getDistanceUnit(), item.floatValue()) + " " + LanguageSupport.getText("model.race.distance-unit." + race.getDistanceUnit().getValue()));
             }
         });
@@ -173,13 +191,14 @@ public class TrackManagerStageController extends StageController<TrackManagerSta
             public void updateItem(Number item, boolean empty) {
                 super.updateItem(item, empty);
 
-                if (!empty)
+                if (!empty && race != null)
                     setText(RaceElevationUnit.compute(race.getElevationUnit(), item.floatValue()) + " " + LanguageSupport.getText("model.race.elevation-unit." + race.getElevationUnit().getValue()));
             }
         });
         teamSizeTableColumn.setCellValueFactory(cellData -> cellData.getValue().teamSizeLimitProperty());
 
         trackTableView.setItems(raceTracks);
+        raceTrackLoader.bind(trackTableView);
     }
 
     @Override
@@ -193,24 +212,22 @@ public class TrackManagerStageController extends StageController<TrackManagerSta
      */
     private void trackTableViewDataChanges() {
         raceTracks.addListener((ListChangeListener<? super RaceTrack>) listener -> {
+            // The pages loaded on demand come from the race file
+            if (raceTrackLoader.isLoading())
+                return;
+
+            // The changes are copied, the lists of a change being only valid while it is handled
             while (listener.next()) {
-                try {
-                    if (listener.wasAdded()) {
-                        for (RaceTrack raceTrackToAdd : listener.getAddedSubList())
-                            raceTrackService.create(raceTrackToAdd);
-                    }
-
-                    else if (listener.wasUpdated()) {
-                        for (RaceTrack raceTrackToEdit : listener.getList())
-                            raceTrackService.update(raceTrackToEdit);
-                    }
-
-                    else if (listener.wasRemoved()) {
-                        for (RaceTrack raceTrackToRemove : listener.getRemoved())
-                            raceTrackService.delete(raceTrackToRemove);
-                    }
-                } catch (DataHandlerException | DataProviderException ex) {
-                    log.error(ex.getMessage(), ex);
+                if (listener.wasAdded()) {
+                    logFailure(asyncRaceTrackService.createAll(new ArrayList<>(listener.getAddedSubList())));
+                }
+
+                else if (listener.wasUpdated()) {
+                    logFailure(asyncRaceTrackService.updateAll(new ArrayList<>(listener.getList().subList(listener.getFrom(), listener.getTo()))));
+                }
+
+                else if (listener.wasRemoved()) {
+                    logFailure(asyncRaceTrackService.deleteAll(new ArrayList<>(listener.getRemoved())));
                 }
             }
         });
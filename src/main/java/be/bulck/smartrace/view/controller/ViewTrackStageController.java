@@ -18,10 +18,9 @@
 
 package be.bulck.smartrace.view.controller;
 
-import be.bulck.smartrace.dao.exception.DataProviderException;
 import be.bulck.smartrace.lang.LanguageSupport;
 import be.bulck.smartrace.model.*;
-import be.bulck.smartrace.service.RaceService;
+import be.bulck.smartrace.service.AsyncRaceService;
 import be.bulck.smartrace.service.factory.RaceServiceFactory;
 import be.bulck.smartrace.view.stage.ViewTrackStage;
 import javafx.fxml.FXML;
@@ -73,11 +72,8 @@ public class ViewTrackStageController extends StageController<ViewTrackStage> {
     @FXML
     private Label endTimeLabel;
 
-    /** The race service. */
-    private RaceService raceService;
-
-    /** The race. */
-    private Race race;
+    /** The asynchronous race service. */
+    private AsyncRaceService asyncRaceService;
 
     /** The race track to show. */
     private RaceTrack raceTrack;
@@ -93,13 +89,7 @@ public class ViewTrackStageController extends StageController<ViewTrackStage> {
      */
     public ViewTrackStageController(RaceTrack raceTrack) {
         this.raceTrack = raceTrack;
-        this.raceService = RaceServiceFactory.getInstance().getRaceService();
-
-        try {
-            race = raceService.getRace();
-        } catch (DataProviderException ex) {
-            log.error(ex.getMessage(), ex);
-        }
+        this.asyncRaceService = RaceServiceFactory.getInstance().getAsyncRaceService();
     }
 
     /**
@@ -109,13 +99,9 @@ public class ViewTrackStageController extends StageController<ViewTrackStage> {
     private void initialize() {
         titleLabel.setText(raceTrack.getName());
         nameLabel.setText(raceTrack.getName());
-        distanceLabel.setText(RaceDistanceUnit.compute(race.getDistanceUnit(), raceTrack.getDistance()) + " " + LanguageSupport.getText("model.race.distance-unit." + race.getDistanceUnit().getValue()));
         teamSizeLimitLabel.setText(String.valueOf(raceTrack.getTeamSizeLimit()));
         stateLabel.setText(LanguageSupport.getText("model.race.state." + raceTrack.getState().getValue()));
 
-        if (raceTrack.getElevation() != 0.0F)
-            elevationLabel.setText(RaceElevationUnit.compute(race.getElevationUnit(), raceTrack.getElevation()) + " " + LanguageSupport.getText("model.race.elevation-unit." + race.getElevationUnit().getValue()));
-
         if (raceTrack.getDescription() != null)
             descriptionLabel.setText(raceTrack.getDescription());
 
@@ -123,6 +109,21 @@ public class ViewTrackStageController extends StageController<ViewTrackStage> {
             startTimeLabel.setText(raceTrack.getStartTime().toString());
         if (raceTrack.getState() == RaceTrackState.FINISHED)
             endTimeLabel.setText(raceTrack.getEndTime().toString());
+
+        loadRace();
+    }
+
+    /**
+     * Loads the race, off the JavaFX application thread. The distance and the elevation are shown in the units of the
+     * race once it is loaded.
+     */
+    private void loadRace() {
+        onCompletion(asyncRaceService.getRace(), race -> {
+            distanceLabel.setText(RaceDistanceUnit.compute(race.getDistanceUnit(), raceTrack.getDistance()) + " " + LanguageSupport.getText("model.race.distance-unit." + race.getDistanceUnit().getValue()));
+
+            if (raceTrack.getElevation() != 0.0F)
+                elevationLabel.setText(RaceElevationUnit.compute(race.getElevationUnit(), raceTrack.getElevation()) + " " + LanguageSupport.getText("model.race.elevation-unit." + race.getElevationUnit().getValue()));
+        });
     }
 
     /**
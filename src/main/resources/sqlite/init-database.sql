@@ -17,6 +17,12 @@ CREATE TABLE race (
   version TEXT NOT NULL
 );
 
+-- Table representing the settings of the race file (durability profile, ...)
+CREATE TABLE race_file_setting (
+  name TEXT NOT NULL PRIMARY KEY,
+  value TEXT
+);
+
 -- Table representing a racer team
 CREATE TABLE racer_team (
   racer_team_uuid TEXT NOT NULL PRIMARY KEY,
@@ -0,0 +1,24 @@
+--
+-- Migration 1: fixes the foreign key of the race records to their race track
+--
+-- The race records referenced a table "racer_track" which doesn't exist. SQLite can't alter a foreign key, so the
+-- table is rebuilt with the same columns.
+--
+
+CREATE TABLE race_record_migration (
+  race_record_uuid TEXT NOT NULL PRIMARY KEY,
+  number INTEGER NOT NULL UNIQUE,
+  racer_team_uuid TEXT NOT NULL,
+  racer_track_uuid TEXT NOT NULL,
+  state INTEGER NOT NULL DEFAULT 0,
+  end_date INTEGER,
+  FOREIGN KEY (racer_team_uuid) REFERENCES racer_team (racer_team_uuid) ON DELETE CASCADE,
+  FOREIGN KEY (racer_track_uuid) REFERENCES race_track (race_track_uuid) ON DELETE CASCADE
+);
+
+INSERT INTO race_record_migration (race_record_uuid, number, racer_team_uuid, racer_track_uuid, state, end_date)
+  SELECT race_record_uuid, number, racer_team_uuid, racer_track_uuid, state, end_date FROM race_record;
+
+DROP TABLE race_record;
+
+ALTER TABLE race_record_migration RENAME TO race_record;
@@ -0,0 +1,14 @@
+--
+-- Migration 2: adds the indexes of the hot paths
+--
+-- The foreign key columns are indexed, so the cascades of a deletion don't scan the child tables. The state of the
+-- race records is indexed with their race track, to find the records of a track in a given state.
+--
+
+CREATE INDEX race_record_track_state_index ON race_record (racer_track_uuid, state);
+
+CREATE INDEX race_record_team_index ON race_record (racer_team_uuid);
+
+CREATE INDEX racer_team_index ON racer (racer_team_uuid);
+
+CREATE INDEX race_category_assignment_record_index ON race_category_assignment (race_record_uuid);
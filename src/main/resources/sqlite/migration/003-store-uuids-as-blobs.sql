@@ -0,0 +1,133 @@
+--
+-- Migration 3: stores the UUIDs as 16-byte BLOBs
+--
+-- The keys were 36-character TEXT UUIDs. They are converted by the function uuid_blob(), registered by the migration,
+-- and every table keyed by a UUID is rebuilt. The race records and the race category assignments are small rows looked
+-- up by their key, so they are stored WITHOUT ROWID, clustered on their key.
+--
+
+CREATE TABLE race_migration (
+  race_uuid BLOB NOT NULL PRIMARY KEY,
+  name TEXT NOT NULL UNIQUE,
+  location TEXT NOT NULL,
+  description TEXT,
+  state INTEGER NOT NULL DEFAULT 0,
+  distance_unit INTEGER NOT NULL DEFAULT 0,
+  elevation_unit INTEGER NOT NULL DEFAULT 0,
+  creation_date INTEGER NOT NULL DEFAULT 0,
+  last_opening_date INTEGER NOT NULL DEFAULT 0,
+  last_update_date INTEGER NOT NULL DEFAULT 0,
+  version TEXT NOT NULL
+);
+
+INSERT INTO race_migration (race_uuid, name, location, description, state, distance_unit, elevation_unit, creation_date, last_opening_date, last_update_date, version)
+  SELECT uuid_blob(race_uuid), name, location, description, state, distance_unit, elevation_unit, creation_date, last_opening_date, last_update_date, version FROM race;
+
+DROP TABLE race;
+
+ALTER TABLE race_migration RENAME TO race;
+
+CREATE TABLE racer_team_migration (
+  racer_team_uuid BLOB NOT NULL PRIMARY KEY,
+  name TEXT NOT NULL UNIQUE
+);
+
+INSERT INTO racer_team_migration (racer_team_uuid, name)
+  SELECT uuid_blob(racer_team_uuid), name FROM racer_team;
+
+DROP TABLE racer_team;
+
+ALTER TABLE racer_team_migration RENAME TO racer_team;
+
+CREATE TABLE racer_migration (
+  racer_uuid BLOB NOT NULL PRIMARY KEY,
+  racer_team_uuid BLOB NOT NULL,
+  last_name TEXT NOT NULL,
+  first_name TEXT NOT NULL,
+  sex INTEGER NOT NULL DEFAULT 0,
+  birthday_date INTEGER NOT NULL DEFAULT 0,
+  comments TEXT,
+  UNIQUE (last_name, first_name),
+  FOREIGN KEY (racer_team_uuid) REFERENCES racer_team(racer_team_uuid) ON DELETE CASCADE
+);
+
+INSERT INTO racer_migration (racer_uuid, racer_team_uuid, last_name, first_name, sex, birthday_date, comments)
+  SELECT uuid_blob(racer_uuid), uuid_blob(racer_team_uuid), last_name, first_name, sex, birthday_date, comments FROM racer;
+
+DROP TABLE racer;
+
+ALTER TABLE racer_migration RENAME TO racer;
+
+CREATE TABLE race_category_migration (
+  race_category_uuid BLOB NOT NULL PRIMARY KEY,
+  name TEXT NOT NULL UNIQUE,
+  description TEXT
+);
+
+INSERT INTO race_category_migration (race_category_uuid, name, description)
+  SELECT uuid_blob(race_category_uuid), name, description FROM race_category;
+
+DROP TABLE race_category;
+
+ALTER TABLE race_category_migration RENAME TO race_category;
+
+CREATE TABLE race_track_migration (
+  race_track_uuid BLOB NOT NULL PRIMARY KEY,
+  name TEXT NOT NULL UNIQUE,
+  distance REAL NOT NULL DEFAULT 0.0,
+  elevation REAL,
+  description TEXT,
+  team_size_limit INTEGER NOT NULL DEFAULT 1,
+  state INTEGER NOT NULL DEFAULT 0,
+  start_time INTEGER,
+  end_time INTEGER
+);
+
+INSERT INTO race_track_migration (race_track_uuid, name, distance, elevation, description, team_size_limit, state, start_time, end_time)
+  SELECT uuid_blob(race_track_uuid), name, distance, elevation, description, team_size_limit, state, start_time, end_time FROM race_track;
+
+DROP TABLE race_track;
+
+ALTER TABLE race_track_migration RENAME TO race_track;
+
+CREATE TABLE race_record_migration (
+  race_record_uuid BLOB NOT NULL PRIMARY KEY,
+  number INTEGER NOT NULL UNIQUE,
+  racer_team_uuid BLOB NOT NULL,
+  racer_track_uuid BLOB NOT NULL,
+  state INTEGER NOT NULL DEFAULT 0,
+  end_date INTEGER,
+  FOREIGN KEY (racer_team_uuid) REFERENCES racer_team (racer_team_uuid) ON DELETE CASCADE,
+  FOREIGN KEY (racer_track_uuid) REFERENCES race_track (race_track_uuid) ON DELETE CASCADE
+) WITHOUT ROWID;
+
+INSERT INTO race_record_migration (race_record_uuid, number, racer_team_uuid, racer_track_uuid, state, end_date)
+  SELECT uuid_blob(race_record_uuid), number, uuid_blob(racer_team_uuid), uuid_blob(racer_track_uuid), state, end_date FROM race_record;
+
+DROP TABLE race_record;
+
+ALTER TABLE race_record_migration RENAME TO race_record;
+
+CREATE TABLE race_category_assignment_migration (
+  race_category_uuid BLOB NOT NULL,
+  race_record_uuid BLOB NOT NULL,
+  PRIMARY KEY (race_category_uuid, race_record_uuid),
+  FOREIGN KEY (race_category_uuid) REFERENCES race_category (race_category_uuid) ON DELETE CASCADE,
+  FOREIGN KEY (race_record_uuid) REFERENCES race_record (race_record_uuid) ON DELETE CASCADE
+) WITHOUT ROWID;
+
+INSERT INTO race_category_assignment_migration (race_category_uuid, race_record_uuid)
+  SELECT uuid_blob(race_category_uuid), uuid_blob(race_record_uuid) FROM race_category_assignment;
+
+DROP TABLE race_category_assignment;
+
+ALTER TABLE race_category_assignment_migration RENAME TO race_category_assignment;
+
+-- The indexes of the migration 2 are dropped with their tables
+CREATE INDEX race_record_track_state_index ON race_record (racer_track_uuid, state);
+
+CREATE INDEX race_record_team_index ON race_record (racer_team_uuid);
+
+CREATE INDEX racer_team_index ON racer (racer_team_uuid);
+
+CREATE INDEX race_category_assignment_record_index ON race_category_assignment (race_record_uuid);
@@ -0,0 +1,15 @@
+--
+-- Migration 4: adds the versions of the rows
+--
+-- Several stations may work on the same race file. The rows updated by the stations get a version, incremented by
+-- each update, which is checked by the update of a station: a row changed by another station since it was read isn't
+-- overwritten, the update fails with a conflict instead.
+--
+
+ALTER TABLE race ADD COLUMN row_version INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE race_track ADD COLUMN row_version INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE race_category ADD COLUMN row_version INTEGER NOT NULL DEFAULT 0;
+
+ALTER TABLE race_record ADD COLUMN row_version INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,28 @@
+--
+-- Migration 5: adds the timing points of the race tracks and the splits of the race records
+--
+-- The timing points are the checkpoints of a race track (the finish line of a lap included), ordered by their position
+-- along the track. A split is a race record crossing a timing point. The splits are many small rows, stored WITHOUT
+-- ROWID and clustered on the race record then the time, so the splits of a race record are read in order by a single
+-- range scan. They reference their timing point by its position in the race track rather than by its UUID, which keeps
+-- a split at a few bytes more than its key.
+--
+
+CREATE TABLE race_timing_point (
+  race_timing_point_uuid BLOB NOT NULL PRIMARY KEY,
+  race_track_uuid BLOB NOT NULL,
+  name TEXT NOT NULL,
+  position INTEGER NOT NULL,
+  distance REAL NOT NULL DEFAULT 0.0,
+  lap_line INTEGER NOT NULL DEFAULT 0,
+  UNIQUE (race_track_uuid, position),
+  FOREIGN KEY (race_track_uuid) REFERENCES race_track (race_track_uuid) ON DELETE CASCADE
+);
+
+CREATE TABLE race_split (
+  race_record_uuid BLOB NOT NULL,
+  time INTEGER NOT NULL,
+  position INTEGER NOT NULL,
+  PRIMARY KEY (race_record_uuid, time),
+  FOREIGN KEY (race_record_uuid) REFERENCES race_record (race_record_uuid) ON DELETE CASCADE
+) WITHOUT ROWID;
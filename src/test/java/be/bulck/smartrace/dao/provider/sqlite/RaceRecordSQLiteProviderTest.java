@@ -0,0 +1,195 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.dao.provider.sqlite;
+
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.dao.handler.sqlite.SQLiteDataHandler;
+import be.bulck.smartrace.dao.provider.RaceRecordListener;
+import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordState;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.model.RacerTeam;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the marking of the race records as finished, in a race file.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class RaceRecordSQLiteProviderTest {
+
+    /** The folder of the race file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** The data handler. */
+    private SQLiteDataHandler dataHandler;
+
+    /** The race record provider. */
+    private RaceRecordSQLiteProvider raceRecordProvider;
+
+    /** The race records changed, notified by the provider. */
+    private final List<RaceRecord> changed = new ArrayList<>();
+
+
+    @Before
+    public void setUp() throws Exception {
+        dataHandler = new SQLiteDataHandler();
+        dataHandler.create(new File(folder.getRoot(), "test.race").getPath(), DurabilityProfile.TIMING);
+
+        raceRecordProvider = new RaceRecordSQLiteProvider();
+        RaceTrack raceTrack = new RaceTrack("Track", 10);
+        new RaceTrackSQLiteProvider().create(raceTrack);
+        RacerTeam racerTeam = new RacerTeam("Team");
+
+        SQLiteDatabaseFactory.getDatabase().write(connection -> {
+            try (PreparedStatement statement = connection.createPreparedStatement("INSERT INTO racer_team (racer_team_uuid, name) VALUES (?, ?)")) {
+                SQLiteUUIDCodec.setUUID(statement, 1, racerTeam.getUuid());
+                statement.setString(2, racerTeam.getName());
+                return statement.executeUpdate();
+            }
+        });
+
+        RaceRecord raceRecord = new RaceRecord(5, racerTeam, raceTrack);
+        raceRecord.setState(RaceRecordState.RUNNING);
+        raceRecordProvider.create(raceRecord);
+        dataHandler.save();
+
+        raceRecordProvider.addListener(new RaceRecordListener() {
+            @Override
+            public void raceRecordChanged(RaceRecord raceRecord) {
+                changed.add(raceRecord);
+            }
+
+            @Override
+            public void raceRecordDeleted(RaceRecord raceRecord) {
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dataHandler.close();
+    }
+
+    @Test
+    public void markFinishedKeepsTheFirstEndTime() throws Exception {
+        assertTrue(raceRecordProvider.markFinished(5, Instant.ofEpochMilli(2000), false));
+        assertFalse(raceRecordProvider.markFinished(5, Instant.ofEpochMilli(9000), false));
+        assertFalse(raceRecordProvider.markFinished(5, Instant.ofEpochMilli(1000), false));
+
+        assertEquals(Instant.ofEpochMilli(2000), readEndTime(5));
+        assertEquals(Instant.ofEpochMilli(2000), raceRecordProvider.findByNumber(5).getEndTime());
+        assertEquals(1, changed.size());
+    }
+
+    @Test
+    public void markFinishedCorrectsALaterEndTimeOnly() throws Exception {
+        assertTrue(raceRecordProvider.markFinished(5, Instant.ofEpochMilli(2000), true));
+        assertFalse(raceRecordProvider.markFinished(5, Instant.ofEpochMilli(3000), true));
+        assertTrue(raceRecordProvider.markFinished(5, Instant.ofEpochMilli(1500), true));
+
+        assertEquals(Instant.ofEpochMilli(1500), readEndTime(5));
+        assertEquals(Instant.ofEpochMilli(1500), raceRecordProvider.findByNumber(5).getEndTime());
+        assertEquals(2, changed.size());
+    }
+
+    @Test
+    public void markFinishedKeepsACancelledRaceRecordCancelled() throws Exception {
+        RaceRecord raceRecord = raceRecordProvider.findByNumber(5);
+        raceRecord.setState(RaceRecordState.CANCELLED);
+        raceRecordProvider.update(raceRecord);
+        changed.clear();
+
+        assertFalse(raceRecordProvider.markFinished(5, Instant.ofEpochMilli(2000), false));
+        assertFalse(raceRecordProvider.markFinished(5, Instant.ofEpochMilli(2000), true));
+
+        assertEquals(RaceRecordState.CANCELLED, readState(5));
+        assertEquals(RaceRecordState.CANCELLED, raceRecordProvider.findByNumber(5).getState());
+        assertNull(raceRecordProvider.findByNumber(5).getEndTime());
+        assertTrue(changed.isEmpty());
+    }
+
+    @Test
+    public void markFinishedIgnoresAnUnknownNumber() throws Exception {
+        assertFalse(raceRecordProvider.markFinished(6, Instant.ofEpochMilli(2000), false));
+        assertTrue(changed.isEmpty());
+    }
+
+    /**
+     * Reads the state of a race record in the race file.
+     *
+     * @param number the number of the race record
+     *
+     * @return the state of the race record
+     *
+     * @throws Exception an exception thrown if the race file can't be read
+     */
+    private static RaceRecordState readState(int number) throws Exception {
+        return SQLiteDatabaseFactory.getDatabase().write(connection -> {
+            try (PreparedStatement statement = connection.createPreparedStatement("SELECT state FROM race_record WHERE number = ?")) {
+                statement.setInt(1, number);
+
+                try (ResultSet row = statement.executeQuery()) {
+                    row.next();
+                    return RaceRecordState.parse(row.getInt(1));
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the end time of a race record in the race file.
+     *
+     * @param number the number of the race record
+     *
+     * @return the end time of the race record
+     *
+     * @throws Exception an exception thrown if the race file can't be read
+     */
+    private static Instant readEndTime(int number) throws Exception {
+        return SQLiteDatabaseFactory.getDatabase().write(connection -> {
+            try (PreparedStatement statement = connection.createPreparedStatement("SELECT end_date FROM race_record WHERE number = ?")) {
+                statement.setInt(1, number);
+
+                try (ResultSet row = statement.executeQuery()) {
+                    row.next();
+                    return Instant.ofEpochMilli(row.getLong(1));
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.ingest;
+
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.dao.handler.sqlite.SQLiteDataHandler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the deduplication of the finish events.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class FinishEventDeduplicatorTest {
+
+    /** The folder of the race files. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @Test
+    public void firstReadKeepsTheFirstReadOfACrossing() {
+        FinishEventDeduplicator deduplicator = createDeduplicator(DeduplicationPolicy.FIRST_READ);
+
+        assertTrue(deduplicator.accept(5, 10000));
+        assertFalse(deduplicator.accept(5, 10500));
+        assertFalse(deduplicator.accept(5, 9800));
+        assertTrue(deduplicator.accept(6, 10500));
+    }
+
+    @Test
+    public void eachReadExtendsTheWindow() {
+        FinishEventDeduplicator deduplicator = createDeduplicator(DeduplicationPolicy.FIRST_READ);
+
+        assertTrue(deduplicator.accept(5, 10000));
+        assertFalse(deduplicator.accept(5, 12500));
+        assertFalse(deduplicator.accept(5, 15000));
+        assertTrue(deduplicator.accept(5, 18000));
+    }
+
+    @Test
+    public void bestReadCorrectsAnEarlierTime() {
+        FinishEventDeduplicator deduplicator = createDeduplicator(DeduplicationPolicy.BEST_READ);
+
+        assertTrue(deduplicator.accept(5, 10000));
+        assertFalse(deduplicator.accept(5, 10200));
+        assertTrue(deduplicator.accept(5, 9900));
+        assertFalse(deduplicator.accept(5, 9950));
+    }
+
+    @Test
+    public void numbersBeyondTheCapacityArentDeduplicated() {
+        FinishEventDeduplicator deduplicator = createDeduplicator(DeduplicationPolicy.FIRST_READ);
+
+        assertTrue(deduplicator.accept(1000, 10000));
+        assertTrue(deduplicator.accept(1000, 10000));
+        assertTrue(deduplicator.accept(-1, 10000));
+        assertTrue(deduplicator.accept(-1, 10000));
+    }
+
+    @Test
+    public void stateClearedWhenTheRaceFileChanges() throws Exception {
+        SQLiteDataHandler dataHandler = new SQLiteDataHandler();
+        FinishEventDeduplicator deduplicator = new FinishEventDeduplicator(dataHandler);
+        deduplicator.setCapacity(1000);
+        deduplicator.init();
+
+        try {
+            dataHandler.create(new File(folder.getRoot(), "first.race").getPath(), DurabilityProfile.TIMING);
+            assertTrue(deduplicator.accept(5, 10000));
+            assertFalse(deduplicator.accept(5, 10100));
+
+            dataHandler.create(new File(folder.getRoot(), "second.race").getPath(), DurabilityProfile.TIMING);
+            assertTrue(deduplicator.accept(5, 10200));
+            assertFalse(deduplicator.accept(5, 10300));
+        } finally {
+            dataHandler.close();
+        }
+    }
+
+    /**
+     * Creates a deduplicator with a window of 3 seconds, for the numbers below 1000.
+     *
+     * @param policy the policy of the deduplicator
+     *
+     * @return the deduplicator
+     */
+    private static FinishEventDeduplicator createDeduplicator(DeduplicationPolicy policy) {
+        FinishEventDeduplicator deduplicator = new FinishEventDeduplicator();
+        deduplicator.setWindow(3000);
+        deduplicator.setPolicy(policy);
+        deduplicator.setCapacity(1000);
+
+        return deduplicator;
+    }
+}
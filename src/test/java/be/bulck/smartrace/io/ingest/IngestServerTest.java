@@ -0,0 +1,315 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.ingest;
+
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.dao.handler.sqlite.SQLiteDataHandler;
+import be.bulck.smartrace.dao.provider.sqlite.RaceRecordSQLiteProvider;
+import be.bulck.smartrace.dao.provider.sqlite.RaceTrackSQLiteProvider;
+import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordState;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.model.RacerTeam;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the ingestion server of the finish events, with timing devices simulated by local clients on the loopback.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class IngestServerTest {
+
+    /** The maximum time to wait for the events to be persisted (in milliseconds). */
+    private static final long TIMEOUT = 10000;
+
+    /** The folder of the race file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** The ingestion server. */
+    private final IngestServer server = new IngestServer();
+
+    /** The data handler, if a race file is used. */
+    private SQLiteDataHandler dataHandler;
+
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+
+        if (dataHandler != null)
+            dataHandler.close();
+    }
+
+    @Test
+    public void eventsOfTheTimingDevicesFinishTheRaceRecords() throws Exception {
+        dataHandler = new SQLiteDataHandler();
+        RaceRecordSQLiteProvider raceRecordProvider = new RaceRecordSQLiteProvider();
+        RaceRecordFinishEventSink sink = new RaceRecordFinishEventSink(dataHandler, raceRecordProvider);
+        sink.init();
+
+        dataHandler.create(new File(folder.getRoot(), "test.race").getPath(), DurabilityProfile.TIMING);
+        createRaceRecords(raceRecordProvider, 220);
+        dataHandler.save();
+        start(sink);
+
+        List<Thread> clients = new ArrayList<>();
+        clients.add(new Thread(() -> sendStream(1, 100)));
+        clients.add(new Thread(() -> sendStream(101, 200)));
+        clients.add(new Thread(() -> sendDatagrams(201, 220, 10)));
+
+        for (Thread client : clients)
+            client.start();
+
+        for (Thread client : clients)
+            client.join();
+
+        IngestMetrics metrics = server.getMetrics();
+        await(() -> metrics.getPersistedCount() == 220);
+
+        assertEquals(0, metrics.getUnknownCount());
+        assertEquals(220, countFinished());
+    }
+
+    @Test
+    public void failedBatchIsRetriedUntilPersisted() throws Exception {
+        FailingSink sink = new FailingSink(3);
+        start(sink);
+
+        sendStream(1, 100);
+        IngestMetrics metrics = server.getMetrics();
+        await(() -> metrics.getPersistedCount() == 100);
+
+        assertEquals(3, metrics.getRetryCount());
+        assertEquals(0, metrics.getFailedCount());
+        assertEquals(100, sink.persisted.size());
+
+        for (int number = 1; number <= 100; number++)
+            assertTrue("Event " + number + " lost", sink.persisted.contains(number));
+    }
+
+    @Test
+    public void failedBatchIsGivenUpWhenStopped() throws Exception {
+        FailingSink sink = new FailingSink(Integer.MAX_VALUE);
+        start(sink);
+
+        sendStream(1, 10);
+        IngestMetrics metrics = server.getMetrics();
+        await(() -> metrics.getRetryCount() >= 2);
+        server.stop();
+
+        assertEquals(0, metrics.getPersistedCount());
+        assertEquals(10, metrics.getFailedCount());
+    }
+
+    /**
+     * Starts the ingestion server on the loopback, with TCP and UDP endpoints on free ports.
+     *
+     * @param sink the sink persisting the events
+     *
+     * @throws Exception an exception thrown if the server can't be started
+     */
+    private void start(FinishEventSink sink) throws Exception {
+        server.setTcpPort(0);
+        server.setUdpPort(0);
+        server.setBindAddress(InetAddress.getLoopbackAddress().getHostAddress());
+        server.setRetryInitialBackoff(10);
+        server.setRetryMaxBackoff(40);
+        server.setSink(sink);
+        server.start();
+    }
+
+    /**
+     * Waits until a condition is met.
+     *
+     * @param condition the condition
+     *
+     * @throws InterruptedException an exception thrown if the wait is interrupted
+     */
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timeout (" + server.getMetrics() + ")", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Sends the finish events of a range of numbers over a TCP connection, as a timing device would.
+     *
+     * @param first the first number
+     * @param last the last number
+     */
+    private void sendStream(int first, int last) {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalTcpPort());
+             OutputStream output = socket.getOutputStream()) {
+            output.write(lines(first, last).getBytes(StandardCharsets.US_ASCII));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Sends the finish events of a range of numbers in UDP datagrams, as a timing device would.
+     *
+     * @param first the first number
+     * @param last the last number
+     * @param eventsPerDatagram the number of events of a datagram
+     */
+    private void sendDatagrams(int first, int last, int eventsPerDatagram) {
+        try (DatagramSocket socket = new DatagramSocket()) {
+            for (int number = first; number <= last; number += eventsPerDatagram) {
+                byte[] data = lines(number, Math.min(number + eventsPerDatagram - 1, last)).getBytes(StandardCharsets.US_ASCII);
+                socket.send(new DatagramPacket(data, data.length, InetAddress.getLoopbackAddress(), server.getLocalUdpPort()));
+            }
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Gets the lines of the finish events of a range of numbers.
+     *
+     * @param first the first number
+     * @param last the last number
+     *
+     * @return the lines
+     */
+    private static String lines(int first, int last) {
+        StringBuilder lines = new StringBuilder();
+
+        for (int number = first; number <= last; number++)
+            lines.append(number).append(' ').append(1000L * number).append('\n');
+
+        return lines.toString();
+    }
+
+    /**
+     * Creates the race records of the race file, numbered from 1.
+     *
+     * @param raceRecordProvider the race record provider
+     * @param count the number of race records
+     *
+     * @throws Exception an exception thrown if the creation fails
+     */
+    private static void createRaceRecords(RaceRecordSQLiteProvider raceRecordProvider, int count) throws Exception {
+        RaceTrack raceTrack = new RaceTrack("Track", 10);
+        new RaceTrackSQLiteProvider().create(raceTrack);
+        RacerTeam racerTeam = new RacerTeam("Team");
+
+        SQLiteDatabaseFactory.getDatabase().write(connection -> {
+            try (PreparedStatement statement = connection.createPreparedStatement("INSERT INTO racer_team (racer_team_uuid, name) VALUES (?, ?)")) {
+                SQLiteUUIDCodec.setUUID(statement, 1, racerTeam.getUuid());
+                statement.setString(2, racerTeam.getName());
+                return statement.executeUpdate();
+            }
+        });
+
+        List<RaceRecord> raceRecords = new ArrayList<>(count);
+
+        for (int number = 1; number <= count; number++) {
+            RaceRecord raceRecord = new RaceRecord(number, racerTeam, raceTrack);
+            raceRecord.setState(RaceRecordState.RUNNING);
+            raceRecords.add(raceRecord);
+        }
+
+        raceRecordProvider.createAll(raceRecords);
+    }
+
+    /**
+     * Counts the race records finished in the race file.
+     *
+     * @return the number of race records finished
+     *
+     * @throws Exception an exception thrown if the count fails
+     */
+    private static long countFinished() throws Exception {
+        return SQLiteDatabaseFactory.getDatabase().read(connection -> {
+            try (PreparedStatement statement = connection.createPreparedStatement("SELECT COUNT(*) FROM race_record WHERE state = ?")) {
+                statement.setInt(1, RaceRecordState.FINISHED.getValue());
+
+                try (ResultSet row = statement.executeQuery()) {
+                    return row.next() ? row.getLong(1) : 0;
+                }
+            }
+        });
+    }
+
+    /**
+     * A sink keeping the numbers of the events persisted in memory, failing the first attempts of persistence.
+     */
+    private static class FailingSink implements FinishEventSink {
+
+        /** The numbers of the events persisted. */
+        private final List<Integer> persisted = new ArrayList<>();
+
+        /** The number of attempts still to fail. */
+        private int failures;
+
+
+        /**
+         * Constructs an instance of failing sink.
+         *
+         * @param failures the number of attempts to fail
+         */
+        private FailingSink(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public synchronized int persist(List<FinishEvent> events) throws DataProviderException {
+            if (failures > 0) {
+                failures--;
+                throw new DataProviderException("The race file is busy");
+            }
+
+            for (FinishEvent event : events)
+                persisted.add(event.getNumber());
+
+            return events.size();
+        }
+    }
+}
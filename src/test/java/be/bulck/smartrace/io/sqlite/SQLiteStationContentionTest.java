@@ -0,0 +1,326 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.io.sqlite;
+
+import be.bulck.smartrace.dao.exception.DataProviderConflictException;
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.dao.handler.sqlite.SQLiteDataHandler;
+import be.bulck.smartrace.dao.provider.sqlite.RaceTrackSQLiteProvider;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.service.cache.IdentityMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of several stations working on the same race file (WAL journal mode) at the same time. The station of the test
+ * works through the data handler and the providers, the other stations are SQLite databases of their own on the same
+ * race file, with connections of their own, as another timing laptop would be.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class SQLiteStationContentionTest {
+
+    /** The query to increment the team size limit of the race track. */
+    private static final String INCREMENT_QUERY = "UPDATE race_track SET team_size_limit = team_size_limit + 1, row_version = row_version + 1 WHERE race_track_uuid = ?";
+
+    /** The query to read the team size limit and the version of the race track. */
+    private static final String READ_QUERY = "SELECT team_size_limit, row_version FROM race_track WHERE race_track_uuid = ?";
+
+    /** The query to set the team size limit of the race track, if its version is the one read. */
+    private static final String VERSIONED_UPDATE_QUERY = "UPDATE race_track SET team_size_limit = ?, row_version = row_version + 1 WHERE race_track_uuid = ? AND row_version = ?";
+
+    /** The folder of the race file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** The path of the race file. */
+    private String filePath;
+
+    /** The data handler of the station of the test. */
+    private SQLiteDataHandler dataHandler;
+
+    /** The race track edited by the stations. */
+    private RaceTrack raceTrack;
+
+
+    @Before
+    public void setUp() throws Exception {
+        filePath = new File(folder.getRoot(), "test.race").getPath();
+        dataHandler = new SQLiteDataHandler();
+        dataHandler.create(filePath, DurabilityProfile.TIMING);
+
+        raceTrack = new RaceTrack("Track", 10);
+        new RaceTrackSQLiteProvider().create(raceTrack);
+        dataHandler.save();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dataHandler.close();
+    }
+
+    @Test
+    public void busyWriteIsRetriedUntilTheOtherStationCommits() throws Exception {
+        SQLiteDatabase otherStation = new SQLiteDatabase(filePath, 1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // The other station holds the write lock for 300 ms
+            otherStation.write(connection -> increment(connection));
+            Future<?> release = executor.submit(() -> {
+                TimeUnit.MILLISECONDS.sleep(300);
+                otherStation.commit();
+                return null;
+            });
+
+            long start = System.nanoTime();
+            SQLiteDatabaseFactory.getDatabase().write(connection -> increment(connection));
+            long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            dataHandler.save();
+            release.get();
+
+            assertTrue("The write didn't wait for the other station (" + waited + " ms)", waited >= 200);
+            assertEquals(3, readTeamSizeLimit(SQLiteDatabaseFactory.getDatabase()));
+        } finally {
+            executor.shutdownNow();
+            otherStation.close();
+        }
+    }
+
+    @Test
+    public void busyWriteFailsAfterTheLastRetry() throws Exception {
+        SQLiteDatabase otherStation = new SQLiteDatabase(filePath, 1);
+        SQLiteDatabase impatientStation = new SQLiteDatabase(filePath, 1, new SQLiteBusyPolicy(10, 2, 5, 10));
+
+        try {
+            otherStation.write(connection -> increment(connection));
+
+            try {
+                impatientStation.write(connection -> increment(connection));
+                fail("The write succeeded while the other station held the write lock");
+            } catch (SQLException ex) {
+                assertTrue(ex.getMessage(), SQLiteBusyPolicy.isBusy(ex));
+            }
+        } finally {
+            otherStation.rollback();
+            otherStation.close();
+            impatientStation.close();
+        }
+    }
+
+    @Test
+    public void updateOfARaceTrackChangedByAnotherStationIsRejected() throws Exception {
+        RaceTrackSQLiteProvider raceTrackProvider = new RaceTrackSQLiteProvider();
+        SQLiteDatabase otherStation = new SQLiteDatabase(filePath, 1);
+
+        try {
+            otherStation.write(connection -> increment(connection));
+            otherStation.commit();
+        } finally {
+            otherStation.close();
+        }
+
+        raceTrack.setName("Renamed");
+
+        try {
+            raceTrackProvider.update(raceTrack);
+            fail("The update overwrote the change of the other station");
+        } catch (DataProviderConflictException ex) {
+            dataHandler.save();
+        }
+
+        // Read again, the update is accepted and keeps the change of the other station
+        RaceTrack reread = raceTrackProvider.find(raceTrack.getUuid());
+        reread.setName("Renamed");
+        raceTrackProvider.update(reread);
+        dataHandler.save();
+
+        RaceTrack saved = raceTrackProvider.find(raceTrack.getUuid());
+        assertEquals("Renamed", saved.getName());
+        assertEquals(2, saved.getTeamSizeLimit());
+    }
+
+    @Test
+    public void raceTracksMappedAreLoadedAgainOnceAnotherStationCommits() throws Exception {
+        RaceTrackSQLiteProvider raceTrackProvider = new RaceTrackSQLiteProvider();
+        IdentityMap<RaceTrack> raceTrackIdentityMap = new IdentityMap<>(RaceTrack::getUuid);
+        raceTrackIdentityMap.validate(dataHandler.getDataVersion());
+        raceTrackIdentityMap.attachAll(raceTrackProvider.find());
+
+        // Nothing committed since the last check keeps the race tracks mapped, even with pending changes
+        SQLiteDatabaseFactory.getDatabase().write(connection -> increment(connection));
+        raceTrackIdentityMap.validate(dataHandler.getDataVersion());
+        assertTrue(raceTrackIdentityMap.isComplete());
+        dataHandler.save();
+        raceTrackIdentityMap.validate(dataHandler.getDataVersion());
+        raceTrackIdentityMap.attachAll(raceTrackProvider.find());
+
+        SQLiteDatabase otherStation = new SQLiteDatabase(filePath, 1);
+
+        try {
+            otherStation.write(connection -> increment(connection));
+            otherStation.commit();
+        } finally {
+            otherStation.close();
+        }
+
+        raceTrackIdentityMap.validate(dataHandler.getDataVersion());
+        assertFalse(raceTrackIdentityMap.isComplete());
+        assertNull(raceTrackIdentityMap.get(raceTrack.getUuid()));
+
+        // The writer connection still writes after checking the version
+        SQLiteDatabaseFactory.getDatabase().write(connection -> increment(connection));
+        dataHandler.save();
+        assertEquals(4, readTeamSizeLimit(SQLiteDatabaseFactory.getDatabase()));
+    }
+
+    @Test
+    public void concurrentStationsLoseNoUpdate() throws Exception {
+        int stations = 3;
+        int updates = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(stations);
+        List<Future<Integer>> conflicts = new ArrayList<>();
+
+        try {
+            for (int station = 0; station < stations; station++)
+                conflicts.add(executor.submit(() -> incrementWithVersion(updates)));
+
+            int conflictCount = 0;
+
+            for (Future<Integer> conflict : conflicts)
+                conflictCount += conflict.get(60, TimeUnit.SECONDS);
+
+            assertEquals("Updates lost, with " + conflictCount + " conflict(s)", 1 + stations * updates,
+                    readTeamSizeLimit(SQLiteDatabaseFactory.getDatabase()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Increments the team size limit of the race track, as a station of its own: each increment reads the race track,
+     * then updates it if its version is still the one read, and reads it again otherwise (conflict).
+     *
+     * @param updates the number of increments
+     *
+     * @return the number of conflicts
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private int incrementWithVersion(int updates) throws SQLException {
+        SQLiteDatabase station = new SQLiteDatabase(filePath, 1, new SQLiteBusyPolicy(20, 50, 1, 20));
+        int conflicts = 0;
+
+        try {
+            for (int update = 0; update < updates; ) {
+                long[] read = station.read(connection -> readRaceTrack(connection));
+
+                try {
+                    station.write(connection -> {
+                        try (PreparedStatement statement = connection.createPreparedStatement(VERSIONED_UPDATE_QUERY)) {
+                            statement.setLong(1, read[0] + 1);
+                            SQLiteUUIDCodec.setUUID(statement, 2, raceTrack.getUuid());
+                            statement.setLong(3, read[1]);
+                            SQLiteConflictException.check("The race track was changed by another station", statement.executeUpdate());
+                            return null;
+                        }
+                    });
+
+                    station.commit();
+                    update++;
+                } catch (SQLiteConflictException ex) {
+                    station.rollback();
+                    conflicts++;
+                }
+            }
+        } finally {
+            station.close();
+        }
+
+        return conflicts;
+    }
+
+    /**
+     * Increments the team size limit of the race track, without committing.
+     *
+     * @param connection the writer connection
+     *
+     * @return the number of rows updated
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private int increment(SQLiteConnection connection) throws SQLException {
+        try (PreparedStatement statement = connection.createPreparedStatement(INCREMENT_QUERY)) {
+            SQLiteUUIDCodec.setUUID(statement, 1, raceTrack.getUuid());
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Reads the team size limit and the version of the race track.
+     *
+     * @param connection the connection
+     *
+     * @return the team size limit and the version
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private long[] readRaceTrack(SQLiteConnection connection) throws SQLException {
+        try (PreparedStatement statement = connection.createPreparedStatement(READ_QUERY)) {
+            SQLiteUUIDCodec.setUUID(statement, 1, raceTrack.getUuid());
+
+            try (ResultSet row = statement.executeQuery()) {
+                row.next();
+                return new long[] { row.getLong(1), row.getLong(2) };
+            }
+        }
+    }
+
+    /**
+     * Reads the team size limit of the race track committed.
+     *
+     * @param database the database
+     *
+     * @return the team size limit
+     *
+     * @throws SQLException an exception thrown if a SQL problem occurs
+     */
+    private int readTeamSizeLimit(SQLiteDatabase database) throws SQLException {
+        return (int) database.read(connection -> readRaceTrack(connection))[0];
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Smart Race
+ * Copyright (C) 2015-2017 Fabien Vanden Bulck
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package be.bulck.smartrace.timing;
+
+import be.bulck.smartrace.dao.exception.DataProviderException;
+import be.bulck.smartrace.dao.handler.DurabilityProfile;
+import be.bulck.smartrace.dao.handler.sqlite.SQLiteDataHandler;
+import be.bulck.smartrace.dao.provider.RaceRecordListener;
+import be.bulck.smartrace.dao.provider.sqlite.RaceRecordSQLiteProvider;
+import be.bulck.smartrace.dao.provider.sqlite.RaceTrackSQLiteProvider;
+import be.bulck.smartrace.io.ingest.FinishEvent;
+import be.bulck.smartrace.io.ingest.FinishEventDeduplicator;
+import be.bulck.smartrace.io.ingest.FinishEventSink;
+import be.bulck.smartrace.io.ingest.RaceRecordFinishEventSink;
+import be.bulck.smartrace.io.sqlite.SQLiteDatabaseFactory;
+import be.bulck.smartrace.io.sqlite.SQLiteUUIDCodec;
+import be.bulck.smartrace.model.RaceRecord;
+import be.bulck.smartrace.model.RaceRecordState;
+import be.bulck.smartrace.model.RaceTrack;
+import be.bulck.smartrace.model.RacerTeam;
+import be.bulck.smartrace.ranking.Leaderboard;
+import be.bulck.smartrace.ranking.RankingEntry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the consumers of the capture path: the persistence, with its backpressure and its retries, and the
+ * leaderboard following it.
+ *
+ * @author Fabien Vanden Bulck
+ */
+public class TimingPipelineTest {
+
+    /** The maximum time to wait for the events to be handled (in milliseconds). */
+    private static final long TIMEOUT = 10000;
+
+    /** The folder of the race file. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+
+    @Test(timeout = TIMEOUT)
+    public void finishesWaitForTheSinkAndSlowTheProducersDown() throws Exception {
+        RecordingSink sink = new RecordingSink(false, 0);
+        TimingPipeline pipeline = new TimingPipeline(16);
+        PersistenceHandler persistence = new PersistenceHandler(sink, pipeline.getRingBuffer().getBatchLimit());
+        pipeline.addConsumer("persistence", persistence);
+        pipeline.start();
+
+        // The finishes waiting fill up, then the ring buffer behind the stalled consumer, until the events are rejected
+        TimingRingBuffer ringBuffer = pipeline.getRingBuffer();
+        int published = 0;
+
+        while (persistence.getStallCount() == 0 || ringBuffer.getOccupancy() < ringBuffer.getSize()) {
+            if (ringBuffer.tryPublish(TimingSource.TCP_FEED, published + 1, 1000L * (published + 1)) >= 0)
+                published++;
+
+            else
+                Thread.yield();
+        }
+
+        assertEquals(-1, ringBuffer.tryPublish(TimingSource.TCP_FEED, published + 1, 0));
+        assertEquals(ringBuffer.getBatchLimit() + ringBuffer.getSize(), published);
+        assertEquals(0, persistence.getPersistedCount());
+
+        sink.ready = true;
+        int total = published;
+        await(() -> persistence.getPersistedCount() == total);
+        pipeline.stop();
+
+        assertEquals(0, persistence.getFailedCount());
+        assertNumbers(sink, total);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void failedPersistenceIsRetried() throws Exception {
+        RecordingSink sink = new RecordingSink(true, 2);
+        TimingPipeline pipeline = new TimingPipeline(16);
+        PersistenceHandler persistence = new PersistenceHandler(sink, pipeline.getRingBuffer().getBatchLimit());
+        pipeline.addConsumer("persistence", persistence);
+        pipeline.start();
+
+        for (int number = 1; number <= 10; number++)
+            pipeline.publish(TimingSource.TCP_FEED, number, 1000L * number);
+
+        await(() -> persistence.getPersistedCount() == 10);
+        pipeline.stop();
+
+        assertEquals(2, persistence.getRetryCount());
+        assertEquals(0, persistence.getFailedCount());
+        assertNumbers(sink, 10);
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void finishesAreGivenUpWhenStoppedWithoutSink() throws Exception {
+        RecordingSink sink = new RecordingSink(false, 0);
+        TimingPipeline pipeline = new TimingPipeline(16);
+        PersistenceHandler persistence = new PersistenceHandler(sink, pipeline.getRingBuffer().getBatchLimit());
+        pipeline.addConsumer("persistence", persistence);
+        pipeline.start();
+
+        for (int number = 1; number <= 10; number++)
+            pipeline.publish(TimingSource.TCP_FEED, number, 1000L * number);
+
+        pipeline.stop();
+
+        assertEquals(0, persistence.getPersistedCount());
+        assertEquals(10, persistence.getFailedCount());
+    }
+
+    @Test(timeout = TIMEOUT)
+    public void finishesAreRankedFromTheirPersistence() throws Exception {
+        SQLiteDataHandler dataHandler = new SQLiteDataHandler();
+        RaceRecordSQLiteProvider raceRecordProvider = new RaceRecordSQLiteProvider();
+        RaceRecordFinishEventSink sink = new RaceRecordFinishEventSink(dataHandler, raceRecordProvider);
+        sink.init();
+        dataHandler.create(new File(folder.getRoot(), "test.race").getPath(), DurabilityProfile.TIMING);
+
+        try {
+            RaceTrack raceTrack = createRaceRecords(raceRecordProvider, 4);
+            RaceRecord cancelled = raceRecordProvider.findByNumber(4);
+            cancelled.setState(RaceRecordState.CANCELLED);
+            raceRecordProvider.update(cancelled);
+            dataHandler.save();
+
+            // The leaderboard follows the race records finished, as the leaderboard service does
+            Leaderboard leaderboard = new Leaderboard();
+            raceRecordProvider.addListener(new RaceRecordListener() {
+                @Override
+                public void raceRecordChanged(RaceRecord raceRecord) {
+                    leaderboard.update(raceRecord);
+                }
+
+                @Override
+                public void raceRecordDeleted(RaceRecord raceRecord) {
+                    leaderboard.remove(raceRecord);
+                }
+            });
+
+            FinishEventDeduplicator deduplicator = new FinishEventDeduplicator();
+            deduplicator.setWindow(1000);
+            deduplicator.setCapacity(100);
+
+            TimingPipeline pipeline = new TimingPipeline(16);
+            PersistenceHandler persistence = new PersistenceHandler(sink, pipeline.getRingBuffer().getBatchLimit());
+            TimingConsumer deduplication = pipeline.addConsumer("deduplication", new DeduplicationHandler(deduplicator));
+            pipeline.addConsumer("persistence", persistence, deduplication);
+            pipeline.start();
+
+            pipeline.publish(TimingSource.TCP_FEED, 2, 3000);
+            pipeline.publish(TimingSource.TCP_FEED, 1, 5000);
+            pipeline.publish(TimingSource.TCP_FEED, 2, 3500);
+            pipeline.publish(TimingSource.KEYBOARD, 3, 4000);
+            pipeline.publish(TimingSource.KEYBOARD, 99, 1000);
+            pipeline.publish(TimingSource.TCP_FEED, 4, 2000);
+            // Read again after the window of the deduplication: the first end time is kept, in the rankings too
+            pipeline.publish(TimingSource.TCP_FEED, 2, 9000);
+            pipeline.stop();
+
+            RankingEntry[] entries = leaderboard.top(raceTrack, 4);
+
+            assertEquals(3, entries.length);
+            assertEquals(2, entries[0].getNumber());
+            assertEquals(3000, entries[0].getElapsedTime().toMillis());
+            assertEquals(3, entries[1].getNumber());
+            assertEquals(1, entries[2].getNumber());
+            assertEquals(0, leaderboard.rankOf(raceTrack, 4));
+            assertEquals(0, persistence.getFailedCount());
+        } finally {
+            dataHandler.close();
+        }
+    }
+
+    /**
+     * Waits until a condition is met.
+     *
+     * @param condition the condition
+     *
+     * @throws InterruptedException an exception thrown if the wait is interrupted
+     */
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean())
+            Thread.sleep(5);
+    }
+
+    /**
+     * Checks that a sink persisted the numbers from 1, in order, each of them once.
+     *
+     * @param sink the sink
+     * @param count the number of numbers
+     */
+    private static void assertNumbers(RecordingSink sink, int count) {
+        assertEquals(count, sink.numbers.size());
+
+        for (int index = 0; index < count; index++)
+            assertEquals(index + 1, (int) sink.numbers.get(index));
+    }
+
+    /**
+     * Creates the race records of the race file, numbered from 1, on a single race track.
+     *
+     * @param raceRecordProvider the race record provider
+     * @param count the number of race records
+     *
+     * @return the race track
+     *
+     * @throws Exception an exception thrown if the creation fails
+     */
+    private static RaceTrack createRaceRecords(RaceRecordSQLiteProvider raceRecordProvider, int count) throws Exception {
+        RaceTrack raceTrack = new RaceTrack("Track", 10);
+        new RaceTrackSQLiteProvider().create(raceTrack);
+        RacerTeam racerTeam = new RacerTeam("Team");
+
+        SQLiteDatabaseFactory.getDatabase().write(connection -> {
+            try (PreparedStatement statement = connection.createPreparedStatement("INSERT INTO racer_team (racer_team_uuid, name) VALUES (?, ?)")) {
+                SQLiteUUIDCodec.setUUID(statement, 1, racerTeam.getUuid());
+                statement.setString(2, racerTeam.getName());
+                return statement.executeUpdate();
+            }
+        });
+
+        for (int number = 1; number <= count; number++) {
+            RaceRecord raceRecord = new RaceRecord(number, racerTeam, raceTrack);
+            raceRecord.setState(RaceRecordState.RUNNING);
+            raceRecordProvider.create(raceRecord);
+        }
+
+        return raceTrack;
+    }
+
+    /**
+     * A sink keeping the numbers of the finishes persisted in memory, which may not be ready and may fail the first
+     * attempts of persistence.
+     */
+    private static class RecordingSink implements FinishEventSink {
+
+        /** The numbers of the finishes persisted. */
+        private final List<Integer> numbers = new ArrayList<>();
+
+        /** Whether the sink is ready. */
+        private volatile boolean ready;
+
+        /** The number of attempts still to fail. */
+        private int failures;
+
+
+        /**
+         * Constructs an instance of recording sink.
+         *
+         * @param ready whether the sink is ready
+         * @param failures the number of attempts to fail
+         */
+        private RecordingSink(boolean ready, int failures) {
+            this.ready = ready;
+            this.failures = failures;
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public synchronized int persist(List<FinishEvent> events) throws DataProviderException {
+            int[] eventNumbers = new int[events.size()];
+
+            for (int index = 0; index < eventNumbers.length; index++)
+                eventNumbers[index] = events.get(index).getNumber();
+
+            return persist(eventNumbers, new long[eventNumbers.length], eventNumbers.length);
+        }
+
+        @Override
+        public synchronized int persist(int[] finishNumbers, long[] times, int count) throws DataProviderException {
+            if (failures > 0) {
+                failures--;
+                throw new DataProviderException("The race file is busy");
+            }
+
+            for (int index = 0; index < count; index++)
+                numbers.add(finishNumbers[index]);
+
+            return count;
+        }
+    }
+}